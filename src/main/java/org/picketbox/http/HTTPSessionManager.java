@@ -22,6 +22,15 @@
 
 package org.picketbox.http;
 
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.picketbox.core.PicketBoxManager;
@@ -29,30 +38,449 @@ import org.picketbox.core.UserContext;
 import org.picketbox.core.authentication.PicketBoxConstants;
 import org.picketbox.core.session.DefaultSessionManager;
 import org.picketbox.core.session.PicketBoxSession;
+import org.picketbox.http.authentication.StatelessHttpServletCredential;
+import org.picketbox.http.config.HTTPSharedSessionConfiguration;
+import org.picketbox.http.config.HTTPStatelessSessionConfiguration;
 import org.picketbox.http.config.PicketBoxHTTPConfiguration;
+import org.picketbox.http.session.NearCacheUserContextStore;
+import org.picketbox.http.session.PicketBoxRequestSession;
+import org.picketbox.http.session.PicketBoxSharedSession;
+import org.picketbox.http.session.PicketBoxStatelessSession;
+import org.picketbox.http.session.RestoredUserContext;
+import org.picketbox.http.session.SessionStateReaper;
+import org.picketbox.http.session.StatelessSessionCodec;
+import org.picketbox.http.session.StatelessSessionRevocationList;
+import org.picketbox.http.session.StatelessSessionToken;
+import org.picketbox.http.session.StatelessUserContext;
+import org.picketbox.http.session.StoredUserContext;
+import org.picketbox.http.session.UserSessionIndex;
+import org.picketlink.idm.model.Role;
 
 /**
+ * <p>
+ * Session manager for web applications. By default the authenticated {@link UserContext} is stored in the {@link HttpSession}.
+ * If a stateless session was configured, the user is stored in a signed cookie and verified on each request without any
+ * server-side state. If a shared session was configured, the user is stored in a {@link NearCacheUserContextStore} shared by
+ * all nodes and identified by a cookie.
+ * </p>
+ *
  * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
  *
  */
 public class HTTPSessionManager extends DefaultSessionManager {
 
+    /**
+     * Request attribute used to cache the {@link UserContext} resolved from a stateless or shared session cookie.
+     */
+    private static final String USER_CONTEXT_ATTRIBUTE = HTTPSessionManager.class.getName() + ".USER_CONTEXT";
+
+    /**
+     * Request attribute holding the {@link UserContext} authenticated with a {@link StatelessHttpServletCredential}.
+     */
+    private static final String REQUEST_USER_CONTEXT_ATTRIBUTE = HTTPSessionManager.class.getName() + ".REQUEST_USER_CONTEXT";
+
+    private static final Object NO_USER_CONTEXT = new Object();
+
     private PicketBoxHTTPConfiguration configuration;
+    private SessionStateReaper sessionStateReaper;
+    private UserSessionIndex userSessionIndex;
+
+    private HTTPStatelessSessionConfiguration statelessConfiguration;
+    private StatelessSessionCodec statelessCodec;
+    private StatelessSessionRevocationList revocationList;
+
+    private HTTPSharedSessionConfiguration sharedConfiguration;
+    private NearCacheUserContextStore sharedStore;
+    private SecureRandom random;
 
     public HTTPSessionManager(PicketBoxManager picketBoxManager) {
         super(picketBoxManager);
         this.configuration = (PicketBoxHTTPConfiguration) picketBoxManager.getConfiguration();
+
+        this.userSessionIndex = new UserSessionIndex(this.configuration.getSessionManager().getMaxSessionsPerUser());
+
+        if (picketBoxManager instanceof PicketBoxHTTPManager) {
+            this.sessionStateReaper = ((PicketBoxHTTPManager) picketBoxManager).getSessionStateReaper();
+            this.sessionStateReaper.register(this.userSessionIndex);
+        }
+        this.statelessConfiguration = this.configuration.getSessionManager().getStatelessConfiguration();
+
+        if (this.statelessConfiguration != null) {
+            this.statelessCodec = new StatelessSessionCodec(this.statelessConfiguration.getSigningKey(),
+                    this.statelessConfiguration.getEncryptionKey());
+            this.revocationList = new StatelessSessionRevocationList(this.statelessConfiguration.getMaxAge() * 1000L,
+                    this.statelessConfiguration.getRevocationStore(),
+                    this.statelessConfiguration.getRevocationRefreshInterval());
+        }
+
+        this.sharedConfiguration = this.configuration.getSessionManager().getSharedConfiguration();
+
+        if (this.sharedConfiguration != null) {
+            this.sharedStore = new NearCacheUserContextStore(this.sharedConfiguration.getStore(),
+                    this.sharedConfiguration.getMaxStaleness(), this.sharedConfiguration.getFlushInterval(),
+                    this.sharedConfiguration.getBatchSize());
+            this.random = new SecureRandom();
+        }
     }
 
     @Override
     protected PicketBoxSession doCreateSession(UserContext authenticatedUserContext) {
         HTTPUserContext httpUserContext = (HTTPUserContext) authenticatedUserContext;
 
+        if (httpUserContext.getRequest() == null) {
+            // exchanges processed outside a servlet container are authenticated on each request
+            return new PicketBoxRequestSession();
+        }
+
+        if (httpUserContext.getCredential() instanceof StatelessHttpServletCredential) {
+            // credentials sent with every request are authenticated again on each one, there is nothing to keep
+            httpUserContext.getRequest().setAttribute(REQUEST_USER_CONTEXT_ATTRIBUTE, httpUserContext);
+            return new PicketBoxRequestSession();
+        }
+
+        if (isStateless()) {
+            return createStatelessSession(httpUserContext);
+        }
+
+        if (isShared()) {
+            return createSharedSession(httpUserContext);
+        }
+
         HttpSession httpSession = httpUserContext.getRequest().getSession();
 
         httpSession.setAttribute(getUserAttributeName(), httpUserContext);
 
-        return new PicketBoxHTTPSession(httpSession);
+        if (this.sessionStateReaper != null) {
+            this.sessionStateReaper.track(httpSession);
+        }
+
+        PicketBoxHTTPSession session = new PicketBoxHTTPSession(httpSession);
+
+        this.userSessionIndex.add(httpUserContext.getPrincipal().getName(), httpSession.getId(), session, Long.MAX_VALUE);
+
+        return session;
+    }
+
+    /**
+     * <p>
+     * Returns the {@link UserContext} associated with the given request or null if there is no authenticated user.
+     * </p>
+     *
+     * @param request
+     * @return
+     */
+    public UserContext getUserContext(HttpServletRequest request) {
+        UserContext requestUserContext = (UserContext) request.getAttribute(REQUEST_USER_CONTEXT_ATTRIBUTE);
+
+        if (requestUserContext != null) {
+            return requestUserContext;
+        }
+
+        if (isStateless()) {
+            return getStatelessUserContext(request);
+        }
+
+        if (isShared()) {
+            return getSharedUserContext(request);
+        }
+
+        HttpSession session = request.getSession(false);
+
+        if (session == null) {
+            return null;
+        }
+
+        UserContext userContext = (UserContext) session.getAttribute(getUserAttributeName());
+
+        if (userContext != null && this.userSessionIndex.isLimited()) {
+            this.userSessionIndex.touch(session.getId());
+        }
+
+        return userContext;
+    }
+
+    /**
+     * <p>
+     * Ends the stateless or shared session associated with the given request, if any. The stateless token is revoked or the
+     * shared entry is removed, and the cookie is removed from the client.
+     * </p>
+     *
+     * @param request
+     * @param response
+     */
+    public void logout(HttpServletRequest request, HttpServletResponse response) {
+        String cookieName = null;
+
+        if (isStateless()) {
+            UserContext userContext = getStatelessUserContext(request);
+
+            if (userContext instanceof StatelessUserContext) {
+                StatelessSessionToken token = ((StatelessUserContext) userContext).getToken();
+
+                this.revocationList.revoke(token);
+                this.userSessionIndex.remove(token.getId());
+            }
+
+            cookieName = this.statelessConfiguration.getCookieName();
+        } else if (isShared()) {
+            cookieName = this.sharedConfiguration.getCookieName();
+
+            String id = getCookieValue(request, cookieName);
+
+            if (id != null) {
+                this.sharedStore.remove(Collections.singletonList(id));
+                this.userSessionIndex.remove(id);
+            }
+        }
+
+        if (cookieName != null) {
+            request.removeAttribute(USER_CONTEXT_ATTRIBUTE);
+
+            Cookie cookie = createCookie(request, cookieName, "");
+
+            cookie.setMaxAge(0);
+
+            response.addCookie(cookie);
+        }
+    }
+
+    /**
+     * <p>
+     * Invalidates all the sessions of the given principal. In stateless mode the cookies issued by other nodes are only
+     * rejected by them if a {@link org.picketbox.http.session.SessionRevocationStore} is configured.
+     * </p>
+     *
+     * @param principal
+     * @return the number of sessions invalidated
+     */
+    public int logoutAll(String principal) {
+        int count = this.userSessionIndex.logoutAll(principal);
+
+        if (isStateless()) {
+            // honoured by the other nodes only if a shared revocation store is configured
+            this.revocationList.revokeAll(principal);
+        }
+
+        return count;
+    }
+
+    /**
+     * <p>
+     * Returns the index of sessions per principal.
+     * </p>
+     *
+     * @return
+     */
+    public UserSessionIndex getUserSessionIndex() {
+        return this.userSessionIndex;
+    }
+
+    /**
+     * <p>
+     * Releases the resources held by this instance. Pending writes to the shared store are flushed.
+     * </p>
+     */
+    public void close() {
+        if (this.sharedStore != null) {
+            this.sharedStore.close();
+        }
+
+        if (this.revocationList != null) {
+            this.revocationList.close();
+        }
+    }
+
+    /**
+     * <p>
+     * Indicates if users are stored in a signed cookie instead of the {@link HttpSession}.
+     * </p>
+     *
+     * @return
+     */
+    public boolean isStateless() {
+        return this.statelessCodec != null;
+    }
+
+    /**
+     * <p>
+     * Indicates if users are stored in a {@link NearCacheUserContextStore} shared by all nodes.
+     * </p>
+     *
+     * @return
+     */
+    public boolean isShared() {
+        return this.sharedStore != null;
+    }
+
+    /**
+     * <p>
+     * Returns the store used to share users between nodes or null if the shared mode is not enabled.
+     * </p>
+     *
+     * @return
+     */
+    public NearCacheUserContextStore getSharedStore() {
+        return this.sharedStore;
+    }
+
+    /**
+     * <p>
+     * Returns the list of revoked stateless sessions or null if the stateless mode is not enabled.
+     * </p>
+     *
+     * @return
+     */
+    public StatelessSessionRevocationList getRevocationList() {
+        return this.revocationList;
+    }
+
+    private PicketBoxSession createStatelessSession(HTTPUserContext httpUserContext) {
+        HttpServletRequest request = httpUserContext.getRequest();
+        long now = System.currentTimeMillis();
+
+        StatelessSessionToken token = new StatelessSessionToken(this.statelessCodec.newTokenId(), httpUserContext
+                .getPrincipal().getName(), getRoleNames(httpUserContext), now, now
+                + this.statelessConfiguration.getMaxAge() * 1000L);
+
+        Cookie cookie = createCookie(request, this.statelessConfiguration.getCookieName(), this.statelessCodec.encode(token));
+
+        cookie.setMaxAge(this.statelessConfiguration.getMaxAge());
+
+        httpUserContext.getResponse().addCookie(cookie);
+
+        // the user is now authenticated for the remaining of this request
+        request.setAttribute(USER_CONTEXT_ATTRIBUTE, httpUserContext);
+
+        PicketBoxStatelessSession session = new PicketBoxStatelessSession(token, this.revocationList);
+
+        this.userSessionIndex.add(token.getPrincipal(), token.getId(), session, token.getExpiresAt());
+
+        return session;
+    }
+
+    private UserContext getStatelessUserContext(HttpServletRequest request) {
+        Object cached = request.getAttribute(USER_CONTEXT_ATTRIBUTE);
+
+        if (cached != null) {
+            return cached == NO_USER_CONTEXT ? null : (UserContext) cached;
+        }
+
+        UserContext userContext = null;
+        StatelessSessionToken token = this.statelessCodec.decode(getCookieValue(request,
+                this.statelessConfiguration.getCookieName()));
+
+        if (token != null && !token.isExpired(System.currentTimeMillis()) && !this.revocationList.isRevoked(token)) {
+            userContext = new StatelessUserContext(request, token);
+        }
+
+        request.setAttribute(USER_CONTEXT_ATTRIBUTE, userContext != null ? userContext : NO_USER_CONTEXT);
+
+        return userContext;
+    }
+
+    private PicketBoxSession createSharedSession(HTTPUserContext httpUserContext) {
+        HttpServletRequest request = httpUserContext.getRequest();
+        String id = newSessionId();
+
+        StoredUserContext storedUserContext = new StoredUserContext(id, httpUserContext.getPrincipal().getName(),
+                getRoleNames(httpUserContext), System.currentTimeMillis() + this.sharedConfiguration.getMaxAge() * 1000L);
+
+        this.sharedStore.store(Collections.singletonList(storedUserContext));
+
+        Cookie cookie = createCookie(request, this.sharedConfiguration.getCookieName(), id);
+
+        cookie.setMaxAge(this.sharedConfiguration.getMaxAge());
+
+        httpUserContext.getResponse().addCookie(cookie);
+
+        // the user is now authenticated for the remaining of this request
+        request.setAttribute(USER_CONTEXT_ATTRIBUTE, httpUserContext);
+
+        PicketBoxSharedSession session = new PicketBoxSharedSession(id, this.sharedStore);
+
+        this.userSessionIndex.add(storedUserContext.getPrincipal(), id, session, storedUserContext.getExpiresAt());
+
+        return session;
+    }
+
+    private UserContext getSharedUserContext(HttpServletRequest request) {
+        Object cached = request.getAttribute(USER_CONTEXT_ATTRIBUTE);
+
+        if (cached != null) {
+            return cached == NO_USER_CONTEXT ? null : (UserContext) cached;
+        }
+
+        UserContext userContext = null;
+        String id = getCookieValue(request, this.sharedConfiguration.getCookieName());
+
+        if (id != null) {
+            StoredUserContext storedUserContext = this.sharedStore.get(id);
+
+            if (storedUserContext != null) {
+                userContext = new RestoredUserContext(request, storedUserContext.getPrincipal(),
+                        storedUserContext.getRoles());
+            }
+        }
+
+        request.setAttribute(USER_CONTEXT_ATTRIBUTE, userContext != null ? userContext : NO_USER_CONTEXT);
+
+        return userContext;
+    }
+
+    private String newSessionId() {
+        byte[] bytes = new byte[16];
+
+        this.random.nextBytes(bytes);
+
+        StringBuilder id = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes) {
+            id.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return id.toString();
+    }
+
+    private String getCookieValue(HttpServletRequest request, String cookieName) {
+        Cookie[] cookies = request.getCookies();
+
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookieName.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private Cookie createCookie(HttpServletRequest request, String cookieName, String value) {
+        Cookie cookie = new Cookie(cookieName, value);
+        String path = request.getContextPath();
+
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+
+        cookie.setPath(path);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+
+        return cookie;
+    }
+
+    private String[] getRoleNames(UserContext userContext) {
+        Collection<Role> roles = userContext.getRoles();
+        List<String> names = new ArrayList<String>();
+
+        if (roles != null) {
+            for (Role role : roles) {
+                names.add(role.getName());
+            }
+        }
+
+        return names.toArray(new String[names.size()]);
     }
 
     /**
@@ -21,6 +21,8 @@
  */
 package org.picketbox.http;
 
+import java.util.Date;
+
 import org.jboss.logging.BasicLogger;
 import org.jboss.logging.Cause;
 import org.jboss.logging.LogMessage;
@@ -81,4 +83,32 @@ public interface PicketBoxHTTPLogger extends BasicLogger {
     @Message(id = 509, value = "ALL RESOURCES WILL BE PROTECTED. MAYBE YOU DID NOT DEFINE WHICH RESOURCES SHOULD BE PROTECTED.")
     void allResourcesWillBeProteced();
 
+    @LogMessage(level = Logger.Level.DEBUG)
+    @Message(id = 510, value = "Could not register %s. Session state will be reclaimed when sessions are unbound.")
+    void debugSessionListenerNotRegistered(String listener, @Cause Throwable throwable);
+
+    @LogMessage(level = Logger.Level.DEBUG)
+    @Message(id = 511, value = "Failed to refresh cached identity %s. The stale entry will be used until it expires.")
+    void debugIdentityRefreshFailed(String key, @Cause Throwable throwable);
+
+    @LogMessage(level = Logger.Level.ERROR)
+    @Message(id = 512, value = "Asynchronous security processing failed for %s")
+    void errorAsyncSecurityProcessing(String requestURI, @Cause Throwable throwable);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 513, value = "Virtual threads are not available in this JVM. Blocking security calls will use the request threads.")
+    void warnVirtualThreadsNotSupported();
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 514, value = "Failed to reload %s. The previously loaded data will be used until the files can be read again.")
+    void warnReloadFailed(String what, @Cause Throwable throwable);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 515, value = "Revocation data from %s expired at %s and was not replaced by a newer file.")
+    void warnStaleRevocationData(String fileName, Date nextUpdate);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 516, value = "Failed to send pending changes to the shared user context store. They will be sent again on the next flush.")
+    void warnUserContextStoreFlushFailed(@Cause Throwable throwable);
+
 }
\ No newline at end of file
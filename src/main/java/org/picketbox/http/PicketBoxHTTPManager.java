@@ -23,20 +23,46 @@
 package org.picketbox.http;
 
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.picketbox.core.AbstractPicketBoxManager;
 import org.picketbox.core.PicketBoxManager;
 import org.picketbox.core.UserContext;
-import org.picketbox.core.authentication.PicketBoxConstants;
 import org.picketbox.core.authorization.Resource;
 import org.picketbox.http.authorization.resource.WebResource;
+import org.picketbox.http.concurrent.SecurityContextExecutor;
+import org.picketbox.http.concurrent.VirtualThreads;
+import org.picketbox.http.config.HTTPAPIKeyConfiguration;
+import org.picketbox.http.config.HTTPAuthenticationConfiguration;
+import org.picketbox.http.config.HTTPBulkheadConfiguration;
+import org.picketbox.http.config.HTTPCircuitBreakerConfiguration;
+import org.picketbox.http.config.HTTPClientCertConfiguration;
+import org.picketbox.http.config.HTTPFormConfiguration;
+import org.picketbox.http.config.HTTPIdentityCacheConfiguration;
+import org.picketbox.http.config.HTTPUserBatchingConfiguration;
 import org.picketbox.http.config.PicketBoxHTTPConfiguration;
+import org.picketbox.http.exchange.ExchangeResource;
+import org.picketbox.http.exchange.ExchangeUserContext;
+import org.picketbox.http.exchange.HTTPExchange;
+import org.picketbox.http.identity.APIKeyIndex;
+import org.picketbox.http.identity.BatchingIdentityLoader;
+import org.picketbox.http.identity.Bulkhead;
+import org.picketbox.http.identity.CertificateChainValidator;
+import org.picketbox.http.identity.CertificateFingerprintIndex;
+import org.picketbox.http.identity.CertificateRevocationIndex;
+import org.picketbox.http.identity.CircuitBreaker;
+import org.picketbox.http.identity.IdentityCache;
+import org.picketbox.http.identity.VerifiedCredentialCache;
+import org.picketbox.http.resource.HTTPProtectedResourceManager;
 import org.picketbox.http.resource.ProtectedResource;
 import org.picketbox.http.resource.ProtectedResourceManager;
+import org.picketbox.http.session.RememberMeManager;
+import org.picketbox.http.session.SessionStateReaper;
+import org.picketlink.idm.model.User;
 
 /**
  * <p>
@@ -50,6 +76,20 @@ public final class PicketBoxHTTPManager extends AbstractPicketBoxManager {
     @SuppressWarnings("rawtypes")
     private ProtectedResourceManager protectedResourceManager;
     private PicketBoxHTTPConfiguration configuration;
+    private HTTPSessionManager sessionManager;
+    private final SessionStateReaper sessionStateReaper = new SessionStateReaper();
+    private IdentityCache<User> identityCache;
+    private BatchingIdentityLoader<User> userLoader;
+    private Bulkhead authenticationBulkhead;
+    private CircuitBreaker circuitBreaker;
+    private VerifiedCredentialCache verifiedCredentialCache;
+    private APIKeyIndex apiKeyIndex;
+    private CertificateFingerprintIndex certificateIndex;
+    private CertificateRevocationIndex revocationIndex;
+    private CertificateChainValidator chainValidator;
+    private RememberMeManager rememberMeManager;
+    private ExecutorService virtualThreadExecutor;
+    private Executor blockingExecutor;
 
     public PicketBoxHTTPManager(PicketBoxHTTPConfiguration configuration) {
         super(configuration);
@@ -69,6 +109,10 @@ public final class PicketBoxHTTPManager extends AbstractPicketBoxManager {
             return true;
         }
 
+        if (subject instanceof ExchangeUserContext) {
+            return getProtectedResource(((ExchangeUserContext) subject).getExchange()).requiresAuthentication();
+        }
+
         HTTPUserContext httpUserContext = (HTTPUserContext) subject;
 
         ProtectedResource protectedResource = this.protectedResourceManager.getProtectedResource(createWebResource(
@@ -81,7 +125,13 @@ public final class PicketBoxHTTPManager extends AbstractPicketBoxManager {
     @Override
     public boolean authorize(UserContext subject, Resource resource) {
         if (this.protectedResourceManager != null && subject != null) {
-            ProtectedResource protectedResource = this.protectedResourceManager.getProtectedResource(resource);
+            ProtectedResource protectedResource;
+
+            if (resource instanceof ExchangeResource) {
+                protectedResource = getProtectedResource(((ExchangeResource) resource).getExchange());
+            } else {
+                protectedResource = this.protectedResourceManager.getProtectedResource(resource);
+            }
 
             if (protectedResource.requiresAuthorization() && subject.isAuthenticated()) {
                 if (!protectedResource.isAllowed(subject)) {
@@ -95,6 +145,28 @@ public final class PicketBoxHTTPManager extends AbstractPicketBoxManager {
         return true;
     }
 
+    /**
+     * <p>
+     * Returns the {@link ProtectedResource} matching the path of the given exchange.
+     * </p>
+     */
+    private ProtectedResource getProtectedResource(HTTPExchange exchange) {
+        if (this.protectedResourceManager instanceof HTTPProtectedResourceManager) {
+            return ((HTTPProtectedResourceManager) this.protectedResourceManager).getProtectedResource(exchange
+                    .getRequestPath());
+        }
+
+        for (Object resource : this.protectedResourceManager.getResources()) {
+            ProtectedResource protectedResource = (ProtectedResource) resource;
+
+            if (protectedResource.matches(exchange.getRequestPath())) {
+                return protectedResource;
+            }
+        }
+
+        return ProtectedResource.DEFAULT_RESOURCE;
+    }
+
     private WebResource createWebResource(HttpServletRequest request, HttpServletResponse response) {
         WebResource resource = new WebResource();
 
@@ -121,36 +193,278 @@ public final class PicketBoxHTTPManager extends AbstractPicketBoxManager {
 
         this.protectedResourceManager.start();
 
-        HTTPSessionManager sessionManager = new HTTPSessionManager(this);
+        this.sessionManager = new HTTPSessionManager(this);
+
+        this.sessionManager.start();
+
+        setSessionManager(this.sessionManager);
+
+        HTTPAuthenticationConfiguration authenticationConfig = (HTTPAuthenticationConfiguration) this.configuration
+                .getAuthentication();
+        HTTPIdentityCacheConfiguration identityCacheConfig = authenticationConfig.getIdentityCacheConfiguration();
+
+        if (identityCacheConfig != null) {
+            this.identityCache = new IdentityCache<User>(identityCacheConfig.getSoftTimeToLive(),
+                    identityCacheConfig.getHardTimeToLive(), identityCacheConfig.getNegativeTimeToLive(),
+                    identityCacheConfig.getMaxEntries(), identityCacheConfig.getRefreshThreads());
+        }
 
-        sessionManager.start();
+        HTTPUserBatchingConfiguration userBatchingConfig = authenticationConfig.getUserBatchingConfiguration();
+
+        if (userBatchingConfig != null) {
+            this.userLoader = new BatchingIdentityLoader<User>(userBatchingConfig.getLoader(), userBatchingConfig.getWindow(),
+                    userBatchingConfig.getMaxBatchSize());
+        }
+
+        HTTPBulkheadConfiguration bulkheadConfig = authenticationConfig.getBulkheadConfiguration();
+
+        if (bulkheadConfig != null) {
+            this.authenticationBulkhead = new Bulkhead(bulkheadConfig.getMaxConcurrentCalls(), bulkheadConfig.getMaxQueueSize(),
+                    bulkheadConfig.getMaxWait(), bulkheadConfig.getRetryAfter());
+        }
+
+        HTTPCircuitBreakerConfiguration circuitBreakerConfig = authenticationConfig.getCircuitBreakerConfiguration();
+
+        if (circuitBreakerConfig != null) {
+            this.circuitBreaker = new CircuitBreaker(circuitBreakerConfig.getFailureRateThreshold(),
+                    circuitBreakerConfig.getSlowCallRateThreshold(), circuitBreakerConfig.getSlowCallDuration(),
+                    circuitBreakerConfig.getMinimumCalls(), circuitBreakerConfig.getWindow(),
+                    circuitBreakerConfig.getOpenDuration(), circuitBreakerConfig.getHalfOpenCalls());
+
+            if (circuitBreakerConfig.getFallbackTimeToLive() > 0) {
+                this.verifiedCredentialCache = new VerifiedCredentialCache(circuitBreakerConfig.getFallbackTimeToLive(),
+                        circuitBreakerConfig.getFallbackMaxEntries());
+            }
+        }
+
+        HTTPAPIKeyConfiguration apiKeyConfig = authenticationConfig.getAPIKeyConfiguration();
+
+        if (apiKeyConfig != null && apiKeyConfig.getSecret() != null) {
+            this.apiKeyIndex = new APIKeyIndex(apiKeyConfig.getSecret(), apiKeyConfig.getLoader(),
+                    apiKeyConfig.getRefreshInterval());
+        }
+
+        HTTPClientCertConfiguration clientCertConfig = authenticationConfig.getClientCertConfiguration();
+
+        if (clientCertConfig != null && clientCertConfig.getCertificateMappingsFile() != null) {
+            this.certificateIndex = CertificateFingerprintIndex.load(clientCertConfig.getCertificateMappingsFile());
+        }
+
+        if (clientCertConfig != null && !clientCertConfig.getRevocationFiles().isEmpty()) {
+            this.revocationIndex = new CertificateRevocationIndex(clientCertConfig.getRevocationFiles(),
+                    clientCertConfig.getRevocationRefreshInterval(), clientCertConfig.isRejectStaleRevocationData());
+        }
 
-        setSessionManager(sessionManager);
+        if (clientCertConfig != null && clientCertConfig.getTrustAnchorsFile() != null) {
+            this.chainValidator = CertificateChainValidator.load(clientCertConfig.getTrustAnchorsFile(),
+                    clientCertConfig.getIntermediatesFile(), clientCertConfig.getChainCacheTimeToLive(),
+                    clientCertConfig.getMaxCachedChains());
+        }
+
+        HTTPFormConfiguration formConfig = authenticationConfig.getFormConfiguration();
+
+        if (formConfig != null && formConfig.getRememberMeStore() != null) {
+            this.rememberMeManager = new RememberMeManager(formConfig.getRememberMeStore(),
+                    formConfig.getRememberMeCookieName(), formConfig.getRememberMeMaxAge());
+        }
+
+        if (authenticationConfig.isUseVirtualThreads()) {
+            this.virtualThreadExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+            if (this.virtualThreadExecutor != null) {
+                this.blockingExecutor = new SecurityContextExecutor(this.virtualThreadExecutor);
+            } else {
+                PicketBoxHTTPLogger.LOGGER.warnVirtualThreadsNotSupported();
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.picketbox.core.AbstractPicketBoxManager#doStop()
+     */
+    @Override
+    protected void doStop() {
+        super.doStop();
+
+        if (this.sessionManager != null) {
+            this.sessionManager.close();
+        }
+
+        if (this.identityCache != null) {
+            this.identityCache.close();
+        }
+
+        if (this.apiKeyIndex != null) {
+            this.apiKeyIndex.close();
+        }
+
+        if (this.revocationIndex != null) {
+            this.revocationIndex.close();
+        }
+
+        if (this.virtualThreadExecutor != null) {
+            this.virtualThreadExecutor.shutdown();
+        }
     }
 
     public UserContext getUserContext(HttpServletRequest request) {
-        HttpSession session = request.getSession(false);
+        return this.sessionManager.getUserContext(request);
+    }
+
+    /**
+     * <p>
+     * Ends any session state kept on the client for the given request, including the persistent login used by the
+     * remember-me authentication. See {@link HTTPSessionManager#logout(HttpServletRequest, HttpServletResponse)}.
+     * </p>
+     *
+     * @param request
+     * @param response
+     */
+    public void logout(HttpServletRequest request, HttpServletResponse response) {
+        this.sessionManager.logout(request, response);
 
-        if (session == null) {
-            return null;
+        if (this.rememberMeManager != null) {
+            this.rememberMeManager.forget(request, response);
+        }
+    }
+
+    /**
+     * <p>
+     * Logs out the given principal from all its sessions and removes its persistent logins. See
+     * {@link HTTPSessionManager#logoutAll(String)}.
+     * </p>
+     *
+     * @param principal
+     * @return the number of sessions invalidated
+     */
+    public int logoutAll(String principal) {
+        if (this.rememberMeManager != null) {
+            this.rememberMeManager.forgetAll(principal);
         }
 
-        return (UserContext) session.getAttribute(getUserAttributeName());
+        return this.sessionManager.logoutAll(principal);
     }
 
     /**
-     * <p>Returns the attribute name that should be used to store the {@link UserContext}.</p>
+     * <p>Returns the {@link SessionStateReaper} used to reclaim the state kept for each {@link javax.servlet.http.HttpSession}.</p>
      *
      * @return
      */
-    private String getUserAttributeName() {
-        String name = this.configuration.getSessionManager().getSessionAttributeName();
+    public SessionStateReaper getSessionStateReaper() {
+        return this.sessionStateReaper;
+    }
 
-        if (name == null) {
-            name = PicketBoxConstants.SUBJECT;
-        }
+    /**
+     * <p>Returns the {@link HTTPSessionManager} used to manage the user sessions.</p>
+     *
+     * @return
+     */
+    public HTTPSessionManager getHTTPSessionManager() {
+        return this.sessionManager;
+    }
 
-        return name;
+    /**
+     * <p>Returns the cache used to look up users or null if the cache is not enabled.</p>
+     *
+     * @return
+     */
+    public IdentityCache<User> getIdentityCache() {
+        return this.identityCache;
+    }
+
+    /**
+     * <p>Returns the loader used to batch user lookups or null if users should be looked up individually.</p>
+     *
+     * @return
+     */
+    public BatchingIdentityLoader<User> getUserLoader() {
+        return this.userLoader;
+    }
+
+    /**
+     * <p>Returns the bulkhead limiting concurrent credential verifications or null if they are not limited.</p>
+     *
+     * @return
+     */
+    public Bulkhead getAuthenticationBulkhead() {
+        return this.authenticationBulkhead;
+    }
+
+    /**
+     * <p>Returns the circuit breaker around the identity store or null if it is not enabled.</p>
+     *
+     * @return
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
+
+    /**
+     * <p>Returns the cache of verified credentials accepted while the circuit is open or null if this fallback is not enabled.</p>
+     *
+     * @return
+     */
+    public VerifiedCredentialCache getVerifiedCredentialCache() {
+        return this.verifiedCredentialCache;
+    }
+
+    /**
+     * <p>Returns the index used to authenticate API keys or null if the API key authentication is not configured.</p>
+     *
+     * @return
+     */
+    public APIKeyIndex getAPIKeyIndex() {
+        return this.apiKeyIndex;
+    }
+
+    /**
+     * <p>Returns the index mapping certificate fingerprints to users or null if no certificate mappings are configured.</p>
+     *
+     * @return
+     */
+    public CertificateFingerprintIndex getCertificateFingerprintIndex() {
+        return this.certificateIndex;
+    }
+
+    /**
+     * <p>Returns the index of revoked certificates or null if no revocation files are configured.</p>
+     *
+     * @return
+     */
+    public CertificateRevocationIndex getCertificateRevocationIndex() {
+        return this.revocationIndex;
+    }
+
+    /**
+     * <p>Returns the validator of client certificate chains or null if no trust anchors are configured.</p>
+     *
+     * @return
+     */
+    public CertificateChainValidator getCertificateChainValidator() {
+        return this.chainValidator;
+    }
+
+    /**
+     * <p>Returns the manager of persistent logins or null if the remember-me authentication is not enabled.</p>
+     *
+     * @return
+     */
+    public RememberMeManager getRememberMeManager() {
+        return this.rememberMeManager;
+    }
+
+    /**
+     * <p>
+     * Returns the executor used to run blocking security calls on virtual threads or null if they should run on the calling
+     * thread. Tasks run with the {@link org.picketbox.core.ctx.SecurityContext} of the thread that submitted them.
+     * </p>
+     *
+     * @return
+     */
+    public Executor getBlockingExecutor() {
+        return this.blockingExecutor;
     }
 
     @SuppressWarnings("unchecked")
@@ -159,4 +473,8 @@ public final class PicketBoxHTTPManager extends AbstractPicketBoxManager {
                 && this.protectedResourceManager.getProtectedResource(createWebResource(request, response))
                         .requiresAuthentication();
     }
+
+    public boolean requiresAuthentication(HTTPExchange exchange) {
+        return this.protectedResourceManager != null && getProtectedResource(exchange).requiresAuthentication();
+    }
 }
\ No newline at end of file
@@ -34,6 +34,7 @@ import org.picketbox.core.exceptions.AuthorizationException;
 import org.picketbox.core.exceptions.ConfigurationException;
 import org.picketbox.core.exceptions.PicketBoxSessionException;
 import org.picketbox.core.exceptions.ProcessingException;
+import org.picketbox.http.identity.IdentityStoreUnavailableException;
 
 /**
  * An instance of {@link MessageBundle} from JBoss Logging
@@ -162,4 +163,25 @@ public interface PicketBoxHTTPMessages {
 
     @Message(id = 46, value = "Exception.")
     IllegalStateException runtimeException(@Cause Throwable e);
-}
\ No newline at end of file
+
+    @Message(id = 47, value = "Identity store is unavailable.")
+    IdentityStoreUnavailableException identityStoreUnavailable();
+
+    @Message(id = 48, value = "Invalid authentication path mapping %s. Expected <path>=<mechanism>, where path has a single segment like /api.")
+    IllegalArgumentException invalidAuthenticationPathMapping(String mapping);
+
+    @Message(id = 49, value = "Invalid key %s for token verification.")
+    IllegalArgumentException invalidTokenKey(String keyId, @Cause Throwable throwable);
+
+    @Message(id = 50, value = "Invalid token introspection endpoint %s.")
+    IllegalArgumentException invalidIntrospectionEndpoint(String endpoint, @Cause Throwable throwable);
+
+    @Message(id = 51, value = "Token introspection endpoint %s is unavailable.")
+    IdentityStoreUnavailableException introspectionEndpointUnavailable(String endpoint, @Cause Throwable throwable);
+
+    @Message(id = 52, value = "Invalid certificate mapping %s. Expected <SHA-256 fingerprint>=<user>.")
+    IllegalArgumentException invalidCertificateFingerprint(String mapping);
+
+    @Message(id = 54, value = "Too many concurrent calls to the identity store.")
+    IdentityStoreSaturatedException identityStoreSaturated();
+}
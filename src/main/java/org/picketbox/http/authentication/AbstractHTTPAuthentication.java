@@ -24,8 +24,17 @@ package org.picketbox.http.authentication;
 import static org.picketbox.core.PicketBoxMessages.MESSAGES;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
 import java.security.Principal;
-
+import java.security.SecureRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -37,8 +46,20 @@ import org.picketbox.core.authentication.AuthenticationResult;
 import org.picketbox.core.authentication.AuthenticationStatus;
 import org.picketbox.core.authentication.impl.AbstractAuthenticationMechanism;
 import org.picketbox.core.exceptions.AuthenticationException;
+import org.picketbox.core.util.Base64;
 import org.picketbox.http.PicketBoxHTTPManager;
+import org.picketbox.http.PicketBoxHTTPMessages;
 import org.picketbox.http.config.HTTPAuthenticationConfiguration;
+import org.picketbox.http.identity.Bulkhead;
+import org.picketbox.http.identity.CircuitBreaker;
+import org.picketbox.http.identity.IdentityCache;
+import org.picketbox.http.identity.IdentityLoader;
+import org.picketbox.http.identity.IdentityStoreSaturatedException;
+import org.picketbox.http.identity.IdentityStoreUnavailableException;
+import org.picketbox.http.identity.SingleFlight;
+import org.picketbox.http.identity.VerifiedCredentialCache;
+import org.picketbox.http.session.SessionStateReaper;
+import org.picketlink.idm.model.User;
 
 /**
  * Base class for all the HTTP authentication schemes
@@ -46,10 +67,52 @@ import org.picketbox.http.config.HTTPAuthenticationConfiguration;
  * @author anil saldhana
  * @since Jul 6, 2012
  */
-public abstract class AbstractHTTPAuthentication extends AbstractAuthenticationMechanism {
+public abstract class AbstractHTTPAuthentication extends AbstractAuthenticationMechanism implements AsyncHTTPAuthentication {
+
+    /**
+     * Request attribute holding the {@link AuthenticationFuture} started by {@link #authenticateAsync(HttpServletRequest, HttpServletResponse)}.
+     */
+    private static final String ASYNC_AUTHENTICATION_RESULT = AbstractHTTPAuthentication.class.getName()
+            + ".ASYNC_AUTHENTICATION_RESULT";
 
     private RequestCache requestCache = new RequestCache();
 
+    private volatile boolean sessionStateRegistered;
+
+    private Executor authenticationExecutor;
+
+    /**
+     * Result shared by coalesced verifications when the circuit breaker rejected the call to the identity store.
+     */
+    private static final Principal CIRCUIT_OPEN = new Principal() {
+        @Override
+        public String getName() {
+            return null;
+        }
+    };
+
+    private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Random key for the credential fingerprints, only valid while this process is running.
+     */
+    private static final SecretKey FINGERPRINT_KEY = newFingerprintKey();
+
+    private final SingleFlight<Principal> credentialVerifications = new SingleFlight<Principal>();
+
+    private final IdentityLoader<User> userLoader = new IdentityLoader<User>() {
+        @Override
+        public User load(String key) {
+            IdentityLoader<User> batchingLoader = getPicketBoxManager().getUserLoader();
+
+            if (batchingLoader != null) {
+                return batchingLoader.load(key);
+            }
+
+            return getIdentityManager().getUser(key);
+        }
+    };
+
     /**
      * Injectable realm name
      */
@@ -121,6 +184,13 @@ public abstract class AbstractHTTPAuthentication extends AbstractAuthenticationM
             return subject.getPrincipal();
         }
 
+        SessionStateReaper sessionStateReaper = getPicketBoxManager().getSessionStateReaper();
+
+        if (!this.sessionStateRegistered) {
+            registerSessionState(sessionStateReaper);
+            this.sessionStateRegistered = true;
+        }
+
         boolean jSecurityCheck = isAuthenticationRequest(request);
 
         if (!jSecurityCheck) {
@@ -128,12 +198,28 @@ public abstract class AbstractHTTPAuthentication extends AbstractAuthenticationM
                 this.requestCache.saveRequest(request);
                 result.setStatus(AuthenticationStatus.CONTINUE);
                 challengeClient(request, response);
+                sessionStateReaper.track(request.getSession(false));
             }
 
             return null;
         }
 
-        Principal authenticatedPrincipal = performAuthentication(request, response);
+        Principal authenticatedPrincipal = null;
+
+        try {
+            authenticatedPrincipal = performAuthentication(request, response);
+        } catch (IdentityStoreSaturatedException e) {
+            rejectAuthentication(response, getPicketBoxManager().getAuthenticationBulkhead().getRetryAfter());
+            result.setStatus(AuthenticationStatus.CONTINUE);
+            return null;
+        } catch (IdentityStoreUnavailableException e) {
+            CircuitBreaker circuitBreaker = getPicketBoxManager().getCircuitBreaker();
+            long retryAfter = circuitBreaker != null ? circuitBreaker.getRemainingOpenTime() / 1000 : 0;
+
+            rejectAuthentication(response, (int) Math.max(1, retryAfter));
+            result.setStatus(AuthenticationStatus.CONTINUE);
+            return null;
+        }
 
         if (authenticatedPrincipal == null) {
             result.setStatus(AuthenticationStatus.INVALID_CREDENTIALS);
@@ -144,16 +230,111 @@ public abstract class AbstractHTTPAuthentication extends AbstractAuthenticationM
 
     protected abstract boolean isAuthenticationRequest(HttpServletRequest request);
 
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AsyncHTTPAuthentication#authenticateAsync(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    public AuthenticationFuture authenticateAsync(HttpServletRequest request, HttpServletResponse response) {
+        if (!isAuthenticationRequest(request)) {
+            return null;
+        }
+
+        AuthenticationFuture result = doHTTPAuthenticationAsync(request, response);
+
+        request.setAttribute(ASYNC_AUTHENTICATION_RESULT, result);
+
+        return result;
+    }
+
+    /**
+     * <p>
+     * Verifies the credentials without blocking the calling thread. Mechanisms backed by a non-blocking identity store client
+     * should override this method and complete the returned future from the client callback.
+     * </p>
+     * <p>
+     * The default implementation adapts {@link #doHTTPAuthentication(HttpServletRequest, HttpServletResponse)}: it is
+     * executed by the authentication executor, if one was set, by the virtual thread executor of the
+     * {@link PicketBoxHTTPManager}, if enabled, or by the calling thread otherwise. The authentication {@link Bulkhead} is
+     * applied by {@link #verifyCredentials(String, Callable)} on the thread calling the identity store.
+     * </p>
+     *
+     * @param request
+     * @param response
+     * @return
+     */
+    protected AuthenticationFuture doHTTPAuthenticationAsync(final HttpServletRequest request,
+            final HttpServletResponse response) {
+        final AuthenticationFuture result = new AuthenticationFuture();
+
+        Runnable verification = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(doHTTPAuthentication(request, response));
+                } catch (RuntimeException e) {
+                    result.fail(e);
+                }
+            }
+        };
+
+        Executor executor = this.authenticationExecutor;
+
+        if (executor == null) {
+            executor = getPicketBoxManager().getBlockingExecutor();
+        }
+
+        if (executor == null) {
+            verification.run();
+        } else {
+            try {
+                executor.execute(verification);
+            } catch (RejectedExecutionException e) {
+                result.fail(PicketBoxHTTPMessages.MESSAGES.identityStoreUnavailable());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * <p>
+     * Sets the {@link Executor} used by {@link #doHTTPAuthenticationAsync(HttpServletRequest, HttpServletResponse)} to run the
+     * blocking verification of the credentials.
+     * </p>
+     *
+     * @param authenticationExecutor
+     */
+    public void setAuthenticationExecutor(Executor authenticationExecutor) {
+        this.authenticationExecutor = authenticationExecutor;
+    }
+
+    /**
+     * <p>
+     * Registers with the given {@link SessionStateReaper} the components of this mechanism that keep state for each session, so
+     * that it is released when the session ends. Subclasses keeping additional state should override this method.
+     * </p>
+     *
+     * @param reaper
+     */
+    protected void registerSessionState(SessionStateReaper reaper) {
+        reaper.register(this.requestCache);
+    }
+
     protected Principal performAuthentication(HttpServletRequest request, HttpServletResponse response)
             throws AuthenticationException {
 
-        Principal principal = doHTTPAuthentication(request, response);
+        Principal principal = getAuthenticatedPrincipal(request, response);
 
         if (principal == null) {
             sendErrorPage(request, response);
             return null;
         }
 
+        if (StatelessHttpServletCredential.class.isAssignableFrom(getCredentialType())) {
+            // the credentials are sent with every request, let it proceed to the requested resource
+            return principal;
+        }
+
         if (principal != null) {
             // remove from the cache the saved request and store it in the session for further use.
             SavedRequest savedRequest = this.requestCache.removeAndStoreSavedRequestInSession(request);
@@ -175,11 +356,235 @@ public abstract class AbstractHTTPAuthentication extends AbstractAuthenticationM
         return principal;
     }
 
+    /**
+     * <p>
+     * Returns the principal authenticated by a previous call to
+     * {@link #authenticateAsync(HttpServletRequest, HttpServletResponse)} or, if there is none, verifies the credentials.
+     * </p>
+     */
+    protected Principal getAuthenticatedPrincipal(HttpServletRequest request, HttpServletResponse response) {
+        Object result = request.getAttribute(ASYNC_AUTHENTICATION_RESULT);
+
+        if (result instanceof AuthenticationFuture) {
+            request.removeAttribute(ASYNC_AUTHENTICATION_RESULT);
+            return ((AuthenticationFuture) result).get();
+        }
+
+        return doHTTPAuthentication(request, response);
+    }
+
+    /**
+     * <p>
+     * Looks up the user with the given name. If the identity cache is enabled the user is retrieved from it. Cache misses, or
+     * all lookups if the cache is disabled, go to the batching loader when user batching is enabled or to the
+     * {@link org.picketlink.idm.IdentityManager} otherwise.
+     * </p>
+     *
+     * @param userName
+     * @return the user or null if it does not exist
+     */
+    protected User getUser(String userName) {
+        IdentityCache<User> identityCache = getPicketBoxManager().getIdentityCache();
+
+        if (identityCache == null) {
+            return this.userLoader.load(userName);
+        }
+
+        return identityCache.get(userName, this.userLoader);
+    }
+
+    /**
+     * <p>
+     * Verifies the credentials identified by the given fingerprint. Concurrent verifications of the same credentials (eg.: a
+     * client sending many requests in parallel with the same Authorization header) are executed only once and all callers
+     * share the result.
+     * </p>
+     * <p>
+     * If the circuit breaker is enabled and open the identity store is not called. In this case, credentials verified
+     * recently are accepted if the fallback is enabled, otherwise an {@link IdentityStoreUnavailableException} is thrown.
+     * Coalesced verifications ask the circuit breaker and record the outcome only once. If the verification is a
+     * {@link CredentialVerification}, the fallback never accepts the credential past the expiration it set.
+     * </p>
+     * <p>
+     * Only the caller executing the verification holds a permit of the authentication {@link Bulkhead}, if enabled, and only
+     * while it runs. Credentials resolved from the caches of the mechanisms never reach this method, so they are not limited.
+     * When no permit is available an {@link IdentityStoreSaturatedException} is thrown.
+     * </p>
+     *
+     * @param fingerprint see {@link #getCredentialFingerprint(String...)}
+     * @param verification the task that checks the credentials against the identity store
+     * @return the authenticated principal or null if the credentials are not valid
+     */
+    protected Principal verifyCredentials(final String fingerprint, final Callable<Principal> verification) {
+        final CircuitBreaker circuitBreaker = getPicketBoxManager().getCircuitBreaker();
+        final Bulkhead bulkhead = getPicketBoxManager().getAuthenticationBulkhead();
+
+        if (circuitBreaker == null) {
+            if (bulkhead == null) {
+                return this.credentialVerifications.execute(fingerprint, verification);
+            }
+
+            return this.credentialVerifications.execute(fingerprint, new Callable<Principal>() {
+                @Override
+                public Principal call() throws Exception {
+                    acquirePermit(bulkhead);
+
+                    try {
+                        return verification.call();
+                    } finally {
+                        bulkhead.release();
+                    }
+                }
+            });
+        }
+
+        final VerifiedCredentialCache verifiedCredentials = getPicketBoxManager().getVerifiedCredentialCache();
+
+        // only the caller executing the verification talks to the circuit breaker, the coalesced ones share its outcome
+        Principal principal = this.credentialVerifications.execute(fingerprint, new Callable<Principal>() {
+            @Override
+            public Principal call() throws Exception {
+                // a rejected call never reaches the circuit breaker, so it can not take a half-open trial
+                if (bulkhead != null) {
+                    acquirePermit(bulkhead);
+                }
+
+                Principal verified = null;
+
+                try {
+                    if (!circuitBreaker.allowRequest()) {
+                        return CIRCUIT_OPEN;
+                    }
+
+                    long start = System.nanoTime();
+
+                    try {
+                        verified = verification.call();
+                    } catch (Exception e) {
+                        circuitBreaker.onFailure(System.nanoTime() - start);
+                        throw e;
+                    }
+
+                    circuitBreaker.onSuccess(System.nanoTime() - start);
+                } finally {
+                    if (bulkhead != null) {
+                        bulkhead.release();
+                    }
+                }
+
+                if (verified != null && verifiedCredentials != null) {
+                    long expiresAt = System.currentTimeMillis() + verifiedCredentials.getTimeToLive();
+
+                    if (verification instanceof CredentialVerification) {
+                        expiresAt = Math.min(expiresAt, ((CredentialVerification) verification).getExpiresAt());
+                    }
+
+                    verifiedCredentials.put(fingerprint, verified, expiresAt);
+                }
+
+                return verified;
+            }
+        });
+
+        if (principal != CIRCUIT_OPEN) {
+            return principal;
+        }
+
+        if (verifiedCredentials != null) {
+            principal = verifiedCredentials.get(fingerprint);
+        }
+
+        if (principal == null) {
+            throw PicketBoxHTTPMessages.MESSAGES.identityStoreUnavailable();
+        }
+
+        return principal;
+    }
+
+    private void acquirePermit(Bulkhead bulkhead) {
+        if (!bulkhead.acquire()) {
+            throw PicketBoxHTTPMessages.MESSAGES.identityStoreSaturated();
+        }
+    }
+
+    /**
+     * <p>
+     * Computes an HMAC-SHA256 fingerprint for the given values. It is used as a key for the credentials being verified
+     * without keeping them in clear text. The HMAC key is generated randomly for each process, so fingerprints can not be
+     * reversed by a dictionary attack if a heap dump leaks. The fingerprint also depends on the mechanism, so the same
+     * values presented to different mechanisms have different fingerprints.
+     * </p>
+     *
+     * @param values
+     * @return
+     */
+    protected String getCredentialFingerprint(String... values) {
+        try {
+            Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+
+            mac.init(FINGERPRINT_KEY);
+
+            updateFingerprint(mac, getClass().getName());
+
+            for (String value : values) {
+                updateFingerprint(mac, value);
+            }
+
+            return Base64.encodeBytes(mac.doFinal());
+        } catch (GeneralSecurityException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+    }
+
+    private static void updateFingerprint(Mac mac, String value) throws UnsupportedEncodingException {
+        if (value == null) {
+            mac.update(new byte[] { -1, -1, -1, -1 });
+            return;
+        }
+
+        byte[] bytes = value.getBytes("UTF-8");
+
+        // length prefixed, so different splits of the same characters have different fingerprints
+        mac.update(new byte[] { (byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8),
+                (byte) bytes.length });
+        mac.update(bytes);
+    }
+
+    private static SecretKey newFingerprintKey() {
+        byte[] key = new byte[32];
+
+        new SecureRandom().nextBytes(key);
+
+        return new SecretKeySpec(key, FINGERPRINT_ALGORITHM);
+    }
+
     protected abstract Principal doHTTPAuthentication(HttpServletRequest request, HttpServletResponse response);
 
     protected abstract void challengeClient(HttpServletRequest request, HttpServletResponse response)
             throws AuthenticationException;
 
+    /**
+     * <p>
+     * Rejects an authentication request because the identity store can not handle more calls. A 503 (Service Unavailable)
+     * status is sent with a Retry-After header.
+     * </p>
+     *
+     * @param response
+     * @param retryAfter time in seconds the client should wait before retrying
+     * @throws AuthenticationException
+     */
+    protected void rejectAuthentication(HttpServletResponse response, int retryAfter) throws AuthenticationException {
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+
+        try {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        } catch (IOException e) {
+            throw new AuthenticationException(e);
+        }
+    }
+
     protected void sendErrorPage(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
         sendRedirect(response, request.getContextPath() + getFormErrorPage());
     }
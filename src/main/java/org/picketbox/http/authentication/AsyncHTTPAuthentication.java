@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.authentication;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <p>
+ * Non-blocking contract for HTTP authentication mechanisms. The credentials carried by a request are verified without
+ * blocking the calling thread and the result is delivered through an {@link AuthenticationFuture}.
+ * </p>
+ * <p>
+ * The result is kept with the request. When the request is then authenticated through the
+ * {@link org.picketbox.core.PicketBoxManager}, the mechanism uses it instead of verifying the credentials again.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public interface AsyncHTTPAuthentication {
+
+    /**
+     * <p>
+     * Starts the verification of the credentials carried by the given request.
+     * </p>
+     *
+     * @param request
+     * @param response
+     * @return the pending verification or null if the request does not carry credentials for this mechanism
+     */
+    AuthenticationFuture authenticateAsync(HttpServletRequest request, HttpServletResponse response);
+
+    /**
+     * @return the type of credential supported by this mechanism
+     */
+    Class<? extends HttpServletCredential> getCredentialType();
+
+}
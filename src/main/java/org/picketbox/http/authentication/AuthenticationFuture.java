@@ -0,0 +1,177 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.authentication;
+
+import static org.picketbox.http.PicketBoxHTTPMessages.MESSAGES;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * <p>
+ * Result of an asynchronous credential verification. It is completed by the mechanism, possibly from a thread owned by a
+ * non-blocking identity store client, and notifies the registered {@link AuthenticationCallback} instances.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class AuthenticationFuture {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final List<AuthenticationCallback> callbacks = new ArrayList<AuthenticationCallback>();
+
+    private boolean completed;
+    private Principal principal;
+    private Throwable failure;
+
+    /**
+     * <p>
+     * Completes this future with the result of a successful verification.
+     * </p>
+     *
+     * @param principal the authenticated principal or null if the credentials are not valid
+     * @return false if this future was already completed
+     */
+    public boolean complete(Principal principal) {
+        return finish(principal, null);
+    }
+
+    /**
+     * <p>
+     * Completes this future with an error.
+     * </p>
+     *
+     * @param failure
+     * @return false if this future was already completed
+     */
+    public boolean fail(Throwable failure) {
+        return finish(null, failure);
+    }
+
+    /**
+     * <p>
+     * Registers a callback. If this future is already completed the callback is invoked immediately by the calling thread,
+     * otherwise it is invoked by the thread that completes this future.
+     * </p>
+     *
+     * @param callback
+     */
+    public void addCallback(AuthenticationCallback callback) {
+        synchronized (this) {
+            if (!this.completed) {
+                this.callbacks.add(callback);
+                return;
+            }
+        }
+
+        invoke(callback);
+    }
+
+    public synchronized boolean isDone() {
+        return this.completed;
+    }
+
+    /**
+     * <p>
+     * Waits for this future to complete and returns its result.
+     * </p>
+     *
+     * @return the authenticated principal or null if the credentials are not valid
+     * @throws RuntimeException if the verification failed
+     */
+    public Principal get() {
+        boolean interrupted = false;
+
+        while (true) {
+            try {
+                this.done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            if (this.failure instanceof RuntimeException) {
+                throw (RuntimeException) this.failure;
+            }
+
+            if (this.failure instanceof Error) {
+                throw (Error) this.failure;
+            }
+
+            if (this.failure != null) {
+                throw MESSAGES.runtimeException(this.failure);
+            }
+
+            return this.principal;
+        }
+    }
+
+    private boolean finish(Principal principal, Throwable failure) {
+        List<AuthenticationCallback> toNotify;
+
+        synchronized (this) {
+            if (this.completed) {
+                return false;
+            }
+
+            this.completed = true;
+            this.principal = principal;
+            this.failure = failure;
+
+            toNotify = new ArrayList<AuthenticationCallback>(this.callbacks);
+            this.callbacks.clear();
+        }
+
+        this.done.countDown();
+
+        for (AuthenticationCallback callback : toNotify) {
+            invoke(callback);
+        }
+
+        return true;
+    }
+
+    private void invoke(AuthenticationCallback callback) {
+        Principal principal;
+        Throwable failure;
+
+        synchronized (this) {
+            principal = this.principal;
+            failure = this.failure;
+        }
+
+        if (failure != null) {
+            callback.onFailure(failure);
+        } else {
+            callback.onSuccess(principal);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.authentication;
+
+import java.security.Principal;
+import java.util.concurrent.Callable;
+
+/**
+ * <p>
+ * Task that checks credentials against the identity store, for credentials that carry their own expiration (eg.: tokens).
+ * The expiration set by the task bounds how long the verified credential is accepted while the identity store is
+ * unavailable.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public abstract class CredentialVerification implements Callable<Principal> {
+
+    private volatile long expiresAt = Long.MAX_VALUE;
+
+    /**
+     * @return the time in milliseconds after which the verified credential is not valid anymore
+     */
+    public long getExpiresAt() {
+        return this.expiresAt;
+    }
+
+    /**
+     * @param expiresAt the time in milliseconds after which the verified credential is not valid anymore
+     */
+    protected void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+}
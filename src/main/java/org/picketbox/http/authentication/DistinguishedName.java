@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.authentication;
+
+import java.nio.charset.Charset;
+
+/**
+ * <p>
+ * Extracts attribute values from distinguished names in the string representation defined by RFC 4514, like the ones
+ * returned by {@link javax.security.auth.x500.X500Principal#getName()}. The name is parsed in a single pass and only the
+ * requested value is allocated. Escaped characters (<code>\,</code>), hex pairs (<code>\2C</code>, including multi-byte UTF-8
+ * sequences), quoted values and multi-valued RDNs are supported.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public final class DistinguishedName {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private DistinguishedName() {
+    }
+
+    /**
+     * <p>
+     * Returns the value of the first attribute of the given type, that is the one in the most specific RDN.
+     * </p>
+     *
+     * @param dn the distinguished name
+     * @param type the attribute type, like <code>CN</code>. Types are compared ignoring case.
+     * @return the unescaped value or null if the name has no attribute of the given type
+     */
+    public static String getAttribute(String dn, String type) {
+        if (dn == null) {
+            return null;
+        }
+
+        int length = dn.length();
+        int index = 0;
+
+        while (index < length) {
+            int typeStart = skipSpaces(dn, index);
+            int typeEnd = typeStart;
+
+            while (typeEnd < length && dn.charAt(typeEnd) != '=') {
+                typeEnd++;
+            }
+
+            if (typeEnd == length) {
+                return null;
+            }
+
+            int valueStart = skipSpaces(dn, typeEnd + 1);
+
+            while (typeEnd > typeStart && dn.charAt(typeEnd - 1) == ' ') {
+                typeEnd--;
+            }
+
+            if (typeEnd - typeStart == type.length() && dn.regionMatches(true, typeStart, type, 0, type.length())) {
+                return decodeValue(dn, valueStart);
+            }
+
+            index = skipValue(dn, valueStart) + 1;
+        }
+
+        return null;
+    }
+
+    /**
+     * <p>
+     * Returns the common name (<code>CN</code>) of the given distinguished name.
+     * </p>
+     *
+     * @param dn
+     * @return
+     */
+    public static String getCommonName(String dn) {
+        return getAttribute(dn, "CN");
+    }
+
+    private static int skipSpaces(String dn, int index) {
+        while (index < dn.length() && dn.charAt(index) == ' ') {
+            index++;
+        }
+
+        return index;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == ';' || c == '+';
+    }
+
+    /**
+     * Returns the index of the separator following the value starting at the given index, or the length of the name.
+     */
+    private static int skipValue(String dn, int index) {
+        int length = dn.length();
+        boolean quoted = false;
+
+        while (index < length) {
+            char c = dn.charAt(index);
+
+            if (c == '\\') {
+                index += 2;
+                continue;
+            }
+
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && isSeparator(c)) {
+                return index;
+            }
+
+            index++;
+        }
+
+        return length;
+    }
+
+    private static String decodeValue(String dn, int start) {
+        int end = skipValue(dn, start);
+        boolean plain = true;
+
+        for (int i = start; i < end && plain; i++) {
+            char c = dn.charAt(i);
+            plain = c != '\\' && c != '"';
+        }
+
+        if (plain) {
+            while (end > start && dn.charAt(end - 1) == ' ') {
+                end--;
+            }
+
+            return dn.substring(start, end);
+        }
+
+        StringBuilder value = new StringBuilder(end - start);
+        byte[] pending = null;
+        int pendingLength = 0;
+        int significantLength = 0;
+        boolean quoted = false;
+        int index = start;
+
+        while (index < end) {
+            char c = dn.charAt(index);
+
+            if (c == '\\' && index + 1 < end) {
+                int high = Character.digit(dn.charAt(index + 1), 16);
+                int low = index + 2 < end ? Character.digit(dn.charAt(index + 2), 16) : -1;
+
+                if (high >= 0 && low >= 0) {
+                    // hex pairs are buffered until the sequence ends, so multi-byte UTF-8 characters are decoded at once
+                    if (pending == null) {
+                        pending = new byte[(end - index) / 3];
+                    }
+
+                    pending[pendingLength++] = (byte) ((high << 4) | low);
+                    index += 3;
+                    continue;
+                }
+
+                flush(value, pending, pendingLength);
+                pendingLength = 0;
+                value.append(dn.charAt(index + 1));
+                significantLength = value.length();
+                index += 2;
+                continue;
+            }
+
+            if (pendingLength > 0) {
+                flush(value, pending, pendingLength);
+                pendingLength = 0;
+                significantLength = value.length();
+            }
+
+            if (c == '"') {
+                quoted = !quoted;
+            } else {
+                value.append(c);
+
+                // unescaped trailing spaces are not part of the value
+                if (c != ' ' || quoted) {
+                    significantLength = value.length();
+                }
+            }
+
+            index++;
+        }
+
+        if (pendingLength > 0) {
+            flush(value, pending, pendingLength);
+            significantLength = value.length();
+        }
+
+        value.setLength(significantLength);
+
+        return value.toString();
+    }
+
+    private static void flush(StringBuilder value, byte[] pending, int pendingLength) {
+        if (pendingLength > 0) {
+            value.append(new String(pending, 0, pendingLength, UTF_8));
+        }
+    }
+}
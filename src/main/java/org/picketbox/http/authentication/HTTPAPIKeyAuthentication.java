@@ -0,0 +1,157 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.authentication;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.picketbox.core.PicketBoxPrincipal;
+import org.picketbox.core.authentication.AuthenticationInfo;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.core.exceptions.AuthenticationException;
+import org.picketbox.http.config.HTTPAPIKeyConfiguration;
+import org.picketbox.http.config.HTTPAuthenticationConfiguration;
+import org.picketbox.http.identity.APIKeyIndex;
+
+/**
+ * <p>
+ * Perform API key authentication, for service-to-service clients. The key is sent in a request header (<code>X-API-Key</code>
+ * by default) or in the <code>Authorization</code> header using the <code>ApiKey</code> scheme, and is checked against the
+ * {@link APIKeyIndex} kept in memory. No call to the identity store is made while authenticating.
+ * </p>
+ * <p>
+ * Keys are sent with every request, so no session is created and no redirect is sent after a successful authentication.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPAPIKeyAuthentication extends AbstractHTTPAuthentication {
+
+    public static final String API_KEY = "ApiKey";
+
+    public static final String DEFAULT_HEADER_NAME = "X-API-Key";
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.authentication.AuthenticationMechanism#getAuthenticationInfo()
+     */
+    @Override
+    public List<AuthenticationInfo> getAuthenticationInfo() {
+        List<AuthenticationInfo> info = new ArrayList<AuthenticationInfo>();
+
+        info.add(new AuthenticationInfo("HTTP API Key Authentication Credential",
+                "Authenticates service clients using API keys sent in a request header.", HTTPAPIKeyCredential.class));
+
+        return info;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AsyncHTTPAuthentication#getCredentialType()
+     */
+    @Override
+    public Class<? extends HttpServletCredential> getCredentialType() {
+        return HTTPAPIKeyCredential.class;
+    }
+
+    @Override
+    protected boolean isAuthenticationRequest(HttpServletRequest request) {
+        return getAPIKey(request) != null;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AbstractHTTPAuthentication#doHTTPAuthentication(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected Principal doHTTPAuthentication(HttpServletRequest request, HttpServletResponse response) {
+        String apiKey = getAPIKey(request);
+        APIKeyIndex apiKeyIndex = getPicketBoxManager().getAPIKeyIndex();
+
+        if (apiKey == null || apiKeyIndex == null) {
+            return null;
+        }
+
+        String userName = apiKeyIndex.getUserName(apiKey);
+
+        if (userName == null) {
+            return null;
+        }
+
+        return new PicketBoxPrincipal(userName);
+    }
+
+    @Override
+    protected void challengeClient(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
+        response.setHeader(PicketBoxConstants.HTTP_WWW_AUTHENTICATE, API_KEY + " realm=\"" + this.realmName + '"');
+
+        try {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+        } catch (IOException e) {
+            throw new AuthenticationException(e);
+        }
+    }
+
+    @Override
+    protected void sendErrorPage(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
+        challengeClient(request, response);
+    }
+
+    private String getAPIKey(HttpServletRequest request) {
+        String apiKey = request.getHeader(getHeaderName());
+
+        if (apiKey == null) {
+            String authorizationHeader = request.getHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER);
+
+            if (authorizationHeader != null && authorizationHeader.length() > API_KEY.length()
+                    && authorizationHeader.regionMatches(true, 0, API_KEY + " ", 0, API_KEY.length() + 1)) {
+                apiKey = authorizationHeader.substring(API_KEY.length() + 1);
+            }
+        }
+
+        if (apiKey == null) {
+            return null;
+        }
+
+        apiKey = apiKey.trim();
+
+        return apiKey.isEmpty() ? null : apiKey;
+    }
+
+    private String getHeaderName() {
+        HTTPAuthenticationConfiguration authenticationConfig = getAuthenticationConfig();
+
+        if (authenticationConfig != null) {
+            HTTPAPIKeyConfiguration apiKeyConfig = authenticationConfig.getAPIKeyConfiguration();
+
+            if (apiKeyConfig != null) {
+                return apiKeyConfig.getHeaderName();
+            }
+        }
+
+        return DEFAULT_HEADER_NAME;
+    }
+}
@@ -22,8 +22,10 @@
 package org.picketbox.http.authentication;
 
 import java.io.IOException;
+import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -55,6 +57,14 @@ public class HTTPBasicAuthentication extends AbstractHTTPAuthentication {
         return info;
     }
 
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AsyncHTTPAuthentication#getCredentialType()
+     */
+    @Override
+    public Class<? extends HttpServletCredential> getCredentialType() {
+        return HTTPBasicCredential.class;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -79,7 +89,7 @@ public class HTTPBasicAuthentication extends AbstractHTTPAuthentication {
      * HttpServletRequest, javax.servlet.http.HttpServletResponse)
      */
     @Override
-    protected PicketBoxPrincipal doHTTPAuthentication(HttpServletRequest request, HttpServletResponse response) {
+    protected Principal doHTTPAuthentication(HttpServletRequest request, HttpServletResponse response) {
         String authorizationHeader = getAuthorizationHeader(request);
 
         int whitespaceIndex = authorizationHeader.indexOf(' ');
@@ -93,14 +103,21 @@ public class HTTPBasicAuthentication extends AbstractHTTPAuthentication {
                 int indexOfColon = authorizationHeader.indexOf(':');
 
                 if (indexOfColon > 0) {
-                    String username = authorizationHeader.substring(0, indexOfColon);
-                    String password = authorizationHeader.substring(indexOfColon + 1);
+                    final String username = authorizationHeader.substring(0, indexOfColon);
+                    final String password = authorizationHeader.substring(indexOfColon + 1);
+
+                    return verifyCredentials(getCredentialFingerprint(username, password), new Callable<Principal>() {
+                        @Override
+                        public Principal call() throws Exception {
+                            User user = getUser(username);
 
-                    User user = getIdentityManager().getUser(username);
+                            if (user != null && getIdentityManager().validatePassword(user, password)) {
+                                return new PicketBoxPrincipal(username);
+                            }
 
-                    if (user != null && getIdentityManager().validatePassword(user, password)) {
-                        return new PicketBoxPrincipal(username);
-                    }
+                            return null;
+                        }
+                    });
                 }
             }
         }
@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.authentication;
+
+import java.io.IOException;
+import java.security.Key;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.picketbox.core.PicketBoxPrincipal;
+import org.picketbox.core.authentication.AuthenticationInfo;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.core.exceptions.AuthenticationException;
+import org.picketbox.http.config.HTTPAuthenticationConfiguration;
+import org.picketbox.http.config.HTTPBearerConfiguration;
+import org.picketbox.http.identity.VerifiedCredentialCache;
+import org.picketbox.http.token.JSONWebToken;
+import org.picketbox.http.token.JSONWebTokenVerifier;
+
+/**
+ * <p>
+ * Perform HTTP Bearer Authentication (RFC 6750) with signed JSON Web Tokens. Tokens are verified locally with the keys
+ * configured in {@link HTTPBearerConfiguration}, without any call to the identity store, and the principal is the
+ * <code>sub</code> claim. Verified tokens are kept in memory until they expire, so each token is only verified once.
+ * </p>
+ * <p>
+ * Tokens are sent with every request, so no session is created and no redirect is sent after a successful authentication.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPBearerAuthentication extends AbstractHTTPAuthentication {
+
+    public static final String HTTP_BEARER = "Bearer";
+
+    private volatile JSONWebTokenVerifier verifier;
+    private volatile VerifiedCredentialCache verifiedTokens;
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.authentication.AuthenticationMechanism#getAuthenticationInfo()
+     */
+    @Override
+    public List<AuthenticationInfo> getAuthenticationInfo() {
+        List<AuthenticationInfo> info = new ArrayList<AuthenticationInfo>();
+
+        info.add(new AuthenticationInfo("HTTP Bearer Authentication Credential",
+                "Authenticates users using signed JSON Web Tokens sent with the HTTP Bearer Authentication scheme.",
+                HTTPBearerCredential.class));
+
+        return info;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AsyncHTTPAuthentication#getCredentialType()
+     */
+    @Override
+    public Class<? extends HttpServletCredential> getCredentialType() {
+        return HTTPBearerCredential.class;
+    }
+
+    @Override
+    protected boolean isAuthenticationRequest(HttpServletRequest request) {
+        return getToken(request) != null;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AbstractHTTPAuthentication#doHTTPAuthentication(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected Principal doHTTPAuthentication(HttpServletRequest request, HttpServletResponse response) {
+        String encodedToken = getToken(request);
+
+        if (encodedToken == null) {
+            return null;
+        }
+
+        VerifiedCredentialCache verifiedTokens = getVerifiedTokens();
+        String fingerprint = getCredentialFingerprint(encodedToken);
+        Principal principal = verifiedTokens.get(fingerprint);
+
+        if (principal != null) {
+            return principal;
+        }
+
+        JSONWebToken token = getVerifier().verify(encodedToken, System.currentTimeMillis());
+
+        if (token == null) {
+            return null;
+        }
+
+        principal = new PicketBoxPrincipal(token.getSubject());
+
+        verifiedTokens.put(fingerprint, principal, token.getExpiration());
+
+        return principal;
+    }
+
+    @Override
+    protected void challengeClient(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
+        String challenge = HTTP_BEARER + " realm=\"" + this.realmName + '"';
+
+        if (isAuthenticationRequest(request)) {
+            challenge = challenge + ", error=\"invalid_token\"";
+        }
+
+        response.setHeader(PicketBoxConstants.HTTP_WWW_AUTHENTICATE, challenge);
+
+        try {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+        } catch (IOException e) {
+            throw new AuthenticationException(e);
+        }
+    }
+
+    @Override
+    protected void sendErrorPage(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
+        challengeClient(request, response);
+    }
+
+    /**
+     * @param request
+     * @return the token sent in the <code>Authorization</code> header or null if the request has no bearer token
+     */
+    protected String getToken(HttpServletRequest request) {
+        String authorizationHeader = request.getHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER);
+
+        if (authorizationHeader == null || authorizationHeader.length() <= HTTP_BEARER.length()
+                || !authorizationHeader.regionMatches(true, 0, HTTP_BEARER + " ", 0, HTTP_BEARER.length() + 1)) {
+            return null;
+        }
+
+        String token = authorizationHeader.substring(HTTP_BEARER.length() + 1).trim();
+
+        return token.isEmpty() ? null : token;
+    }
+
+    private JSONWebTokenVerifier getVerifier() {
+        if (this.verifier == null) {
+            HTTPBearerConfiguration bearerConfig = getBearerConfig();
+
+            if (bearerConfig != null) {
+                this.verifier = new JSONWebTokenVerifier(bearerConfig.getKeys(), bearerConfig.getIssuer(),
+                        bearerConfig.getAudience(), bearerConfig.getClockSkew());
+            } else {
+                // no keys were configured, all tokens are rejected
+                this.verifier = new JSONWebTokenVerifier(Collections.<String, Key> emptyMap(), null, null, 0);
+            }
+        }
+
+        return this.verifier;
+    }
+
+    private VerifiedCredentialCache getVerifiedTokens() {
+        if (this.verifiedTokens == null) {
+            HTTPBearerConfiguration bearerConfig = getBearerConfig();
+            int maxCachedTokens = bearerConfig != null ? bearerConfig.getMaxCachedTokens() : new HTTPBearerConfiguration()
+                    .getMaxCachedTokens();
+
+            this.verifiedTokens = new VerifiedCredentialCache(0, maxCachedTokens);
+        }
+
+        return this.verifiedTokens;
+    }
+
+    private HTTPBearerConfiguration getBearerConfig() {
+        HTTPAuthenticationConfiguration authenticationConfig = getAuthenticationConfig();
+
+        if (authenticationConfig != null) {
+            return authenticationConfig.getBearerConfiguration();
+        }
+
+        return null;
+    }
+}
@@ -21,14 +21,16 @@
  */
 package org.picketbox.http.authentication;
 
-import java.io.IOException;
-import java.io.StringReader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Properties;
+import java.util.concurrent.Callable;
 
+import javax.security.auth.x500.X500Principal;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -36,8 +38,14 @@ import org.picketbox.core.PicketBoxPrincipal;
 import org.picketbox.core.authentication.AuthenticationInfo;
 import org.picketbox.core.authentication.PicketBoxConstants;
 import org.picketbox.core.exceptions.AuthenticationException;
+import org.picketbox.core.util.Base64;
+import org.picketbox.http.PicketBoxHTTPMessages;
 import org.picketbox.http.config.HTTPAuthenticationConfiguration;
 import org.picketbox.http.config.HTTPClientCertConfiguration;
+import org.picketbox.http.identity.CertificateChainValidator;
+import org.picketbox.http.identity.CertificateFingerprintIndex;
+import org.picketbox.http.identity.CertificateRevocationIndex;
+import org.picketbox.http.identity.VerifiedCredentialCache;
 import org.picketlink.idm.model.User;
 
 /**
@@ -48,12 +56,21 @@ import org.picketlink.idm.model.User;
  */
 public class HTTPClientCertAuthentication extends AbstractHTTPAuthentication {
 
+    /**
+     * Request attribute holding the identifier of the TLS session the request was received on
+     */
+    public static final String SSL_SESSION_ID_ATTRIBUTE = "javax.servlet.request.ssl_session_id";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
     /**
      * Use Certificate validation directly rather than username/cred model
      */
     protected boolean useCertificateValidation = false;
     private boolean useCNAsPrincipal = true;
 
+    private volatile VerifiedCredentialCache sslSessions;
+
     /*
      * (non-Javadoc)
      *
@@ -69,6 +86,14 @@ public class HTTPClientCertAuthentication extends AbstractHTTPAuthentication {
         return info;
     }
 
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AsyncHTTPAuthentication#getCredentialType()
+     */
+    @Override
+    public Class<? extends HttpServletCredential> getCredentialType() {
+        return HTTPClientCertCredential.class;
+    }
+
     /**
      * Use Certificate validation directly rather than username/cred model. Default is false.
      *
@@ -94,39 +119,207 @@ public class HTTPClientCertAuthentication extends AbstractHTTPAuthentication {
         X509Certificate[] certs = (X509Certificate[]) request.getAttribute(PicketBoxConstants.HTTP_CERTIFICATE);
 
         if (certs != null) {
-            X509Certificate clientCertificate = certs[0];
+            final X509Certificate clientCertificate = certs[0];
+            final byte[] certificateFingerprint = getCertificateFingerprint(clientCertificate);
 
-            String username = getCertificatePrincipal(clientCertificate).getName();
+            if (certificateFingerprint == null) {
+                return null;
+            }
 
-            if (isUseCNAsPrincipal()) {
-                Properties prop = new Properties();
-                try {
-                    prop.load(new StringReader(username.replaceAll(",", "\n")));
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+            if (isRevoked(clientCertificate) || !isTrusted(certs, certificateFingerprint)) {
+                return null;
+            }
+
+            String sslSessionKey = getSSLSessionKey(request, certificateFingerprint);
 
-                username = prop.getProperty("CN");
+            if (sslSessionKey != null) {
+                Principal principal = getSSLSessions().get(sslSessionKey);
+
+                if (principal != null) {
+                    return principal;
+                }
             }
 
-            User user = getIdentityManager().getUser(getCertificatePrincipal(clientCertificate).getName());
+            final boolean useCertificateValidation = isUseCertificateValidation();
+            final boolean useCNAsPrincipal = isUseCNAsPrincipal();
+
+            String fingerprint = getCredentialFingerprint(Base64.encodeBytes(certificateFingerprint),
+                    String.valueOf(useCertificateValidation), String.valueOf(useCNAsPrincipal));
+
+            Principal principal = verifyCredentials(fingerprint, new Callable<Principal>() {
+                @Override
+                public Principal call() throws Exception {
+                    String principalName = getMappedUserName(certificateFingerprint);
+                    String userName = principalName;
+                    boolean mapped = principalName != null;
+
+                    if (principalName == null) {
+                        if (useCNAsPrincipal) {
+                            principalName = DistinguishedName.getCommonName(getCertificateSubject(clientCertificate));
+                            userName = principalName;
+                        } else {
+                            userName = getCertificatePrincipal(clientCertificate).getName();
+                        }
+                    }
 
-            if (user != null) {
-                if (isUseCertificateValidation()) {
-                    if (getIdentityManager().validateCertificate(user, clientCertificate)) {
-                        return new PicketBoxPrincipal(user.getKey());
+                    if (userName == null) {
+                        return null;
                     }
-                }
 
-                if (isUseCNAsPrincipal()) {
-                    return new PicketBoxPrincipal(username);
+                    User user = getUser(userName);
+
+                    if (user != null) {
+                        if (useCertificateValidation) {
+                            if (getIdentityManager().validateCertificate(user, clientCertificate)) {
+                                return new PicketBoxPrincipal(user.getKey());
+                            }
+
+                            // a mapping names the user, it does not replace the validation of the certificate
+                            if (mapped) {
+                                return null;
+                            }
+                        }
+
+                        if (principalName != null) {
+                            return new PicketBoxPrincipal(principalName);
+                        }
+                    }
+
+                    return null;
                 }
+            });
+
+            if (principal != null && sslSessionKey != null) {
+                long timeToLive = getClientCertAuthenticationConfig().getSSLSessionCacheTimeToLive();
+                long expiresAt = Math.min(System.currentTimeMillis() + timeToLive, clientCertificate.getNotAfter().getTime());
+
+                getSSLSessions().put(sslSessionKey, principal, expiresAt);
             }
+
+            return principal;
         }
 
         return null;
     }
 
+    /**
+     * <p>
+     * Returns the SHA-256 digest of the DER encoded certificate.
+     * </p>
+     *
+     * @param certificate
+     * @return the digest or null if the certificate can not be encoded
+     */
+    private byte[] getCertificateFingerprint(X509Certificate certificate) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+        } catch (NoSuchAlgorithmException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        } catch (CertificateEncodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * <p>
+     * Checks if the given certificate was revoked. The check is done before any cache is consulted, so a certificate is
+     * rejected as soon as its revocation is loaded.
+     * </p>
+     *
+     * @param certificate
+     * @return
+     */
+    private boolean isRevoked(X509Certificate certificate) {
+        CertificateRevocationIndex revocationIndex = getPicketBoxManager().getCertificateRevocationIndex();
+
+        return revocationIndex != null && revocationIndex.isRevoked(certificate);
+    }
+
+    /**
+     * <p>
+     * Checks if the given chain leads to a trust anchor. All chains are trusted when no trust anchors are configured, leaving
+     * the validation to the container.
+     * </p>
+     *
+     * @param chain
+     * @param certificateFingerprint
+     * @return
+     */
+    private boolean isTrusted(X509Certificate[] chain, byte[] certificateFingerprint) {
+        CertificateChainValidator chainValidator = getPicketBoxManager().getCertificateChainValidator();
+
+        return chainValidator == null || chainValidator.isTrusted(chain, certificateFingerprint);
+    }
+
+    /**
+     * <p>
+     * Returns the user the certificate with the given fingerprint is explicitly mapped to.
+     * </p>
+     *
+     * @param certificateFingerprint
+     * @return the user name or null if no certificate mappings are configured or the certificate is not mapped
+     */
+    private String getMappedUserName(byte[] certificateFingerprint) {
+        CertificateFingerprintIndex certificateIndex = getPicketBoxManager().getCertificateFingerprintIndex();
+
+        if (certificateIndex == null) {
+            return null;
+        }
+
+        return certificateIndex.getUserName(certificateFingerprint);
+    }
+
+    /**
+     * <p>
+     * Returns the key under which the principal resolved from a certificate is cached for the TLS session of the request: the
+     * session identifier plus the fingerprint of the certificate, so that a session renegotiated with a different
+     * certificate never hits the entry of the previous one.
+     * </p>
+     *
+     * @param request
+     * @param certificateFingerprint
+     * @return the key or null if the cache is disabled or the request was not received over TLS
+     */
+    private String getSSLSessionKey(HttpServletRequest request, byte[] certificateFingerprint) {
+        HTTPClientCertConfiguration clientCertConfig = getClientCertAuthenticationConfig();
+
+        if (clientCertConfig == null || !clientCertConfig.isUseSSLSessionCache()) {
+            return null;
+        }
+
+        Object sessionId = request.getAttribute(SSL_SESSION_ID_ATTRIBUTE);
+
+        if (sessionId == null) {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder(sessionId.toString()).append(':');
+
+        for (byte b : certificateFingerprint) {
+            key.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+
+        return key.toString();
+    }
+
+    private VerifiedCredentialCache getSSLSessions() {
+        if (this.sslSessions == null) {
+            this.sslSessions = new VerifiedCredentialCache(0, getClientCertAuthenticationConfig().getMaxCachedSSLSessions());
+        }
+
+        return this.sslSessions;
+    }
+
+    private String getCertificateSubject(X509Certificate cert) {
+        X500Principal subject = cert.getSubjectX500Principal();
+
+        if (subject == null || subject.getName().length() == 0) {
+            subject = cert.getIssuerX500Principal();
+        }
+
+        return subject.getName();
+    }
+
     private Principal getCertificatePrincipal(X509Certificate cert) {
         Principal certprincipal = cert.getSubjectDN();
 
@@ -0,0 +1,253 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.authentication;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.http.PicketBoxHTTPMessages;
+import org.picketbox.http.config.HTTPAuthenticationConfiguration;
+
+/**
+ * <p>
+ * Chooses the {@link HttpServletCredential} type used to authenticate each request when several mechanisms are enabled. The
+ * lookup tables are built once, so the choice for a request takes a constant time. The following are checked in order:
+ * </p>
+ * <ol>
+ * <li>the scheme of the <code>Authorization</code> header;</li>
+ * <li>the presence of a request header carrying credentials, like an API key;</li>
+ * <li>the client certificate presented during the TLS handshake;</li>
+ * <li>the first segment of the request path, relative to the context path;</li>
+ * <li>the default credential type.</li>
+ * </ol>
+ * <p>
+ * The names of the headers carrying credentials are taken from the {@link HTTPAuthenticationConfiguration}, if given, so
+ * requests are dispatched using the same headers the mechanisms read.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPCredentialDispatcher {
+
+    private final Class<? extends HttpServletCredential> defaultType;
+    private final HTTPAuthenticationConfiguration authenticationConfig;
+    private final Map<String, Class<? extends HttpServletCredential>> schemes = new HashMap<String, Class<? extends HttpServletCredential>>();
+    private final Map<String, Class<? extends HttpServletCredential>> headers = new LinkedHashMap<String, Class<? extends HttpServletCredential>>();
+    private final Map<String, Class<? extends HttpServletCredential>> paths = new HashMap<String, Class<? extends HttpServletCredential>>();
+    private final Set<Class<? extends HttpServletCredential>> credentialTypes = new LinkedHashSet<Class<? extends HttpServletCredential>>();
+    private Class<? extends HttpServletCredential> clientCertType;
+
+    public HTTPCredentialDispatcher(Class<? extends HttpServletCredential> defaultType) {
+        this(defaultType, null);
+    }
+
+    /**
+     * @param defaultType
+     * @param authenticationConfig the configuration of the mechanisms or null if they use the default header names
+     */
+    public HTTPCredentialDispatcher(Class<? extends HttpServletCredential> defaultType,
+            HTTPAuthenticationConfiguration authenticationConfig) {
+        this.defaultType = defaultType;
+        this.authenticationConfig = authenticationConfig;
+        addCredentialType(defaultType);
+    }
+
+    /**
+     * <p>
+     * Enables one of the built-in credential types, so requests carrying that kind of credential are dispatched to it.
+     * </p>
+     *
+     * @param credentialType
+     */
+    public void addCredentialType(Class<? extends HttpServletCredential> credentialType) {
+        this.credentialTypes.add(credentialType);
+
+        if (HTTPBasicCredential.class.equals(credentialType)) {
+            addScheme(PicketBoxConstants.HTTP_BASIC, credentialType);
+        } else if (HTTPDigestCredential.class.equals(credentialType)) {
+            addScheme(PicketBoxConstants.HTTP_DIGEST, credentialType);
+        } else if (HTTPBearerCredential.class.equals(credentialType)
+                || HTTPIntrospectionCredential.class.equals(credentialType)) {
+            addScheme(HTTPBearerAuthentication.HTTP_BEARER, credentialType);
+        } else if (HTTPClientCertCredential.class.equals(credentialType)) {
+            this.clientCertType = credentialType;
+        } else if (HTTPAPIKeyCredential.class.equals(credentialType)) {
+            addScheme(HTTPAPIKeyAuthentication.API_KEY, credentialType);
+            addHeader(getAPIKeyHeaderName(), credentialType);
+        } else if (HTTPPreAuthCredential.class.equals(credentialType)) {
+            addHeader(getPreAuthUserHeader(), credentialType);
+        }
+    }
+
+    /**
+     * <p>
+     * Dispatches requests whose <code>Authorization</code> header uses the given scheme to the given credential type.
+     * </p>
+     *
+     * @param scheme
+     * @param credentialType
+     */
+    public void addScheme(String scheme, Class<? extends HttpServletCredential> credentialType) {
+        this.credentialTypes.add(credentialType);
+        this.schemes.put(scheme.toLowerCase(Locale.ENGLISH), credentialType);
+    }
+
+    /**
+     * <p>
+     * Dispatches requests carrying the given header to the given credential type.
+     * </p>
+     *
+     * @param headerName
+     * @param credentialType
+     */
+    public void addHeader(String headerName, Class<? extends HttpServletCredential> credentialType) {
+        this.credentialTypes.add(credentialType);
+        this.headers.put(headerName, credentialType);
+    }
+
+    /**
+     * <p>
+     * Dispatches requests without credentials whose path starts with the given segment to the given credential type. This
+     * type is the one used to challenge clients that did not send credentials.
+     * </p>
+     *
+     * @param path a single path segment, like <code>/api</code>
+     * @param credentialType
+     */
+    public void addPath(String path, Class<? extends HttpServletCredential> credentialType) {
+        String segment = path.trim();
+
+        if (segment.startsWith("/")) {
+            segment = segment.substring(1);
+        }
+
+        if (segment.endsWith("/*")) {
+            segment = segment.substring(0, segment.length() - 2);
+        } else if (segment.endsWith("/")) {
+            segment = segment.substring(0, segment.length() - 1);
+        }
+
+        if (segment.isEmpty() || segment.indexOf('/') != -1) {
+            throw PicketBoxHTTPMessages.MESSAGES.invalidAuthenticationPathMapping(path);
+        }
+
+        addCredentialType(credentialType);
+
+        this.paths.put(segment, credentialType);
+    }
+
+    private String getAPIKeyHeaderName() {
+        if (this.authenticationConfig != null && this.authenticationConfig.getAPIKeyConfiguration() != null) {
+            return this.authenticationConfig.getAPIKeyConfiguration().getHeaderName();
+        }
+
+        return HTTPAPIKeyAuthentication.DEFAULT_HEADER_NAME;
+    }
+
+    private String getPreAuthUserHeader() {
+        if (this.authenticationConfig != null && this.authenticationConfig.getPreAuthConfiguration() != null) {
+            return this.authenticationConfig.getPreAuthConfiguration().getUserHeader();
+        }
+
+        return HTTPPreAuthAuthentication.DEFAULT_USER_HEADER;
+    }
+
+    /**
+     * @return all the credential types this dispatcher may choose
+     */
+    public Set<Class<? extends HttpServletCredential>> getCredentialTypes() {
+        return Collections.unmodifiableSet(this.credentialTypes);
+    }
+
+    public Class<? extends HttpServletCredential> getDefaultType() {
+        return this.defaultType;
+    }
+
+    /**
+     * <p>
+     * Returns the credential type that should be used to authenticate the given request.
+     * </p>
+     *
+     * @param request
+     * @return
+     */
+    public Class<? extends HttpServletCredential> resolve(HttpServletRequest request) {
+        if (!this.schemes.isEmpty()) {
+            String authorizationHeader = request.getHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER);
+
+            if (authorizationHeader != null) {
+                int whitespaceIndex = authorizationHeader.indexOf(' ');
+                String scheme = whitespaceIndex > 0 ? authorizationHeader.substring(0, whitespaceIndex) : authorizationHeader;
+                Class<? extends HttpServletCredential> credentialType = this.schemes.get(scheme.toLowerCase(Locale.ENGLISH));
+
+                if (credentialType != null) {
+                    return credentialType;
+                }
+            }
+        }
+
+        if (!this.headers.isEmpty()) {
+            for (Map.Entry<String, Class<? extends HttpServletCredential>> header : this.headers.entrySet()) {
+                if (request.getHeader(header.getKey()) != null) {
+                    return header.getValue();
+                }
+            }
+        }
+
+        if (this.clientCertType != null && request.getAttribute(PicketBoxConstants.HTTP_CERTIFICATE) != null) {
+            return this.clientCertType;
+        }
+
+        if (!this.paths.isEmpty()) {
+            Class<? extends HttpServletCredential> credentialType = this.paths.get(getFirstSegment(request));
+
+            if (credentialType != null) {
+                return credentialType;
+            }
+        }
+
+        return this.defaultType;
+    }
+
+    private String getFirstSegment(HttpServletRequest request) {
+        String requestURI = request.getRequestURI();
+        int start = request.getContextPath().length() + 1;
+
+        if (start >= requestURI.length()) {
+            return "";
+        }
+
+        int end = requestURI.indexOf('/', start);
+
+        return end == -1 ? requestURI.substring(start) : requestURI.substring(start, end);
+    }
+}
@@ -21,15 +21,25 @@
  */
 package org.picketbox.http.authentication;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
@@ -42,8 +52,11 @@ import org.picketbox.core.exceptions.FormatException;
 import org.picketbox.core.nonce.NonceGenerator;
 import org.picketbox.core.nonce.UUIDNonceGenerator;
 import org.picketbox.core.util.HTTPDigestUtil;
+import org.picketbox.http.PicketBoxHTTPMessages;
 import org.picketbox.http.config.HTTPAuthenticationConfiguration;
 import org.picketbox.http.config.HTTPDigestConfiguration;
+import org.picketbox.http.session.SessionStateHolder;
+import org.picketbox.http.session.SessionStateReaper;
 import org.picketlink.idm.model.User;
 import org.picketlink.idm.password.PasswordValidator;
 
@@ -53,12 +66,27 @@ import org.picketlink.idm.password.PasswordValidator;
  * @author anil saldhana
  * @since Jul 6, 2012
  */
-public class HTTPDigestAuthentication extends AbstractHTTPAuthentication {
+public class HTTPDigestAuthentication extends AbstractHTTPAuthentication implements SessionStateHolder {
+
+    /**
+     * Quality of protection that also protects the integrity of the entity body
+     */
+    public static final String HTTP_DIGEST_QOP_AUTH_INT = "auth-int";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
 
     protected String opaque = UUID.randomUUID().toString();
 
+    /**
+     * Comma separated quality of protection values accepted from clients
+     */
     protected String qop = PicketBoxConstants.HTTP_DIGEST_QOP_AUTH;
 
+    /**
+     * Maximum size, in bytes, of the entity body read to verify <code>auth-int</code> responses
+     */
+    protected int maxEntityBodySize = HTTPDigestConfiguration.DEFAULT_MAX_ENTITY_BODY_SIZE;
+
     // How long is the nonce valid? By default, it is set at 3 minutes
     protected long nonceMaxValid = 3 * 60 * 1000;
 
@@ -81,6 +109,33 @@ public class HTTPDigestAuthentication extends AbstractHTTPAuthentication {
         return info;
     }
 
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AsyncHTTPAuthentication#getCredentialType()
+     */
+    @Override
+    public Class<? extends HttpServletCredential> getCredentialType() {
+        return HTTPDigestCredential.class;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AbstractHTTPAuthentication#registerSessionState(org.picketbox.http.session.SessionStateReaper)
+     */
+    @Override
+    protected void registerSessionState(SessionStateReaper reaper) {
+        super.registerSessionState(reaper);
+        reaper.register(this);
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.session.SessionStateHolder#purgeSession(java.lang.String)
+     */
+    @Override
+    public int purgeSession(String sessionId) {
+        List<String> nonces = this.idVersusNonce.remove(sessionId);
+
+        return nonces != null ? nonces.size() : 0;
+    }
+
     public NonceGenerator getNonceGenerator() {
         return this.nonceGenerator;
     }
@@ -111,6 +166,56 @@ public class HTTPDigestAuthentication extends AbstractHTTPAuthentication {
         this.opaque = opaque;
     }
 
+    public String getQop() {
+        HTTPAuthenticationConfiguration authenticationConfig = getAuthenticationConfig();
+
+        if (authenticationConfig != null) {
+            HTTPDigestConfiguration digestConfiguration = authenticationConfig.getDigestConfiguration();
+
+            if (digestConfiguration != null && digestConfiguration.getQop() != null) {
+                this.qop = digestConfiguration.getQop();
+            }
+        }
+
+        return this.qop;
+    }
+
+    public void setQop(String qop) {
+        this.qop = qop;
+    }
+
+    public int getMaxEntityBodySize() {
+        HTTPAuthenticationConfiguration authenticationConfig = getAuthenticationConfig();
+
+        if (authenticationConfig != null) {
+            HTTPDigestConfiguration digestConfiguration = authenticationConfig.getDigestConfiguration();
+
+            if (digestConfiguration != null) {
+                this.maxEntityBodySize = digestConfiguration.getMaxEntityBodySize();
+            }
+        }
+
+        return this.maxEntityBodySize;
+    }
+
+    public void setMaxEntityBodySize(int maxEntityBodySize) {
+        this.maxEntityBodySize = maxEntityBodySize;
+    }
+
+    private boolean isSupportedQop(String qop) {
+        if (qop == null) {
+            return false;
+        }
+
+        for (String supportedQop : getQop().split(",")) {
+            if (supportedQop.trim().equals(qop)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     private static enum NONCE_VALIDATION_RESULT {
         INVALID, STALE, VALID
     }
@@ -183,7 +288,7 @@ public class HTTPDigestAuthentication extends AbstractHTTPAuthentication {
             }
 
             // Validate qop
-            if (digest.getQop().equals(this.qop) == false) {
+            if (!isSupportedQop(digest.getQop())) {
                 return null;
             }
 
@@ -192,31 +297,189 @@ public class HTTPDigestAuthentication extends AbstractHTTPAuthentication {
             // Validate the nonce
             NONCE_VALIDATION_RESULT nonceResult = validateNonce(digest, sessionId);
 
-            if (nonceResult == NONCE_VALIDATION_RESULT.VALID) {
-                User user = getIdentityManager().getUser(digest.getUsername());
-
-                if (user != null) {
-                    if (getIdentityManager().validatePassword(user, new PasswordValidator() {
+            if (nonceResult == NONCE_VALIDATION_RESULT.VALID && HTTP_DIGEST_QOP_AUTH_INT.equals(digest.getQop())) {
+                return authenticateWithEntityBody(request, digest);
+            }
 
-                        @Override
-                        public boolean validate(String userPassword) {
-                            try {
-                                return HTTPDigestUtil.matchCredential(digest, userPassword.toCharArray());
-                            } catch (FormatException e) {
-                                throw new RuntimeException("Error validating digest credential.", e);
+            if (nonceResult == NONCE_VALIDATION_RESULT.VALID) {
+                // the header carries the nonce, nonce count and client response, so only identical requests are coalesced
+                String fingerprint = getCredentialFingerprint(authorizationHeader, request.getMethod());
+
+                return verifyCredentials(fingerprint, new Callable<Principal>() {
+                    @Override
+                    public Principal call() throws Exception {
+                        User user = getUser(digest.getUsername());
+
+                        if (user != null && getIdentityManager().validatePassword(user, new PasswordValidator() {
+
+                            @Override
+                            public boolean validate(String userPassword) {
+                                try {
+                                    return HTTPDigestUtil.matchCredential(digest, userPassword.toCharArray());
+                                } catch (FormatException e) {
+                                    throw new RuntimeException("Error validating digest credential.", e);
+                                }
                             }
+
+                        })) {
+                            return new PicketBoxPrincipal(digest.getUsername());
                         }
 
-                    })) {
-                        return new PicketBoxPrincipal(digest.getUsername());
+                        return null;
                     }
-                }
+                });
             }
         }
 
         return null;
     }
 
+    /**
+     * <p>
+     * Authenticates a request with <code>qop=auth-int</code>. The entity body is read, up to the configured maximum size, and
+     * the response is checked against it before the request proceeds. Once verified, the body is replayed to the
+     * application by replacing the request wrapped by the security filter, so requests with a body that are not wrapped are
+     * rejected.
+     * </p>
+     * <p>
+     * The credential caches are not used: the response depends on the body and must be checked for every request.
+     * </p>
+     *
+     * @param request
+     * @param digest
+     * @return
+     */
+    private Principal authenticateWithEntityBody(HttpServletRequest request, final DigestHolder digest) {
+        boolean hasEntityBody = request.getContentLength() > 0 || request.getHeader("Transfer-Encoding") != null;
+        final byte[] entityBody;
+
+        if (hasEntityBody) {
+            if (!(request instanceof HttpServletRequestWrapper)) {
+                return null;
+            }
+
+            entityBody = readEntityBody(request);
+
+            if (entityBody == null) {
+                return null;
+            }
+        } else {
+            entityBody = new byte[0];
+        }
+
+        User user = getUser(digest.getUsername());
+
+        if (user == null) {
+            return null;
+        }
+
+        boolean valid = getIdentityManager().validatePassword(user, new PasswordValidator() {
+            @Override
+            public boolean validate(String userPassword) {
+                String ha1 = md5Hex(digest.getUsername() + ":" + digest.getRealm() + ":" + userPassword);
+
+                return matchesEntityBody(ha1, digest, entityBody);
+            }
+        });
+
+        if (!valid) {
+            return null;
+        }
+
+        if (hasEntityBody) {
+            HttpServletRequestWrapper wrapper = (HttpServletRequestWrapper) request;
+
+            wrapper.setRequest(new EntityBodyRequest((HttpServletRequest) wrapper.getRequest(), entityBody));
+        }
+
+        return new PicketBoxPrincipal(digest.getUsername());
+    }
+
+    /**
+     * <p>
+     * Reads the entity body of the given request.
+     * </p>
+     *
+     * @param request
+     * @return the entity body or null if it is larger than the maximum size or can not be read
+     */
+    private byte[] readEntityBody(HttpServletRequest request) {
+        int maxSize = getMaxEntityBodySize();
+
+        if (request.getContentLength() > maxSize) {
+            return null;
+        }
+
+        ByteArrayOutputStream entityBody = new ByteArrayOutputStream(Math.max(request.getContentLength(), 0));
+        byte[] buffer = new byte[4096];
+
+        try {
+            InputStream input = request.getInputStream();
+            int count;
+
+            while ((count = input.read(buffer)) != -1) {
+                if (entityBody.size() + count > maxSize) {
+                    return null;
+                }
+
+                entityBody.write(buffer, 0, count);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        return entityBody.toByteArray();
+    }
+
+    /**
+     * <p>
+     * Checks if the response sent by the client matches the given entity body.
+     * </p>
+     *
+     * @param ha1 the hex encoded MD5 of <code>username:realm:password</code>
+     * @param digest the digest sent by the client
+     * @param entityBody the entity body of the request, empty if it has none
+     * @return
+     */
+    private static boolean matchesEntityBody(String ha1, DigestHolder digest, byte[] entityBody) {
+        String ha2 = md5Hex(digest.getRequestMethod() + ":" + digest.getUri() + ":" + toHex(getMD5().digest(entityBody)));
+        String expected = md5Hex(ha1 + ":" + digest.getNonce() + ":" + digest.getNc() + ":" + digest.getCnonce() + ":"
+                + digest.getQop() + ":" + ha2);
+
+        return MessageDigest.isEqual(expected.getBytes(), digest.getClientResponse().toLowerCase().getBytes());
+    }
+
+    /**
+     * @param value
+     * @return the hex encoded MD5 of the given value
+     */
+    private static String md5Hex(String value) {
+        try {
+            return toHex(getMD5().digest(value.getBytes("UTF-8")));
+        } catch (UnsupportedEncodingException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+    }
+
+    private static MessageDigest getMD5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+
+        return new String(hex);
+    }
+
     @Override
     protected void challengeClient(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
         HttpSession session = request.getSession();
@@ -240,7 +503,7 @@ public class HTTPDigestAuthentication extends AbstractHTTPAuthentication {
         str.append("domain=\"").append(domain).append("\",");
         str.append("nonce=\"").append(newNonce).append("\",");
         str.append("algorithm=MD5,");
-        str.append("qop=").append(this.qop).append(",");
+        str.append("qop=\"").append(getQop()).append("\",");
         str.append("opaque=\"").append(getOpaque()).append("\",");
         str.append("stale=\"").append(false).append("\"");
 
@@ -253,6 +516,59 @@ public class HTTPDigestAuthentication extends AbstractHTTPAuthentication {
         }
     }
 
+    @Override
+    protected void sendErrorPage(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
+        challengeClient(request, response);
+    }
+
+    /**
+     * <p>
+     * Request whose entity body was already read and verified against the digest response.
+     * </p>
+     */
+    private static class EntityBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] content;
+
+        private BufferedEntityBody entityBody;
+        private BufferedReader reader;
+
+        EntityBodyRequest(HttpServletRequest request, byte[] content) {
+            super(request);
+            this.content = content;
+        }
+
+        /* (non-Javadoc)
+         * @see javax.servlet.ServletRequestWrapper#getInputStream()
+         */
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (this.entityBody == null) {
+                this.entityBody = new BufferedEntityBody(this.content);
+            }
+
+            return this.entityBody;
+        }
+
+        /* (non-Javadoc)
+         * @see javax.servlet.ServletRequestWrapper#getReader()
+         */
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (this.reader == null) {
+                String encoding = getCharacterEncoding();
+
+                if (encoding == null) {
+                    encoding = "ISO-8859-1";
+                }
+
+                this.reader = new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+            }
+
+            return this.reader;
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.picketbox.http.authentication.AbstractHTTPAuthentication#getRealmName()
      */
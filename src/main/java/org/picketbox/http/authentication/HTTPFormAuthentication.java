@@ -24,6 +24,7 @@ package org.picketbox.http.authentication;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -34,16 +35,28 @@ import org.picketbox.core.authentication.PicketBoxConstants;
 import org.picketbox.core.exceptions.AuthenticationException;
 import org.picketbox.http.config.HTTPAuthenticationConfiguration;
 import org.picketbox.http.config.HTTPFormConfiguration;
+import org.picketbox.http.session.RememberMeManager;
 import org.picketlink.idm.model.User;
 
 /**
  * Perform HTTP Form Authentication
  *
+ * <p>
+ * If the remember-me authentication is enabled and the login form sends the <code>j_remember_me</code> parameter, a
+ * persistent login is created for the user. Returning users without a session are then authenticated with it, see
+ * {@link RememberMeManager}.
+ * </p>
+ *
  * @author anil saldhana
  * @since July 9, 2012
  */
 public class HTTPFormAuthentication extends AbstractHTTPAuthentication {
 
+    /**
+     * Request parameter sent by the login form to ask for a persistent login.
+     */
+    public static final String HTTP_FORM_J_REMEMBER_ME = "j_remember_me";
+
     /* (non-Javadoc)
      * @see org.picketbox.core.authentication.AuthenticationMechanism#getAuthenticationInfo()
      */
@@ -56,6 +69,14 @@ public class HTTPFormAuthentication extends AbstractHTTPAuthentication {
         return info;
     }
 
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AsyncHTTPAuthentication#getCredentialType()
+     */
+    @Override
+    public Class<? extends HttpServletCredential> getCredentialType() {
+        return HTTPFormCredential.class;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -64,7 +85,7 @@ public class HTTPFormAuthentication extends AbstractHTTPAuthentication {
      */
     @Override
     protected boolean isAuthenticationRequest(HttpServletRequest request) {
-        return request.getRequestURI().contains(PicketBoxConstants.HTTP_FORM_J_SECURITY_CHECK);
+        return isLoginRequest(request) || isRememberMeRequest(request);
     }
 
     /*
@@ -75,16 +96,61 @@ public class HTTPFormAuthentication extends AbstractHTTPAuthentication {
      */
     @Override
     protected Principal doHTTPAuthentication(HttpServletRequest request, HttpServletResponse response) {
-        String userName = request.getParameter(PicketBoxConstants.HTTP_FORM_J_USERNAME);
-        String password = request.getParameter(PicketBoxConstants.HTTP_FORM_J_PASSWORD);
+        RememberMeManager rememberMeManager = getPicketBoxManager().getRememberMeManager();
+
+        if (!isLoginRequest(request)) {
+            if (rememberMeManager == null) {
+                return null;
+            }
+
+            String userName = rememberMeManager.autoLogin(request, response);
+
+            return userName != null ? new PicketBoxPrincipal(userName) : null;
+        }
+
+        final String userName = request.getParameter(PicketBoxConstants.HTTP_FORM_J_USERNAME);
+        final String password = request.getParameter(PicketBoxConstants.HTTP_FORM_J_PASSWORD);
+
+        Principal principal = verifyCredentials(getCredentialFingerprint(userName, password), new Callable<Principal>() {
+            @Override
+            public Principal call() throws Exception {
+                User user = getUser(userName);
+
+                if (user != null && getIdentityManager().validatePassword(user, password)) {
+                    return new PicketBoxPrincipal(user.getKey());
+                }
+
+                return null;
+            }
+        });
+
+        if (principal != null && rememberMeManager != null && isRememberMeRequested(request)) {
+            rememberMeManager.remember(principal.getName(), request, response);
+        }
+
+        return principal;
+    }
+
+    /**
+     * <p>
+     * Requests authenticated with a persistent login proceed to the requested resource. If the persistent login is not valid
+     * the user is asked for its credentials.
+     * </p>
+     */
+    @Override
+    protected Principal performAuthentication(HttpServletRequest request, HttpServletResponse response)
+            throws AuthenticationException {
+        if (isLoginRequest(request)) {
+            return super.performAuthentication(request, response);
+        }
 
-        User user = getIdentityManager().getUser(userName);
+        Principal principal = getAuthenticatedPrincipal(request, response);
 
-        if (user != null && getIdentityManager().validatePassword(user, password)) {
-            return new PicketBoxPrincipal(user.getKey());
+        if (principal == null && getPicketBoxManager().requiresAuthentication(request, response)) {
+            challengeClient(request, response);
         }
 
-        return null;
+        return principal;
     }
 
     /*
@@ -152,4 +218,20 @@ public class HTTPFormAuthentication extends AbstractHTTPAuthentication {
 
         return super.formErrorPage;
     }
-}
\ No newline at end of file
+
+    private boolean isLoginRequest(HttpServletRequest request) {
+        return request.getRequestURI().contains(PicketBoxConstants.HTTP_FORM_J_SECURITY_CHECK);
+    }
+
+    private boolean isRememberMeRequest(HttpServletRequest request) {
+        RememberMeManager rememberMeManager = getPicketBoxManager().getRememberMeManager();
+
+        return rememberMeManager != null && rememberMeManager.hasCookie(request);
+    }
+
+    private boolean isRememberMeRequested(HttpServletRequest request) {
+        String rememberMe = request.getParameter(HTTP_FORM_J_REMEMBER_ME);
+
+        return rememberMe != null && (rememberMe.equalsIgnoreCase("true") || rememberMe.equalsIgnoreCase("on"));
+    }
+}
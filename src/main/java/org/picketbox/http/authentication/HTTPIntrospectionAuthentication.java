@@ -0,0 +1,171 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.authentication;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.picketbox.core.PicketBoxPrincipal;
+import org.picketbox.core.authentication.AuthenticationInfo;
+import org.picketbox.http.PicketBoxHTTPMessages;
+import org.picketbox.http.config.HTTPAuthenticationConfiguration;
+import org.picketbox.http.config.HTTPIntrospectionConfiguration;
+import org.picketbox.http.identity.VerifiedCredentialCache;
+import org.picketbox.http.token.IntrospectedToken;
+import org.picketbox.http.token.TokenIntrospectionClient;
+
+/**
+ * <p>
+ * Perform HTTP Bearer Authentication with opaque tokens, checked against an OAuth 2.0 token introspection endpoint (RFC 7662)
+ * configured in {@link HTTPIntrospectionConfiguration}.
+ * </p>
+ * <p>
+ * Active tokens are kept in memory until they expire or for the configured maximum cache time, whichever comes first, so the
+ * endpoint is only called once per token in that period. Concurrent requests with the same token share a single call and the
+ * connections to the endpoint are reused. If the endpoint can not be reached the client gets a 503 (Service Unavailable) and,
+ * when enabled, the circuit breaker stops calling it for a while.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPIntrospectionAuthentication extends HTTPBearerAuthentication {
+
+    public static final String INTROSPECTION = "INTROSPECTION";
+
+    private volatile TokenIntrospectionClient client;
+    private volatile VerifiedCredentialCache activeTokens;
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.authentication.AuthenticationMechanism#getAuthenticationInfo()
+     */
+    @Override
+    public List<AuthenticationInfo> getAuthenticationInfo() {
+        List<AuthenticationInfo> info = new ArrayList<AuthenticationInfo>();
+
+        info.add(new AuthenticationInfo("HTTP Bearer Introspection Credential",
+                "Authenticates users using opaque tokens sent with the HTTP Bearer Authentication scheme and checked against a token introspection endpoint.",
+                HTTPIntrospectionCredential.class));
+
+        return info;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AsyncHTTPAuthentication#getCredentialType()
+     */
+    @Override
+    public Class<? extends HttpServletCredential> getCredentialType() {
+        return HTTPIntrospectionCredential.class;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.HTTPBearerAuthentication#doHTTPAuthentication(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected Principal doHTTPAuthentication(HttpServletRequest request, HttpServletResponse response) {
+        final String token = getToken(request);
+
+        if (token == null) {
+            return null;
+        }
+
+        final VerifiedCredentialCache activeTokens = getActiveTokens();
+        final String fingerprint = getCredentialFingerprint(token);
+        Principal principal = activeTokens.get(fingerprint);
+
+        if (principal != null) {
+            return principal;
+        }
+
+        return verifyCredentials(fingerprint, new CredentialVerification() {
+            @Override
+            public Principal call() throws Exception {
+                TokenIntrospectionClient client = getClient();
+                IntrospectedToken introspectedToken;
+
+                try {
+                    introspectedToken = client.introspect(token);
+                } catch (IOException e) {
+                    throw PicketBoxHTTPMessages.MESSAGES.introspectionEndpointUnavailable(client.getEndpoint().toString(), e);
+                }
+
+                if (introspectedToken == null || introspectedToken.getSubject() == null) {
+                    return null;
+                }
+
+                Principal principal = new PicketBoxPrincipal(introspectedToken.getSubject());
+                long expiresAt = System.currentTimeMillis() + getIntrospectionConfig().getMaxCacheTime();
+
+                if (introspectedToken.getExpiration() != -1) {
+                    expiresAt = Math.min(expiresAt, introspectedToken.getExpiration());
+
+                    // the token must not be accepted past its expiration during an outage either
+                    setExpiresAt(introspectedToken.getExpiration());
+                }
+
+                activeTokens.put(fingerprint, principal, expiresAt);
+
+                return principal;
+            }
+        });
+    }
+
+    private TokenIntrospectionClient getClient() {
+        if (this.client == null) {
+            HTTPIntrospectionConfiguration introspectionConfig = getIntrospectionConfig();
+
+            try {
+                this.client = new TokenIntrospectionClient(introspectionConfig.getEndpoint(),
+                        introspectionConfig.getClientId(), introspectionConfig.getClientSecret(),
+                        introspectionConfig.getConnectTimeout(), introspectionConfig.getReadTimeout());
+            } catch (IOException e) {
+                throw PicketBoxHTTPMessages.MESSAGES.invalidIntrospectionEndpoint(introspectionConfig.getEndpoint(), e);
+            }
+        }
+
+        return this.client;
+    }
+
+    private VerifiedCredentialCache getActiveTokens() {
+        if (this.activeTokens == null) {
+            this.activeTokens = new VerifiedCredentialCache(0, getIntrospectionConfig().getMaxCachedTokens());
+        }
+
+        return this.activeTokens;
+    }
+
+    private HTTPIntrospectionConfiguration getIntrospectionConfig() {
+        HTTPAuthenticationConfiguration authenticationConfig = getAuthenticationConfig();
+
+        if (authenticationConfig != null && authenticationConfig.getIntrospectionConfiguration() != null) {
+            return authenticationConfig.getIntrospectionConfiguration();
+        }
+
+        return new HTTPIntrospectionConfiguration();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.authentication;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.picketbox.core.PicketBoxPrincipal;
+import org.picketbox.core.authentication.AuthenticationInfo;
+import org.picketbox.core.exceptions.AuthenticationException;
+import org.picketbox.core.util.Base64;
+import org.picketbox.http.PicketBoxHTTPMessages;
+import org.picketbox.http.config.HTTPAuthenticationConfiguration;
+import org.picketbox.http.config.HTTPPreAuthConfiguration;
+
+/**
+ * <p>
+ * Accepts users already authenticated by a trusted reverse proxy (eg.: where TLS and SSO terminate). The proxy sends the name
+ * of the user, the current time and a signature of both computed with a secret shared with this application:
+ * </p>
+ *
+ * <pre>
+ * X-Forwarded-User: Aladdin
+ * X-Forwarded-User-Timestamp: 1350000000
+ * X-Forwarded-User-Signature: Base64(HMAC-SHA256(secret, "Aladdin\n1350000000"))
+ * </pre>
+ * <p>
+ * The identity is only accepted if the signature is valid and the timestamp is recent, so clients bypassing the proxy can not
+ * impersonate users by sending the headers themselves. Authenticating a request costs a single HMAC and no call to the
+ * identity store. The headers are sent with every request, so the user is only kept for the duration of the request and no
+ * session is created.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPPreAuthAuthentication extends AbstractHTTPAuthentication {
+
+    public static final String PRE_AUTH = "PREAUTH";
+
+    public static final String DEFAULT_USER_HEADER = "X-Forwarded-User";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private volatile HTTPPreAuthConfiguration preAuthConfig;
+
+    private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+
+                mac.init(new SecretKeySpec(getPreAuthConfig().getSecret(), ALGORITHM));
+
+                return mac;
+            } catch (NoSuchAlgorithmException e) {
+                throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+            } catch (InvalidKeyException e) {
+                throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+            }
+        }
+    };
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.authentication.AuthenticationMechanism#getAuthenticationInfo()
+     */
+    @Override
+    public List<AuthenticationInfo> getAuthenticationInfo() {
+        List<AuthenticationInfo> info = new ArrayList<AuthenticationInfo>();
+
+        info.add(new AuthenticationInfo("HTTP Pre-Authenticated Credential",
+                "Authenticates users using the signed identity sent by a trusted reverse proxy.", HTTPPreAuthCredential.class));
+
+        return info;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AsyncHTTPAuthentication#getCredentialType()
+     */
+    @Override
+    public Class<? extends HttpServletCredential> getCredentialType() {
+        return HTTPPreAuthCredential.class;
+    }
+
+    @Override
+    protected boolean isAuthenticationRequest(HttpServletRequest request) {
+        return request.getHeader(getPreAuthConfig().getUserHeader()) != null;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.authentication.AbstractHTTPAuthentication#doHTTPAuthentication(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected Principal doHTTPAuthentication(HttpServletRequest request, HttpServletResponse response) {
+        HTTPPreAuthConfiguration preAuthConfig = getPreAuthConfig();
+
+        if (preAuthConfig.getSecret() == null) {
+            return null;
+        }
+
+        String userName = request.getHeader(preAuthConfig.getUserHeader());
+        String timestamp = request.getHeader(preAuthConfig.getTimestampHeader());
+        String signature = request.getHeader(preAuthConfig.getSignatureHeader());
+
+        if (userName == null || timestamp == null || signature == null) {
+            return null;
+        }
+
+        long signedAt;
+
+        try {
+            signedAt = Long.parseLong(timestamp.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        if (Math.abs(System.currentTimeMillis() - signedAt) > preAuthConfig.getMaxClockSkew()) {
+            return null;
+        }
+
+        byte[] presentedSignature;
+
+        try {
+            presentedSignature = Base64.decode(signature.trim());
+        } catch (RuntimeException e) {
+            return null;
+        }
+
+        if (presentedSignature == null || !MessageDigest.isEqual(sign(userName + "\n" + timestamp.trim()), presentedSignature)) {
+            return null;
+        }
+
+        return new PicketBoxPrincipal(userName);
+    }
+
+    @Override
+    protected void challengeClient(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
+        // only the proxy can authenticate users, there is nothing the client can be asked for
+        try {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+        } catch (IOException e) {
+            throw new AuthenticationException(e);
+        }
+    }
+
+    @Override
+    protected void sendErrorPage(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException {
+        challengeClient(request, response);
+    }
+
+    private byte[] sign(String value) {
+        try {
+            return this.macs.get().doFinal(value.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+    }
+
+    private HTTPPreAuthConfiguration getPreAuthConfig() {
+        if (this.preAuthConfig == null) {
+            HTTPAuthenticationConfiguration authenticationConfig = getAuthenticationConfig();
+            HTTPPreAuthConfiguration preAuthConfig = null;
+
+            if (authenticationConfig != null) {
+                preAuthConfig = authenticationConfig.getPreAuthConfiguration();
+            }
+
+            // without a configuration no secret is known and all requests are rejected
+            this.preAuthConfig = preAuthConfig != null ? preAuthConfig : new HTTPPreAuthConfiguration();
+        }
+
+        return this.preAuthConfig;
+    }
+}
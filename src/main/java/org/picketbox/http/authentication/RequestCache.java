@@ -28,6 +28,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
 import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.http.session.SessionStateHolder;
 
 /**
  * <p>
@@ -38,7 +39,7 @@ import org.picketbox.core.authentication.PicketBoxConstants;
  *
  * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
  */
-public class RequestCache {
+public class RequestCache implements SessionStateHolder {
 
     private ConcurrentHashMap<String, SavedRequest> requestCache = new ConcurrentHashMap<String, SavedRequest>();
 
@@ -82,4 +83,12 @@ public class RequestCache {
 
         return savedRequest;
     }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.session.SessionStateHolder#purgeSession(java.lang.String)
+     */
+    @Override
+    public int purgeSession(String sessionId) {
+        return this.requestCache.remove(sessionId) != null ? 1 : 0;
+    }
 }
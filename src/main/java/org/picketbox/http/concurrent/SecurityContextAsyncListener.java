@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.concurrent;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import org.picketbox.core.ctx.SecurityContext;
+
+/**
+ * <p>
+ * {@link AsyncListener} that notifies another listener with the {@link SecurityContext} of the request that started the
+ * asynchronous processing. Containers notify listeners from their own threads, where the context propagated by the
+ * {@link org.picketbox.http.filters.DelegatingSecurityFilter} is not available.
+ * </p>
+ *
+ * <pre>
+ * asyncContext.addListener(new SecurityContextAsyncListener(listener, SecurityContextSnapshot.get(request)));
+ * </pre>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class SecurityContextAsyncListener implements AsyncListener {
+
+    private final AsyncListener delegate;
+    private final SecurityContextSnapshot snapshot;
+
+    public SecurityContextAsyncListener(AsyncListener delegate, SecurityContextSnapshot snapshot) {
+        this.delegate = delegate;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) throws IOException {
+        SecurityContext previous = this.snapshot.restore();
+
+        try {
+            this.delegate.onComplete(event);
+        } finally {
+            this.snapshot.reset(previous);
+        }
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {
+        SecurityContext previous = this.snapshot.restore();
+
+        try {
+            this.delegate.onTimeout(event);
+        } finally {
+            this.snapshot.reset(previous);
+        }
+    }
+
+    @Override
+    public void onError(AsyncEvent event) throws IOException {
+        SecurityContext previous = this.snapshot.restore();
+
+        try {
+            this.delegate.onError(event);
+        } finally {
+            this.snapshot.reset(previous);
+        }
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) throws IOException {
+        SecurityContext previous = this.snapshot.restore();
+
+        try {
+            this.delegate.onStartAsync(event);
+        } finally {
+            this.snapshot.reset(previous);
+        }
+
+        // listeners are removed when the asynchronous processing is started again
+        event.getAsyncContext().addListener(this);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.concurrent;
+
+import static org.picketbox.http.PicketBoxHTTPMessages.MESSAGES;
+
+import java.util.concurrent.Callable;
+
+import javax.servlet.ServletRequest;
+
+import org.picketbox.core.ctx.SecurityContext;
+import org.picketbox.core.ctx.SecurityContextPropagation;
+import org.picketbox.core.exceptions.ProcessingException;
+
+/**
+ * <p>
+ * Holds the {@link SecurityContext} propagated to a thread at a given moment, so it can be restored by the tasks that thread
+ * hands to other threads. The context is captured once and set directly on the worker thread, without resolving the user
+ * again from the session.
+ * </p>
+ * <p>
+ * The {@link org.picketbox.http.filters.DelegatingSecurityFilter} stores a snapshot of the context propagated for each
+ * request as a request attribute. Applications can get it using {@link #get(ServletRequest)} and wrap the tasks passed to
+ * {@link javax.servlet.AsyncContext#start(Runnable)} or to their own executors.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class SecurityContextSnapshot {
+
+    /**
+     * Request attribute holding the snapshot of the context propagated for the request.
+     */
+    public static final String REQUEST_ATTRIBUTE = SecurityContextSnapshot.class.getName();
+
+    private final SecurityContext securityContext;
+
+    public SecurityContextSnapshot(SecurityContext securityContext) {
+        this.securityContext = securityContext;
+    }
+
+    /**
+     * <p>
+     * Captures the {@link SecurityContext} propagated to the calling thread.
+     * </p>
+     *
+     * @return
+     */
+    public static SecurityContextSnapshot capture() {
+        return new SecurityContextSnapshot(getCurrentContext());
+    }
+
+    /**
+     * <p>
+     * Returns the snapshot stored for the given request or a snapshot of the context propagated to the calling thread if the
+     * request has none.
+     * </p>
+     *
+     * @param request
+     * @return
+     */
+    public static SecurityContextSnapshot get(ServletRequest request) {
+        SecurityContextSnapshot snapshot = (SecurityContextSnapshot) request.getAttribute(REQUEST_ATTRIBUTE);
+
+        if (snapshot == null) {
+            snapshot = capture();
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * @return the captured context or null if no context was propagated
+     */
+    public SecurityContext getSecurityContext() {
+        return this.securityContext;
+    }
+
+    /**
+     * <p>
+     * Returns a task that runs the given one with the captured context. The context previously propagated to the worker
+     * thread, if any, is restored when the task finishes.
+     * </p>
+     *
+     * @param task
+     * @return
+     */
+    public Runnable wrap(final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                SecurityContext previous = restore();
+
+                try {
+                    task.run();
+                } finally {
+                    reset(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * Returns a task that calls the given one with the captured context. The context previously propagated to the worker
+     * thread, if any, is restored when the task finishes.
+     * </p>
+     *
+     * @param task
+     * @return
+     */
+    public <T> Callable<T> wrap(final Callable<T> task) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                SecurityContext previous = restore();
+
+                try {
+                    return task.call();
+                } finally {
+                    reset(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * Propagates the captured context to the calling thread.
+     * </p>
+     *
+     * @return the context that was propagated to the calling thread before
+     */
+    public SecurityContext restore() {
+        SecurityContext previous = getCurrentContext();
+
+        if (this.securityContext != previous) {
+            setCurrentContext(this.securityContext);
+        }
+
+        return previous;
+    }
+
+    /**
+     * <p>
+     * Propagates the given context to the calling thread, or clears the propagated context if it is null.
+     * </p>
+     *
+     * @param previous the value returned by {@link #restore()}
+     */
+    public void reset(SecurityContext previous) {
+        if (this.securityContext != previous) {
+            setCurrentContext(previous);
+        }
+    }
+
+    private static SecurityContext getCurrentContext() {
+        try {
+            return SecurityContextPropagation.getContext();
+        } catch (Exception e) {
+            throw MESSAGES.runtimeException(e);
+        }
+    }
+
+    private static void setCurrentContext(SecurityContext securityContext) {
+        try {
+            if (securityContext == null) {
+                SecurityContextPropagation.clear();
+            } else {
+                SecurityContextPropagation.setContext(securityContext);
+            }
+        } catch (ProcessingException e) {
+            throw MESSAGES.runtimeException(e);
+        }
+    }
+}
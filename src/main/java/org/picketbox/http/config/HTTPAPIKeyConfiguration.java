@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import org.picketbox.http.identity.APIKeyLoader;
+
+/**
+ * <p>
+ * Configuration for the API key authentication. See {@link org.picketbox.http.authentication.HTTPAPIKeyAuthentication}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPAPIKeyConfiguration {
+
+    private String headerName = "X-API-Key";
+    private byte[] secret;
+    private APIKeyLoader loader;
+    private long refreshInterval = 60 * 1000;
+
+    /**
+     * @return the request header carrying the API key
+     */
+    public String getHeaderName() {
+        return this.headerName;
+    }
+
+    public void setHeaderName(String headerName) {
+        this.headerName = headerName;
+    }
+
+    /**
+     * @return the secret used to compute the keyed hashes of the API keys
+     */
+    public byte[] getSecret() {
+        return this.secret;
+    }
+
+    public void setSecret(byte[] secret) {
+        this.secret = secret;
+    }
+
+    /**
+     * @return the loader of the API keys
+     */
+    public APIKeyLoader getLoader() {
+        return this.loader;
+    }
+
+    public void setLoader(APIKeyLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @return how often, in milliseconds, changes to the API keys are loaded
+     */
+    public long getRefreshInterval() {
+        return this.refreshInterval;
+    }
+
+    public void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+}
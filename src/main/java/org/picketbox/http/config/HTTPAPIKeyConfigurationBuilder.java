@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import java.io.UnsupportedEncodingException;
+
+import org.picketbox.core.config.AbstractConfigurationBuilder;
+import org.picketbox.core.config.ConfigurationBuilder;
+import org.picketbox.http.PicketBoxHTTPMessages;
+import org.picketbox.http.identity.APIKeyLoader;
+import org.picketbox.http.identity.FileAPIKeyLoader;
+
+/**
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPAPIKeyConfigurationBuilder extends AbstractConfigurationBuilder<HTTPAPIKeyConfiguration> {
+
+    private HTTPAPIKeyConfiguration configuration = new HTTPAPIKeyConfiguration();
+
+    public HTTPAPIKeyConfigurationBuilder(ConfigurationBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    protected void setDefaults() {
+    }
+
+    public HTTPAPIKeyConfigurationBuilder header(String headerName) {
+        this.configuration.setHeaderName(headerName);
+        return this;
+    }
+
+    /**
+     * @param secret the secret used to compute the keyed hashes of the API keys
+     * @return
+     */
+    public HTTPAPIKeyConfigurationBuilder secret(String secret) {
+        try {
+            this.configuration.setSecret(secret.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+
+        return this;
+    }
+
+    /**
+     * @param loader loads the API keys from the identity store
+     * @return
+     */
+    public HTTPAPIKeyConfigurationBuilder loader(APIKeyLoader loader) {
+        this.configuration.setLoader(loader);
+        return this;
+    }
+
+    /**
+     * @param fileName a properties file with one <code>hash=userName</code> line per API key
+     * @return
+     */
+    public HTTPAPIKeyConfigurationBuilder file(String fileName) {
+        return loader(new FileAPIKeyLoader(fileName));
+    }
+
+    /**
+     * @param refreshInterval how often, in milliseconds, changes to the API keys are loaded
+     * @return
+     */
+    public HTTPAPIKeyConfigurationBuilder refreshInterval(long refreshInterval) {
+        this.configuration.setRefreshInterval(refreshInterval);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
+     */
+    @Override
+    public HTTPAPIKeyConfiguration doBuild() {
+        return this.configuration;
+    }
+}
@@ -37,6 +37,15 @@ public class HTTPAuthenticationConfiguration extends AuthenticationConfiguration
     private HTTPClientCertConfiguration clientCertConfiguration;
     private HTTPDigestConfiguration digestConfiguration;
     private HTTPFormConfiguration formConfiguration;
+    private HTTPIdentityCacheConfiguration identityCacheConfiguration;
+    private HTTPUserBatchingConfiguration userBatchingConfiguration;
+    private HTTPBulkheadConfiguration bulkheadConfiguration;
+    private HTTPCircuitBreakerConfiguration circuitBreakerConfiguration;
+    private boolean useVirtualThreads;
+    private HTTPBearerConfiguration bearerConfiguration;
+    private HTTPIntrospectionConfiguration introspectionConfiguration;
+    private HTTPAPIKeyConfiguration apiKeyConfiguration;
+    private HTTPPreAuthConfiguration preAuthConfiguration;
 
     public HTTPAuthenticationConfiguration(List<AuthenticationMechanism> mechanisms, EventManagerConfiguration eventManager,
             HTTPClientCertConfiguration clientCertConfiguration, HTTPDigestConfiguration digestConfiguration, HTTPFormConfiguration formConfiguration) {
@@ -57,4 +66,103 @@ public class HTTPAuthenticationConfiguration extends AuthenticationConfiguration
     public HTTPFormConfiguration getFormConfiguration() {
         return this.formConfiguration;
     }
+
+    /**
+     * @return the configuration for the identity cache or null if users should always be looked up from the identity store
+     */
+    public HTTPIdentityCacheConfiguration getIdentityCacheConfiguration() {
+        return this.identityCacheConfiguration;
+    }
+
+    public void setIdentityCacheConfiguration(HTTPIdentityCacheConfiguration identityCacheConfiguration) {
+        this.identityCacheConfiguration = identityCacheConfiguration;
+    }
+
+    /**
+     * @return the configuration for batching user lookups or null if users should be looked up individually
+     */
+    public HTTPUserBatchingConfiguration getUserBatchingConfiguration() {
+        return this.userBatchingConfiguration;
+    }
+
+    public void setUserBatchingConfiguration(HTTPUserBatchingConfiguration userBatchingConfiguration) {
+        this.userBatchingConfiguration = userBatchingConfiguration;
+    }
+
+    /**
+     * @return the configuration for the bulkhead around credential verification or null if calls are not limited
+     */
+    public HTTPBulkheadConfiguration getBulkheadConfiguration() {
+        return this.bulkheadConfiguration;
+    }
+
+    public void setBulkheadConfiguration(HTTPBulkheadConfiguration bulkheadConfiguration) {
+        this.bulkheadConfiguration = bulkheadConfiguration;
+    }
+
+    /**
+     * @return the configuration for the circuit breaker around the identity store or null if it is not enabled
+     */
+    public HTTPCircuitBreakerConfiguration getCircuitBreakerConfiguration() {
+        return this.circuitBreakerConfiguration;
+    }
+
+    public void setCircuitBreakerConfiguration(HTTPCircuitBreakerConfiguration circuitBreakerConfiguration) {
+        this.circuitBreakerConfiguration = circuitBreakerConfiguration;
+    }
+
+    /**
+     * @return true if the blocking calls to the identity store and authorization manager should run on virtual threads
+     */
+    public boolean isUseVirtualThreads() {
+        return this.useVirtualThreads;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * @return the configuration for the bearer token authentication or null if it is not enabled
+     */
+    public HTTPBearerConfiguration getBearerConfiguration() {
+        return this.bearerConfiguration;
+    }
+
+    public void setBearerConfiguration(HTTPBearerConfiguration bearerConfiguration) {
+        this.bearerConfiguration = bearerConfiguration;
+    }
+
+    /**
+     * @return the configuration for the token introspection authentication or null if it is not enabled
+     */
+    public HTTPIntrospectionConfiguration getIntrospectionConfiguration() {
+        return this.introspectionConfiguration;
+    }
+
+    public void setIntrospectionConfiguration(HTTPIntrospectionConfiguration introspectionConfiguration) {
+        this.introspectionConfiguration = introspectionConfiguration;
+    }
+
+    /**
+     * @return the configuration for the API key authentication or null if it is not enabled
+     */
+    public HTTPAPIKeyConfiguration getAPIKeyConfiguration() {
+        return this.apiKeyConfiguration;
+    }
+
+    public void setAPIKeyConfiguration(HTTPAPIKeyConfiguration apiKeyConfiguration) {
+        this.apiKeyConfiguration = apiKeyConfiguration;
+    }
+
+    /**
+     * @return the configuration for the pre-authentication by a trusted proxy or null if it is not enabled
+     */
+    public HTTPPreAuthConfiguration getPreAuthConfiguration() {
+        return this.preAuthConfiguration;
+    }
+
+    public void setPreAuthConfiguration(HTTPPreAuthConfiguration preAuthConfiguration) {
+        this.preAuthConfiguration = preAuthConfiguration;
+    }
 }
@@ -25,10 +25,14 @@ package org.picketbox.http.config;
 import org.picketbox.core.config.AuthenticationConfiguration;
 import org.picketbox.core.config.AuthenticationConfigurationBuilder;
 import org.picketbox.core.config.ConfigurationBuilder;
+import org.picketbox.http.authentication.HTTPAPIKeyAuthentication;
 import org.picketbox.http.authentication.HTTPBasicAuthentication;
+import org.picketbox.http.authentication.HTTPBearerAuthentication;
 import org.picketbox.http.authentication.HTTPClientCertAuthentication;
 import org.picketbox.http.authentication.HTTPDigestAuthentication;
 import org.picketbox.http.authentication.HTTPFormAuthentication;
+import org.picketbox.http.authentication.HTTPIntrospectionAuthentication;
+import org.picketbox.http.authentication.HTTPPreAuthAuthentication;
 
 /**
  * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
@@ -39,6 +43,15 @@ public class HTTPAuthenticationConfigurationBuilder extends AuthenticationConfig
     private final HTTPClientCertConfigurationBuilder clientCertAuthentication;
     private final HTTPDigestConfigurationBuilder digestAuthentication;
     private HTTPFormConfigurationBuilder formAuthentication;
+    private HTTPIdentityCacheConfigurationBuilder identityCache;
+    private HTTPUserBatchingConfigurationBuilder userBatching;
+    private HTTPBulkheadConfigurationBuilder bulkhead;
+    private HTTPCircuitBreakerConfigurationBuilder circuitBreaker;
+    private boolean useVirtualThreads;
+    private HTTPBearerConfigurationBuilder bearer;
+    private HTTPIntrospectionConfigurationBuilder introspection;
+    private HTTPAPIKeyConfigurationBuilder apiKey;
+    private HTTPPreAuthConfigurationBuilder preAuthentication;
 
     public HTTPAuthenticationConfigurationBuilder(ConfigurationBuilder builder) {
         super(builder);
@@ -59,6 +72,10 @@ public class HTTPAuthenticationConfigurationBuilder extends AuthenticationConfig
         this.mechanisms.add(new HTTPDigestAuthentication());
         this.mechanisms.add(new HTTPBasicAuthentication());
         this.mechanisms.add(new HTTPClientCertAuthentication());
+        this.mechanisms.add(new HTTPBearerAuthentication());
+        this.mechanisms.add(new HTTPIntrospectionAuthentication());
+        this.mechanisms.add(new HTTPAPIKeyAuthentication());
+        this.mechanisms.add(new HTTPPreAuthAuthentication());
     }
 
     public HTTPClientCertConfigurationBuilder clientCert() {
@@ -73,13 +90,186 @@ public class HTTPAuthenticationConfigurationBuilder extends AuthenticationConfig
         return this.formAuthentication;
     }
 
+    /**
+     * <p>
+     * Configures the keys and claims used to verify bearer tokens.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPBearerConfigurationBuilder bearer() {
+        if (this.bearer == null) {
+            this.bearer = new HTTPBearerConfigurationBuilder(this.builder);
+        }
+
+        return this.bearer;
+    }
+
+    /**
+     * <p>
+     * Configures the endpoint used to introspect opaque bearer tokens.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPIntrospectionConfigurationBuilder introspection() {
+        if (this.introspection == null) {
+            this.introspection = new HTTPIntrospectionConfigurationBuilder(this.builder);
+        }
+
+        return this.introspection;
+    }
+
+    /**
+     * <p>
+     * Configures where the API keys are loaded from and the secret used to hash them.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPAPIKeyConfigurationBuilder apiKey() {
+        if (this.apiKey == null) {
+            this.apiKey = new HTTPAPIKeyConfigurationBuilder(this.builder);
+        }
+
+        return this.apiKey;
+    }
+
+    /**
+     * <p>
+     * Configures the pre-authentication of users by a trusted reverse proxy.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPPreAuthConfigurationBuilder preAuthentication() {
+        if (this.preAuthentication == null) {
+            this.preAuthentication = new HTTPPreAuthConfigurationBuilder(this.builder);
+        }
+
+        return this.preAuthentication;
+    }
+
+    /**
+     * <p>
+     * Enables the cache used by the HTTP authentication mechanisms to look up users.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPIdentityCacheConfigurationBuilder identityCache() {
+        if (this.identityCache == null) {
+            this.identityCache = new HTTPIdentityCacheConfigurationBuilder(this.builder);
+        }
+
+        return this.identityCache;
+    }
+
+    /**
+     * <p>
+     * Enables batching of the user lookups performed by the HTTP authentication mechanisms.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPUserBatchingConfigurationBuilder userBatching() {
+        if (this.userBatching == null) {
+            this.userBatching = new HTTPUserBatchingConfigurationBuilder(this.builder);
+        }
+
+        return this.userBatching;
+    }
+
+    /**
+     * <p>
+     * Limits the number of concurrent credential verifications. Requests exceeding the limit are rejected with a 503
+     * (Service Unavailable) status.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPBulkheadConfigurationBuilder bulkhead() {
+        if (this.bulkhead == null) {
+            this.bulkhead = new HTTPBulkheadConfigurationBuilder(this.builder);
+        }
+
+        return this.bulkhead;
+    }
+
+    /**
+     * <p>
+     * Enables a circuit breaker around the calls to the identity store made during authentication.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPCircuitBreakerConfigurationBuilder circuitBreaker() {
+        if (this.circuitBreaker == null) {
+            this.circuitBreaker = new HTTPCircuitBreakerConfigurationBuilder(this.builder);
+        }
+
+        return this.circuitBreaker;
+    }
+
+    /**
+     * <p>
+     * Runs the blocking calls to the identity store and authorization manager on virtual threads, when the JVM supports them.
+     * Requests only release their container thread while those calls block if the
+     * {@link org.picketbox.http.filters.DelegatingSecurityFilter} runs in asynchronous mode.
+     * </p>
+     *
+     * @param useVirtualThreads
+     * @return
+     */
+    public HTTPAuthenticationConfigurationBuilder virtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+        return this;
+    }
+
     /* (non-Javadoc)
      * @see org.picketbox.core.config.AuthenticationConfigurationBuilder#doBuild()
      */
     @Override
     public AuthenticationConfiguration doBuild() {
-        return new HTTPAuthenticationConfiguration(this.mechanisms, this.builder.eventManager().build(),
-                this.clientCertAuthentication.build(), this.digestAuthentication.build(), this.formAuthentication.build());
+        HTTPAuthenticationConfiguration configuration = new HTTPAuthenticationConfiguration(this.mechanisms,
+                this.builder.eventManager().build(), this.clientCertAuthentication.build(), this.digestAuthentication.build(),
+                this.formAuthentication.build());
+
+        if (this.identityCache != null) {
+            configuration.setIdentityCacheConfiguration(this.identityCache.build());
+        }
+
+        if (this.userBatching != null) {
+            configuration.setUserBatchingConfiguration(this.userBatching.build());
+        }
+
+        if (this.bulkhead != null) {
+            configuration.setBulkheadConfiguration(this.bulkhead.build());
+        }
+
+        if (this.circuitBreaker != null) {
+            configuration.setCircuitBreakerConfiguration(this.circuitBreaker.build());
+        }
+
+        if (this.bearer != null) {
+            configuration.setBearerConfiguration(this.bearer.build());
+        }
+
+        if (this.introspection != null) {
+            configuration.setIntrospectionConfiguration(this.introspection.build());
+        }
+
+        if (this.apiKey != null) {
+            configuration.setAPIKeyConfiguration(this.apiKey.build());
+        }
+
+        if (this.preAuthentication != null) {
+            configuration.setPreAuthConfiguration(this.preAuthentication.build());
+        }
+
+        configuration.setUseVirtualThreads(this.useVirtualThreads);
+
+        return configuration;
     }
 
 }
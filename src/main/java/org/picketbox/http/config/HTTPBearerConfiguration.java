@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import java.security.Key;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Configuration for the bearer token authentication. See {@link org.picketbox.http.authentication.HTTPBearerAuthentication}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPBearerConfiguration {
+
+    private Map<String, Key> keys = new HashMap<String, Key>();
+    private String issuer;
+    private String audience;
+    private long clockSkew = 60 * 1000;
+    private int maxCachedTokens = 10000;
+
+    /**
+     * @return the keys used to verify the token signatures, indexed by their identifier
+     */
+    public Map<String, Key> getKeys() {
+        return this.keys;
+    }
+
+    public void setKeys(Map<String, Key> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * @return the expected issuer or null if any issuer is accepted
+     */
+    public String getIssuer() {
+        return this.issuer;
+    }
+
+    public void setIssuer(String issuer) {
+        this.issuer = issuer;
+    }
+
+    /**
+     * @return the expected audience or null if any audience is accepted
+     */
+    public String getAudience() {
+        return this.audience;
+    }
+
+    public void setAudience(String audience) {
+        this.audience = audience;
+    }
+
+    /**
+     * @return the time in milliseconds tolerated when checking the validity period of tokens
+     */
+    public long getClockSkew() {
+        return this.clockSkew;
+    }
+
+    public void setClockSkew(long clockSkew) {
+        this.clockSkew = clockSkew;
+    }
+
+    /**
+     * @return the maximum number of verified tokens kept in memory
+     */
+    public int getMaxCachedTokens() {
+        return this.maxCachedTokens;
+    }
+
+    public void setMaxCachedTokens(int maxCachedTokens) {
+        this.maxCachedTokens = maxCachedTokens;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import java.io.UnsupportedEncodingException;
+import java.security.Key;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.picketbox.core.config.AbstractConfigurationBuilder;
+import org.picketbox.core.config.ConfigurationBuilder;
+import org.picketbox.http.PicketBoxHTTPMessages;
+import org.picketbox.http.token.JSONWebTokenVerifier;
+
+/**
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPBearerConfigurationBuilder extends AbstractConfigurationBuilder<HTTPBearerConfiguration> {
+
+    private HTTPBearerConfiguration configuration = new HTTPBearerConfiguration();
+
+    public HTTPBearerConfigurationBuilder(ConfigurationBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    protected void setDefaults() {
+    }
+
+    /**
+     * @param keyId the <code>kid</code> of the tokens signed with this key or
+     *        {@link JSONWebTokenVerifier#DEFAULT_KEY_ID} for tokens without it
+     * @param key a {@link javax.crypto.SecretKey} for HMAC signatures or a {@link java.security.PublicKey} for RSA signatures
+     * @return
+     */
+    public HTTPBearerConfigurationBuilder key(String keyId, Key key) {
+        this.configuration.getKeys().put(keyId, key);
+        return this;
+    }
+
+    /**
+     * @param keyId
+     * @param secret the secret shared with the token issuer, used to verify HMAC signatures
+     * @return
+     */
+    public HTTPBearerConfigurationBuilder secret(String keyId, String secret) {
+        try {
+            return key(keyId, new SecretKeySpec(secret.getBytes("UTF-8"), "HmacSHA256"));
+        } catch (UnsupportedEncodingException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.invalidTokenKey(keyId, e);
+        }
+    }
+
+    /**
+     * @param keyId
+     * @param encodedKey the RSA public key of the token issuer, in PEM format or Base64
+     * @return
+     */
+    public HTTPBearerConfigurationBuilder publicKey(String keyId, String encodedKey) {
+        return key(keyId, JSONWebTokenVerifier.parsePublicKey(keyId, encodedKey));
+    }
+
+    public HTTPBearerConfigurationBuilder issuer(String issuer) {
+        this.configuration.setIssuer(issuer);
+        return this;
+    }
+
+    public HTTPBearerConfigurationBuilder audience(String audience) {
+        this.configuration.setAudience(audience);
+        return this;
+    }
+
+    /**
+     * @param clockSkew time in milliseconds tolerated when checking the validity period of tokens
+     * @return
+     */
+    public HTTPBearerConfigurationBuilder clockSkew(long clockSkew) {
+        this.configuration.setClockSkew(clockSkew);
+        return this;
+    }
+
+    public HTTPBearerConfigurationBuilder maxCachedTokens(int maxCachedTokens) {
+        this.configuration.setMaxCachedTokens(maxCachedTokens);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
+     */
+    @Override
+    public HTTPBearerConfiguration doBuild() {
+        return this.configuration;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.config;
+
+/**
+ * <p>
+ * Configuration for the circuit breaker around the calls to the identity store. See
+ * {@link org.picketbox.http.identity.CircuitBreaker}. Times are in milliseconds and rates in percent.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPCircuitBreakerConfiguration {
+
+    private int failureRateThreshold = 50;
+    private int slowCallRateThreshold = 80;
+    private long slowCallDuration = 2000;
+    private int minimumCalls = 20;
+    private long window = 10 * 1000;
+    private long openDuration = 30 * 1000;
+    private int halfOpenCalls = 5;
+    private long fallbackTimeToLive = 0;
+    private int fallbackMaxEntries = 10000;
+
+    public int getFailureRateThreshold() {
+        return this.failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return this.slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getSlowCallDuration() {
+        return this.slowCallDuration;
+    }
+
+    public void setSlowCallDuration(long slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    public int getMinimumCalls() {
+        return this.minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public long getWindow() {
+        return this.window;
+    }
+
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    public long getOpenDuration() {
+        return this.openDuration;
+    }
+
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return this.halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public long getFallbackTimeToLive() {
+        return this.fallbackTimeToLive;
+    }
+
+    public void setFallbackTimeToLive(long fallbackTimeToLive) {
+        this.fallbackTimeToLive = fallbackTimeToLive;
+    }
+
+    public int getFallbackMaxEntries() {
+        return this.fallbackMaxEntries;
+    }
+
+    public void setFallbackMaxEntries(int fallbackMaxEntries) {
+        this.fallbackMaxEntries = fallbackMaxEntries;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.config;
+
+import org.picketbox.core.config.AbstractConfigurationBuilder;
+import org.picketbox.core.config.ConfigurationBuilder;
+
+/**
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPCircuitBreakerConfigurationBuilder extends AbstractConfigurationBuilder<HTTPCircuitBreakerConfiguration> {
+
+    private HTTPCircuitBreakerConfiguration configuration = new HTTPCircuitBreakerConfiguration();
+
+    public HTTPCircuitBreakerConfigurationBuilder(ConfigurationBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    protected void setDefaults() {
+    }
+
+    public HTTPCircuitBreakerConfigurationBuilder failureRateThreshold(int failureRateThreshold) {
+        this.configuration.setFailureRateThreshold(failureRateThreshold);
+        return this;
+    }
+
+    public HTTPCircuitBreakerConfigurationBuilder slowCallRateThreshold(int slowCallRateThreshold) {
+        this.configuration.setSlowCallRateThreshold(slowCallRateThreshold);
+        return this;
+    }
+
+    public HTTPCircuitBreakerConfigurationBuilder slowCallDuration(long slowCallDuration) {
+        this.configuration.setSlowCallDuration(slowCallDuration);
+        return this;
+    }
+
+    public HTTPCircuitBreakerConfigurationBuilder minimumCalls(int minimumCalls) {
+        this.configuration.setMinimumCalls(minimumCalls);
+        return this;
+    }
+
+    public HTTPCircuitBreakerConfigurationBuilder window(long window) {
+        this.configuration.setWindow(window);
+        return this;
+    }
+
+    public HTTPCircuitBreakerConfigurationBuilder openDuration(long openDuration) {
+        this.configuration.setOpenDuration(openDuration);
+        return this;
+    }
+
+    public HTTPCircuitBreakerConfigurationBuilder halfOpenCalls(int halfOpenCalls) {
+        this.configuration.setHalfOpenCalls(halfOpenCalls);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Enables accepting credentials verified within the given time while the circuit is open.
+     * </p>
+     *
+     * @param fallbackTimeToLive time in milliseconds a verified credential is accepted. Zero disables the fallback.
+     * @return
+     */
+    public HTTPCircuitBreakerConfigurationBuilder fallbackTimeToLive(long fallbackTimeToLive) {
+        this.configuration.setFallbackTimeToLive(fallbackTimeToLive);
+        return this;
+    }
+
+    public HTTPCircuitBreakerConfigurationBuilder fallbackMaxEntries(int fallbackMaxEntries) {
+        this.configuration.setFallbackMaxEntries(fallbackMaxEntries);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
+     */
+    @Override
+    public HTTPCircuitBreakerConfiguration doBuild() {
+        return this.configuration;
+    }
+}
@@ -22,6 +22,9 @@
 
 package org.picketbox.http.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
  *
@@ -30,6 +33,17 @@ public class HTTPClientCertConfiguration {
 
     private boolean useCNAsPrincipal;
     private boolean useCertificateValidation;
+    private boolean useSSLSessionCache;
+    private long sslSessionCacheTimeToLive = 5 * 60 * 1000;
+    private int maxCachedSSLSessions = 10000;
+    private String certificateMappingsFile;
+    private List<String> revocationFiles = new ArrayList<String>();
+    private long revocationRefreshInterval = 5 * 60 * 1000;
+    private boolean rejectStaleRevocationData;
+    private String trustAnchorsFile;
+    private String intermediatesFile;
+    private long chainCacheTimeToLive = 60 * 60 * 1000;
+    private int maxCachedChains = 10000;
 
     public boolean isUseCNAsPrincipal() {
         return this.useCNAsPrincipal;
@@ -47,4 +61,92 @@ public class HTTPClientCertConfiguration {
         this.useCertificateValidation = useCertificateValidation;
     }
 
+    public boolean isUseSSLSessionCache() {
+        return this.useSSLSessionCache;
+    }
+
+    public void setUseSSLSessionCache(boolean useSSLSessionCache) {
+        this.useSSLSessionCache = useSSLSessionCache;
+    }
+
+    public long getSSLSessionCacheTimeToLive() {
+        return this.sslSessionCacheTimeToLive;
+    }
+
+    public void setSSLSessionCacheTimeToLive(long sslSessionCacheTimeToLive) {
+        this.sslSessionCacheTimeToLive = sslSessionCacheTimeToLive;
+    }
+
+    public int getMaxCachedSSLSessions() {
+        return this.maxCachedSSLSessions;
+    }
+
+    public void setMaxCachedSSLSessions(int maxCachedSSLSessions) {
+        this.maxCachedSSLSessions = maxCachedSSLSessions;
+    }
+
+    public String getCertificateMappingsFile() {
+        return this.certificateMappingsFile;
+    }
+
+    public void setCertificateMappingsFile(String certificateMappingsFile) {
+        this.certificateMappingsFile = certificateMappingsFile;
+    }
+
+    public List<String> getRevocationFiles() {
+        return this.revocationFiles;
+    }
+
+    public void setRevocationFiles(List<String> revocationFiles) {
+        this.revocationFiles = revocationFiles;
+    }
+
+    public long getRevocationRefreshInterval() {
+        return this.revocationRefreshInterval;
+    }
+
+    public void setRevocationRefreshInterval(long revocationRefreshInterval) {
+        this.revocationRefreshInterval = revocationRefreshInterval;
+    }
+
+    public boolean isRejectStaleRevocationData() {
+        return this.rejectStaleRevocationData;
+    }
+
+    public void setRejectStaleRevocationData(boolean rejectStaleRevocationData) {
+        this.rejectStaleRevocationData = rejectStaleRevocationData;
+    }
+
+    public String getTrustAnchorsFile() {
+        return this.trustAnchorsFile;
+    }
+
+    public void setTrustAnchorsFile(String trustAnchorsFile) {
+        this.trustAnchorsFile = trustAnchorsFile;
+    }
+
+    public String getIntermediatesFile() {
+        return this.intermediatesFile;
+    }
+
+    public void setIntermediatesFile(String intermediatesFile) {
+        this.intermediatesFile = intermediatesFile;
+    }
+
+    public long getChainCacheTimeToLive() {
+        return this.chainCacheTimeToLive;
+    }
+
+    public void setChainCacheTimeToLive(long chainCacheTimeToLive) {
+        this.chainCacheTimeToLive = chainCacheTimeToLive;
+    }
+
+    public int getMaxCachedChains() {
+        return this.maxCachedChains;
+    }
+
+    public void setMaxCachedChains(int maxCachedChains) {
+        this.maxCachedChains = maxCachedChains;
+    }
+
 }
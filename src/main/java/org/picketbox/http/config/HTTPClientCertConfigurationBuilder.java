@@ -55,6 +55,130 @@ public class HTTPClientCertConfigurationBuilder extends AbstractConfigurationBui
         return this;
     }
 
+    /**
+     * <p>
+     * Caches the principal resolved from a certificate by the TLS session it was presented on, so that further requests on
+     * the same session skip the DN parsing and the identity store lookup.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPClientCertConfigurationBuilder sslSessionCache() {
+        this.configuration.setUseSSLSessionCache(true);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Caches the principal resolved from a certificate by the TLS session it was presented on.
+     * </p>
+     *
+     * @param timeToLive time in milliseconds a resolved principal is kept
+     * @param maxEntries maximum number of TLS sessions cached
+     * @return
+     */
+    public HTTPClientCertConfigurationBuilder sslSessionCache(long timeToLive, int maxEntries) {
+        this.configuration.setSSLSessionCacheTimeToLive(timeToLive);
+        this.configuration.setMaxCachedSSLSessions(maxEntries);
+        return sslSessionCache();
+    }
+
+    /**
+     * <p>
+     * Maps certificates to users by their SHA-256 fingerprint, using a file with one <code>fingerprint=userName</code> line
+     * per certificate. Certificates not present in the file are mapped using their subject.
+     * </p>
+     *
+     * @param fileName
+     * @return
+     */
+    public HTTPClientCertConfigurationBuilder certificateMappings(String fileName) {
+        this.configuration.setCertificateMappingsFile(fileName);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Rejects certificates revoked in the given file, holding either CRLs (PEM or DER) or a DER encoded OCSP response. Can be
+     * called once per file.
+     * </p>
+     *
+     * @param fileName
+     * @return
+     */
+    public HTTPClientCertConfigurationBuilder revocationFile(String fileName) {
+        this.configuration.getRevocationFiles().add(fileName);
+        return this;
+    }
+
+    /**
+     * <p>
+     * How often, in milliseconds, the revocation files are checked for changes. Zero disables the background refresh.
+     * </p>
+     *
+     * @param refreshInterval
+     * @return
+     */
+    public HTTPClientCertConfigurationBuilder revocationRefreshInterval(long refreshInterval) {
+        this.configuration.setRevocationRefreshInterval(refreshInterval);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Rejects all certificates once the next update time of a revocation file has passed and no newer file was provided. By
+     * default a warning is logged and the stale data is still used.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPClientCertConfigurationBuilder rejectStaleRevocationData() {
+        this.configuration.setRejectStaleRevocationData(true);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Validates the certificate chain presented by clients against the trust anchors in the given file, with one or more PEM
+     * or DER encoded certificates.
+     * </p>
+     *
+     * @param fileName
+     * @return
+     */
+    public HTTPClientCertConfigurationBuilder trustAnchors(String fileName) {
+        this.configuration.setTrustAnchorsFile(fileName);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Intermediate CAs used to build the chains when clients only present their own certificate.
+     * </p>
+     *
+     * @param fileName
+     * @return
+     */
+    public HTTPClientCertConfigurationBuilder intermediates(String fileName) {
+        this.configuration.setIntermediatesFile(fileName);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Configures the cache of validated chains, indexed by the fingerprint of the client certificate.
+     * </p>
+     *
+     * @param timeToLive maximum time in milliseconds a validated chain is cached
+     * @param maxEntries maximum number of validated chains cached
+     * @return
+     */
+    public HTTPClientCertConfigurationBuilder chainCache(long timeToLive, int maxEntries) {
+        this.configuration.setChainCacheTimeToLive(timeToLive);
+        this.configuration.setMaxCachedChains(maxEntries);
+        return this;
+    }
+
     /* (non-Javadoc)
      * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
      */
@@ -28,8 +28,12 @@ package org.picketbox.http.config;
  */
 public class HTTPDigestConfiguration {
 
+    public static final int DEFAULT_MAX_ENTITY_BODY_SIZE = 1024 * 1024;
+
     private String realm;
     private String opaque;
+    private String qop;
+    private int maxEntityBodySize = DEFAULT_MAX_ENTITY_BODY_SIZE;
 
     public String getRealm() {
         return this.realm;
@@ -47,4 +51,20 @@ public class HTTPDigestConfiguration {
         this.opaque = opaque;
     }
 
+    public String getQop() {
+        return this.qop;
+    }
+
+    public void setQop(String qop) {
+        this.qop = qop;
+    }
+
+    public int getMaxEntityBodySize() {
+        return this.maxEntityBodySize;
+    }
+
+    public void setMaxEntityBodySize(int maxEntityBodySize) {
+        this.maxEntityBodySize = maxEntityBodySize;
+    }
+
 }
@@ -55,6 +55,44 @@ public class HTTPDigestConfigurationBuilder extends AbstractConfigurationBuilder
         return this;
     }
 
+    /**
+     * <p>
+     * Quality of protection values accepted from clients, in order of preference. Use <code>auth-int</code> to also protect
+     * the integrity of the entity body. Defaults to <code>auth</code>.
+     * </p>
+     *
+     * @param qop
+     * @return
+     */
+    public HTTPDigestConfigurationBuilder qop(String... qop) {
+        StringBuilder value = new StringBuilder();
+
+        for (String option : qop) {
+            if (value.length() > 0) {
+                value.append(',');
+            }
+
+            value.append(option.trim());
+        }
+
+        this.configuration.setQop(value.toString());
+        return this;
+    }
+
+    /**
+     * <p>
+     * Maximum size, in bytes, of the entity body of <code>auth-int</code> requests. The body is held in memory while the
+     * response is verified, larger requests are rejected. Defaults to 1 MiB.
+     * </p>
+     *
+     * @param maxEntityBodySize
+     * @return
+     */
+    public HTTPDigestConfigurationBuilder maxEntityBodySize(int maxEntityBodySize) {
+        this.configuration.setMaxEntityBodySize(maxEntityBodySize);
+        return this;
+    }
+
     /* (non-Javadoc)
      * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
      */
@@ -22,6 +22,8 @@
 
 package org.picketbox.http.config;
 
+import org.picketbox.http.session.RememberMeTokenStore;
+
 /**
  * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
  *
@@ -31,6 +33,9 @@ public class HTTPFormConfiguration {
     private String defaultPage;
     private String formAuthPage;
     private String errorPage;
+    private RememberMeTokenStore rememberMeStore;
+    private String rememberMeCookieName = "PICKETBOX_REMEMBER_ME";
+    private int rememberMeMaxAge = 14 * 24 * 60 * 60;
 
     public String getDefaultPage() {
         return this.defaultPage;
@@ -56,4 +61,34 @@ public class HTTPFormConfiguration {
         this.errorPage = errorPage;
     }
 
+    /**
+     * @return the store of persistent logins or null if the remember-me authentication is not enabled
+     */
+    public RememberMeTokenStore getRememberMeStore() {
+        return this.rememberMeStore;
+    }
+
+    public void setRememberMeStore(RememberMeTokenStore rememberMeStore) {
+        this.rememberMeStore = rememberMeStore;
+    }
+
+    public String getRememberMeCookieName() {
+        return this.rememberMeCookieName;
+    }
+
+    public void setRememberMeCookieName(String rememberMeCookieName) {
+        this.rememberMeCookieName = rememberMeCookieName;
+    }
+
+    /**
+     * @return how long, in seconds, a persistent login is valid
+     */
+    public int getRememberMeMaxAge() {
+        return this.rememberMeMaxAge;
+    }
+
+    public void setRememberMeMaxAge(int rememberMeMaxAge) {
+        this.rememberMeMaxAge = rememberMeMaxAge;
+    }
+
 }
\ No newline at end of file
@@ -24,6 +24,8 @@ package org.picketbox.http.config;
 
 import org.picketbox.core.config.AbstractConfigurationBuilder;
 import org.picketbox.core.config.ConfigurationBuilder;
+import org.picketbox.http.session.InMemoryRememberMeTokenStore;
+import org.picketbox.http.session.RememberMeTokenStore;
 
 /**
  * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
@@ -60,6 +62,44 @@ public class HTTPFormConfigurationBuilder extends AbstractConfigurationBuilder<H
         return this;
     }
 
+    /**
+     * <p>
+     * Enables the remember-me authentication, keeping the persistent logins in memory.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPFormConfigurationBuilder rememberMe() {
+        return rememberMe(new InMemoryRememberMeTokenStore());
+    }
+
+    /**
+     * <p>
+     * Enables the remember-me authentication, keeping the persistent logins in the given store.
+     * </p>
+     *
+     * @param store
+     * @return
+     */
+    public HTTPFormConfigurationBuilder rememberMe(RememberMeTokenStore store) {
+        this.configuration.setRememberMeStore(store);
+        return this;
+    }
+
+    public HTTPFormConfigurationBuilder rememberMeCookieName(String cookieName) {
+        this.configuration.setRememberMeCookieName(cookieName);
+        return this;
+    }
+
+    /**
+     * @param maxAge how long, in seconds, a persistent login is valid
+     * @return
+     */
+    public HTTPFormConfigurationBuilder rememberMeMaxAge(int maxAge) {
+        this.configuration.setRememberMeMaxAge(maxAge);
+        return this;
+    }
+
     /* (non-Javadoc)
      * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
      */
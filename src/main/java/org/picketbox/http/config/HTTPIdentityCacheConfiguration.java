@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.config;
+
+/**
+ * <p>
+ * Configuration for the cache used by the HTTP authentication mechanisms to look up users. See
+ * {@link org.picketbox.http.identity.IdentityCache}. Times are in milliseconds.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPIdentityCacheConfiguration {
+
+    private long softTimeToLive = 30 * 1000;
+    private long hardTimeToLive = 5 * 60 * 1000;
+    private long negativeTimeToLive = 5 * 1000;
+    private int maxEntries = 10000;
+    private int refreshThreads = 2;
+
+    public long getSoftTimeToLive() {
+        return this.softTimeToLive;
+    }
+
+    public void setSoftTimeToLive(long softTimeToLive) {
+        this.softTimeToLive = softTimeToLive;
+    }
+
+    public long getHardTimeToLive() {
+        return this.hardTimeToLive;
+    }
+
+    public void setHardTimeToLive(long hardTimeToLive) {
+        this.hardTimeToLive = hardTimeToLive;
+    }
+
+    public long getNegativeTimeToLive() {
+        return this.negativeTimeToLive;
+    }
+
+    public void setNegativeTimeToLive(long negativeTimeToLive) {
+        this.negativeTimeToLive = negativeTimeToLive;
+    }
+
+    public int getMaxEntries() {
+        return this.maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public int getRefreshThreads() {
+        return this.refreshThreads;
+    }
+
+    public void setRefreshThreads(int refreshThreads) {
+        this.refreshThreads = refreshThreads;
+    }
+}
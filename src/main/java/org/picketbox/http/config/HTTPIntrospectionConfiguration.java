@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+/**
+ * <p>
+ * Configuration for the token introspection authentication. See
+ * {@link org.picketbox.http.authentication.HTTPIntrospectionAuthentication}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPIntrospectionConfiguration {
+
+    private String endpoint;
+    private String clientId;
+    private String clientSecret;
+    private int connectTimeout = 2000;
+    private int readTimeout = 5000;
+    private long maxCacheTime = 5 * 60 * 1000;
+    private int maxCachedTokens = 10000;
+
+    /**
+     * @return the URL of the introspection endpoint
+     */
+    public String getEndpoint() {
+        return this.endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return the identifier used to authenticate to the introspection endpoint
+     */
+    public String getClientId() {
+        return this.clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getClientSecret() {
+        return this.clientSecret;
+    }
+
+    public void setClientSecret(String clientSecret) {
+        this.clientSecret = clientSecret;
+    }
+
+    /**
+     * @return the time in milliseconds to wait for a connection to the introspection endpoint
+     */
+    public int getConnectTimeout() {
+        return this.connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return the time in milliseconds to wait for a response from the introspection endpoint
+     */
+    public int getReadTimeout() {
+        return this.readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return the maximum time in milliseconds an active token is kept without asking the endpoint again. Tokens are never
+     *         kept after their expiration.
+     */
+    public long getMaxCacheTime() {
+        return this.maxCacheTime;
+    }
+
+    public void setMaxCacheTime(long maxCacheTime) {
+        this.maxCacheTime = maxCacheTime;
+    }
+
+    /**
+     * @return the maximum number of active tokens kept in memory
+     */
+    public int getMaxCachedTokens() {
+        return this.maxCachedTokens;
+    }
+
+    public void setMaxCachedTokens(int maxCachedTokens) {
+        this.maxCachedTokens = maxCachedTokens;
+    }
+}
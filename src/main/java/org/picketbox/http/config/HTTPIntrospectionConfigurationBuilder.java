@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import org.picketbox.core.config.AbstractConfigurationBuilder;
+import org.picketbox.core.config.ConfigurationBuilder;
+
+/**
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPIntrospectionConfigurationBuilder extends AbstractConfigurationBuilder<HTTPIntrospectionConfiguration> {
+
+    private HTTPIntrospectionConfiguration configuration = new HTTPIntrospectionConfiguration();
+
+    public HTTPIntrospectionConfigurationBuilder(ConfigurationBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    protected void setDefaults() {
+    }
+
+    public HTTPIntrospectionConfigurationBuilder endpoint(String endpoint) {
+        this.configuration.setEndpoint(endpoint);
+        return this;
+    }
+
+    /**
+     * @param clientId
+     * @param clientSecret the credentials used to authenticate to the introspection endpoint
+     * @return
+     */
+    public HTTPIntrospectionConfigurationBuilder client(String clientId, String clientSecret) {
+        this.configuration.setClientId(clientId);
+        this.configuration.setClientSecret(clientSecret);
+        return this;
+    }
+
+    /**
+     * @param connectTimeout time in milliseconds to wait for a connection
+     * @param readTimeout time in milliseconds to wait for a response
+     * @return
+     */
+    public HTTPIntrospectionConfigurationBuilder timeouts(int connectTimeout, int readTimeout) {
+        this.configuration.setConnectTimeout(connectTimeout);
+        this.configuration.setReadTimeout(readTimeout);
+        return this;
+    }
+
+    /**
+     * @param maxCacheTime maximum time in milliseconds an active token is kept without asking the endpoint again
+     * @return
+     */
+    public HTTPIntrospectionConfigurationBuilder maxCacheTime(long maxCacheTime) {
+        this.configuration.setMaxCacheTime(maxCacheTime);
+        return this;
+    }
+
+    public HTTPIntrospectionConfigurationBuilder maxCachedTokens(int maxCachedTokens) {
+        this.configuration.setMaxCachedTokens(maxCachedTokens);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
+     */
+    @Override
+    public HTTPIntrospectionConfiguration doBuild() {
+        return this.configuration;
+    }
+}
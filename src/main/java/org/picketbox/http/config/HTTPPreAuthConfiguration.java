@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+/**
+ * <p>
+ * Configuration for the pre-authentication performed by a trusted reverse proxy. See
+ * {@link org.picketbox.http.authentication.HTTPPreAuthAuthentication}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPPreAuthConfiguration {
+
+    private byte[] secret;
+    private String userHeader = "X-Forwarded-User";
+    private String timestampHeader = "X-Forwarded-User-Timestamp";
+    private String signatureHeader = "X-Forwarded-User-Signature";
+    private long maxClockSkew = 30 * 1000;
+
+    /**
+     * @return the secret shared with the proxy to sign the identity headers
+     */
+    public byte[] getSecret() {
+        return this.secret;
+    }
+
+    public void setSecret(byte[] secret) {
+        this.secret = secret;
+    }
+
+    /**
+     * @return the header carrying the name of the user authenticated by the proxy
+     */
+    public String getUserHeader() {
+        return this.userHeader;
+    }
+
+    public void setUserHeader(String userHeader) {
+        this.userHeader = userHeader;
+    }
+
+    /**
+     * @return the header carrying the time, in seconds since the epoch, the proxy signed the identity
+     */
+    public String getTimestampHeader() {
+        return this.timestampHeader;
+    }
+
+    public void setTimestampHeader(String timestampHeader) {
+        this.timestampHeader = timestampHeader;
+    }
+
+    /**
+     * @return the header carrying the signature of the identity
+     */
+    public String getSignatureHeader() {
+        return this.signatureHeader;
+    }
+
+    public void setSignatureHeader(String signatureHeader) {
+        this.signatureHeader = signatureHeader;
+    }
+
+    /**
+     * @return the maximum difference, in milliseconds, between the signature timestamp and the current time
+     */
+    public long getMaxClockSkew() {
+        return this.maxClockSkew;
+    }
+
+    public void setMaxClockSkew(long maxClockSkew) {
+        this.maxClockSkew = maxClockSkew;
+    }
+}
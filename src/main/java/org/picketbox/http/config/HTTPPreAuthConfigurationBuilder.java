@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import java.io.UnsupportedEncodingException;
+
+import org.picketbox.core.config.AbstractConfigurationBuilder;
+import org.picketbox.core.config.ConfigurationBuilder;
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPPreAuthConfigurationBuilder extends AbstractConfigurationBuilder<HTTPPreAuthConfiguration> {
+
+    private HTTPPreAuthConfiguration configuration = new HTTPPreAuthConfiguration();
+
+    public HTTPPreAuthConfigurationBuilder(ConfigurationBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    protected void setDefaults() {
+    }
+
+    /**
+     * @param secret the secret shared with the proxy to sign the identity headers
+     * @return
+     */
+    public HTTPPreAuthConfigurationBuilder secret(String secret) {
+        try {
+            this.configuration.setSecret(secret.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+
+        return this;
+    }
+
+    /**
+     * @param userHeader the header carrying the name of the user
+     * @param timestampHeader the header carrying the time the identity was signed
+     * @param signatureHeader the header carrying the signature
+     * @return
+     */
+    public HTTPPreAuthConfigurationBuilder headers(String userHeader, String timestampHeader, String signatureHeader) {
+        this.configuration.setUserHeader(userHeader);
+        this.configuration.setTimestampHeader(timestampHeader);
+        this.configuration.setSignatureHeader(signatureHeader);
+        return this;
+    }
+
+    /**
+     * @param maxClockSkew maximum difference, in milliseconds, between the signature timestamp and the current time
+     * @return
+     */
+    public HTTPPreAuthConfigurationBuilder maxClockSkew(long maxClockSkew) {
+        this.configuration.setMaxClockSkew(maxClockSkew);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
+     */
+    @Override
+    public HTTPPreAuthConfiguration doBuild() {
+        return this.configuration;
+    }
+}
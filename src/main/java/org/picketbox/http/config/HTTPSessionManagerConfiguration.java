@@ -31,6 +31,9 @@ import org.picketbox.core.config.SessionManagerConfig;
 public class HTTPSessionManagerConfiguration extends SessionManagerConfig {
 
     private String sessionAttributeName;
+    private HTTPStatelessSessionConfiguration statelessConfiguration;
+    private HTTPSharedSessionConfiguration sharedConfiguration;
+    private int maxSessionsPerUser;
 
     /**
      * @return the sessionAttributeName
@@ -51,4 +54,46 @@ public class HTTPSessionManagerConfiguration extends SessionManagerConfig {
         this.sessionAttributeName = sessionAttributeName;
     }
 
+    /**
+     * @return the stateless session configuration or null if the user must be stored in the {@link javax.servlet.http.HttpSession}
+     */
+    public HTTPStatelessSessionConfiguration getStatelessConfiguration() {
+        return this.statelessConfiguration;
+    }
+
+    /**
+     * @param statelessConfiguration the statelessConfiguration to set
+     */
+    public void setStatelessConfiguration(HTTPStatelessSessionConfiguration statelessConfiguration) {
+        this.statelessConfiguration = statelessConfiguration;
+    }
+
+    /**
+     * @return the shared session configuration or null if the user must be stored in the {@link javax.servlet.http.HttpSession}
+     */
+    public HTTPSharedSessionConfiguration getSharedConfiguration() {
+        return this.sharedConfiguration;
+    }
+
+    /**
+     * @param sharedConfiguration the sharedConfiguration to set
+     */
+    public void setSharedConfiguration(HTTPSharedSessionConfiguration sharedConfiguration) {
+        this.sharedConfiguration = sharedConfiguration;
+    }
+
+    /**
+     * @return the maximum number of concurrent sessions per user. Zero or less means no limit.
+     */
+    public int getMaxSessionsPerUser() {
+        return this.maxSessionsPerUser;
+    }
+
+    /**
+     * @param maxSessionsPerUser the maxSessionsPerUser to set
+     */
+    public void setMaxSessionsPerUser(int maxSessionsPerUser) {
+        this.maxSessionsPerUser = maxSessionsPerUser;
+    }
+
 }
@@ -33,9 +33,14 @@ import org.picketbox.core.config.SessionManagerConfigurationBuilder;
 public class HTTPSessionManagerConfigurationBuilder extends SessionManagerConfigurationBuilder {
 
     private String userAttributeName;
+    private ConfigurationBuilder configurationBuilder;
+    private HTTPStatelessSessionConfigurationBuilder stateless;
+    private HTTPSharedSessionConfigurationBuilder shared;
+    private int maxSessionsPerUser;
 
     public HTTPSessionManagerConfigurationBuilder(ConfigurationBuilder configurationBuilder) {
         super(configurationBuilder);
+        this.configurationBuilder = configurationBuilder;
     }
 
     public HTTPSessionManagerConfigurationBuilder userAttributeName(String name) {
@@ -43,12 +48,71 @@ public class HTTPSessionManagerConfigurationBuilder extends SessionManagerConfig
         return this;
     }
 
+    /**
+     * <p>
+     * Limits the number of concurrent sessions per user. When the limit is exceeded the least recently used session is
+     * invalidated.
+     * </p>
+     *
+     * @param maxSessionsPerUser
+     * @return
+     */
+    public HTTPSessionManagerConfigurationBuilder maxSessionsPerUser(int maxSessionsPerUser) {
+        this.maxSessionsPerUser = maxSessionsPerUser;
+        return this;
+    }
+
+    /**
+     * <p>
+     * Enables the stateless session mode. The authenticated user will be stored in a signed cookie instead of the
+     * {@link javax.servlet.http.HttpSession}.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPStatelessSessionConfigurationBuilder stateless() {
+        if (this.stateless == null) {
+            this.stateless = new HTTPStatelessSessionConfigurationBuilder(this.configurationBuilder);
+        }
+
+        return this.stateless;
+    }
+
+    /**
+     * <p>
+     * Enables the shared session mode. The authenticated user will be stored in a {@link org.picketbox.http.session.UserContextStore}
+     * shared by all nodes instead of the {@link javax.servlet.http.HttpSession}.
+     * </p>
+     *
+     * @return
+     */
+    public HTTPSharedSessionConfigurationBuilder shared() {
+        if (this.shared == null) {
+            this.shared = new HTTPSharedSessionConfigurationBuilder(this.configurationBuilder);
+        }
+
+        return this.shared;
+    }
+
     /* (non-Javadoc)
      * @see org.picketbox.core.config.SessionManagerConfigurationBuilder#doBuild()
      */
     @Override
     protected SessionManagerConfig doBuild() {
-        return new HTTPSessionManagerConfiguration(this.userAttributeName, super.doBuild());
+        HTTPSessionManagerConfiguration configuration = new HTTPSessionManagerConfiguration(this.userAttributeName,
+                super.doBuild());
+
+        configuration.setMaxSessionsPerUser(this.maxSessionsPerUser);
+
+        if (this.stateless != null) {
+            configuration.setStatelessConfiguration(this.stateless.build());
+        }
+
+        if (this.shared != null) {
+            configuration.setSharedConfiguration(this.shared.build());
+        }
+
+        return configuration;
     }
 
 }
@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import org.picketbox.http.session.UserContextStore;
+
+/**
+ * <p>
+ * Configuration for the shared session mode. When present, the authenticated user is kept in a {@link UserContextStore}
+ * shared by all nodes and identified by a cookie, instead of the {@link javax.servlet.http.HttpSession}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPSharedSessionConfiguration {
+
+    public static final String DEFAULT_COOKIE_NAME = "PBOX_SID";
+
+    private UserContextStore store;
+    private String cookieName = DEFAULT_COOKIE_NAME;
+    private int maxAge = 30 * 60;
+    private long maxStaleness = 1000;
+    private long flushInterval = 50;
+    private int batchSize = 64;
+
+    public UserContextStore getStore() {
+        return this.store;
+    }
+
+    public void setStore(UserContextStore store) {
+        this.store = store;
+    }
+
+    public String getCookieName() {
+        return this.cookieName;
+    }
+
+    public void setCookieName(String cookieName) {
+        this.cookieName = cookieName;
+    }
+
+    /**
+     * @return how long, in seconds, an user is kept in the store
+     */
+    public int getMaxAge() {
+        return this.maxAge;
+    }
+
+    public void setMaxAge(int maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return how long, in milliseconds, a locally cached user is used before checking its version in the store
+     */
+    public long getMaxStaleness() {
+        return this.maxStaleness;
+    }
+
+    public void setMaxStaleness(long maxStaleness) {
+        this.maxStaleness = maxStaleness;
+    }
+
+    /**
+     * @return how often, in milliseconds, pending writes are sent to the store
+     */
+    public long getFlushInterval() {
+        return this.flushInterval;
+    }
+
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * @return the number of pending writes that triggers an immediate flush
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import org.picketbox.core.config.AbstractConfigurationBuilder;
+import org.picketbox.core.config.ConfigurationBuilder;
+import org.picketbox.http.session.InMemoryUserContextStore;
+import org.picketbox.http.session.UserContextStore;
+
+/**
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPSharedSessionConfigurationBuilder extends AbstractConfigurationBuilder<HTTPSharedSessionConfiguration> {
+
+    private HTTPSharedSessionConfiguration configuration = new HTTPSharedSessionConfiguration();
+
+    public HTTPSharedSessionConfigurationBuilder(ConfigurationBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    protected void setDefaults() {
+        if (this.configuration.getStore() == null) {
+            this.configuration.setStore(new InMemoryUserContextStore());
+        }
+    }
+
+    public HTTPSharedSessionConfigurationBuilder store(UserContextStore store) {
+        this.configuration.setStore(store);
+        return this;
+    }
+
+    public HTTPSharedSessionConfigurationBuilder cookieName(String cookieName) {
+        this.configuration.setCookieName(cookieName);
+        return this;
+    }
+
+    public HTTPSharedSessionConfigurationBuilder maxAge(int seconds) {
+        this.configuration.setMaxAge(seconds);
+        return this;
+    }
+
+    public HTTPSharedSessionConfigurationBuilder maxStaleness(long millis) {
+        this.configuration.setMaxStaleness(millis);
+        return this;
+    }
+
+    public HTTPSharedSessionConfigurationBuilder flushInterval(long millis) {
+        this.configuration.setFlushInterval(millis);
+        return this;
+    }
+
+    public HTTPSharedSessionConfigurationBuilder batchSize(int batchSize) {
+        this.configuration.setBatchSize(batchSize);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
+     */
+    @Override
+    public HTTPSharedSessionConfiguration doBuild() {
+        return this.configuration;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import org.picketbox.http.session.SessionRevocationStore;
+
+/**
+ * <p>
+ * Configuration for the stateless session mode. When present, the authenticated user is kept in a signed (and optionally
+ * encrypted) cookie instead of the {@link javax.servlet.http.HttpSession}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPStatelessSessionConfiguration {
+
+    public static final String DEFAULT_COOKIE_NAME = "PBOX_SESSION";
+
+    private byte[] signingKey;
+    private byte[] encryptionKey;
+    private String cookieName = DEFAULT_COOKIE_NAME;
+    private int maxAge = 30 * 60;
+    private SessionRevocationStore revocationStore;
+    private long revocationRefreshInterval = 10 * 1000;
+
+    public byte[] getSigningKey() {
+        return this.signingKey;
+    }
+
+    public void setSigningKey(byte[] signingKey) {
+        this.signingKey = signingKey;
+    }
+
+    public byte[] getEncryptionKey() {
+        return this.encryptionKey;
+    }
+
+    public void setEncryptionKey(byte[] encryptionKey) {
+        this.encryptionKey = encryptionKey;
+    }
+
+    public String getCookieName() {
+        return this.cookieName;
+    }
+
+    public void setCookieName(String cookieName) {
+        this.cookieName = cookieName;
+    }
+
+    /**
+     * @return how long, in seconds, an issued session cookie is valid
+     */
+    public int getMaxAge() {
+        return this.maxAge;
+    }
+
+    public void setMaxAge(int maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return the store where revocations are shared with the other nodes or null if they are local to each node
+     */
+    public SessionRevocationStore getRevocationStore() {
+        return this.revocationStore;
+    }
+
+    public void setRevocationStore(SessionRevocationStore revocationStore) {
+        this.revocationStore = revocationStore;
+    }
+
+    public long getRevocationRefreshInterval() {
+        return this.revocationRefreshInterval;
+    }
+
+    public void setRevocationRefreshInterval(long revocationRefreshInterval) {
+        this.revocationRefreshInterval = revocationRefreshInterval;
+    }
+
+}
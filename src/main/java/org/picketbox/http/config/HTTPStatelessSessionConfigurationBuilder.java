@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.config;
+
+import org.picketbox.core.config.AbstractConfigurationBuilder;
+import org.picketbox.core.config.ConfigurationBuilder;
+import org.picketbox.http.PicketBoxHTTPMessages;
+import org.picketbox.http.session.SessionRevocationStore;
+
+/**
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPStatelessSessionConfigurationBuilder extends AbstractConfigurationBuilder<HTTPStatelessSessionConfiguration> {
+
+    private HTTPStatelessSessionConfiguration configuration = new HTTPStatelessSessionConfiguration();
+
+    public HTTPStatelessSessionConfigurationBuilder(ConfigurationBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    protected void setDefaults() {
+    }
+
+    public HTTPStatelessSessionConfigurationBuilder signingKey(byte[] signingKey) {
+        this.configuration.setSigningKey(signingKey);
+        return this;
+    }
+
+    public HTTPStatelessSessionConfigurationBuilder encryptionKey(byte[] encryptionKey) {
+        this.configuration.setEncryptionKey(encryptionKey);
+        return this;
+    }
+
+    public HTTPStatelessSessionConfigurationBuilder cookieName(String cookieName) {
+        this.configuration.setCookieName(cookieName);
+        return this;
+    }
+
+    public HTTPStatelessSessionConfigurationBuilder maxAge(int seconds) {
+        this.configuration.setMaxAge(seconds);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Shares revoked sessions with the other nodes using the given store. Without a store, a session revoked on one node is
+     * still accepted by the others until its cookie expires.
+     * </p>
+     *
+     * @param store
+     * @return
+     */
+    public HTTPStatelessSessionConfigurationBuilder revocationStore(SessionRevocationStore store) {
+        this.configuration.setRevocationStore(store);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Shares revoked sessions with the other nodes using the given store, reading the revocations of the other nodes every
+     * <code>refreshInterval</code> milliseconds.
+     * </p>
+     *
+     * @param store
+     * @param refreshInterval
+     * @return
+     */
+    public HTTPStatelessSessionConfigurationBuilder revocationStore(SessionRevocationStore store, long refreshInterval) {
+        this.configuration.setRevocationStore(store);
+        this.configuration.setRevocationRefreshInterval(refreshInterval);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.config.AbstractConfigurationBuilder#doBuild()
+     */
+    @Override
+    public HTTPStatelessSessionConfiguration doBuild() {
+        if (this.configuration.getSigningKey() == null) {
+            throw PicketBoxHTTPMessages.MESSAGES.missingRequiredProperty("signingKey");
+        }
+
+        return this.configuration;
+    }
+}
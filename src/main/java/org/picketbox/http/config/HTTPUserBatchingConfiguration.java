@@ -0,0 +1,65 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.config;
+
+import org.picketbox.http.identity.BulkIdentityLoader;
+import org.picketlink.idm.model.User;
+
+/**
+ * <p>
+ * Configuration for batching the user lookups performed by the HTTP authentication mechanisms. See
+ * {@link org.picketbox.http.identity.BatchingIdentityLoader}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPUserBatchingConfiguration {
+
+    private BulkIdentityLoader<User> loader;
+    private long window = 2;
+    private int maxBatchSize = 64;
+
+    public BulkIdentityLoader<User> getLoader() {
+        return this.loader;
+    }
+
+    public void setLoader(BulkIdentityLoader<User> loader) {
+        this.loader = loader;
+    }
+
+    public long getWindow() {
+        return this.window;
+    }
+
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    public int getMaxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+}
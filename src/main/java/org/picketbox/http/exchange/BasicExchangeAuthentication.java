@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.exchange;
+
+import java.io.IOException;
+
+import org.picketbox.core.Credential;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.core.authentication.credential.UsernamePasswordCredential;
+import org.picketbox.core.util.Base64;
+
+/**
+ * <p>
+ * {@link ExchangeAuthenticationMechanism} for the HTTP Basic Authentication scheme.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class BasicExchangeAuthentication implements ExchangeAuthenticationMechanism {
+
+    private final String realmName;
+
+    public BasicExchangeAuthentication() {
+        this("PicketBox Realm");
+    }
+
+    public BasicExchangeAuthentication(String realmName) {
+        this.realmName = realmName;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.exchange.ExchangeAuthenticationMechanism#getCredential(org.picketbox.http.exchange.HTTPExchange)
+     */
+    @Override
+    public Credential getCredential(HTTPExchange exchange) {
+        String authorizationHeader = exchange.getRequestHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER);
+
+        if (authorizationHeader == null) {
+            return null;
+        }
+
+        int whitespaceIndex = authorizationHeader.indexOf(' ');
+
+        if (whitespaceIndex > 0
+                && PicketBoxConstants.HTTP_BASIC.equalsIgnoreCase(authorizationHeader.substring(0, whitespaceIndex))) {
+            byte[] decoded = Base64.decode(authorizationHeader.substring(whitespaceIndex + 1));
+
+            if (decoded == null) {
+                return null;
+            }
+
+            String usernamePassword = new String(decoded);
+            int indexOfColon = usernamePassword.indexOf(':');
+
+            if (indexOfColon > 0) {
+                return new UsernamePasswordCredential(usernamePassword.substring(0, indexOfColon),
+                        usernamePassword.substring(indexOfColon + 1));
+            }
+        }
+
+        return null;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.exchange.ExchangeAuthenticationMechanism#challenge(org.picketbox.http.exchange.HTTPExchange)
+     */
+    @Override
+    public void challenge(HTTPExchange exchange) throws IOException {
+        exchange.setResponseHeader(PicketBoxConstants.HTTP_WWW_AUTHENTICATE, "basic realm=\"" + this.realmName + '"');
+        exchange.sendError(401);
+    }
+}
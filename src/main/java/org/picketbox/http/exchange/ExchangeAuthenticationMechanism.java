@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.exchange;
+
+import java.io.IOException;
+
+import org.picketbox.core.Credential;
+
+/**
+ * <p>
+ * Extracts the credentials sent with a {@link HTTPExchange} and challenges clients that did not send valid ones. The
+ * credentials are verified by the authentication mechanisms configured in the
+ * {@link org.picketbox.http.PicketBoxHTTPManager}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public interface ExchangeAuthenticationMechanism {
+
+    /**
+     * @param exchange
+     * @return the credentials sent by the client or null if the request has none
+     */
+    Credential getCredential(HTTPExchange exchange);
+
+    /**
+     * <p>
+     * Asks the client for credentials.
+     * </p>
+     *
+     * @param exchange
+     * @throws IOException
+     */
+    void challenge(HTTPExchange exchange) throws IOException;
+}
@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.exchange;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * Minimal view of an HTTP request/response pair used by the {@link SecurityPipeline}. It allows the security checks to run
+ * on top of HTTP servers without a servlet container. Servlet applications are secured by
+ * {@link org.picketbox.http.filters.DelegatingSecurityFilter}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public interface HTTPExchange {
+
+    /**
+     * @return the HTTP method of the request
+     */
+    String getMethod();
+
+    /**
+     * @return the path of the request relative to the application root, without the query string
+     */
+    String getRequestPath();
+
+    /**
+     * @param name
+     * @return the first value of the given request header or null if the request does not have it
+     */
+    String getRequestHeader(String name);
+
+    /**
+     * @return true if the request was received over a secure channel
+     */
+    boolean isSecure();
+
+    Object getAttribute(String name);
+
+    void setAttribute(String name, Object value);
+
+    void setResponseHeader(String name, String value);
+
+    /**
+     * <p>
+     * Sends an empty response with the given status.
+     * </p>
+     *
+     * @param status
+     * @throws IOException
+     */
+    void sendError(int status) throws IOException;
+
+    /**
+     * <p>
+     * Sends a redirect to the given location.
+     * </p>
+     *
+     * @param location
+     * @throws IOException
+     */
+    void sendRedirect(String location) throws IOException;
+
+    /**
+     * @return true if the response was already sent
+     */
+    boolean isCommitted();
+}
@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.exchange;
+
+import java.io.IOException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsExchange;
+
+/**
+ * <p>
+ * {@link HTTPExchange} backed by the {@link HttpExchange} of the HTTP server provided by the JDK. Request paths are relative
+ * to the path of the {@link com.sun.net.httpserver.HttpContext} handling the exchange.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HttpServerExchange implements HTTPExchange {
+
+    private final HttpExchange exchange;
+    private boolean committed;
+
+    public HttpServerExchange(HttpExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    public HttpExchange getExchange() {
+        return this.exchange;
+    }
+
+    @Override
+    public String getMethod() {
+        return this.exchange.getRequestMethod();
+    }
+
+    @Override
+    public String getRequestPath() {
+        // resolve dot segments first, so that /app/public/../admin is not matched as a public resource
+        String path = this.exchange.getRequestURI().normalize().getPath();
+        String contextPath = this.exchange.getHttpContext().getPath();
+
+        if (contextPath.endsWith("/")) {
+            contextPath = contextPath.substring(0, contextPath.length() - 1);
+        }
+
+        if (path.startsWith(contextPath)
+                && (path.length() == contextPath.length() || path.charAt(contextPath.length()) == '/')) {
+            path = path.substring(contextPath.length());
+        }
+
+        if (path.isEmpty()) {
+            path = "/";
+        }
+
+        return path;
+    }
+
+    @Override
+    public String getRequestHeader(String name) {
+        return this.exchange.getRequestHeaders().getFirst(name);
+    }
+
+    @Override
+    public boolean isSecure() {
+        return this.exchange instanceof HttpsExchange;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return this.exchange.getAttribute(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        this.exchange.setAttribute(name, value);
+    }
+
+    @Override
+    public void setResponseHeader(String name, String value) {
+        this.exchange.getResponseHeaders().set(name, value);
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        this.committed = true;
+        this.exchange.sendResponseHeaders(status, -1);
+        this.exchange.close();
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        setResponseHeader("Location", location);
+        sendError(302);
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return this.committed;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.exchange;
+
+import java.io.IOException;
+
+import org.picketbox.core.exceptions.AuthenticationException;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * <p>
+ * {@link Filter} that secures the contexts of the HTTP server provided by the JDK using a {@link SecurityPipeline}.
+ * </p>
+ *
+ * <pre>
+ * HttpContext context = server.createContext(&quot;/app&quot;, handler);
+ *
+ * context.getFilters().add(new HttpServerSecurityFilter(new SecurityPipeline(manager, new BasicExchangeAuthentication())));
+ * </pre>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HttpServerSecurityFilter extends Filter {
+
+    private final SecurityPipeline pipeline;
+
+    public HttpServerSecurityFilter(SecurityPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /* (non-Javadoc)
+     * @see com.sun.net.httpserver.Filter#doFilter(com.sun.net.httpserver.HttpExchange, com.sun.net.httpserver.Filter.Chain)
+     */
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        HttpServerExchange httpExchange = new HttpServerExchange(exchange);
+        boolean proceed;
+
+        try {
+            proceed = this.pipeline.process(httpExchange);
+        } catch (AuthenticationException e) {
+            throw new IOException(e);
+        }
+
+        // otherwise the response was already sent by the pipeline
+        if (proceed) {
+            chain.doFilter(exchange);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.sun.net.httpserver.Filter#description()
+     */
+    @Override
+    public String description() {
+        return "PicketBox Security Filter";
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.exchange;
+
+import java.io.IOException;
+
+import org.picketbox.core.Credential;
+import org.picketbox.core.UserContext;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.core.exceptions.AuthenticationException;
+import org.picketbox.http.PicketBoxHTTPManager;
+import org.picketbox.http.identity.Bulkhead;
+import org.picketbox.http.identity.CircuitBreaker;
+
+/**
+ * <p>
+ * Applies the security checks to a {@link HTTPExchange}, independently of the servlet API: logout, protected resource
+ * resolution, authentication, challenge and authorization. Each exchange is authenticated using the credentials it carries,
+ * no session is kept between requests.
+ * </p>
+ * <p>
+ * The pipeline is meant for HTTP servers without a servlet container, see {@link HttpServerSecurityFilter}. Servlet
+ * applications are secured by {@link org.picketbox.http.filters.DelegatingSecurityFilter}. Credentials are verified by the
+ * mechanisms of the core, so the authentication bulkhead and the circuit breaker of the {@link PicketBoxHTTPManager} apply,
+ * but the identity cache and the coalescing of concurrent verifications of the HTTP mechanisms do not.
+ * </p>
+ *
+ * <pre>
+ * if (pipeline.process(exchange)) {
+ *     UserContext userContext = SecurityPipeline.getUserContext(exchange);
+ *     // handle the request
+ * }
+ * </pre>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class SecurityPipeline {
+
+    /**
+     * Exchange attribute holding the authenticated {@link UserContext}.
+     */
+    public static final String USER_CONTEXT_ATTRIBUTE = SecurityPipeline.class.getName() + ".USER_CONTEXT";
+
+    private final PicketBoxHTTPManager securityManager;
+    private final ExchangeAuthenticationMechanism authenticationMechanism;
+
+    public SecurityPipeline(PicketBoxHTTPManager securityManager, ExchangeAuthenticationMechanism authenticationMechanism) {
+        this.securityManager = securityManager;
+        this.authenticationMechanism = authenticationMechanism;
+    }
+
+    /**
+     * <p>
+     * Checks if the given exchange can proceed. If not, the response was already sent.
+     * </p>
+     *
+     * @param exchange
+     * @return true if the exchange can be handled by the application
+     * @throws IOException
+     * @throws AuthenticationException
+     */
+    public boolean process(HTTPExchange exchange) throws IOException, AuthenticationException {
+        if (isLogoutRequest(exchange)) {
+            // no state is kept between requests, the client is asked to forget its credentials
+            this.authenticationMechanism.challenge(exchange);
+            return false;
+        }
+
+        UserContext userContext = authenticate(exchange);
+
+        if (exchange.isCommitted()) {
+            return false;
+        }
+
+        if (userContext == null || !userContext.isAuthenticated()) {
+            if (this.securityManager.requiresAuthentication(exchange)) {
+                this.authenticationMechanism.challenge(exchange);
+                return false;
+            }
+        }
+
+        if (!this.securityManager.authorize(userContext, new ExchangeResource(exchange))) {
+            exchange.sendError(403);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param exchange
+     * @return the {@link UserContext} authenticated for the given exchange or null if the user is not authenticated
+     */
+    public static UserContext getUserContext(HTTPExchange exchange) {
+        return (UserContext) exchange.getAttribute(USER_CONTEXT_ATTRIBUTE);
+    }
+
+    private UserContext authenticate(HTTPExchange exchange) throws AuthenticationException {
+        Credential credential = this.authenticationMechanism.getCredential(exchange);
+
+        if (credential == null) {
+            return null;
+        }
+
+        Bulkhead bulkhead = this.securityManager.getAuthenticationBulkhead();
+
+        if (bulkhead != null && !bulkhead.acquire()) {
+            // the identity store is saturated, fail fast instead of blocking one more server thread
+            reject(exchange, bulkhead.getRetryAfter());
+            return null;
+        }
+
+        UserContext userContext;
+
+        try {
+            userContext = verify(exchange, credential);
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+
+        if (userContext != null && userContext.isAuthenticated()) {
+            exchange.setAttribute(USER_CONTEXT_ATTRIBUTE, userContext);
+        }
+
+        return userContext;
+    }
+
+    private UserContext verify(HTTPExchange exchange, Credential credential) throws AuthenticationException {
+        CircuitBreaker circuitBreaker = this.securityManager.getCircuitBreaker();
+
+        if (circuitBreaker == null) {
+            return this.securityManager.authenticate(new ExchangeUserContext(exchange, credential));
+        }
+
+        if (!circuitBreaker.allowRequest()) {
+            reject(exchange, (int) Math.max(1, circuitBreaker.getRemainingOpenTime() / 1000));
+            return null;
+        }
+
+        long start = System.nanoTime();
+        UserContext userContext;
+
+        try {
+            userContext = this.securityManager.authenticate(new ExchangeUserContext(exchange, credential));
+        } catch (AuthenticationException e) {
+            circuitBreaker.onFailure(System.nanoTime() - start);
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(System.nanoTime() - start);
+            throw e;
+        }
+
+        circuitBreaker.onSuccess(System.nanoTime() - start);
+
+        return userContext;
+    }
+
+    private void reject(HTTPExchange exchange, int retryAfter) throws AuthenticationException {
+        exchange.setResponseHeader("Retry-After", String.valueOf(retryAfter));
+
+        try {
+            exchange.sendError(503);
+        } catch (IOException e) {
+            throw new AuthenticationException(e);
+        }
+    }
+
+    private boolean isLogoutRequest(HTTPExchange exchange) {
+        return exchange.getRequestPath().contains(PicketBoxConstants.LOGOUT_URI);
+    }
+}
@@ -22,8 +22,24 @@
 package org.picketbox.http.filters;
 
 import java.io.IOException;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -36,6 +52,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.picketbox.core.PicketBoxManager;
 import org.picketbox.core.UserContext;
+import org.picketbox.core.authentication.AuthenticationMechanism;
 import org.picketbox.core.authentication.PicketBoxConstants;
 import org.picketbox.core.authorization.AuthorizationManager;
 import org.picketbox.core.authorization.impl.SimpleAuthorizationManager;
@@ -46,16 +63,33 @@ import org.picketbox.core.ctx.SecurityContextPropagation;
 import org.picketbox.core.exceptions.AuthenticationException;
 import org.picketbox.core.exceptions.ProcessingException;
 import org.picketbox.http.HTTPUserContext;
+import org.picketbox.http.PicketBoxHTTPLogger;
 import org.picketbox.http.PicketBoxHTTPManager;
+import org.picketbox.http.PicketBoxHTTPMessages;
+import org.picketbox.http.authentication.AsyncHTTPAuthentication;
+import org.picketbox.http.authentication.AuthenticationCallback;
+import org.picketbox.http.authentication.AuthenticationFuture;
+import org.picketbox.http.authentication.HTTPAPIKeyAuthentication;
+import org.picketbox.http.authentication.HTTPAPIKeyCredential;
 import org.picketbox.http.authentication.HTTPBasicCredential;
+import org.picketbox.http.authentication.HTTPBearerAuthentication;
+import org.picketbox.http.authentication.HTTPBearerCredential;
 import org.picketbox.http.authentication.HTTPClientCertCredential;
+import org.picketbox.http.authentication.HTTPCredentialDispatcher;
 import org.picketbox.http.authentication.HTTPDigestCredential;
 import org.picketbox.http.authentication.HTTPFormCredential;
+import org.picketbox.http.authentication.HTTPIntrospectionAuthentication;
+import org.picketbox.http.authentication.HTTPIntrospectionCredential;
+import org.picketbox.http.authentication.HTTPPreAuthAuthentication;
+import org.picketbox.http.authentication.HTTPPreAuthCredential;
 import org.picketbox.http.authentication.HttpServletCredential;
 import org.picketbox.http.authorization.resource.WebResource;
+import org.picketbox.http.concurrent.SecurityContextSnapshot;
 import org.picketbox.http.config.ConfigurationBuilderProvider;
+import org.picketbox.http.config.HTTPAuthenticationConfiguration;
 import org.picketbox.http.config.HTTPConfigurationBuilder;
 import org.picketbox.http.config.PicketBoxHTTPConfiguration;
+import org.picketbox.http.session.PicketBoxSessionListener;
 import org.picketbox.http.wrappers.RequestWrapper;
 import org.picketbox.http.wrappers.ResponseWrapper;
 
@@ -69,6 +103,23 @@ import org.picketbox.http.wrappers.ResponseWrapper;
  * {@link ConfigurationBuilderProvider}.
  * </p>
  *
+ * <p>
+ * When the <code>async</code> init parameter is <code>true</code> and the request supports asynchronous processing,
+ * authentication and authorization are executed by a dedicated executor instead of the container thread. The request is
+ * put in asynchronous mode and, once the security checks pass, dispatched again to continue with the filter chain. The
+ * filter must be mapped with <code>async-supported</code> and the <code>ASYNC</code> dispatcher. Credentials are verified
+ * using the {@link AsyncHTTPAuthentication} contract, so mechanisms backed by non-blocking clients release the executor
+ * thread while the identity store is being called.
+ * </p>
+ *
+ * <p>
+ * Several authentication mechanisms can be enabled at once by setting the <code>PicketBoxConstants.AUTHENTICATION_KEY</code>
+ * context parameter to a comma separated list, like <code>FORM,BASIC,CLIENT_CERT</code>. The first one is the default. Each
+ * request is dispatched to a mechanism according with its credentials or, for requests without credentials, with the
+ * mappings in the <code>authenticationPaths</code> init parameter, like <code>/api=BASIC</code>. See
+ * {@link HTTPCredentialDispatcher}.
+ * </p>
+ *
  * @author anil saldhana
  * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
  *
@@ -76,19 +127,52 @@ import org.picketbox.http.wrappers.ResponseWrapper;
  */
 public class DelegatingSecurityFilter implements Filter {
 
+    /**
+     * Init parameter that enables the asynchronous mode.
+     */
+    public static final String ASYNC_INIT_PARAM = "async";
+
+    /**
+     * Init parameter with the number of threads used in asynchronous mode. Defaults to {@link #DEFAULT_ASYNC_THREADS}.
+     */
+    public static final String ASYNC_THREADS_INIT_PARAM = "asyncThreads";
+
+    /**
+     * Init parameter with the timeout in milliseconds of the asynchronous processing. Defaults to the container timeout.
+     */
+    public static final String ASYNC_TIMEOUT_INIT_PARAM = "asyncTimeout";
+
+    public static final int DEFAULT_ASYNC_THREADS = 16;
+
+    /**
+     * Init parameter with a comma separated list of <code>path=mechanism</code> mappings, used to choose the mechanism that
+     * challenges requests without credentials.
+     */
+    public static final String AUTHENTICATION_PATHS_INIT_PARAM = "authenticationPaths";
+
+    /**
+     * Request attribute set when the security checks were executed asynchronously and the request was dispatched again.
+     */
+    private static final String ASYNC_SECURITY_CHECKED = DelegatingSecurityFilter.class.getName() + ".ASYNC_SECURITY_CHECKED";
+
     private PicketBoxHTTPManager securityManager;
-    private Class<? extends HttpServletCredential> credentialType;
+    private HTTPCredentialDispatcher credentialDispatcher;
+    private final Map<Class<? extends HttpServletCredential>, Constructor<? extends HttpServletCredential>> credentialConstructors = new HashMap<Class<? extends HttpServletCredential>, Constructor<? extends HttpServletCredential>>();
+    private final ConcurrentMap<Class<? extends HttpServletCredential>, AsyncHTTPAuthentication> asyncMechanisms = new ConcurrentHashMap<Class<? extends HttpServletCredential>, AsyncHTTPAuthentication>();
+    private Executor asyncExecutor;
+    private boolean asyncOnVirtualThreads;
+    private long asyncTimeout = -1;
 
     @Override
     public void init(FilterConfig fc) throws ServletException {
         // no need to configure a PicketBoxManager. A valid instance was used to create this filter.
         if (this.securityManager != null) {
+            // configures the credentials to be used during authentication
+            configureCredentials(fc);
+            configureAsync(fc);
             return;
         }
 
-        // configures the credential to be used during authentication
-        this.credentialType = getSupporttedCredential(fc.getServletContext());
-
         // gets the configuration that will be used to configure and start the manager
         HTTPConfigurationBuilder configuration = getConfigurationBuilder(fc.getServletContext());
 
@@ -98,6 +182,76 @@ public class DelegatingSecurityFilter implements Filter {
 
         // sets the manager as a context attribute and make it available for the application
         fc.getServletContext().setAttribute(PicketBoxConstants.PICKETBOX_MANAGER, this.securityManager);
+
+        registerSessionListener(fc.getServletContext());
+
+        // configures the credentials to be used during authentication, once the manager configuration is known
+        configureCredentials(fc);
+        configureAsync(fc);
+    }
+
+    /**
+     * <p>
+     * Configures the asynchronous mode from the filter init parameters. If the manager runs blocking calls on virtual threads
+     * and no thread count was specified, the security checks are executed on virtual threads as well.
+     * </p>
+     *
+     * @param fc
+     */
+    private void configureAsync(FilterConfig fc) {
+        if (!Boolean.parseBoolean(fc.getInitParameter(ASYNC_INIT_PARAM))) {
+            return;
+        }
+
+        String timeoutValue = fc.getInitParameter(ASYNC_TIMEOUT_INIT_PARAM);
+
+        if (timeoutValue != null) {
+            this.asyncTimeout = Long.parseLong(timeoutValue.trim());
+        }
+
+        int threads = DEFAULT_ASYNC_THREADS;
+        String threadsValue = fc.getInitParameter(ASYNC_THREADS_INIT_PARAM);
+
+        if (threadsValue != null) {
+            threads = Integer.parseInt(threadsValue.trim());
+        } else if (this.securityManager.getBlockingExecutor() != null) {
+            // blocking is cheap on virtual threads, the security checks can wait for the identity store directly
+            this.asyncExecutor = this.securityManager.getBlockingExecutor();
+            this.asyncOnVirtualThreads = true;
+            return;
+        }
+
+        this.asyncExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "PicketBox Async Security-" + this.count.incrementAndGet());
+
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Tries to register the {@link PicketBoxSessionListener}. Most containers only accept new listeners while the context is
+     * being initialized, in that case sessions are still reclaimed through the attribute bound by the
+     * {@link org.picketbox.http.session.SessionStateReaper}.
+     * </p>
+     *
+     * @param servletContext
+     */
+    private void registerSessionListener(ServletContext servletContext) {
+        try {
+            servletContext.addListener(PicketBoxSessionListener.class);
+        } catch (IllegalStateException e) {
+            PicketBoxHTTPLogger.LOGGER.debugSessionListenerNotRegistered(PicketBoxSessionListener.class.getName(), e);
+        } catch (UnsupportedOperationException e) {
+            PicketBoxHTTPLogger.LOGGER.debugSessionListenerNotRegistered(PicketBoxSessionListener.class.getName(), e);
+        }
     }
 
     /**
@@ -143,6 +297,18 @@ public class DelegatingSecurityFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
+        if (this.asyncExecutor != null) {
+            if (isAsyncSecurityChecked(httpRequest)) {
+                continueChain(httpRequest, httpResponse, chain);
+                return;
+            }
+
+            if (httpRequest.isAsyncSupported()) {
+                doFilterAsync(httpRequest, httpResponse);
+                return;
+            }
+        }
+
         // wraps the request and response with PicketBox wrapper classes
         RequestWrapper wrappedRequest = new RequestWrapper(httpRequest, this.securityManager);
         ResponseWrapper wrappedResponse = new ResponseWrapper(httpResponse, this.securityManager);
@@ -165,6 +331,211 @@ public class DelegatingSecurityFilter implements Filter {
 
     }
 
+    /**
+     * <p>
+     * Puts the request in asynchronous mode and executes the security checks using the async executor. If the checks pass
+     * the request is dispatched again, otherwise the response was already sent and the asynchronous processing is completed.
+     * </p>
+     *
+     * @param httpRequest
+     * @param httpResponse
+     * @throws IOException
+     */
+    private void doFilterAsync(final HttpServletRequest httpRequest, final HttpServletResponse httpResponse) throws IOException {
+        final AsyncContext asyncContext = httpRequest.startAsync(httpRequest, httpResponse);
+
+        if (this.asyncTimeout >= 0) {
+            asyncContext.setTimeout(this.asyncTimeout);
+        }
+
+        final Runnable securityChecks = new Runnable() {
+            @Override
+            public void run() {
+                boolean proceed = false;
+
+                try {
+                    proceed = checkSecurity(httpRequest, httpResponse);
+                } catch (Exception e) {
+                    PicketBoxHTTPLogger.LOGGER.errorAsyncSecurityProcessing(httpRequest.getRequestURI(), e);
+                    sendErrorIfNotCommitted(httpResponse, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+
+                try {
+                    if (proceed) {
+                        httpRequest.setAttribute(ASYNC_SECURITY_CHECKED, Boolean.TRUE);
+                        asyncContext.dispatch();
+                    } else {
+                        asyncContext.complete();
+                    }
+                } catch (IllegalStateException e) {
+                    // the asynchronous processing timed out and was already completed by the container
+                    PicketBoxHTTPLogger.LOGGER.errorAsyncSecurityProcessing(httpRequest.getRequestURI(), e);
+                }
+            }
+        };
+
+        executeAsync(new Runnable() {
+            @Override
+            public void run() {
+                if (asyncOnVirtualThreads) {
+                    securityChecks.run();
+                    return;
+                }
+
+                AuthenticationFuture verification = null;
+
+                try {
+                    verification = startAuthentication(httpRequest, httpResponse);
+                } catch (RuntimeException e) {
+                    // the security checks will verify the credentials again and handle the error
+                    PicketBoxHTTPLogger.LOGGER.errorAsyncSecurityProcessing(httpRequest.getRequestURI(), e);
+                }
+
+                if (verification == null || verification.isDone()) {
+                    securityChecks.run();
+                    return;
+                }
+
+                // the identity store is called without blocking, continue once it answers
+                verification.addCallback(new AuthenticationCallback() {
+                    @Override
+                    public void onSuccess(Principal principal) {
+                        executeAsync(securityChecks, httpResponse, asyncContext);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable failure) {
+                        executeAsync(securityChecks, httpResponse, asyncContext);
+                    }
+                });
+            }
+        }, httpResponse, asyncContext);
+    }
+
+    private void executeAsync(Runnable task, HttpServletResponse httpResponse, AsyncContext asyncContext) {
+        try {
+            this.asyncExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            sendErrorIfNotCommitted(httpResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * <p>
+     * Starts the non-blocking verification of the credentials carried by the request, if any.
+     * </p>
+     *
+     * @return the pending verification or null if there is nothing to verify
+     */
+    private AuthenticationFuture startAuthentication(HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+        if (isLogoutRequest(httpRequest)) {
+            return null;
+        }
+
+        UserContext userContext = this.securityManager.getUserContext(httpRequest);
+
+        if (userContext != null && userContext.isAuthenticated()) {
+            return null;
+        }
+
+        AsyncHTTPAuthentication mechanism = getAsyncMechanism(this.credentialDispatcher.resolve(httpRequest));
+
+        if (mechanism == null) {
+            return null;
+        }
+
+        return mechanism.authenticateAsync(httpRequest, httpResponse);
+    }
+
+    /**
+     * <p>
+     * Returns the configured mechanism supporting the given credential type.
+     * </p>
+     */
+    private AsyncHTTPAuthentication getAsyncMechanism(Class<? extends HttpServletCredential> credentialType) {
+        AsyncHTTPAuthentication asyncMechanism = this.asyncMechanisms.get(credentialType);
+
+        if (asyncMechanism == null) {
+            List<AuthenticationMechanism> mechanisms = this.securityManager.getConfiguration().getAuthentication()
+                    .getMechanisms();
+
+            for (AuthenticationMechanism mechanism : mechanisms) {
+                if (mechanism instanceof AsyncHTTPAuthentication
+                        && ((AsyncHTTPAuthentication) mechanism).getCredentialType().equals(credentialType)) {
+                    asyncMechanism = (AsyncHTTPAuthentication) mechanism;
+                    this.asyncMechanisms.put(credentialType, asyncMechanism);
+                    break;
+                }
+            }
+        }
+
+        return asyncMechanism;
+    }
+
+    /**
+     * <p>
+     * Executes the logout, authentication and authorization steps.
+     * </p>
+     *
+     * @return true if the request can proceed with the filter chain
+     */
+    private boolean checkSecurity(HttpServletRequest httpRequest, HttpServletResponse httpResponse) throws IOException,
+            ServletException {
+        RequestWrapper wrappedRequest = new RequestWrapper(httpRequest, this.securityManager);
+        ResponseWrapper wrappedResponse = new ResponseWrapper(httpResponse, this.securityManager);
+
+        try {
+            propagateSecurityContext(wrappedRequest);
+
+            logout(wrappedRequest, wrappedResponse);
+
+            authenticate(wrappedRequest, wrappedResponse);
+
+            authorize(wrappedRequest, wrappedResponse);
+
+            return !httpResponse.isCommitted();
+        } finally {
+            clearPropagatedSecurityContext();
+        }
+    }
+
+    /**
+     * <p>
+     * Continues the filter chain for a request whose security checks were executed asynchronously.
+     * </p>
+     */
+    private void continueChain(HttpServletRequest httpRequest, HttpServletResponse httpResponse, FilterChain chain)
+            throws IOException, ServletException {
+        httpRequest.removeAttribute(ASYNC_SECURITY_CHECKED);
+
+        RequestWrapper wrappedRequest = new RequestWrapper(httpRequest, this.securityManager);
+        ResponseWrapper wrappedResponse = new ResponseWrapper(httpResponse, this.securityManager);
+
+        try {
+            propagateSecurityContext(wrappedRequest);
+
+            chain.doFilter(wrappedRequest, wrappedResponse);
+        } finally {
+            clearPropagatedSecurityContext();
+        }
+    }
+
+    private boolean isAsyncSecurityChecked(HttpServletRequest httpRequest) {
+        return httpRequest.getDispatcherType() == DispatcherType.ASYNC
+                && Boolean.TRUE.equals(httpRequest.getAttribute(ASYNC_SECURITY_CHECKED));
+    }
+
+    private void sendErrorIfNotCommitted(HttpServletResponse httpResponse, int status) {
+        if (!httpResponse.isCommitted()) {
+            try {
+                httpResponse.sendError(status);
+            } catch (IOException ignore) {
+                // the client is gone, nothing else to do
+            }
+        }
+    }
+
     /**
      * <p>
      * Clear the propagated {@link SecurityContext}.
@@ -182,7 +553,8 @@ public class DelegatingSecurityFilter implements Filter {
 
     /**
      * <p>
-     * Propagates the authenticated {@link UserContext}.
+     * Propagates the authenticated {@link UserContext}. A {@link SecurityContextSnapshot} of the propagated context is stored
+     * as a request attribute, so tasks handed to other threads can restore it.
      * </p>
      *
      * @param httpRequest
@@ -193,7 +565,11 @@ public class DelegatingSecurityFilter implements Filter {
 
         if (subject != null) {
             try {
-                SecurityContextPropagation.setContext(new PicketBoxSecurityContext(subject));
+                SecurityContext securityContext = new PicketBoxSecurityContext(subject);
+
+                SecurityContextPropagation.setContext(securityContext);
+
+                httpRequest.setAttribute(SecurityContextSnapshot.REQUEST_ATTRIBUTE, new SecurityContextSnapshot(securityContext));
             } catch (ProcessingException e) {
                 throw new ServletException(e);
             }
@@ -239,9 +615,8 @@ public class DelegatingSecurityFilter implements Filter {
         }
 
         try {
-            HttpServletCredential credential = this.credentialType.getConstructor(
-                    new Class[] { HttpServletRequest.class, HttpServletResponse.class }).newInstance(
-                    new Object[] { httpRequest, httpResponse });
+            HttpServletCredential credential = this.credentialConstructors.get(
+                    this.credentialDispatcher.resolve(httpRequest)).newInstance(new Object[] { httpRequest, httpResponse });
 
             this.securityManager.authenticate(new HTTPUserContext(httpRequest, httpResponse, credential));
         } catch (AuthenticationException e) {
@@ -256,14 +631,15 @@ public class DelegatingSecurityFilter implements Filter {
             e.printStackTrace();
         } catch (InvocationTargetException e) {
             e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
         }
     }
 
     private void logout(HttpServletRequest httpRequest, HttpServletResponse httpResponse) throws ServletException {
         if (isLogoutRequest(httpRequest)) {
-            this.securityManager.logout(getAuthenticatedUser(httpRequest));
+            UserContext userContext = getAuthenticatedUser(httpRequest);
+
+            this.securityManager.logout(httpRequest, httpResponse);
+            this.securityManager.logout(userContext);
             try {
                 httpResponse.sendRedirect(httpRequest.getContextPath());
             } catch (IOException e) {
@@ -286,6 +662,11 @@ public class DelegatingSecurityFilter implements Filter {
 
     @Override
     public void destroy() {
+        // the virtual thread executor is owned by the manager
+        if (this.asyncExecutor instanceof ExecutorService && !this.asyncOnVirtualThreads) {
+            ((ExecutorService) this.asyncExecutor).shutdown();
+        }
+
         if (this.securityManager != null) {
             this.securityManager.stop();
         }
@@ -293,35 +674,85 @@ public class DelegatingSecurityFilter implements Filter {
 
     /**
      * <p>
-     * Returns a {@link HttpServletCredential} class that should be used to create user credentials when authenticating users.
-     * The specific class is returned according with the <code>PicketBoxConstants.AUTHENTICATION_KEY</code> context parameter.
-     * Possible values are BASIC, DIGEST AND CLIENT_CERT. If none of them is provided the default credential will be of type
-     * {@link HTTPFormCredential}.
+     * Builds the {@link HTTPCredentialDispatcher} used to choose the {@link HttpServletCredential} class that should be used to
+     * create user credentials when authenticating users. The mechanisms are enabled according with the
+     * <code>PicketBoxConstants.AUTHENTICATION_KEY</code> context parameter, a comma separated list of BASIC, DIGEST, CLIENT_CERT
+     * and FORM. If none of them is provided the default credential will be of type {@link HTTPFormCredential}.
      * </p>
      *
-     * @param servletContext
-     * @return
+     * @param fc
      * @throws ServletException
      */
-    private Class<? extends HttpServletCredential> getSupporttedCredential(ServletContext servletContext)
-            throws ServletException {
-        String authenticationType = servletContext.getInitParameter(PicketBoxConstants.AUTHENTICATION_KEY);
-
-        if (authenticationType != null) {
-            if (authenticationType.equalsIgnoreCase(PicketBoxConstants.BASIC)) {
-                this.credentialType = HTTPBasicCredential.class;
-            } else if (authenticationType.equalsIgnoreCase(PicketBoxConstants.DIGEST)) {
-                this.credentialType = HTTPDigestCredential.class;
-            } else if (authenticationType.equalsIgnoreCase(PicketBoxConstants.CLIENT_CERT)) {
-                this.credentialType = HTTPClientCertCredential.class;
+    private void configureCredentials(FilterConfig fc) throws ServletException {
+        String authenticationTypes = fc.getServletContext().getInitParameter(PicketBoxConstants.AUTHENTICATION_KEY);
+        List<Class<? extends HttpServletCredential>> credentialTypes = new ArrayList<Class<? extends HttpServletCredential>>();
+
+        if (authenticationTypes != null) {
+            for (String authenticationType : authenticationTypes.split(",")) {
+                if (!authenticationType.trim().isEmpty()) {
+                    credentialTypes.add(getCredentialType(authenticationType.trim()));
+                }
+            }
+        }
+
+        if (credentialTypes.isEmpty()) {
+            credentialTypes.add(HTTPFormCredential.class);
+        }
+
+        this.credentialDispatcher = new HTTPCredentialDispatcher(credentialTypes.get(0),
+                (HTTPAuthenticationConfiguration) this.securityManager.getConfiguration().getAuthentication());
+
+        for (Class<? extends HttpServletCredential> credentialType : credentialTypes) {
+            this.credentialDispatcher.addCredentialType(credentialType);
+        }
+
+        String authenticationPaths = fc.getInitParameter(AUTHENTICATION_PATHS_INIT_PARAM);
+
+        if (authenticationPaths != null) {
+            for (String mapping : authenticationPaths.split(",")) {
+                if (mapping.trim().isEmpty()) {
+                    continue;
+                }
+
+                int separatorIndex = mapping.indexOf('=');
+
+                if (separatorIndex == -1) {
+                    throw PicketBoxHTTPMessages.MESSAGES.invalidAuthenticationPathMapping(mapping);
+                }
+
+                this.credentialDispatcher.addPath(mapping.substring(0, separatorIndex),
+                        getCredentialType(mapping.substring(separatorIndex + 1).trim()));
             }
         }
 
-        if (this.credentialType == null) {
-            this.credentialType = HTTPFormCredential.class;
+        for (Class<? extends HttpServletCredential> credentialType : this.credentialDispatcher.getCredentialTypes()) {
+            try {
+                this.credentialConstructors.put(credentialType,
+                        credentialType.getConstructor(new Class[] { HttpServletRequest.class, HttpServletResponse.class }));
+            } catch (NoSuchMethodException e) {
+                throw new ServletException(e);
+            }
+        }
+    }
+
+    private Class<? extends HttpServletCredential> getCredentialType(String authenticationType) {
+        if (authenticationType.equalsIgnoreCase(PicketBoxConstants.BASIC)) {
+            return HTTPBasicCredential.class;
+        } else if (authenticationType.equalsIgnoreCase(PicketBoxConstants.DIGEST)) {
+            return HTTPDigestCredential.class;
+        } else if (authenticationType.equalsIgnoreCase(PicketBoxConstants.CLIENT_CERT)) {
+            return HTTPClientCertCredential.class;
+        } else if (authenticationType.equalsIgnoreCase(HTTPBearerAuthentication.HTTP_BEARER)) {
+            return HTTPBearerCredential.class;
+        } else if (authenticationType.equalsIgnoreCase(HTTPIntrospectionAuthentication.INTROSPECTION)) {
+            return HTTPIntrospectionCredential.class;
+        } else if (authenticationType.equalsIgnoreCase(HTTPAPIKeyAuthentication.API_KEY)) {
+            return HTTPAPIKeyCredential.class;
+        } else if (authenticationType.equalsIgnoreCase(HTTPPreAuthAuthentication.PRE_AUTH)) {
+            return HTTPPreAuthCredential.class;
         }
 
-        return this.credentialType;
+        return HTTPFormCredential.class;
     }
 
     /**
@@ -0,0 +1,308 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.identity;
+
+import java.io.UnsupportedEncodingException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.picketbox.http.PicketBoxHTTPLogger;
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * <p>
+ * In-memory index of API keys. Keys are identified by their keyed hash (HMAC-SHA256 with a secret only known by the server),
+ * so neither the index nor the identity store hold them in clear text and a leaked index can not be used to guess them.
+ * Authenticating a key costs one hash and one probe in the index, followed by a constant-time comparison of the full hash.
+ * </p>
+ * <p>
+ * The index is loaded from an {@link APIKeyLoader} and refreshed in background. Only the keys changed since the previous
+ * refresh are applied, so lookups are never blocked or see a partially loaded index.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class APIKeyIndex {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final ConcurrentMap<Long, IndexedKey> keys = new ConcurrentHashMap<Long, IndexedKey>();
+
+    private final SecretKeySpec secret;
+    private final APIKeyLoader loader;
+    private final ScheduledExecutorService refreshExecutor;
+
+    private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+
+                mac.init(secret);
+
+                return mac;
+            } catch (NoSuchAlgorithmException e) {
+                throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+            } catch (InvalidKeyException e) {
+                throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+            }
+        }
+    };
+
+    private long lastRefresh;
+
+    /**
+     * @param secret the secret used to compute the keyed hashes
+     * @param loader the loader of the keys or null if keys are only added with {@link #put(String, String)}
+     * @param refreshInterval how often, in milliseconds, the changes are loaded. Zero disables the background refresh.
+     */
+    public APIKeyIndex(byte[] secret, APIKeyLoader loader, long refreshInterval) {
+        this.secret = new SecretKeySpec(secret, ALGORITHM);
+        this.loader = loader;
+
+        if (loader != null) {
+            refresh();
+        }
+
+        if (loader != null && refreshInterval > 0) {
+            this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "PicketBox API Key Refresh");
+
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            });
+
+            this.refreshExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (RuntimeException e) {
+                        // keep the current keys, the next refresh will load the pending changes
+                        PicketBoxHTTPLogger.LOGGER.warnReloadFailed("API keys", e);
+                    }
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.refreshExecutor = null;
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the user that owns the given API key.
+     * </p>
+     *
+     * @param apiKey
+     * @return the user name or null if the key is unknown or was revoked
+     */
+    public String getUserName(String apiKey) {
+        byte[] hash = computeHash(apiKey);
+        IndexedKey indexedKey = this.keys.get(getIndex(hash));
+
+        // there is hardly ever more than one key per index, but all are compared to not leak which one matched
+        String userName = null;
+
+        while (indexedKey != null) {
+            if (MessageDigest.isEqual(indexedKey.hash, hash)) {
+                userName = indexedKey.userName;
+            }
+
+            indexedKey = indexedKey.next;
+        }
+
+        return userName;
+    }
+
+    /**
+     * <p>
+     * Computes the keyed hash of the given API key, in hexadecimal. This is the value stored by the {@link APIKeyLoader}.
+     * </p>
+     *
+     * @param apiKey
+     * @return
+     */
+    public String hash(String apiKey) {
+        byte[] hash = computeHash(apiKey);
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * <p>
+     * Adds or, if the user name is null, removes the key with the given hash.
+     * </p>
+     *
+     * @param hash the hexadecimal keyed hash of the key
+     * @param userName
+     */
+    public void put(String hash, String userName) {
+        byte[] decodedHash = decodeHex(hash);
+
+        if (decodedHash == null) {
+            return;
+        }
+
+        Long index = getIndex(decodedHash);
+
+        while (true) {
+            IndexedKey current = this.keys.get(index);
+            IndexedKey updated = userName != null ? new IndexedKey(decodedHash, userName, remove(current, decodedHash)) : remove(
+                    current, decodedHash);
+
+            boolean replaced;
+
+            if (current == null) {
+                replaced = updated == null || this.keys.putIfAbsent(index, updated) == null;
+            } else if (updated == null) {
+                replaced = this.keys.remove(index, current);
+            } else {
+                replaced = this.keys.replace(index, current, updated);
+            }
+
+            if (replaced) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Loads and applies the changes since the previous refresh.
+     * </p>
+     */
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        Map<String, String> changes = this.loader.loadChanges(this.lastRefresh);
+
+        for (Entry<String, String> change : changes.entrySet()) {
+            put(change.getKey(), change.getValue());
+        }
+
+        this.lastRefresh = start;
+    }
+
+    /**
+     * @return the number of indexes in use, which is the number of keys unless their hashes collide
+     */
+    public int size() {
+        return this.keys.size();
+    }
+
+    public void close() {
+        if (this.refreshExecutor != null) {
+            this.refreshExecutor.shutdownNow();
+        }
+    }
+
+    private byte[] computeHash(String apiKey) {
+        try {
+            return this.macs.get().doFinal(apiKey.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+    }
+
+    private static Long getIndex(byte[] hash) {
+        long index = 0;
+
+        for (int i = 0; i < 8; i++) {
+            index = (index << 8) | (hash[i] & 0xFF);
+        }
+
+        return Long.valueOf(index);
+    }
+
+    private static IndexedKey remove(IndexedKey head, byte[] hash) {
+        if (head == null) {
+            return null;
+        }
+
+        IndexedKey next = remove(head.next, hash);
+
+        if (MessageDigest.isEqual(head.hash, hash)) {
+            return next;
+        }
+
+        return next == head.next ? head : new IndexedKey(head.hash, head.userName, next);
+    }
+
+    private static byte[] decodeHex(String hex) {
+        String value = hex.trim().toLowerCase(Locale.ENGLISH);
+
+        if (value.length() != 64) {
+            return null;
+        }
+
+        byte[] result = new byte[32];
+
+        for (int i = 0; i < result.length; i++) {
+            int high = Character.digit(value.charAt(i * 2), 16);
+            int low = Character.digit(value.charAt(i * 2 + 1), 16);
+
+            if (high == -1 || low == -1) {
+                return null;
+            }
+
+            result[i] = (byte) ((high << 4) | low);
+        }
+
+        return result;
+    }
+
+    private static class IndexedKey {
+
+        private final byte[] hash;
+        private final String userName;
+        private final IndexedKey next;
+
+        IndexedKey(byte[] hash, String userName, IndexedKey next) {
+            this.hash = hash;
+            this.userName = userName;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.identity;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * Loads the API keys from the identity store (eg.: a table of keys or an attribute of the users). Keys are never loaded in
+ * clear text, only their keyed hash as computed by {@link APIKeyIndex#hash(String)}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public interface APIKeyLoader {
+
+    /**
+     * <p>
+     * Loads the API keys created, changed or revoked since the given time. Implementations unable to track changes may return
+     * all the keys, but revoked keys must then be returned with a null user name.
+     * </p>
+     *
+     * @param since the time in milliseconds of the previous load or 0 for the first one
+     * @return the user name of each key, indexed by the hexadecimal keyed hash of the key. Revoked keys have a null user name.
+     */
+    Map<String, String> loadChanges(long since);
+
+}
@@ -0,0 +1,246 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * {@link IdentityLoader} that gathers the lookups arriving within a short window into a single call to
+ * {@link BulkIdentityLoader#loadAll(java.util.Collection)}.
+ * </p>
+ * <p>
+ * The first caller of a batch waits for the window to elapse, or for the batch to be full, and then executes the bulk lookup
+ * on behalf of all callers of that batch. No additional threads are used. If the delegate does not support bulk lookups
+ * ({@link UnsupportedOperationException}), each key is loaded individually from then on.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class BatchingIdentityLoader<T> implements IdentityLoader<T> {
+
+    private final BulkIdentityLoader<T> delegate;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private Batch<T> currentBatch;
+    private volatile boolean bulkSupported = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedKeys = new AtomicLong();
+
+    /**
+     * @param delegate the loader used to perform the lookups
+     * @param window time in milliseconds to wait for other lookups before executing a batch
+     * @param maxBatchSize maximum number of keys in a batch. A batch is executed as soon as it is full.
+     */
+    public BatchingIdentityLoader(BulkIdentityLoader<T> delegate, long window, int maxBatchSize) {
+        this.delegate = delegate;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.identity.IdentityLoader#load(java.lang.String)
+     */
+    @Override
+    public T load(String key) {
+        if (!this.bulkSupported || this.maxBatchSize <= 1) {
+            return this.delegate.load(key);
+        }
+
+        Batch<T> batch;
+        boolean leader = false;
+
+        synchronized (this.lock) {
+            if (this.currentBatch == null) {
+                this.currentBatch = new Batch<T>(System.nanoTime() + this.windowNanos);
+                leader = true;
+            }
+
+            batch = this.currentBatch;
+            batch.add(key);
+
+            if (batch.size() >= this.maxBatchSize) {
+                // full, no more keys are accepted. The leader is notified to execute it right away.
+                this.currentBatch = null;
+                this.lock.notifyAll();
+            }
+        }
+
+        if (leader) {
+            awaitWindow(batch);
+            execute(batch);
+        }
+
+        return batch.get(key);
+    }
+
+    /**
+     * @return the number of batches executed
+     */
+    public long getBatchCount() {
+        return this.batches.get();
+    }
+
+    /**
+     * @return the number of distinct keys looked up by all batches
+     */
+    public long getBatchedKeyCount() {
+        return this.batchedKeys.get();
+    }
+
+    private void awaitWindow(Batch<T> batch) {
+        boolean interrupted = false;
+
+        synchronized (this.lock) {
+            long remaining = batch.deadline - System.nanoTime();
+
+            while (this.currentBatch == batch && remaining > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this.lock, remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+
+                remaining = batch.deadline - System.nanoTime();
+            }
+
+            if (this.currentBatch == batch) {
+                this.currentBatch = null;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Batch<T> batch) {
+        List<String> keys = batch.getKeys();
+        Map<String, T> identities = null;
+
+        this.batches.incrementAndGet();
+        this.batchedKeys.addAndGet(keys.size());
+
+        try {
+            if (keys.size() > 1 && this.bulkSupported) {
+                try {
+                    identities = this.delegate.loadAll(keys);
+                } catch (UnsupportedOperationException e) {
+                    this.bulkSupported = false;
+                }
+            }
+
+            if (identities == null) {
+                identities = new HashMap<String, T>();
+
+                for (String key : keys) {
+                    identities.put(key, this.delegate.load(key));
+                }
+            }
+
+            batch.complete(identities);
+        } catch (RuntimeException e) {
+            batch.fail(e);
+        } catch (Error e) {
+            batch.fail(e);
+            throw e;
+        }
+    }
+
+    private static class Batch<T> {
+
+        private final long deadline;
+        private final Set<String> keys = new LinkedHashSet<String>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Map<String, T> identities;
+        private volatile Throwable failure;
+
+        Batch(long deadline) {
+            this.deadline = deadline;
+        }
+
+        /**
+         * Called while holding the loader lock, before the batch is executed.
+         */
+        void add(String key) {
+            this.keys.add(key);
+        }
+
+        int size() {
+            return this.keys.size();
+        }
+
+        List<String> getKeys() {
+            return new ArrayList<String>(this.keys);
+        }
+
+        void complete(Map<String, T> identities) {
+            this.identities = identities;
+            this.done.countDown();
+        }
+
+        void fail(Throwable failure) {
+            this.failure = failure;
+            this.done.countDown();
+        }
+
+        T get(String key) {
+            boolean interrupted = false;
+
+            while (true) {
+                try {
+                    this.done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // the lookup is being executed by another request thread, keep waiting for it
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (this.failure instanceof RuntimeException) {
+                throw (RuntimeException) this.failure;
+            }
+
+            if (this.failure instanceof Error) {
+                throw (Error) this.failure;
+            }
+
+            return this.identities.get(key);
+        }
+    }
+}
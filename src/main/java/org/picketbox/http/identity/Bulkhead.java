@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Limits the number of threads calling the identity store at the same time. Callers exceeding the limit wait in a bounded
+ * queue for a limited amount of time. When the queue is full or the wait times out the call is rejected, so that request
+ * threads are not all blocked by a slow identity store.
+ * </p>
+ * <p>
+ * Callers must always {@link #release()} a permit obtained with {@link #acquire()}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class Bulkhead {
+
+    private final Semaphore permits;
+    private final int maxConcurrentCalls;
+    private final int maxQueueSize;
+    private final long maxWait;
+    private final int retryAfter;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong waited = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param maxConcurrentCalls maximum number of concurrent calls to the identity store
+     * @param maxQueueSize maximum number of callers waiting for a permit
+     * @param maxWait maximum time in milliseconds a caller waits for a permit
+     * @param retryAfter time in seconds clients are asked to wait before retrying a rejected call
+     */
+    public Bulkhead(int maxConcurrentCalls, int maxQueueSize, long maxWait, int retryAfter) {
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxQueueSize = maxQueueSize;
+        this.maxWait = maxWait;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * <p>
+     * Obtains a permit to call the identity store.
+     * </p>
+     *
+     * @return true if the permit was obtained, false if the call was rejected
+     */
+    public boolean acquire() {
+        if (this.permits.tryAcquire()) {
+            this.acquired.incrementAndGet();
+            return true;
+        }
+
+        if (this.queueDepth.incrementAndGet() > this.maxQueueSize) {
+            this.queueDepth.decrementAndGet();
+            this.rejected.incrementAndGet();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        boolean permitted = false;
+
+        try {
+            permitted = this.permits.tryAcquire(this.maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.queueDepth.decrementAndGet();
+        }
+
+        recordWait(System.nanoTime() - start);
+
+        if (permitted) {
+            this.acquired.incrementAndGet();
+        } else {
+            this.rejected.incrementAndGet();
+        }
+
+        return permitted;
+    }
+
+    /**
+     * <p>
+     * Releases a permit obtained with {@link #acquire()}.
+     * </p>
+     */
+    public void release() {
+        this.permits.release();
+    }
+
+    /**
+     * @return time in seconds clients are asked to wait before retrying a rejected call
+     */
+    public int getRetryAfter() {
+        return this.retryAfter;
+    }
+
+    /**
+     * @return the number of callers currently waiting for a permit
+     */
+    public int getQueueDepth() {
+        return this.queueDepth.get();
+    }
+
+    /**
+     * @return the number of calls currently in progress
+     */
+    public int getActiveCount() {
+        return this.maxConcurrentCalls - this.permits.availablePermits();
+    }
+
+    /**
+     * @return the number of permits granted so far
+     */
+    public long getAcquiredCount() {
+        return this.acquired.get();
+    }
+
+    /**
+     * @return the number of calls rejected so far
+     */
+    public long getRejectedCount() {
+        return this.rejected.get();
+    }
+
+    /**
+     * @return the average time in milliseconds spent by queued callers waiting for a permit
+     */
+    public double getAverageWaitTime() {
+        long count = this.waited.get();
+
+        if (count == 0) {
+            return 0;
+        }
+
+        return this.totalWaitNanos.get() / (double) count / 1000000;
+    }
+
+    /**
+     * @return the longest time in milliseconds a caller waited for a permit
+     */
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos.get());
+    }
+
+    private void recordWait(long nanos) {
+        this.waited.incrementAndGet();
+        this.totalWaitNanos.addAndGet(nanos);
+
+        long max = this.maxWaitNanos.get();
+
+        while (nanos > max && !this.maxWaitNanos.compareAndSet(max, nanos)) {
+            max = this.maxWaitNanos.get();
+        }
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * <p>
+ * Validates client certificate chains against a set of trust anchors. Anchors and intermediate CAs are indexed by subject key
+ * identifier and by subject DN, so the issuer of each certificate is found with a single probe (using the authority key
+ * identifier of the certificate when present, its issuer DN otherwise) instead of searching all the known CAs. Intermediates
+ * presented by the client are also considered. The path found is then checked with the PKIX {@link CertPathValidator}.
+ * When several CAs could have issued a certificate (eg.: during a key rollover or with cross-signed intermediates), each one
+ * is tried in turn until a valid path is found. Revocation is not checked here, see {@link CertificateRevocationIndex}.
+ * </p>
+ * <p>
+ * Successful validations are cached by the fingerprint of the leaf certificate until the first certificate of the path
+ * expires, so the path is only built and validated once across requests. Once the cache is full, the least recently used
+ * chains are discarded.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class CertificateChainValidator {
+
+    private static final String SUBJECT_KEY_IDENTIFIER = "2.5.29.14";
+    private static final String AUTHORITY_KEY_IDENTIFIER = "2.5.29.35";
+
+    private static final int MAX_PATH_LENGTH = 10;
+
+    /**
+     * Maximum number of candidate issuers tried while building a single path, so a chain with many CAs sharing the same name
+     * can not make the search explode.
+     */
+    private static final int MAX_CANDIDATES = 64;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Map<String, List<X509Certificate>> bySubjectKeyIdentifier = new HashMap<String, List<X509Certificate>>();
+    private final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<X500Principal, List<X509Certificate>>();
+    private final Map<X509Certificate, TrustAnchor> anchors = new HashMap<X509Certificate, TrustAnchor>();
+
+    private final LRUCache<String, Long> validatedChains;
+
+    private final long timeToLive;
+
+    /**
+     * @param trustAnchors the trusted root CAs
+     * @param intermediates the intermediate CAs known by the server
+     * @param timeToLive maximum time in milliseconds a validated chain is cached
+     * @param maxEntries maximum number of validated chains cached
+     */
+    public CertificateChainValidator(Collection<X509Certificate> trustAnchors, Collection<X509Certificate> intermediates,
+            long timeToLive, int maxEntries) {
+        this.timeToLive = timeToLive;
+        this.validatedChains = new LRUCache<String, Long>(maxEntries);
+
+        for (X509Certificate trustAnchor : trustAnchors) {
+            this.anchors.put(trustAnchor, new TrustAnchor(trustAnchor, null));
+            index(trustAnchor);
+        }
+
+        for (X509Certificate intermediate : intermediates) {
+            index(intermediate);
+        }
+    }
+
+    /**
+     * <p>
+     * Creates a validator loading the certificates from files with one or more PEM or DER encoded certificates.
+     * </p>
+     *
+     * @param trustAnchorsFile
+     * @param intermediatesFile the intermediate CAs or null if only the ones presented by the clients are used
+     * @param timeToLive
+     * @param maxEntries
+     * @return
+     */
+    public static CertificateChainValidator load(String trustAnchorsFile, String intermediatesFile, long timeToLive,
+            int maxEntries) {
+        Collection<X509Certificate> intermediates = Collections.emptyList();
+
+        if (intermediatesFile != null) {
+            intermediates = readCertificates(intermediatesFile);
+        }
+
+        return new CertificateChainValidator(readCertificates(trustAnchorsFile), intermediates, timeToLive, maxEntries);
+    }
+
+    /**
+     * <p>
+     * Checks if the given chain leads to a trust anchor.
+     * </p>
+     *
+     * @param chain the certificates presented by the client, starting with its own certificate
+     * @param leafFingerprint the SHA-256 fingerprint of the client certificate, used to cache the result
+     * @return
+     */
+    public boolean isTrusted(X509Certificate[] chain, byte[] leafFingerprint) {
+        String key = toHex(leafFingerprint);
+        Long expiresAt = this.validatedChains.get(key);
+        long now = System.currentTimeMillis();
+
+        if (expiresAt != null) {
+            if (now < expiresAt) {
+                return true;
+            }
+
+            this.validatedChains.remove(key, expiresAt);
+        }
+
+        List<X509Certificate> path = new ArrayList<X509Certificate>();
+
+        path.add(chain[0]);
+
+        TrustAnchor anchor = buildPath(path, chain, new int[] { MAX_CANDIDATES });
+
+        if (anchor == null) {
+            return false;
+        }
+
+        cache(key, path, anchor.getTrustedCert(), now);
+
+        return true;
+    }
+
+    /**
+     * @return the number of validated chains cached
+     */
+    public int size() {
+        return this.validatedChains.size();
+    }
+
+    /**
+     * Extends the given path, depth first, until it reaches a trust anchor and passes the PKIX validation. Returns the anchor
+     * or null if no valid path was found, in which case the path is left as it was.
+     */
+    private TrustAnchor buildPath(List<X509Certificate> path, X509Certificate[] chain, int[] remainingCandidates) {
+        X509Certificate current = path.get(path.size() - 1);
+
+        for (X509Certificate issuer : findIssuers(current, chain)) {
+            if (remainingCandidates[0]-- <= 0) {
+                return null;
+            }
+
+            if (path.contains(issuer)) {
+                continue;
+            }
+
+            TrustAnchor anchor = this.anchors.get(issuer);
+
+            if (anchor != null) {
+                if (validate(path, anchor)) {
+                    return anchor;
+                }
+
+                continue;
+            }
+
+            if (path.size() < MAX_PATH_LENGTH) {
+                path.add(issuer);
+
+                anchor = buildPath(path, chain, remainingCandidates);
+
+                if (anchor != null) {
+                    return anchor;
+                }
+
+                path.remove(path.size() - 1);
+            }
+        }
+
+        return null;
+    }
+
+    private List<X509Certificate> findIssuers(X509Certificate certificate, X509Certificate[] chain) {
+        byte[] authorityKeyIdentifier = getAuthorityKeyIdentifier(certificate);
+        X500Principal issuerName = certificate.getIssuerX500Principal();
+        List<X509Certificate> candidates = null;
+        List<X509Certificate> issuers = new ArrayList<X509Certificate>(1);
+
+        if (authorityKeyIdentifier != null) {
+            candidates = this.bySubjectKeyIdentifier.get(toHex(authorityKeyIdentifier));
+        }
+
+        if (candidates == null) {
+            candidates = this.bySubject.get(issuerName);
+        }
+
+        if (candidates != null) {
+            for (X509Certificate candidate : candidates) {
+                if (isIssuer(candidate, issuerName, authorityKeyIdentifier)) {
+                    issuers.add(candidate);
+                }
+            }
+        }
+
+        // intermediates presented by the client, the path still has to end in a known anchor
+        for (int i = 1; i < chain.length; i++) {
+            if (isIssuer(chain[i], issuerName, authorityKeyIdentifier) && !issuers.contains(chain[i])) {
+                issuers.add(chain[i]);
+            }
+        }
+
+        return issuers;
+    }
+
+    private boolean isIssuer(X509Certificate candidate, X500Principal issuerName, byte[] authorityKeyIdentifier) {
+        if (!candidate.getSubjectX500Principal().equals(issuerName)) {
+            return false;
+        }
+
+        byte[] subjectKeyIdentifier = getSubjectKeyIdentifier(candidate);
+
+        return authorityKeyIdentifier == null || subjectKeyIdentifier == null
+                || Arrays.equals(authorityKeyIdentifier, subjectKeyIdentifier);
+    }
+
+    private boolean validate(List<X509Certificate> path, TrustAnchor anchor) {
+        try {
+            CertPath certPath = CertificateFactory.getInstance("X.509").generateCertPath(path);
+            PKIXParameters parameters = new PKIXParameters(Collections.singleton(anchor));
+
+            parameters.setRevocationEnabled(false);
+
+            CertPathValidator.getInstance("PKIX").validate(certPath, parameters);
+
+            return true;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private void cache(String key, List<X509Certificate> path, X509Certificate anchor, long now) {
+        long expiresAt = Math.min(now + this.timeToLive, anchor.getNotAfter().getTime());
+
+        for (X509Certificate certificate : path) {
+            expiresAt = Math.min(expiresAt, certificate.getNotAfter().getTime());
+        }
+
+        this.validatedChains.put(key, expiresAt);
+    }
+
+    private void index(X509Certificate certificate) {
+        byte[] subjectKeyIdentifier = getSubjectKeyIdentifier(certificate);
+
+        if (subjectKeyIdentifier != null) {
+            add(this.bySubjectKeyIdentifier, toHex(subjectKeyIdentifier), certificate);
+        }
+
+        add(this.bySubject, certificate.getSubjectX500Principal(), certificate);
+    }
+
+    private static <K> void add(Map<K, List<X509Certificate>> index, K key, X509Certificate certificate) {
+        List<X509Certificate> certificates = index.get(key);
+
+        if (certificates == null) {
+            certificates = new ArrayList<X509Certificate>(1);
+            index.put(key, certificates);
+        }
+
+        certificates.add(certificate);
+    }
+
+    /*
+     * SubjectKeyIdentifier ::= KeyIdentifier (OCTET STRING)
+     */
+    private static byte[] getSubjectKeyIdentifier(X509Certificate certificate) {
+        byte[] extension = certificate.getExtensionValue(SUBJECT_KEY_IDENTIFIER);
+
+        if (extension == null) {
+            return null;
+        }
+
+        try {
+            return new DERReader(new DERReader(extension).readValue(0x04)).readValue(0x04);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /*
+     * AuthorityKeyIdentifier ::= SEQUENCE { keyIdentifier [0] IMPLICIT KeyIdentifier OPTIONAL, ... }
+     */
+    private static byte[] getAuthorityKeyIdentifier(X509Certificate certificate) {
+        byte[] extension = certificate.getExtensionValue(AUTHORITY_KEY_IDENTIFIER);
+
+        if (extension == null) {
+            return null;
+        }
+
+        try {
+            DERReader authorityKeyIdentifier = new DERReader(new DERReader(extension).readValue(0x04)).read(0x30);
+
+            if (authorityKeyIdentifier.hasMore() && authorityKeyIdentifier.peekTag() == 0x80) {
+                return authorityKeyIdentifier.readValue(0x80);
+            }
+        } catch (IllegalArgumentException e) {
+            // malformed extension, fall back to the issuer DN
+        }
+
+        return null;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+
+        return new String(hex);
+    }
+
+    private static Collection<X509Certificate> readCertificates(String fileName) {
+        InputStream input = null;
+
+        try {
+            input = new FileInputStream(new File(fileName));
+
+            List<X509Certificate> certificates = new ArrayList<X509Certificate>();
+
+            for (Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(input)) {
+                certificates.add((X509Certificate) certificate);
+            }
+
+            return certificates;
+        } catch (IOException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.errorDecodingFromFile(fileName, e);
+        } catch (GeneralSecurityException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.errorDecodingFromFile(fileName, e);
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * <p>
+ * Immutable index mapping SHA-256 certificate fingerprints to the user owning the certificate. It is designed to hold
+ * hundreds of thousands of entries: fingerprints are stored inline in a single <code>long</code> array using open addressing
+ * with linear probing, so the index needs no per-entry objects and a lookup is a few array reads. Equal user names share
+ * the same instance.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class CertificateFingerprintIndex {
+
+    /**
+     * Length in bytes of a SHA-256 fingerprint
+     */
+    public static final int FINGERPRINT_LENGTH = 32;
+
+    private static final int WORDS = FINGERPRINT_LENGTH / 8;
+
+    private final long[] fingerprints;
+    private final String[] userNames;
+    private final int mask;
+    private final int size;
+
+    /**
+     * @param mappings the user names indexed by the hex encoded fingerprint of their certificates. Bytes may be separated by
+     *        colons, like in the output of <code>openssl x509 -fingerprint -sha256</code>.
+     */
+    public CertificateFingerprintIndex(Map<String, String> mappings) {
+        int capacity = 2;
+
+        // keep the load factor under 0.75 so probe sequences stay short
+        while (capacity * 3 < mappings.size() * 4) {
+            capacity <<= 1;
+        }
+
+        this.fingerprints = new long[capacity * WORDS];
+        this.userNames = new String[capacity];
+        this.mask = capacity - 1;
+
+        Map<String, String> sharedNames = new HashMap<String, String>();
+        int size = 0;
+
+        for (Entry<String, String> mapping : mappings.entrySet()) {
+            String userName = mapping.getValue();
+            String sharedName = sharedNames.get(userName);
+
+            if (sharedName == null) {
+                sharedNames.put(userName, userName);
+                sharedName = userName;
+            }
+
+            if (put(decode(mapping.getKey()), sharedName)) {
+                size++;
+            }
+        }
+
+        this.size = size;
+    }
+
+    /**
+     * <p>
+     * Loads the index from a file with one <code>fingerprint=userName</code> line per certificate. Empty lines and lines
+     * starting with <code>#</code> are ignored.
+     * </p>
+     *
+     * @param fileName
+     * @return
+     */
+    public static CertificateFingerprintIndex load(String fileName) {
+        Map<String, String> mappings = new HashMap<String, String>();
+        BufferedReader reader = null;
+
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(new File(fileName)), "UTF-8"));
+
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+
+                if (line.length() == 0 || line.charAt(0) == '#') {
+                    continue;
+                }
+
+                int separator = line.indexOf('=');
+
+                if (separator == -1) {
+                    throw PicketBoxHTTPMessages.MESSAGES.invalidCertificateFingerprint(line);
+                }
+
+                mappings.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+            }
+        } catch (IOException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.errorDecodingFromFile(fileName, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+
+        return new CertificateFingerprintIndex(mappings);
+    }
+
+    /**
+     * <p>
+     * Returns the user owning the certificate with the given fingerprint.
+     * </p>
+     *
+     * @param fingerprint the SHA-256 digest of the DER encoded certificate
+     * @return the user name or null if the certificate is not mapped
+     */
+    public String getUserName(byte[] fingerprint) {
+        if (fingerprint.length != FINGERPRINT_LENGTH) {
+            return null;
+        }
+
+        long w0 = readWord(fingerprint, 0);
+        long w1 = readWord(fingerprint, 8);
+        long w2 = readWord(fingerprint, 16);
+        long w3 = readWord(fingerprint, 24);
+
+        for (int slot = getSlot(w0);; slot = (slot + 1) & this.mask) {
+            String userName = this.userNames[slot];
+
+            if (userName == null) {
+                return null;
+            }
+
+            int offset = slot * WORDS;
+
+            if (this.fingerprints[offset] == w0 && this.fingerprints[offset + 1] == w1
+                    && this.fingerprints[offset + 2] == w2 && this.fingerprints[offset + 3] == w3) {
+                return userName;
+            }
+        }
+    }
+
+    /**
+     * @return the number of mapped certificates
+     */
+    public int size() {
+        return this.size;
+    }
+
+    private boolean put(long[] words, String userName) {
+        for (int slot = getSlot(words[0]);; slot = (slot + 1) & this.mask) {
+            int offset = slot * WORDS;
+
+            if (this.userNames[slot] == null) {
+                System.arraycopy(words, 0, this.fingerprints, offset, WORDS);
+                this.userNames[slot] = userName;
+                return true;
+            }
+
+            if (this.fingerprints[offset] == words[0] && this.fingerprints[offset + 1] == words[1]
+                    && this.fingerprints[offset + 2] == words[2] && this.fingerprints[offset + 3] == words[3]) {
+                this.userNames[slot] = userName;
+                return false;
+            }
+        }
+    }
+
+    private int getSlot(long firstWord) {
+        // fingerprints are uniformly distributed, so their leading bits are already a good hash
+        return (int) (firstWord ^ (firstWord >>> 32)) & this.mask;
+    }
+
+    private static long readWord(byte[] bytes, int offset) {
+        long word = 0;
+
+        for (int i = offset; i < offset + 8; i++) {
+            word = (word << 8) | (bytes[i] & 0xFF);
+        }
+
+        return word;
+    }
+
+    private static long[] decode(String fingerprint) {
+        byte[] bytes = new byte[FINGERPRINT_LENGTH];
+        int length = 0;
+        int i = 0;
+
+        while (i < fingerprint.length()) {
+            if (fingerprint.charAt(i) == ':') {
+                i++;
+                continue;
+            }
+
+            int high = Character.digit(fingerprint.charAt(i), 16);
+            int low = i + 1 < fingerprint.length() ? Character.digit(fingerprint.charAt(i + 1), 16) : -1;
+
+            if (high < 0 || low < 0 || length == FINGERPRINT_LENGTH) {
+                throw PicketBoxHTTPMessages.MESSAGES.invalidCertificateFingerprint(fingerprint);
+            }
+
+            bytes[length++] = (byte) ((high << 4) | low);
+            i += 2;
+        }
+
+        if (length != FINGERPRINT_LENGTH) {
+            throw PicketBoxHTTPMessages.MESSAGES.invalidCertificateFingerprint(fingerprint);
+        }
+
+        long[] words = new long[WORDS];
+
+        for (int word = 0; word < WORDS; word++) {
+            words[word] = readWord(bytes, word * 8);
+        }
+
+        return words;
+    }
+}
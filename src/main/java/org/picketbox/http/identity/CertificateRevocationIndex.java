@@ -0,0 +1,476 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CRL;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.picketbox.http.PicketBoxHTTPLogger;
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * <p>
+ * In-memory index of revoked certificates, keyed by serial number. It is loaded from local files holding either CRLs (PEM or
+ * DER) or DER encoded OCSP responses, like the ones stapled by a TLS terminator, so checking a certificate is a single probe
+ * in the index and no network call is made during authentication.
+ * </p>
+ * <p>
+ * The files are read again in background when any of them is modified. The new index is fully built before replacing the
+ * current one, so lookups never see a partially loaded index. Files are expected to be provisioned by the administrator from
+ * a trusted source: their signatures are not verified.
+ * </p>
+ * <p>
+ * CRLs and OCSP responses are only valid until their next update time. Once the earliest of them has passed without the
+ * files being replaced, a warning is logged and, if the index was created to reject on stale data, every certificate is
+ * considered revoked until fresh files are loaded.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class CertificateRevocationIndex {
+
+    private static final byte[] OCSP_BASIC_RESPONSE = { 0x2B, 0x06, 0x01, 0x05, 0x05, 0x07, 0x30, 0x01, 0x01 };
+    private static final byte[] SHA1 = { 0x2B, 0x0E, 0x03, 0x02, 0x1A };
+    private static final byte[] SHA256 = { 0x60, (byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x01 };
+
+    private static final int SEQUENCE = 0x30;
+    private static final int INTEGER = 0x02;
+    private static final int OCTET_STRING = 0x04;
+    private static final int OBJECT_IDENTIFIER = 0x06;
+    private static final int ENUMERATED = 0x0A;
+    private static final int GENERALIZED_TIME = 0x18;
+    private static final int CONTEXT_0 = 0xA0;
+    private static final int OCSP_REVOKED = 0xA1;
+    private static final long MAX_CLOCK_SKEW = 5 * 60 * 1000;
+
+    private final List<String> fileNames;
+    private final boolean rejectWhenStale;
+    private final ScheduledExecutorService refreshExecutor;
+
+    private volatile Map<BigInteger, RevokedCertificate> revoked;
+    private volatile long nextUpdate;
+    private volatile String nextUpdateFileName;
+    private volatile boolean staleWarned;
+    private long[] lastModified;
+
+    /**
+     * @param fileNames the CRL or OCSP response files
+     * @param refreshInterval how often, in milliseconds, the files are checked for changes. Zero disables the background
+     *        refresh.
+     */
+    public CertificateRevocationIndex(List<String> fileNames, long refreshInterval) {
+        this(fileNames, refreshInterval, false);
+    }
+
+    /**
+     * @param fileNames the CRL or OCSP response files
+     * @param refreshInterval how often, in milliseconds, the files are checked for changes. Zero disables the background
+     *        refresh.
+     * @param rejectWhenStale if every certificate should be considered revoked once the next update time of any file has
+     *        passed
+     */
+    public CertificateRevocationIndex(List<String> fileNames, long refreshInterval, boolean rejectWhenStale) {
+        this.fileNames = fileNames;
+        this.rejectWhenStale = rejectWhenStale;
+
+        refresh();
+
+        if (refreshInterval > 0) {
+            this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "PicketBox Revocation Refresh");
+
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            });
+
+            this.refreshExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (RuntimeException e) {
+                        // keep the current index, the files are read again on the next refresh
+                        PicketBoxHTTPLogger.LOGGER.warnReloadFailed("revoked certificates", e);
+                    }
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.refreshExecutor = null;
+        }
+    }
+
+    /**
+     * <p>
+     * Checks if the given certificate was revoked by its issuer.
+     * </p>
+     *
+     * @param certificate
+     * @return
+     */
+    public boolean isRevoked(X509Certificate certificate) {
+        if (isStale()) {
+            if (!this.staleWarned) {
+                this.staleWarned = true;
+                PicketBoxHTTPLogger.LOGGER.warnStaleRevocationData(this.nextUpdateFileName, new Date(this.nextUpdate));
+            }
+
+            if (this.rejectWhenStale) {
+                return true;
+            }
+        }
+
+        RevokedCertificate entry = this.revoked.get(certificate.getSerialNumber());
+
+        if (entry == null) {
+            return false;
+        }
+
+        // serial numbers are only unique per issuer, check the issuer of each match
+        byte[] issuer = certificate.getIssuerX500Principal().getEncoded();
+
+        for (; entry != null; entry = entry.next) {
+            if (MessageDigest.isEqual(entry.issuerNameHash, digest(entry.algorithm, issuer))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if the next update time of any of the loaded files has passed
+     */
+    public boolean isStale() {
+        return System.currentTimeMillis() > this.nextUpdate;
+    }
+
+    /**
+     * <p>
+     * Reads the files again if any of them was modified since the previous read.
+     * </p>
+     */
+    public synchronized void refresh() {
+        long[] modified = new long[this.fileNames.size()];
+
+        for (int i = 0; i < modified.length; i++) {
+            modified[i] = new File(this.fileNames.get(i)).lastModified();
+        }
+
+        if (Arrays.equals(modified, this.lastModified)) {
+            return;
+        }
+
+        Map<BigInteger, RevokedCertificate> revoked = new HashMap<BigInteger, RevokedCertificate>();
+        long nextUpdate = Long.MAX_VALUE;
+        String nextUpdateFileName = null;
+
+        for (String fileName : this.fileNames) {
+            long fileNextUpdate = load(fileName, revoked);
+
+            if (fileNextUpdate < nextUpdate) {
+                nextUpdate = fileNextUpdate;
+                nextUpdateFileName = fileName;
+            }
+        }
+
+        this.revoked = revoked;
+        this.nextUpdateFileName = nextUpdateFileName;
+        this.nextUpdate = nextUpdate;
+        this.staleWarned = false;
+        this.lastModified = modified;
+    }
+
+    /**
+     * @return the number of revoked certificates
+     */
+    public int size() {
+        int size = 0;
+
+        for (RevokedCertificate entry : this.revoked.values()) {
+            for (; entry != null; entry = entry.next) {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * <p>
+     * Stops the background refresh.
+     * </p>
+     */
+    public void close() {
+        if (this.refreshExecutor != null) {
+            this.refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the revoked certificates from the given file and returns the earliest next update time found in it.
+     */
+    private long load(String fileName, Map<BigInteger, RevokedCertificate> revoked) {
+        byte[] content = readFile(fileName);
+
+        try {
+            if (isOCSPResponse(content)) {
+                return loadOCSPResponse(content, revoked);
+            } else {
+                return loadCRLs(content, revoked);
+            }
+        } catch (GeneralSecurityException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.errorDecodingFromFile(fileName, e);
+        } catch (RuntimeException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.errorDecodingFromFile(fileName, e);
+        }
+    }
+
+    private long loadCRLs(byte[] content, Map<BigInteger, RevokedCertificate> revoked) throws GeneralSecurityException {
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        long nextUpdate = Long.MAX_VALUE;
+
+        for (CRL crl : factory.generateCRLs(new ByteArrayInputStream(content))) {
+            X509CRL x509CRL = (X509CRL) crl;
+
+            if (x509CRL.getNextUpdate() != null) {
+                nextUpdate = Math.min(nextUpdate, x509CRL.getNextUpdate().getTime());
+            }
+
+            if (x509CRL.getRevokedCertificates() == null) {
+                continue;
+            }
+
+            byte[] crlIssuerHash = digest("SHA-1", x509CRL.getIssuerX500Principal().getEncoded());
+
+            for (X509CRLEntry entry : x509CRL.getRevokedCertificates()) {
+                X500Principal certificateIssuer = entry.getCertificateIssuer();
+                byte[] issuerHash = crlIssuerHash;
+
+                // entries of indirect CRLs name the issuer of the revoked certificate
+                if (certificateIssuer != null) {
+                    issuerHash = digest("SHA-1", certificateIssuer.getEncoded());
+                }
+
+                put(revoked, entry.getSerialNumber(), "SHA-1", issuerHash);
+            }
+        }
+
+        return nextUpdate;
+    }
+
+    /*
+     * OCSPResponse ::= SEQUENCE { responseStatus ENUMERATED, responseBytes [0] EXPLICIT SEQUENCE { responseType OID,
+     * response OCTET STRING } }, where response is a BasicOCSPResponse (RFC 6960).
+     */
+    private long loadOCSPResponse(byte[] content, Map<BigInteger, RevokedCertificate> revoked) {
+        DERReader response = new DERReader(content).read(SEQUENCE);
+
+        byte[] status = response.readValue(ENUMERATED);
+
+        if (status.length != 1 || status[0] != 0) {
+            throw new IllegalArgumentException("Unsuccessful OCSP response status " + new BigInteger(status));
+        }
+
+        DERReader responseBytes = response.read(CONTEXT_0).read(SEQUENCE);
+
+        if (!Arrays.equals(OCSP_BASIC_RESPONSE, responseBytes.readValue(OBJECT_IDENTIFIER))) {
+            throw new IllegalArgumentException("Unsupported OCSP response type");
+        }
+
+        byte[] basicResponse = responseBytes.readValue(OCTET_STRING);
+        DERReader responseData = new DERReader(basicResponse).read(SEQUENCE).read(SEQUENCE);
+
+        if (responseData.peekTag() == CONTEXT_0) {
+            responseData.skip();
+        }
+
+        responseData.skip(); // responderID
+        responseData.skip(); // producedAt
+
+        DERReader responses = responseData.read(SEQUENCE);
+        long nextUpdate = Long.MAX_VALUE;
+
+        while (responses.hasMore()) {
+            DERReader singleResponse = responses.read(SEQUENCE);
+            DERReader certID = singleResponse.read(SEQUENCE);
+            byte[] hashAlgorithm = certID.read(SEQUENCE).readValue(OBJECT_IDENTIFIER);
+            byte[] issuerNameHash = certID.readValue(OCTET_STRING);
+
+            certID.skip(); // issuerKeyHash
+
+            BigInteger serialNumber = new BigInteger(certID.readValue(INTEGER));
+            String algorithm;
+
+            // an entry that can not be matched must not be ignored, it could be the one revoking the certificate
+            if (Arrays.equals(SHA1, hashAlgorithm)) {
+                algorithm = "SHA-1";
+            } else if (Arrays.equals(SHA256, hashAlgorithm)) {
+                algorithm = "SHA-256";
+            } else {
+                throw new IllegalArgumentException("Unsupported OCSP certificate ID hash algorithm");
+            }
+
+            boolean isRevoked = singleResponse.peekTag() == OCSP_REVOKED;
+
+            singleResponse.skip(); // certStatus
+
+            long thisUpdate = parseGeneralizedTime(singleResponse.readValue(GENERALIZED_TIME));
+
+            if (thisUpdate > System.currentTimeMillis() + MAX_CLOCK_SKEW) {
+                throw new IllegalArgumentException("OCSP response is not valid before " + new Date(thisUpdate));
+            }
+
+            if (singleResponse.hasMore() && singleResponse.peekTag() == CONTEXT_0) {
+                nextUpdate = Math.min(nextUpdate,
+                        parseGeneralizedTime(singleResponse.read(CONTEXT_0).readValue(GENERALIZED_TIME)));
+            }
+
+            if (isRevoked) {
+                put(revoked, serialNumber, algorithm, issuerNameHash);
+            }
+        }
+
+        return nextUpdate;
+    }
+
+    private static long parseGeneralizedTime(byte[] value) {
+        String time = new String(value, Charset.forName("US-ASCII"));
+
+        if (time.length() < 15 || !time.endsWith("Z")) {
+            throw new IllegalArgumentException("Unsupported GeneralizedTime " + time);
+        }
+
+        // fractional seconds, if any, are ignored
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+
+        try {
+            return format.parse(time.substring(0, 14)).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Unsupported GeneralizedTime " + time, e);
+        }
+    }
+
+    private boolean isOCSPResponse(byte[] content) {
+        // CRLs start with a SEQUENCE (tbsCertList) and OCSP responses with the ENUMERATED response status
+        try {
+            DERReader reader = new DERReader(content);
+
+            return reader.peekTag() == SEQUENCE && reader.read(SEQUENCE).peekTag() == ENUMERATED;
+        } catch (RuntimeException e) {
+            // not DER, probably a PEM encoded CRL
+            return false;
+        }
+    }
+
+    private void put(Map<BigInteger, RevokedCertificate> revoked, BigInteger serialNumber, String algorithm,
+            byte[] issuerNameHash) {
+        revoked.put(serialNumber, new RevokedCertificate(algorithm, issuerNameHash, revoked.get(serialNumber)));
+    }
+
+    private byte[] readFile(String fileName) {
+        File file = new File(fileName);
+        InputStream input = null;
+
+        try {
+            input = new FileInputStream(file);
+
+            byte[] content = new byte[(int) file.length()];
+            int read = 0;
+
+            while (read < content.length) {
+                int count = input.read(content, read, content.length - read);
+
+                if (count == -1) {
+                    break;
+                }
+
+                read += count;
+            }
+
+            return read == content.length ? content : Arrays.copyOf(content, read);
+        } catch (IOException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.errorDecodingFromFile(fileName, e);
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+
+    private static byte[] digest(String algorithm, byte[] value) {
+        try {
+            return MessageDigest.getInstance(algorithm).digest(value);
+        } catch (NoSuchAlgorithmException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+    }
+
+    private static class RevokedCertificate {
+        private final String algorithm;
+        private final byte[] issuerNameHash;
+        private final RevokedCertificate next;
+
+        RevokedCertificate(String algorithm, byte[] issuerNameHash, RevokedCertificate next) {
+            this.algorithm = algorithm;
+            this.issuerNameHash = issuerNameHash;
+            this.next = next;
+        }
+    }
+}
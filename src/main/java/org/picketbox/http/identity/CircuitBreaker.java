@@ -0,0 +1,259 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Circuit breaker for the calls to the identity store.
+ * </p>
+ * <p>
+ * While <code>CLOSED</code> all calls are allowed and their outcome is recorded in a rolling window. When the window has
+ * enough calls and the rate of failed or slow calls exceeds the configured thresholds the circuit becomes <code>OPEN</code>
+ * and calls are rejected without reaching the identity store. After the open duration the circuit becomes
+ * <code>HALF_OPEN</code> and a limited number of trial calls is allowed: if all succeed the circuit is closed again,
+ * otherwise it is opened again.
+ * </p>
+ * <p>
+ * Callers must report the outcome of every allowed call using {@link #onSuccess(long)} or {@link #onFailure(long)}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int BUCKETS = 10;
+
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final int minimumCalls;
+    private final long openDuration;
+    private final int halfOpenCalls;
+
+    private final long bucketDuration;
+    private final Bucket[] buckets = new Bucket[BUCKETS];
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    /**
+     * @param failureRateThreshold percentage of failed calls that opens the circuit
+     * @param slowCallRateThreshold percentage of slow calls that opens the circuit
+     * @param slowCallDuration time in milliseconds after which a call is considered slow
+     * @param minimumCalls minimum number of calls in the window before the rates are evaluated
+     * @param window duration in milliseconds of the rolling window
+     * @param openDuration time in milliseconds the circuit stays open before allowing trial calls
+     * @param halfOpenCalls number of trial calls allowed while half-open
+     */
+    public CircuitBreaker(int failureRateThreshold, int slowCallRateThreshold, long slowCallDuration, int minimumCalls,
+            long window, long openDuration, int halfOpenCalls) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDuration);
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.bucketDuration = Math.max(1, window / BUCKETS);
+
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * <p>
+     * Checks if a call to the identity store is allowed.
+     * </p>
+     *
+     * @return true if the call can proceed
+     */
+    public synchronized boolean allowRequest() {
+        if (this.state == State.OPEN) {
+            if (System.currentTimeMillis() - this.openedAt < this.openDuration) {
+                this.rejected.incrementAndGet();
+                return false;
+            }
+
+            this.state = State.HALF_OPEN;
+            this.halfOpenInFlight = 0;
+            this.halfOpenSucceeded = 0;
+        }
+
+        if (this.state == State.HALF_OPEN) {
+            if (this.halfOpenInFlight >= this.halfOpenCalls) {
+                this.rejected.incrementAndGet();
+                return false;
+            }
+
+            this.halfOpenInFlight++;
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>
+     * Records a call that completed without errors.
+     * </p>
+     *
+     * @param durationNanos
+     */
+    public synchronized void onSuccess(long durationNanos) {
+        record(false, durationNanos >= this.slowCallDurationNanos);
+    }
+
+    /**
+     * <p>
+     * Records a call that failed.
+     * </p>
+     *
+     * @param durationNanos
+     */
+    public synchronized void onFailure(long durationNanos) {
+        record(true, durationNanos >= this.slowCallDurationNanos);
+    }
+
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    /**
+     * @return time in milliseconds until trial calls are allowed, or zero if the circuit is not open
+     */
+    public synchronized long getRemainingOpenTime() {
+        if (this.state != State.OPEN) {
+            return 0;
+        }
+
+        return Math.max(0, this.openDuration - (System.currentTimeMillis() - this.openedAt));
+    }
+
+    /**
+     * @return the number of calls rejected so far
+     */
+    public long getRejectedCount() {
+        return this.rejected.get();
+    }
+
+    /**
+     * @return how many times the circuit was opened
+     */
+    public long getOpenedCount() {
+        return this.opened.get();
+    }
+
+    private void record(boolean failure, boolean slow) {
+        if (this.state == State.HALF_OPEN) {
+            // calls started before the circuit opened may complete now, never go below zero
+            this.halfOpenInFlight = Math.max(0, this.halfOpenInFlight - 1);
+
+            if (failure || slow) {
+                open();
+            } else if (++this.halfOpenSucceeded >= this.halfOpenCalls) {
+                close();
+            }
+
+            return;
+        }
+
+        if (this.state == State.OPEN) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long epoch = now / this.bucketDuration;
+        Bucket bucket = this.buckets[(int) (epoch % BUCKETS)];
+
+        if (bucket.epoch != epoch) {
+            bucket.reset(epoch);
+        }
+
+        bucket.calls++;
+
+        if (failure) {
+            bucket.failures++;
+        }
+
+        if (slow) {
+            bucket.slowCalls++;
+        }
+
+        long calls = 0;
+        long failures = 0;
+        long slowCalls = 0;
+
+        for (Bucket current : this.buckets) {
+            if (epoch - current.epoch < BUCKETS) {
+                calls += current.calls;
+                failures += current.failures;
+                slowCalls += current.slowCalls;
+            }
+        }
+
+        if (calls >= this.minimumCalls
+                && (failures * 100 >= this.failureRateThreshold * calls || slowCalls * 100 >= this.slowCallRateThreshold * calls)) {
+            open();
+        }
+    }
+
+    private void open() {
+        this.state = State.OPEN;
+        this.openedAt = System.currentTimeMillis();
+        this.opened.incrementAndGet();
+    }
+
+    private void close() {
+        this.state = State.CLOSED;
+
+        for (Bucket bucket : this.buckets) {
+            bucket.reset(-BUCKETS);
+        }
+    }
+
+    private static class Bucket {
+
+        private long epoch = -BUCKETS;
+        private long calls;
+        private long failures;
+        private long slowCalls;
+
+        void reset(long epoch) {
+            this.epoch = epoch;
+            this.calls = 0;
+            this.failures = 0;
+            this.slowCalls = 0;
+        }
+    }
+}
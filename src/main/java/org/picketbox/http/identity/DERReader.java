@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Minimal reader of DER encoded structures, enough to walk OCSP responses and certificate extensions.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+class DERReader {
+
+    private final byte[] data;
+    private final int end;
+    private int position;
+
+    DERReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    DERReader(byte[] data, int offset, int end) {
+        this.data = data;
+        this.position = offset;
+        this.end = end;
+    }
+
+    boolean hasMore() {
+        return this.position < this.end;
+    }
+
+    int peekTag() {
+        if (!hasMore()) {
+            throw new IllegalArgumentException("Unexpected end of DER structure");
+        }
+
+        return this.data[this.position] & 0xFF;
+    }
+
+    DERReader read(int tag) {
+        int length = readHeader(tag);
+        DERReader content = new DERReader(this.data, this.position, this.position + length);
+
+        this.position += length;
+
+        return content;
+    }
+
+    byte[] readValue(int tag) {
+        int length = readHeader(tag);
+        byte[] value = Arrays.copyOfRange(this.data, this.position, this.position + length);
+
+        this.position += length;
+
+        return value;
+    }
+
+    void skip() {
+        int length = readHeader(peekTag());
+
+        this.position += length;
+    }
+
+    private int readHeader(int tag) {
+        if (peekTag() != tag) {
+            throw new IllegalArgumentException("Unexpected DER tag " + peekTag() + ", expected " + tag);
+        }
+
+        this.position++;
+
+        if (!hasMore()) {
+            throw new IllegalArgumentException("Unexpected end of DER structure");
+        }
+
+        int length = this.data[this.position++] & 0xFF;
+
+        if (length > 0x80 && length <= 0x84) {
+            int lengthBytes = length - 0x80;
+
+            length = 0;
+
+            for (int i = 0; i < lengthBytes; i++) {
+                if (!hasMore()) {
+                    throw new IllegalArgumentException("Unexpected end of DER structure");
+                }
+
+                length = (length << 8) | (this.data[this.position++] & 0xFF);
+            }
+        } else if (length >= 0x80) {
+            throw new IllegalArgumentException("Unsupported DER length");
+        }
+
+        if (length < 0 || this.position + length > this.end) {
+            throw new IllegalArgumentException("Invalid DER length");
+        }
+
+        return length;
+    }
+}
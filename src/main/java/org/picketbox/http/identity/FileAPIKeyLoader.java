@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.identity;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * <p>
+ * {@link APIKeyLoader} that reads the keys from a properties file, with one <code>hash=userName</code> line per key. The
+ * file is only read again when it is modified and just the keys added, changed or removed since the previous read are
+ * returned.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class FileAPIKeyLoader implements APIKeyLoader {
+
+    private final File file;
+
+    private Map<String, String> keys = Collections.emptyMap();
+    private long lastModified = -1;
+
+    public FileAPIKeyLoader(String fileName) {
+        this.file = new File(fileName);
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.identity.APIKeyLoader#loadChanges(long)
+     */
+    @Override
+    public synchronized Map<String, String> loadChanges(long since) {
+        long modified = this.file.lastModified();
+
+        if (modified == this.lastModified) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> currentKeys = readKeys();
+        Map<String, String> changes = new HashMap<String, String>();
+
+        for (Entry<String, String> entry : currentKeys.entrySet()) {
+            if (!entry.getValue().equals(this.keys.get(entry.getKey()))) {
+                changes.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (String hash : this.keys.keySet()) {
+            if (!currentKeys.containsKey(hash)) {
+                changes.put(hash, null);
+            }
+        }
+
+        this.keys = currentKeys;
+        this.lastModified = modified;
+
+        return changes;
+    }
+
+    private Map<String, String> readKeys() {
+        if (!this.file.exists()) {
+            return Collections.emptyMap();
+        }
+
+        Properties properties = new Properties();
+        InputStream input = null;
+
+        try {
+            input = new FileInputStream(this.file);
+            properties.load(input);
+        } catch (IOException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.errorDecodingFromFile(this.file.getPath(), e);
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+
+        Map<String, String> keys = new HashMap<String, String>();
+
+        for (String hash : properties.stringPropertyNames()) {
+            keys.put(hash.trim(), properties.getProperty(hash).trim());
+        }
+
+        return keys;
+    }
+}
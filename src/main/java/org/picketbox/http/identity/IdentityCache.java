@@ -0,0 +1,236 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import static org.picketbox.http.PicketBoxHTTPLogger.LOGGER;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Stale-while-revalidate cache for identities loaded from the identity store.
+ * </p>
+ * <p>
+ * Entries younger than the soft time to live are returned as they are. Entries older than the soft time to live but younger
+ * than the hard time to live are also returned immediately, but a refresh is scheduled in background so that the next
+ * callers get a fresh value. Only entries older than the hard time to live, or missing ones, are loaded by the calling
+ * thread. If a background refresh fails the stale entry is kept until it reaches the hard time to live.
+ * </p>
+ * <p>
+ * Unknown identities are also cached (negative caching) for a shorter period of time. Once the cache is full, the least
+ * recently used entries are discarded.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class IdentityCache<T> {
+
+    private final LRUCache<String, CacheEntry<T>> entries;
+
+    private final long softTimeToLive;
+    private final long hardTimeToLive;
+    private final long negativeTimeToLive;
+    private final ThreadPoolExecutor refreshExecutor;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    /**
+     * @param softTimeToLive age in milliseconds after which entries are refreshed in background
+     * @param hardTimeToLive age in milliseconds after which entries are not used anymore
+     * @param negativeTimeToLive age in milliseconds after which unknown identities are looked up again
+     * @param maxEntries maximum number of entries
+     * @param refreshThreads number of threads used to refresh entries in background
+     */
+    public IdentityCache(long softTimeToLive, long hardTimeToLive, long negativeTimeToLive, int maxEntries, int refreshThreads) {
+        this.softTimeToLive = softTimeToLive;
+        this.hardTimeToLive = Math.max(softTimeToLive, hardTimeToLive);
+        this.negativeTimeToLive = negativeTimeToLive;
+        this.entries = new LRUCache<String, CacheEntry<T>>(maxEntries);
+
+        // refreshes are best effort, they are discarded if the backend can not keep up
+        this.refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(Math.max(16, maxEntries / 10)), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "PicketBox Identity Refresh-" + this.count.incrementAndGet());
+
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }
+                });
+
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * <p>
+     * Returns the identity associated with the given key. The <code>loader</code> is used if the identity is not cached or
+     * needs to be refreshed.
+     * </p>
+     *
+     * @param key
+     * @param loader
+     * @return the identity or null if it does not exist
+     */
+    public T get(String key, IdentityLoader<T> loader) {
+        CacheEntry<T> entry = this.entries.get(key);
+
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.loadedAt;
+
+            if (entry.value == null) {
+                if (age < this.negativeTimeToLive) {
+                    this.hits.incrementAndGet();
+                    return null;
+                }
+            } else if (age < this.softTimeToLive) {
+                this.hits.incrementAndGet();
+                return entry.value;
+            } else if (age < this.hardTimeToLive) {
+                this.staleHits.incrementAndGet();
+                refreshAsync(key, entry, loader);
+                return entry.value;
+            }
+        }
+
+        this.misses.incrementAndGet();
+
+        T value = loader.load(key);
+
+        this.entries.put(key, new CacheEntry<T>(value));
+
+        return value;
+    }
+
+    /**
+     * <p>
+     * Removes the identity associated with the given key. It should be called when the identity is changed or removed.
+     * </p>
+     *
+     * @param key
+     */
+    public void invalidate(String key) {
+        this.entries.remove(key);
+    }
+
+    /**
+     * <p>
+     * Removes all entries.
+     * </p>
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * <p>
+     * Stops the background refresh threads.
+     * </p>
+     */
+    public void close() {
+        this.refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * @return the number of cached entries, including negative ones
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return the number of lookups answered with a fresh entry
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return the number of lookups answered with a stale entry while it was refreshed in background
+     */
+    public long getStaleHitCount() {
+        return this.staleHits.get();
+    }
+
+    /**
+     * @return the number of lookups that had to wait for the identity store
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return the number of background refreshes that failed
+     */
+    public long getRefreshFailureCount() {
+        return this.refreshFailures.get();
+    }
+
+    private void refreshAsync(final String key, final CacheEntry<T> entry, final IdentityLoader<T> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            this.refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // replace only if the entry was not invalidated or reloaded in the meantime
+                        entries.replace(key, entry, new CacheEntry<T>(loader.load(key)));
+                    } catch (RuntimeException e) {
+                        refreshFailures.incrementAndGet();
+                        entry.refreshing.set(false);
+                        LOGGER.debugIdentityRefreshFailed(key, e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private static class CacheEntry<T> {
+
+        private final T value;
+        private final long loadedAt = System.currentTimeMillis();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        CacheEntry(T value) {
+            this.value = value;
+        }
+    }
+}
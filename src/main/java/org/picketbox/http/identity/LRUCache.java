@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Bounded map that discards the least recently used entries once full. Entries are spread over independently locked
+ * segments, each one keeping its own access order, so every operation takes constant time and concurrent callers rarely
+ * contend.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+class LRUCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 256;
+
+    private final Segment<K, V>[] segments;
+
+    /**
+     * @param maxEntries maximum number of entries
+     */
+    @SuppressWarnings("unchecked")
+    LRUCache(int maxEntries) {
+        int count = Math.max(1, Math.min(MAX_SEGMENTS, maxEntries / MIN_SEGMENT_SIZE));
+
+        this.segments = new Segment[count];
+
+        for (int i = 0; i < count; i++) {
+            this.segments[i] = new Segment<K, V>(maxEntries / count + (i < maxEntries % count ? 1 : 0));
+        }
+    }
+
+    V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    void remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    /**
+     * Removes the entry only if it is still mapped to the given value.
+     */
+    boolean remove(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            if (segment.get(key) != value) {
+                return false;
+            }
+
+            segment.remove(key);
+
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the entry only if it is still mapped to the given value.
+     */
+    boolean replace(K key, V value, V newValue) {
+        Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            if (segment.get(key) != value) {
+                return false;
+            }
+
+            segment.put(key, newValue);
+
+            return true;
+        }
+    }
+
+    void clear() {
+        for (Segment<K, V> segment : this.segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+
+        for (Segment<K, V> segment : this.segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+
+        hash ^= hash >>> 16;
+
+        return this.segments[(hash & 0x7fffffff) % this.segments.length];
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > this.capacity;
+        }
+    }
+}
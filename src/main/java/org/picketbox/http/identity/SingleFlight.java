@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import static org.picketbox.http.PicketBoxHTTPMessages.MESSAGES;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Coalesces concurrent executions of the same task. The first caller for a given key executes the task and any other caller
+ * arriving while it is running waits for and shares its result, instead of executing the task again.
+ * </p>
+ * <p>
+ * Results are not cached: once the task completes, the next caller for the same key executes it again.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class SingleFlight<T> {
+
+    private final ConcurrentMap<String, FutureTask<T>> inFlight = new ConcurrentHashMap<String, FutureTask<T>>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * <p>
+     * Executes the given task, unless a task with the same key is already running. In this case, waits for it and returns
+     * its result.
+     * </p>
+     *
+     * @param key
+     * @param task
+     * @return
+     */
+    public T execute(String key, Callable<T> task) {
+        FutureTask<T> future = new FutureTask<T>(task);
+        FutureTask<T> running = this.inFlight.putIfAbsent(key, future);
+
+        if (running != null) {
+            this.coalesced.incrementAndGet();
+            return getResult(running);
+        }
+
+        this.executions.incrementAndGet();
+
+        try {
+            future.run();
+        } finally {
+            this.inFlight.remove(key, future);
+        }
+
+        return getResult(future);
+    }
+
+    /**
+     * @return the number of tasks executed
+     */
+    public long getExecutionCount() {
+        return this.executions.get();
+    }
+
+    /**
+     * @return the number of callers that shared the result of a running task
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.get();
+    }
+
+    private T getResult(FutureTask<T> future) {
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // the task is running on another request thread, keep waiting for it
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw MESSAGES.runtimeException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.identity;
+
+import java.security.Principal;
+
+/**
+ * <p>
+ * Short-lived cache of credentials successfully verified against the identity store, indexed by their fingerprint. It is
+ * only consulted while the {@link CircuitBreaker} is open, so that users already authenticated recently can still log in
+ * during an identity store outage. Mechanisms verifying self-contained tokens also use it to skip the verification of
+ * tokens already seen. Once the cache is full, the least recently used entries are discarded.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class VerifiedCredentialCache {
+
+    private final LRUCache<String, VerifiedCredential> credentials;
+
+    private final long timeToLive;
+
+    /**
+     * @param timeToLive time in milliseconds a verified credential is kept
+     * @param maxEntries maximum number of entries
+     */
+    public VerifiedCredentialCache(long timeToLive, int maxEntries) {
+        this.timeToLive = timeToLive;
+        this.credentials = new LRUCache<String, VerifiedCredential>(maxEntries);
+    }
+
+    /**
+     * <p>
+     * Stores the principal authenticated with the credential identified by the given fingerprint.
+     * </p>
+     *
+     * @param fingerprint
+     * @param principal
+     */
+    public void put(String fingerprint, Principal principal) {
+        put(fingerprint, principal, System.currentTimeMillis() + this.timeToLive);
+    }
+
+    /**
+     * <p>
+     * Stores the principal authenticated with the credential identified by the given fingerprint until the given time, for
+     * credentials that carry their own expiration.
+     * </p>
+     *
+     * @param fingerprint
+     * @param principal
+     * @param expiresAt time in milliseconds after which the entry is discarded
+     */
+    public void put(String fingerprint, Principal principal, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+
+        this.credentials.put(fingerprint, new VerifiedCredential(principal, expiresAt));
+    }
+
+    /**
+     * <p>
+     * Returns the principal previously authenticated with the credential identified by the given fingerprint.
+     * </p>
+     *
+     * @param fingerprint
+     * @return the principal or null if the credential was not verified recently
+     */
+    public Principal get(String fingerprint) {
+        VerifiedCredential credential = this.credentials.get(fingerprint);
+
+        if (credential == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= credential.expiresAt) {
+            this.credentials.remove(fingerprint, credential);
+            return null;
+        }
+
+        return credential.principal;
+    }
+
+    /**
+     * @return the time in milliseconds a verified credential is kept, unless stored with its own expiration
+     */
+    public long getTimeToLive() {
+        return this.timeToLive;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return this.credentials.size();
+    }
+
+    private static class VerifiedCredential {
+
+        private final Principal principal;
+        private final long expiresAt;
+
+        VerifiedCredential(Principal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -65,10 +65,21 @@ public class HTTPProtectedResourceManager extends AbstractProtectedResourceManag
      * @return
      */
     public ProtectedResource getProtectedResource(WebResource servletReq) {
-        checkIfStarted();
+        return getProtectedResource(servletReq.getRequest().getRequestURI()
+                .substring(servletReq.getRequest().getContextPath().length()));
+    }
 
-        String requestURI = servletReq.getRequest().getRequestURI()
-                .substring(servletReq.getRequest().getContextPath().length());
+    /**
+     * <p>
+     * Returns a {@link ProtectedResource} instance that matches the specified path, relative to the application root. If no
+     * match is found, it will be returned a default resource. See <code>ProtectedResource.DEFAULT_RESOURCE</code>.
+     * </p>
+     *
+     * @param requestURI
+     * @return
+     */
+    public ProtectedResource getProtectedResource(String requestURI) {
+        checkIfStarted();
 
         for (ProtectedResource resource : this.resources) {
             if (resource.matches(requestURI)) {
@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * <p>
+ * {@link UserContextStore} that keeps each entry in a file inside a given directory. Different JVMs pointing to the same
+ * directory share the same users, which is useful to test a clustered setup locally. Not intended for production use.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class FileUserContextStore implements UserContextStore {
+
+    private static final String FILE_EXTENSION = ".ser";
+
+    private final File directory;
+
+    public FileUserContextStore(File directory) {
+        if (directory == null) {
+            throw PicketBoxHTTPMessages.MESSAGES.invalidNullArgument("directory");
+        }
+
+        this.directory = directory;
+
+        if (!this.directory.exists()) {
+            this.directory.mkdirs();
+        }
+    }
+
+    @Override
+    public StoredUserContext get(String id) {
+        File file = getFile(id);
+
+        if (file == null || !file.exists()) {
+            return null;
+        }
+
+        StoredUserContext userContext = read(file);
+
+        if (userContext != null && userContext.isExpired(System.currentTimeMillis())) {
+            file.delete();
+            return null;
+        }
+
+        return userContext;
+    }
+
+    @Override
+    public long getVersion(String id) {
+        StoredUserContext userContext = get(id);
+
+        if (userContext == null) {
+            return -1;
+        }
+
+        return userContext.getVersion();
+    }
+
+    @Override
+    public void store(Collection<StoredUserContext> userContexts) {
+        for (StoredUserContext userContext : userContexts) {
+            File file = getFile(userContext.getId());
+
+            if (file != null) {
+                write(file, userContext);
+            }
+        }
+    }
+
+    @Override
+    public void remove(Collection<String> ids) {
+        for (String id : ids) {
+            File file = getFile(id);
+
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    private File getFile(String id) {
+        if (id == null || id.isEmpty() || id.indexOf('/') != -1 || id.indexOf('\\') != -1 || id.startsWith(".")) {
+            return null;
+        }
+
+        return new File(this.directory, id + FILE_EXTENSION);
+    }
+
+    private StoredUserContext read(File file) {
+        ObjectInputStream in = null;
+
+        try {
+            in = new ObjectInputStream(new FileInputStream(file));
+            return (StoredUserContext) in.readObject();
+        } catch (IOException e) {
+            // the file was removed or is being replaced
+            return null;
+        } catch (ClassNotFoundException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.errorDecodingFromFile(file.getName(), e);
+        } finally {
+            close(in);
+        }
+    }
+
+    private void write(File file, StoredUserContext userContext) {
+        File tempFile = new File(this.directory, file.getName() + ".tmp");
+        ObjectOutputStream out = null;
+
+        try {
+            out = new ObjectOutputStream(new FileOutputStream(tempFile));
+            out.writeObject(userContext);
+        } catch (IOException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.errorEncodingFromFile(file.getName(), e);
+        } finally {
+            close(out);
+        }
+
+        if (!tempFile.renameTo(file)) {
+            file.delete();
+            tempFile.renameTo(file);
+        }
+    }
+
+    private void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
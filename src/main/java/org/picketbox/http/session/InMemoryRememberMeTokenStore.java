@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * {@link RememberMeTokenStore} that keeps all persistent logins in memory. Logins are lost when the application is restarted,
+ * so users are asked for their credentials again.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class InMemoryRememberMeTokenStore implements RememberMeTokenStore {
+
+    private final ConcurrentMap<String, RememberMeToken> entries = new ConcurrentHashMap<String, RememberMeToken>();
+
+    @Override
+    public RememberMeToken get(String series) {
+        RememberMeToken token = this.entries.get(series);
+
+        if (token != null && System.currentTimeMillis() >= token.getExpiresAt()) {
+            this.entries.remove(series, token);
+            return null;
+        }
+
+        return token;
+    }
+
+    @Override
+    public void store(RememberMeToken token) {
+        long now = System.currentTimeMillis();
+
+        // expired logins are only removed when looked up, purge them once in a while
+        if (this.entries.size() % 1024 == 1023) {
+            purge(now);
+        }
+
+        this.entries.put(token.getSeries(), token);
+    }
+
+    @Override
+    public boolean replace(RememberMeToken current, RememberMeToken updated) {
+        return this.entries.replace(current.getSeries(), current, updated);
+    }
+
+    @Override
+    public void remove(String series) {
+        this.entries.remove(series);
+    }
+
+    @Override
+    public void removeAll(String userName) {
+        Iterator<RememberMeToken> iterator = this.entries.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (userName.equals(iterator.next().getUserName())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of persistent logins in this store
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    private void purge(long now) {
+        Iterator<RememberMeToken> iterator = this.entries.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (now >= iterator.next().getExpiresAt()) {
+                iterator.remove();
+            }
+        }
+    }
+}
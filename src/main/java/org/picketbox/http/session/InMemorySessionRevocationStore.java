@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.session;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * {@link SessionRevocationStore} that keeps all revocations in memory. A single instance can be shared by several
+ * {@link org.picketbox.http.PicketBoxHTTPManager} instances running in the same JVM to simulate different nodes.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class InMemorySessionRevocationStore implements SessionRevocationStore {
+
+    private final ConcurrentMap<String, Long> revokedTokens = new ConcurrentHashMap<String, Long>();
+    private final ConcurrentMap<String, Long> revokedPrincipals = new ConcurrentHashMap<String, Long>();
+
+    @Override
+    public void revoke(String tokenId, long expiresAt) {
+        this.revokedTokens.put(tokenId, expiresAt);
+    }
+
+    @Override
+    public void revokeAll(String principal, long revokedAt) {
+        Long current = this.revokedPrincipals.putIfAbsent(principal, revokedAt);
+
+        while (current != null && current < revokedAt && !this.revokedPrincipals.replace(principal, current, revokedAt)) {
+            current = this.revokedPrincipals.get(principal);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getRevokedTokens() {
+        long now = System.currentTimeMillis();
+        Iterator<Long> iterator = this.revokedTokens.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (now >= iterator.next()) {
+                iterator.remove();
+            }
+        }
+
+        return new HashMap<String, Long>(this.revokedTokens);
+    }
+
+    @Override
+    public Map<String, Long> getRevokedPrincipals() {
+        return new HashMap<String, Long>(this.revokedPrincipals);
+    }
+
+}
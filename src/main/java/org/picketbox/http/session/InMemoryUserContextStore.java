@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * {@link UserContextStore} that keeps all entries in memory. A single instance can be shared by several
+ * {@link org.picketbox.http.PicketBoxHTTPManager} instances running in the same JVM to simulate different nodes.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class InMemoryUserContextStore implements UserContextStore {
+
+    private final ConcurrentMap<String, StoredUserContext> entries = new ConcurrentHashMap<String, StoredUserContext>();
+
+    @Override
+    public StoredUserContext get(String id) {
+        StoredUserContext userContext = this.entries.get(id);
+
+        if (userContext != null && userContext.isExpired(System.currentTimeMillis())) {
+            this.entries.remove(id, userContext);
+            return null;
+        }
+
+        return userContext;
+    }
+
+    @Override
+    public long getVersion(String id) {
+        StoredUserContext userContext = get(id);
+
+        if (userContext == null) {
+            return -1;
+        }
+
+        return userContext.getVersion();
+    }
+
+    @Override
+    public void store(Collection<StoredUserContext> userContexts) {
+        for (StoredUserContext userContext : userContexts) {
+            this.entries.put(userContext.getId(), userContext);
+        }
+    }
+
+    @Override
+    public void remove(Collection<String> ids) {
+        for (String id : ids) {
+            this.entries.remove(id);
+        }
+    }
+
+    /**
+     * @return the number of entries in this store
+     */
+    public int size() {
+        return this.entries.size();
+    }
+}
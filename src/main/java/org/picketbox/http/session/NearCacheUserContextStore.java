@@ -0,0 +1,298 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.picketbox.http.PicketBoxHTTPLogger;
+
+/**
+ * <p>
+ * {@link UserContextStore} decorator that keeps a local copy of the entries read from or written to a shared store.
+ * </p>
+ * <p>
+ * Reads are served from the local copy. Once a local copy is older than <code>maxStaleness</code> its version is checked
+ * against the shared store and, if it changed (eg.: roles were updated by another node), the entry is reloaded. Writes and
+ * removals are applied locally right away and sent to the shared store in batches, either every <code>flushInterval</code>
+ * milliseconds or as soon as <code>batchSize</code> changes are pending. Changes the shared store fails to apply are kept
+ * pending and sent again on the next flush, unless a newer change to the same entry was made in the meantime.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class NearCacheUserContextStore implements UserContextStore {
+
+    private final UserContextStore delegate;
+    private final long maxStaleness;
+    private final int batchSize;
+
+    private final ConcurrentMap<String, CachedEntry> nearCache = new ConcurrentHashMap<String, CachedEntry>();
+    private final ConcurrentMap<String, StoredUserContext> pendingWrites = new ConcurrentHashMap<String, StoredUserContext>();
+    private final ConcurrentMap<String, Object> pendingRemovals = new ConcurrentHashMap<String, Object>();
+
+    private final ScheduledExecutorService flushExecutor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled.set(false);
+            flushQuietly();
+        }
+    };
+
+    /**
+     * @param delegate the shared store
+     * @param maxStaleness how long, in milliseconds, a local copy is used before its version is checked again
+     * @param flushInterval how often, in milliseconds, pending changes are sent to the shared store
+     * @param batchSize the number of pending changes that triggers an immediate flush
+     */
+    public NearCacheUserContextStore(UserContextStore delegate, long maxStaleness, long flushInterval, int batchSize) {
+        this.delegate = delegate;
+        this.maxStaleness = maxStaleness;
+        this.batchSize = batchSize;
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PicketBox UserContext Store Flusher");
+
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        this.flushExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flushQuietly();
+                purgeExpired(System.currentTimeMillis());
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public StoredUserContext get(String id) {
+        if (this.pendingRemovals.containsKey(id)) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        CachedEntry entry = this.nearCache.get(id);
+
+        if (entry != null) {
+            if (entry.userContext.isExpired(now)) {
+                this.nearCache.remove(id, entry);
+                return null;
+            }
+
+            // local changes not yet flushed always win
+            if (now - entry.validatedAt < this.maxStaleness || this.pendingWrites.containsKey(id)) {
+                return entry.userContext;
+            }
+
+            long version = this.delegate.getVersion(id);
+
+            if (version == entry.userContext.getVersion()) {
+                entry.validatedAt = now;
+                return entry.userContext;
+            }
+
+            if (version < 0) {
+                this.nearCache.remove(id, entry);
+                return null;
+            }
+        }
+
+        StoredUserContext userContext = this.delegate.get(id);
+
+        if (userContext == null) {
+            this.nearCache.remove(id);
+            return null;
+        }
+
+        this.nearCache.put(id, new CachedEntry(userContext, now));
+
+        return userContext;
+    }
+
+    @Override
+    public long getVersion(String id) {
+        StoredUserContext userContext = get(id);
+
+        if (userContext == null) {
+            return -1;
+        }
+
+        return userContext.getVersion();
+    }
+
+    @Override
+    public void store(Collection<StoredUserContext> userContexts) {
+        long now = System.currentTimeMillis();
+
+        for (StoredUserContext userContext : userContexts) {
+            String id = userContext.getId();
+
+            this.nearCache.put(id, new CachedEntry(userContext, now));
+            this.pendingWrites.put(id, userContext);
+            this.pendingRemovals.remove(id);
+        }
+
+        flushIfNecessary();
+    }
+
+    @Override
+    public void remove(Collection<String> ids) {
+        for (String id : ids) {
+            // each removal gets its own marker, so a flush only clears the removals it actually sent
+            this.pendingRemovals.put(id, new Object());
+            this.pendingWrites.remove(id);
+            this.nearCache.remove(id);
+        }
+
+        flushIfNecessary();
+    }
+
+    /**
+     * <p>
+     * Sends all pending changes to the shared store. If the shared store fails, the changes are kept pending and the failure
+     * is rethrown.
+     * </p>
+     */
+    public void flush() {
+        if (!this.pendingWrites.isEmpty()) {
+            List<StoredUserContext> writes = new ArrayList<StoredUserContext>();
+            Iterator<Entry<String, StoredUserContext>> iterator = this.pendingWrites.entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Entry<String, StoredUserContext> write = iterator.next();
+
+                if (this.pendingWrites.remove(write.getKey(), write.getValue())) {
+                    writes.add(write.getValue());
+                }
+            }
+
+            if (!writes.isEmpty()) {
+                try {
+                    this.delegate.store(writes);
+                } catch (RuntimeException e) {
+                    requeue(writes);
+                    throw e;
+                }
+            }
+        }
+
+        if (!this.pendingRemovals.isEmpty()) {
+            List<Entry<String, Object>> removals = new ArrayList<Entry<String, Object>>(this.pendingRemovals.entrySet());
+            List<String> ids = new ArrayList<String>(removals.size());
+
+            for (Entry<String, Object> removal : removals) {
+                ids.add(removal.getKey());
+            }
+
+            if (!ids.isEmpty()) {
+                // removals stay pending until the shared store applied them
+                this.delegate.remove(ids);
+
+                for (Entry<String, Object> removal : removals) {
+                    this.pendingRemovals.remove(removal.getKey(), removal.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Flushes all pending changes and stops the background flusher.
+     * </p>
+     */
+    public void close() {
+        this.flushExecutor.shutdown();
+        flushQuietly();
+    }
+
+    /**
+     * @return the number of entries held locally
+     */
+    public int getNearCacheSize() {
+        return this.nearCache.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            PicketBoxHTTPLogger.LOGGER.warnUserContextStoreFlushFailed(e);
+        }
+    }
+
+    private void requeue(List<StoredUserContext> writes) {
+        for (StoredUserContext userContext : writes) {
+            // a newer write or a removal of the same entry replaces the failed one
+            if (!this.pendingRemovals.containsKey(userContext.getId())) {
+                this.pendingWrites.putIfAbsent(userContext.getId(), userContext);
+            }
+        }
+    }
+
+    private void flushIfNecessary() {
+        if (this.pendingWrites.size() + this.pendingRemovals.size() >= this.batchSize && !this.flushExecutor.isShutdown()
+                && this.flushScheduled.compareAndSet(false, true)) {
+            this.flushExecutor.execute(this.flushTask);
+        }
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<CachedEntry> iterator = this.nearCache.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().userContext.isExpired(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class CachedEntry {
+
+        private final StoredUserContext userContext;
+        private volatile long validatedAt;
+
+        CachedEntry(StoredUserContext userContext, long validatedAt) {
+            this.userContext = userContext;
+            this.validatedAt = validatedAt;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.util.UUID;
+
+import org.picketbox.core.session.DefaultSessionId;
+import org.picketbox.core.session.PicketBoxSession;
+
+/**
+ * <p>
+ * {@link PicketBoxSession} that only lasts for the request where the user was authenticated. Nothing is kept on the server or
+ * on the client, so the user must be authenticated again on the next request.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class PicketBoxRequestSession extends PicketBoxSession {
+
+    private static final long serialVersionUID = 2860227407155870911L;
+
+    public PicketBoxRequestSession() {
+        super(new DefaultSessionId(UUID.randomUUID().toString()));
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.http.PicketBoxHTTPManager;
+
+/**
+ * <p>
+ * {@link HttpSessionListener} that reclaims all PicketBox state associated with a session when it is destroyed. The
+ * {@link PicketBoxHTTPManager} is looked up from the <code>PicketBoxConstants.PICKETBOX_MANAGER</code> context attribute.
+ * </p>
+ * <p>
+ * The {@link org.picketbox.http.filters.DelegatingSecurityFilter} tries to register this listener during its initialization.
+ * It can also be declared in the web.xml.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class PicketBoxSessionListener implements HttpSessionListener {
+
+    @Override
+    public void sessionCreated(HttpSessionEvent se) {
+    }
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent se) {
+        Object manager = se.getSession().getServletContext().getAttribute(PicketBoxConstants.PICKETBOX_MANAGER);
+
+        if (manager instanceof PicketBoxHTTPManager) {
+            ((PicketBoxHTTPManager) manager).getSessionStateReaper().sessionDestroyed(se.getSession().getId());
+        }
+    }
+
+}
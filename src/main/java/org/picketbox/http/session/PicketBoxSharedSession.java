@@ -0,0 +1,62 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.util.Collections;
+
+import org.picketbox.core.exceptions.PicketBoxSessionException;
+import org.picketbox.core.session.DefaultSessionId;
+import org.picketbox.core.session.PicketBoxSession;
+
+/**
+ * <p>
+ * {@link PicketBoxSession} implementation backed by an entry in a {@link UserContextStore}. Invalidating it removes the entry
+ * from the store.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class PicketBoxSharedSession extends PicketBoxSession {
+
+    private static final long serialVersionUID = 6911487125146398810L;
+
+    private transient UserContextStore store;
+    private String storedId;
+
+    public PicketBoxSharedSession(String id, UserContextStore store) {
+        super(new DefaultSessionId(id));
+        this.storedId = id;
+        this.store = store;
+    }
+
+    @Override
+    public void invalidate() throws PicketBoxSessionException {
+        super.invalidate();
+
+        if (this.store != null) {
+            this.store.remove(Collections.singletonList(this.storedId));
+        }
+    }
+
+}
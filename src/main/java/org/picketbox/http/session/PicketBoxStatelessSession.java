@@ -0,0 +1,59 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import org.picketbox.core.exceptions.PicketBoxSessionException;
+import org.picketbox.core.session.DefaultSessionId;
+import org.picketbox.core.session.PicketBoxSession;
+
+/**
+ * <p>
+ * {@link PicketBoxSession} implementation backed by a {@link StatelessSessionToken}. Invalidating it revokes the token.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class PicketBoxStatelessSession extends PicketBoxSession {
+
+    private static final long serialVersionUID = -1380546024853457823L;
+
+    private transient StatelessSessionRevocationList revocationList;
+    private StatelessSessionToken token;
+
+    public PicketBoxStatelessSession(StatelessSessionToken token, StatelessSessionRevocationList revocationList) {
+        super(new DefaultSessionId(token.getId()));
+        this.token = token;
+        this.revocationList = revocationList;
+    }
+
+    @Override
+    public void invalidate() throws PicketBoxSessionException {
+        super.invalidate();
+
+        if (this.revocationList != null) {
+            this.revocationList.revoke(this.token);
+        }
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.picketbox.core.util.Base64;
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * <p>
+ * Manages the persistent logins used to authenticate returning users without asking for their credentials. The client keeps
+ * a cookie with a series and a token. The series identifies the login in the {@link RememberMeTokenStore}, where only the hash
+ * of the token is kept, so re-establishing a user costs a single lookup by series instead of a password verification.
+ * </p>
+ * <p>
+ * The token is replaced each time it is used. If a token that was already replaced is presented again the cookie was most
+ * likely stolen, so all the persistent logins of the user are removed. Requests sent in parallel by the browser with the same
+ * cookie are tolerated for a short grace period after each replacement.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class RememberMeManager {
+
+    private static final long ROTATION_GRACE_PERIOD = 5000;
+
+    private final RememberMeTokenStore store;
+    private final String cookieName;
+    private final int maxAge;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param store where persistent logins are kept
+     * @param cookieName the name of the cookie sent to the client
+     * @param maxAge how long, in seconds, a persistent login is valid
+     */
+    public RememberMeManager(RememberMeTokenStore store, String cookieName, int maxAge) {
+        this.store = store;
+        this.cookieName = cookieName;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * <p>
+     * Indicates if the given request carries a remember-me cookie.
+     * </p>
+     *
+     * @param request
+     * @return
+     */
+    public boolean hasCookie(HttpServletRequest request) {
+        return getCookieValue(request) != null;
+    }
+
+    /**
+     * <p>
+     * Creates a new persistent login for the given user and sends its cookie to the client.
+     * </p>
+     *
+     * @param userName
+     * @param request
+     * @param response
+     */
+    public void remember(String userName, HttpServletRequest request, HttpServletResponse response) {
+        String series = generate();
+        String token = generate();
+        long now = System.currentTimeMillis();
+
+        this.store.store(new RememberMeToken(series, userName, hash(token), null, now, now + this.maxAge * 1000L));
+
+        addCookie(request, response, series + ":" + token, this.maxAge);
+    }
+
+    /**
+     * <p>
+     * Authenticates the user of the persistent login sent by the client. On success the token is replaced and the new cookie
+     * sent to the client, otherwise the cookie is removed.
+     * </p>
+     *
+     * @param request
+     * @param response
+     * @return the name of the user or null if the cookie is not valid
+     */
+    public String autoLogin(HttpServletRequest request, HttpServletResponse response) {
+        String value = getCookieValue(request);
+        int separator = value != null ? value.indexOf(':') : -1;
+
+        if (separator == -1) {
+            forget(request, response);
+            return null;
+        }
+
+        String series = value.substring(0, separator);
+        String tokenHash = hash(value.substring(separator + 1));
+        RememberMeToken current = this.store.get(series);
+        long now = System.currentTimeMillis();
+
+        if (current == null) {
+            removeCookie(request, response);
+            return null;
+        }
+
+        // stores are not required to filter expired logins, see RememberMeTokenStore.get
+        if (now >= current.getExpiresAt()) {
+            forget(request, response);
+            return null;
+        }
+
+        if (!isEqual(current.getTokenHash(), tokenHash)) {
+            if (current.getPreviousTokenHash() != null && isEqual(current.getPreviousTokenHash(), tokenHash)
+                    && now - current.getRotatedAt() < ROTATION_GRACE_PERIOD) {
+                // a parallel request sent before the browser got the new token
+                return current.getUserName();
+            }
+
+            this.store.removeAll(current.getUserName());
+            removeCookie(request, response);
+            return null;
+        }
+
+        String token = generate();
+        RememberMeToken rotated = new RememberMeToken(series, current.getUserName(), hash(token), current.getTokenHash(), now,
+                current.getExpiresAt());
+
+        if (!this.store.replace(current, rotated)) {
+            // another request replaced the token first and already sent the new cookie
+            return current.getUserName();
+        }
+
+        addCookie(request, response, series + ":" + token, (int) ((current.getExpiresAt() - now) / 1000));
+
+        return current.getUserName();
+    }
+
+    /**
+     * <p>
+     * Removes the persistent login sent by the client, if any, and its cookie.
+     * </p>
+     *
+     * @param request
+     * @param response
+     */
+    public void forget(HttpServletRequest request, HttpServletResponse response) {
+        String value = getCookieValue(request);
+
+        if (value == null) {
+            return;
+        }
+
+        int separator = value.indexOf(':');
+
+        if (separator != -1) {
+            this.store.remove(value.substring(0, separator));
+        }
+
+        removeCookie(request, response);
+    }
+
+    /**
+     * <p>
+     * Removes all the persistent logins of the given user.
+     * </p>
+     *
+     * @param userName
+     */
+    public void forgetAll(String userName) {
+        this.store.removeAll(userName);
+    }
+
+    public RememberMeTokenStore getStore() {
+        return this.store;
+    }
+
+    private String generate() {
+        byte[] value = new byte[16];
+
+        this.random.nextBytes(value);
+
+        StringBuilder hex = new StringBuilder(value.length * 2);
+
+        for (byte b : value) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+
+    private String hash(String token) {
+        try {
+            return Base64.encodeBytes(MessageDigest.getInstance("SHA-256").digest(token.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+    }
+
+    private boolean isEqual(String hash, String otherHash) {
+        try {
+            return MessageDigest.isEqual(hash.getBytes("UTF-8"), otherHash.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+    }
+
+    private String getCookieValue(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (this.cookieName.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private void removeCookie(HttpServletRequest request, HttpServletResponse response) {
+        addCookie(request, response, "", 0);
+    }
+
+    private void addCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAge) {
+        Cookie cookie = new Cookie(this.cookieName, value);
+        String path = request.getContextPath();
+
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+
+        cookie.setPath(path);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setMaxAge(maxAge);
+
+        response.addCookie(cookie);
+    }
+}
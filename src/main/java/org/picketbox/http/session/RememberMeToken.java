@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * A persistent login, identified by its series. The series never changes during the life of the login, while the token is
+ * replaced each time it is used. Only the hash of the token is kept.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class RememberMeToken implements Serializable {
+
+    private static final long serialVersionUID = -4630117838531528372L;
+
+    private final String series;
+    private final String userName;
+    private final String tokenHash;
+    private final String previousTokenHash;
+    private final long rotatedAt;
+    private final long expiresAt;
+
+    /**
+     * @param series
+     * @param userName
+     * @param tokenHash the hash of the current token
+     * @param previousTokenHash the hash of the token replaced by the current one or null if it was never replaced
+     * @param rotatedAt the time in milliseconds the current token was issued
+     * @param expiresAt the time in milliseconds after which the login is no longer valid
+     */
+    public RememberMeToken(String series, String userName, String tokenHash, String previousTokenHash, long rotatedAt,
+            long expiresAt) {
+        this.series = series;
+        this.userName = userName;
+        this.tokenHash = tokenHash;
+        this.previousTokenHash = previousTokenHash;
+        this.rotatedAt = rotatedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getSeries() {
+        return this.series;
+    }
+
+    public String getUserName() {
+        return this.userName;
+    }
+
+    public String getTokenHash() {
+        return this.tokenHash;
+    }
+
+    public String getPreviousTokenHash() {
+        return this.previousTokenHash;
+    }
+
+    public long getRotatedAt() {
+        return this.rotatedAt;
+    }
+
+    public long getExpiresAt() {
+        return this.expiresAt;
+    }
+}
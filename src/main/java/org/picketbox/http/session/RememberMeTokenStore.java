@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+/**
+ * <p>
+ * SPI for stores where the persistent logins used by the remember-me authentication are kept. Logins are looked up by their
+ * series, so implementations backed by a database should index it. Implementations must be thread-safe.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public interface RememberMeTokenStore {
+
+    /**
+     * <p>
+     * Returns the {@link RememberMeToken} with the given series or null if it does not exist.
+     * </p>
+     * <p>
+     * Implementations may return logins whose {@link RememberMeToken#getExpiresAt()} has already passed. The
+     * {@link RememberMeManager} rejects them and removes them from the store.
+     * </p>
+     *
+     * @param series
+     * @return
+     */
+    RememberMeToken get(String series);
+
+    /**
+     * <p>
+     * Stores a new persistent login.
+     * </p>
+     *
+     * @param token
+     */
+    void store(RememberMeToken token);
+
+    /**
+     * <p>
+     * Replaces the given persistent login with the one with a new token, unless it was changed in the meantime.
+     * </p>
+     *
+     * @param current
+     * @param updated
+     * @return true if the login was replaced
+     */
+    boolean replace(RememberMeToken current, RememberMeToken updated);
+
+    /**
+     * <p>
+     * Removes the persistent login with the given series.
+     * </p>
+     *
+     * @param series
+     */
+    void remove(String series);
+
+    /**
+     * <p>
+     * Removes all the persistent logins of the given user.
+     * </p>
+     *
+     * @param userName
+     */
+    void removeAll(String userName);
+
+}
@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.picketbox.core.PicketBoxPrincipal;
+import org.picketbox.http.HTTPUserContext;
+import org.picketlink.idm.model.Role;
+import org.picketlink.idm.model.SimpleRole;
+
+/**
+ * <p>
+ * {@link HTTPUserContext} for an user that was authenticated in a previous request and whose state was kept outside the
+ * {@link javax.servlet.http.HttpSession}. No call to the identity store is made to build it: the principal and roles are the
+ * ones previously stored.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class RestoredUserContext extends HTTPUserContext {
+
+    private static final long serialVersionUID = -5191851410927633542L;
+
+    private final Principal principal;
+
+    public RestoredUserContext(HttpServletRequest request, String principal, String[] roles) {
+        super(request, null, null);
+        this.principal = new PicketBoxPrincipal(principal);
+
+        List<Role> restoredRoles = new ArrayList<Role>();
+
+        if (roles != null) {
+            for (String role : roles) {
+                restoredRoles.add(new SimpleRole(role));
+            }
+        }
+
+        setRoles(restoredRoles);
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.UserContext#getPrincipal()
+     */
+    @Override
+    public Principal getPrincipal() {
+        return this.principal;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.core.UserContext#isAuthenticated()
+     */
+    @Override
+    public boolean isAuthenticated() {
+        return true;
+    }
+}
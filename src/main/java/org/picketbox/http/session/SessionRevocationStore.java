@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.http.session;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * SPI for stores where stateless session revocations are shared by all the nodes of a cluster. Each node publishes its own
+ * revocations and periodically reads the ones published by the others, so a logout is honoured everywhere and survives a
+ * restart. Implementations must be thread-safe.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public interface SessionRevocationStore {
+
+    /**
+     * <p>
+     * Publishes the revocation of a single token.
+     * </p>
+     *
+     * @param tokenId
+     * @param expiresAt the time the token would expire. The entry can be discarded after that.
+     */
+    void revoke(String tokenId, long expiresAt);
+
+    /**
+     * <p>
+     * Publishes the revocation of all tokens issued for the given principal until the given time.
+     * </p>
+     *
+     * @param principal
+     * @param revokedAt
+     */
+    void revokeAll(String principal, long revokedAt);
+
+    /**
+     * <p>
+     * Returns the revoked token ids versus the time they would expire. Entries for expired tokens may be omitted.
+     * </p>
+     *
+     * @return
+     */
+    Map<String, Long> getRevokedTokens();
+
+    /**
+     * <p>
+     * Returns the revoked principals versus the time of their latest revocation.
+     * </p>
+     *
+     * @return
+     */
+    Map<String, Long> getRevokedPrincipals();
+
+}
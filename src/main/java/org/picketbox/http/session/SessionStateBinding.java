@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.io.Serializable;
+
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+/**
+ * <p>
+ * Session attribute used by the {@link SessionStateReaper} to be notified when a session is invalidated or expires. It works
+ * on any Servlet 3.0 container without registering a listener.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class SessionStateBinding implements HttpSessionBindingListener, Serializable {
+
+    private static final long serialVersionUID = -2306853389712985064L;
+
+    private transient volatile SessionStateReaper reaper;
+    private volatile String sessionId;
+
+    public SessionStateBinding(SessionStateReaper reaper, String sessionId) {
+        this.reaper = reaper;
+        this.sessionId = sessionId;
+    }
+
+    @Override
+    public void valueBound(HttpSessionBindingEvent event) {
+    }
+
+    @Override
+    public void valueUnbound(HttpSessionBindingEvent event) {
+        SessionStateReaper reaper = this.reaper;
+
+        if (reaper != null) {
+            reaper.sessionDestroyed(this.sessionId);
+        }
+    }
+
+    String getSessionId() {
+        return this.sessionId;
+    }
+
+    void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    void setReaper(SessionStateReaper reaper) {
+        this.reaper = reaper;
+    }
+}
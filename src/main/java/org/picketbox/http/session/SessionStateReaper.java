@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpSession;
+
+/**
+ * <p>
+ * Reclaims all the PicketBox state associated with a {@link HttpSession} when the session is destroyed or its id changes.
+ * </p>
+ * <p>
+ * Sessions are tracked by binding a {@link SessionStateBinding} to them, which notifies this instance when the container
+ * invalidates or expires the session. The {@link PicketBoxSessionListener} can also be registered to receive the same
+ * notifications. Purging is idempotent, so both can be active at the same time.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class SessionStateReaper {
+
+    private static final String BINDING_ATTRIBUTE = SessionStateBinding.class.getName();
+
+    private final List<SessionStateHolder> holders = new CopyOnWriteArrayList<SessionStateHolder>();
+
+    private final AtomicLong purgedSessions = new AtomicLong();
+    private final AtomicLong purgedEntries = new AtomicLong();
+    private final AtomicLong changedSessionIds = new AtomicLong();
+
+    /**
+     * <p>
+     * Registers a {@link SessionStateHolder}. Registering the same instance more than once has no effect.
+     * </p>
+     *
+     * @param holder
+     */
+    public void register(SessionStateHolder holder) {
+        if (!this.holders.contains(holder)) {
+            this.holders.add(holder);
+        }
+    }
+
+    /**
+     * <p>
+     * Starts tracking the given session, if not already tracked. If the session id changed since it was first tracked, the
+     * holders that are a {@link SessionIdListener} move their state to the new id and the state still associated with the
+     * previous id is purged.
+     * </p>
+     *
+     * @param session
+     */
+    public void track(HttpSession session) {
+        if (session == null) {
+            return;
+        }
+
+        String sessionId = session.getId();
+
+        try {
+            SessionStateBinding binding = (SessionStateBinding) session.getAttribute(BINDING_ATTRIBUTE);
+
+            if (binding == null) {
+                session.setAttribute(BINDING_ATTRIBUTE, new SessionStateBinding(this, sessionId));
+            } else if (!sessionId.equals(binding.getSessionId())) {
+                String previousId = binding.getSessionId();
+
+                binding.setSessionId(sessionId);
+                binding.setReaper(this);
+
+                this.changedSessionIds.incrementAndGet();
+
+                for (SessionStateHolder holder : this.holders) {
+                    if (holder instanceof SessionIdListener) {
+                        ((SessionIdListener) holder).sessionIdChanged(previousId, sessionId);
+                    }
+                }
+
+                sessionDestroyed(previousId);
+            } else {
+                binding.setReaper(this);
+            }
+        } catch (IllegalStateException ise) {
+            // session already invalidated
+            sessionDestroyed(sessionId);
+        }
+    }
+
+    /**
+     * <p>
+     * Purges, in a single pass over all registered {@link SessionStateHolder}, the state associated with the given session id.
+     * </p>
+     *
+     * @param sessionId
+     */
+    public void sessionDestroyed(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+
+        int removed = 0;
+
+        for (SessionStateHolder holder : this.holders) {
+            removed += holder.purgeSession(sessionId);
+        }
+
+        if (removed > 0) {
+            this.purgedSessions.incrementAndGet();
+            this.purgedEntries.addAndGet(removed);
+        }
+    }
+
+    /**
+     * @return the number of sessions for which some state was purged
+     */
+    public long getPurgedSessionCount() {
+        return this.purgedSessions.get();
+    }
+
+    /**
+     * @return the total number of entries purged
+     */
+    public long getPurgedEntryCount() {
+        return this.purgedEntries.get();
+    }
+
+    /**
+     * @return the number of session id changes detected
+     */
+    public long getChangedSessionIdCount() {
+        return this.changedSessionIds.get();
+    }
+}
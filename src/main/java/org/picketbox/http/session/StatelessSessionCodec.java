@@ -0,0 +1,328 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.picketbox.core.util.Base64;
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * <p>
+ * Encodes and decodes {@link StatelessSessionToken} instances to and from cookie values.
+ * </p>
+ * <p>
+ * The value has the form <code>base64url(body).base64url(HMAC-SHA256(body))</code>. When an encryption key is provided the
+ * body is encrypted with AES/CBC before being signed (encrypt-then-MAC), so the signature is always verified before any
+ * decryption or parsing happens.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class StatelessSessionCodec {
+
+    private static final byte VERSION = 1;
+    private static final byte FLAG_ENCRYPTED = 1;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final String CIPHER_ALGORITHM = "AES/CBC/PKCS5Padding";
+    private static final int IV_LENGTH = 16;
+    private static final int TOKEN_ID_LENGTH = 12;
+
+    private final SecretKeySpec signingKey;
+    private final SecretKeySpec encryptionKey;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * {@link Mac} instances are not thread-safe and are expensive to create, so each thread keeps its own.
+     */
+    private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                Mac mac = Mac.getInstance(MAC_ALGORITHM);
+
+                mac.init(signingKey);
+
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+            }
+        }
+    };
+
+    /**
+     * @param signingKey the key used to sign the cookie values. Required.
+     * @param encryptionKey an AES key (16, 24 or 32 bytes) used to encrypt the cookie values. If null, the values are only
+     *        signed.
+     */
+    public StatelessSessionCodec(byte[] signingKey, byte[] encryptionKey) {
+        if (signingKey == null) {
+            throw PicketBoxHTTPMessages.MESSAGES.invalidNullArgument("signingKey");
+        }
+
+        this.signingKey = new SecretKeySpec(signingKey, MAC_ALGORITHM);
+
+        if (encryptionKey != null) {
+            this.encryptionKey = new SecretKeySpec(encryptionKey, "AES");
+        } else {
+            this.encryptionKey = null;
+        }
+    }
+
+    /**
+     * <p>
+     * Returns a new random token identifier.
+     * </p>
+     *
+     * @return
+     */
+    public String newTokenId() {
+        byte[] id = new byte[TOKEN_ID_LENGTH];
+
+        this.random.nextBytes(id);
+
+        return toBase64URL(id);
+    }
+
+    /**
+     * <p>
+     * Encodes the given token as a signed cookie value.
+     * </p>
+     *
+     * @param token
+     * @return
+     */
+    public String encode(StatelessSessionToken token) {
+        try {
+            byte[] payload = writePayload(token);
+            byte flags = 0;
+
+            if (this.encryptionKey != null) {
+                payload = encrypt(payload);
+                flags = FLAG_ENCRYPTED;
+            }
+
+            byte[] body = new byte[payload.length + 2];
+
+            body[0] = VERSION;
+            body[1] = flags;
+
+            System.arraycopy(payload, 0, body, 2, payload.length);
+
+            return toBase64URL(body) + '.' + toBase64URL(sign(body));
+        } catch (IOException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        } catch (GeneralSecurityException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.runtimeException(e);
+        }
+    }
+
+    /**
+     * <p>
+     * Decodes a cookie value. Returns null if the value is malformed or its signature does not match. The expiration and
+     * revocation of the returned token are not checked.
+     * </p>
+     *
+     * @param value
+     * @return
+     */
+    public StatelessSessionToken decode(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        int separator = value.indexOf('.');
+
+        if (separator <= 0 || separator == value.length() - 1) {
+            return null;
+        }
+
+        try {
+            byte[] body = fromBase64URL(value.substring(0, separator));
+            byte[] signature = fromBase64URL(value.substring(separator + 1));
+
+            if (body == null || signature == null || body.length < 2 || body[0] != VERSION) {
+                return null;
+            }
+
+            if (!MessageDigest.isEqual(sign(body), signature)) {
+                return null;
+            }
+
+            byte[] payload = new byte[body.length - 2];
+
+            System.arraycopy(body, 2, payload, 0, payload.length);
+
+            if ((body[1] & FLAG_ENCRYPTED) != 0) {
+                if (this.encryptionKey == null) {
+                    return null;
+                }
+
+                payload = decrypt(payload);
+            }
+
+            return readPayload(payload);
+        } catch (IOException e) {
+            return null;
+        } catch (GeneralSecurityException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] body) {
+        Mac mac = this.macs.get();
+
+        mac.reset();
+
+        return mac.doFinal(body);
+    }
+
+    private byte[] encrypt(byte[] payload) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+
+        this.random.nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+
+        cipher.init(Cipher.ENCRYPT_MODE, this.encryptionKey, new IvParameterSpec(iv));
+
+        byte[] encrypted = cipher.doFinal(payload);
+        byte[] result = new byte[IV_LENGTH + encrypted.length];
+
+        System.arraycopy(iv, 0, result, 0, IV_LENGTH);
+        System.arraycopy(encrypted, 0, result, IV_LENGTH, encrypted.length);
+
+        return result;
+    }
+
+    private byte[] decrypt(byte[] payload) throws GeneralSecurityException {
+        if (payload.length <= IV_LENGTH) {
+            throw new GeneralSecurityException("Invalid encrypted payload.");
+        }
+
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+
+        cipher.init(Cipher.DECRYPT_MODE, this.encryptionKey, new IvParameterSpec(payload, 0, IV_LENGTH));
+
+        return cipher.doFinal(payload, IV_LENGTH, payload.length - IV_LENGTH);
+    }
+
+    private byte[] writePayload(StatelessSessionToken token) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bos);
+
+        out.writeUTF(token.getId());
+        out.writeUTF(token.getPrincipal());
+        out.writeLong(token.getIssuedAt());
+        out.writeLong(token.getExpiresAt());
+
+        String[] roles = token.getRoles();
+
+        if (roles == null) {
+            roles = new String[0];
+        }
+
+        out.writeShort(roles.length);
+
+        for (String role : roles) {
+            out.writeUTF(role);
+        }
+
+        out.flush();
+
+        return bos.toByteArray();
+    }
+
+    private StatelessSessionToken readPayload(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+
+        String id = in.readUTF();
+        String principal = in.readUTF();
+        long issuedAt = in.readLong();
+        long expiresAt = in.readLong();
+        String[] roles = new String[in.readUnsignedShort()];
+
+        for (int i = 0; i < roles.length; i++) {
+            roles[i] = in.readUTF();
+        }
+
+        return new StatelessSessionToken(id, principal, roles, issuedAt, expiresAt);
+    }
+
+    private static String toBase64URL(byte[] bytes) {
+        String encoded = Base64.encodeBytes(bytes);
+        StringBuilder result = new StringBuilder(encoded.length());
+
+        for (int i = 0; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+
+            if (c == '+') {
+                result.append('-');
+            } else if (c == '/') {
+                result.append('_');
+            } else if (c != '=' && !Character.isWhitespace(c)) {
+                result.append(c);
+            }
+        }
+
+        return result.toString();
+    }
+
+    private static byte[] fromBase64URL(String value) {
+        StringBuilder encoded = new StringBuilder(value.length() + 3);
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '-') {
+                encoded.append('+');
+            } else if (c == '_') {
+                encoded.append('/');
+            } else {
+                encoded.append(c);
+            }
+        }
+
+        while (encoded.length() % 4 != 0) {
+            encoded.append('=');
+        }
+
+        return Base64.decode(encoded.toString());
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.picketbox.http.PicketBoxHTTPLogger;
+
+/**
+ * <p>
+ * Keeps track of stateless sessions that were revoked before their natural expiration. Tokens can be revoked individually
+ * (eg.: logout) or all at once for a given principal.
+ * </p>
+ * <p>
+ * Lookups are a single map probe and are skipped entirely while nothing is revoked. Entries are only kept while the tokens
+ * they refer to could still be valid.
+ * </p>
+ * <p>
+ * Revocations are held in the memory of each node. Without a {@link SessionRevocationStore} they are only honoured by the
+ * node where they happened and are lost on restart, so a revoked cookie is still accepted by the other nodes until it
+ * expires. When a store is given, revocations are published to it and the ones from other nodes are read from it on
+ * creation and then periodically, so they are honoured everywhere within the refresh interval.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class StatelessSessionRevocationList {
+
+    /**
+     * Revoked token ids versus the time they would expire.
+     */
+    private final ConcurrentMap<String, Long> revokedTokens = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Revoked principals versus the revocation time. Tokens issued until that time are invalid.
+     */
+    private final ConcurrentMap<String, Long> revokedPrincipals = new ConcurrentHashMap<String, Long>();
+
+    private static final long PURGE_INTERVAL = 60 * 1000;
+
+    private final long maxTokenAge;
+    private final SessionRevocationStore store;
+    private final ScheduledExecutorService refreshExecutor;
+
+    private volatile long nextPurge;
+
+    /**
+     * @param maxTokenAge the maximum time in milliseconds a token can be valid.
+     */
+    public StatelessSessionRevocationList(long maxTokenAge) {
+        this(maxTokenAge, null, 0);
+    }
+
+    /**
+     * @param maxTokenAge the maximum time in milliseconds a token can be valid.
+     * @param store the store shared with the other nodes or null if revocations are local to this node
+     * @param refreshInterval how often, in milliseconds, the revocations of the other nodes are read from the store. Zero
+     *        disables the background refresh.
+     */
+    public StatelessSessionRevocationList(long maxTokenAge, SessionRevocationStore store, long refreshInterval) {
+        this.maxTokenAge = maxTokenAge;
+        this.store = store;
+
+        if (store != null) {
+            refresh();
+        }
+
+        if (store != null && refreshInterval > 0) {
+            this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "PicketBox Session Revocation Refresh");
+
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            });
+
+            this.refreshExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (RuntimeException e) {
+                        // keep the revocations already known, the store is read again on the next refresh
+                        PicketBoxHTTPLogger.LOGGER.warnReloadFailed("revoked sessions", e);
+                    }
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.refreshExecutor = null;
+        }
+    }
+
+    /**
+     * <p>
+     * Revokes a single token.
+     * </p>
+     *
+     * @param token
+     */
+    public void revoke(StatelessSessionToken token) {
+        purgeIfNecessary(System.currentTimeMillis());
+        this.revokedTokens.put(token.getId(), token.getExpiresAt());
+
+        if (this.store != null) {
+            this.store.revoke(token.getId(), token.getExpiresAt());
+        }
+    }
+
+    /**
+     * <p>
+     * Revokes all tokens issued so far for the given principal.
+     * </p>
+     *
+     * @param principal
+     */
+    public void revokeAll(String principal) {
+        long now = System.currentTimeMillis();
+
+        purgeIfNecessary(now);
+        this.revokedPrincipals.put(principal, now);
+
+        if (this.store != null) {
+            this.store.revokeAll(principal, now);
+        }
+    }
+
+    /**
+     * <p>
+     * Checks if the given token was revoked.
+     * </p>
+     *
+     * @param token
+     * @return
+     */
+    public boolean isRevoked(StatelessSessionToken token) {
+        if (!this.revokedTokens.isEmpty() && this.revokedTokens.containsKey(token.getId())) {
+            return true;
+        }
+
+        if (!this.revokedPrincipals.isEmpty()) {
+            Long revokedAt = this.revokedPrincipals.get(token.getPrincipal());
+
+            return revokedAt != null && token.getIssuedAt() <= revokedAt;
+        }
+
+        return false;
+    }
+
+    /**
+     * <p>
+     * Removes the entries for tokens that are already expired.
+     * </p>
+     *
+     * @param now
+     */
+    public void purge(long now) {
+        Iterator<Entry<String, Long>> tokens = this.revokedTokens.entrySet().iterator();
+
+        while (tokens.hasNext()) {
+            if (now >= tokens.next().getValue()) {
+                tokens.remove();
+            }
+        }
+
+        Iterator<Entry<String, Long>> principals = this.revokedPrincipals.entrySet().iterator();
+
+        while (principals.hasNext()) {
+            if (now - principals.next().getValue() > this.maxTokenAge) {
+                principals.remove();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Reads the revocations published by the other nodes from the store, if any.
+     * </p>
+     */
+    public void refresh() {
+        if (this.store == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        for (Entry<String, Long> entry : this.store.getRevokedTokens().entrySet()) {
+            if (now < entry.getValue()) {
+                this.revokedTokens.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (Entry<String, Long> entry : this.store.getRevokedPrincipals().entrySet()) {
+            Long revokedAt = entry.getValue();
+
+            if (now - revokedAt > this.maxTokenAge) {
+                continue;
+            }
+
+            Long current = this.revokedPrincipals.putIfAbsent(entry.getKey(), revokedAt);
+
+            // keep the latest revocation of each principal
+            while (current != null && current < revokedAt
+                    && !this.revokedPrincipals.replace(entry.getKey(), current, revokedAt)) {
+                current = this.revokedPrincipals.get(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Stops the background refresh.
+     * </p>
+     */
+    public void close() {
+        if (this.refreshExecutor != null) {
+            this.refreshExecutor.shutdownNow();
+        }
+    }
+
+    private void purgeIfNecessary(long now) {
+        if (now >= this.nextPurge) {
+            this.nextPurge = now + PURGE_INTERVAL;
+            purge(now);
+        }
+    }
+
+    /**
+     * @return the number of entries currently held
+     */
+    public int size() {
+        return this.revokedTokens.size() + this.revokedPrincipals.size();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * Holds the state carried by a stateless session cookie: the authenticated principal, its roles and the validity period.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class StatelessSessionToken implements Serializable {
+
+    private static final long serialVersionUID = -3384581873206264539L;
+
+    private final String id;
+    private final String principal;
+    private final String[] roles;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    public StatelessSessionToken(String id, String principal, String[] roles, long issuedAt, long expiresAt) {
+        this.id = id;
+        this.principal = principal;
+        this.roles = roles;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public String getPrincipal() {
+        return this.principal;
+    }
+
+    public String[] getRoles() {
+        return this.roles;
+    }
+
+    public long getIssuedAt() {
+        return this.issuedAt;
+    }
+
+    public long getExpiresAt() {
+        return this.expiresAt;
+    }
+
+    /**
+     * <p>
+     * Checks if this token is expired at the given time.
+     * </p>
+     *
+     * @param now
+     * @return
+     */
+    public boolean isExpired(long now) {
+        return now >= this.expiresAt;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * The state of an authenticated user as kept in a {@link UserContextStore}. Instances are immutable: any change creates a new
+ * instance with a greater version.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class StoredUserContext implements Serializable {
+
+    private static final long serialVersionUID = 4430196318549637102L;
+
+    private final String id;
+    private final String principal;
+    private final String[] roles;
+    private final long version;
+    private final long expiresAt;
+
+    public StoredUserContext(String id, String principal, String[] roles, long expiresAt) {
+        this(id, principal, roles, System.currentTimeMillis(), expiresAt);
+    }
+
+    private StoredUserContext(String id, String principal, String[] roles, long version, long expiresAt) {
+        this.id = id;
+        this.principal = principal;
+        this.roles = roles;
+        this.version = version;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * <p>
+     * Returns a copy of this instance with the given roles and a new version.
+     * </p>
+     *
+     * @param roles
+     * @return
+     */
+    public StoredUserContext withRoles(String[] roles) {
+        return new StoredUserContext(this.id, this.principal, roles, Math.max(this.version + 1, System.currentTimeMillis()),
+                this.expiresAt);
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public String getPrincipal() {
+        return this.principal;
+    }
+
+    public String[] getRoles() {
+        return this.roles;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    public long getExpiresAt() {
+        return this.expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= this.expiresAt;
+    }
+}
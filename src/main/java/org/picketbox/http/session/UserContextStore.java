@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.util.Collection;
+
+/**
+ * <p>
+ * SPI for stores where the authenticated users are kept when they must be shared between different nodes. Implementations
+ * must be thread-safe.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public interface UserContextStore {
+
+    /**
+     * <p>
+     * Returns the {@link StoredUserContext} with the given identifier or null if it does not exist.
+     * </p>
+     *
+     * @param id
+     * @return
+     */
+    StoredUserContext get(String id);
+
+    /**
+     * <p>
+     * Returns the version of the {@link StoredUserContext} with the given identifier or -1 if it does not exist. This method is
+     * used to check if a locally cached copy is stale and should be cheaper than {@link #get(String)}.
+     * </p>
+     *
+     * @param id
+     * @return
+     */
+    long getVersion(String id);
+
+    /**
+     * <p>
+     * Stores or replaces the given entries.
+     * </p>
+     *
+     * @param userContexts
+     */
+    void store(Collection<StoredUserContext> userContexts);
+
+    /**
+     * <p>
+     * Removes the entries with the given identifiers.
+     * </p>
+     *
+     * @param ids
+     */
+    void remove(Collection<String> ids);
+
+}
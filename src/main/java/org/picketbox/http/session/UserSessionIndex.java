@@ -0,0 +1,352 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.session;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.picketbox.core.exceptions.PicketBoxSessionException;
+import org.picketbox.core.session.PicketBoxSession;
+
+/**
+ * <p>
+ * Index of the sessions opened by each principal. It allows to log out all sessions of an user without scanning all sessions
+ * and to limit how many concurrent sessions an user may have. When the limit is exceeded, the least recently used session
+ * is invalidated.
+ * </p>
+ * <p>
+ * Entries are removed when sessions are invalidated or destroyed (this class is a {@link SessionStateHolder}) and, for
+ * sessions the container does not know about, when they expire. Entries follow the session when its id changes.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class UserSessionIndex implements SessionStateHolder, SessionIdListener {
+
+    private final ConcurrentMap<String, UserSessions> sessionsByPrincipal = new ConcurrentHashMap<String, UserSessions>();
+    private final ConcurrentMap<String, String> principalBySession = new ConcurrentHashMap<String, String>();
+
+    private static final long PURGE_INTERVAL = 60000;
+
+    private final int maxSessionsPerUser;
+    private volatile long nextPurge;
+
+    /**
+     * @param maxSessionsPerUser the maximum number of concurrent sessions per user. Zero or less means no limit.
+     */
+    public UserSessionIndex(int maxSessionsPerUser) {
+        this.maxSessionsPerUser = maxSessionsPerUser;
+    }
+
+    /**
+     * <p>
+     * Adds a new session for the given principal. If the principal exceeds the maximum number of concurrent sessions, the least
+     * recently used sessions are invalidated.
+     * </p>
+     *
+     * @param principal
+     * @param sessionId
+     * @param session
+     * @param expiresAt when the session expires or <code>Long.MAX_VALUE</code> if it is removed by other means
+     */
+    public void add(String principal, String sessionId, PicketBoxSession session, long expiresAt) {
+        List<PicketBoxSession> evicted = new ArrayList<PicketBoxSession>();
+        long now = System.currentTimeMillis();
+
+        purgeIfNecessary(now);
+
+        this.principalBySession.put(sessionId, principal);
+
+        while (true) {
+            UserSessions sessions = getOrCreate(principal);
+
+            synchronized (sessions) {
+                if (sessions.removed) {
+                    // concurrently removed from the index, try again with a new entry
+                    continue;
+                }
+
+                sessions.removeExpired(now, this.principalBySession);
+                sessions.entries.put(sessionId, new SessionEntry(session, expiresAt));
+
+                while (this.maxSessionsPerUser > 0 && sessions.entries.size() > this.maxSessionsPerUser) {
+                    Iterator<Map.Entry<String, SessionEntry>> eldest = sessions.entries.entrySet().iterator();
+                    Map.Entry<String, SessionEntry> entry = eldest.next();
+
+                    eldest.remove();
+                    this.principalBySession.remove(entry.getKey());
+                    evicted.add(entry.getValue().session);
+                }
+            }
+
+            break;
+        }
+
+        invalidate(evicted);
+    }
+
+    /**
+     * <p>
+     * Marks the given session as the most recently used session of its principal.
+     * </p>
+     *
+     * @param sessionId
+     */
+    public void touch(String sessionId) {
+        String principal = this.principalBySession.get(sessionId);
+
+        if (principal != null) {
+            UserSessions sessions = this.sessionsByPrincipal.get(principal);
+
+            if (sessions != null) {
+                synchronized (sessions) {
+                    // access-ordered map, a get moves the entry to the end
+                    sessions.entries.get(sessionId);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the number of concurrent sessions per user is limited
+     */
+    public boolean isLimited() {
+        return this.maxSessionsPerUser > 0;
+    }
+
+    /**
+     * <p>
+     * Removes the given session from the index without invalidating it.
+     * </p>
+     *
+     * @param sessionId
+     * @return true if the session was indexed
+     */
+    public boolean remove(String sessionId) {
+        String principal = this.principalBySession.remove(sessionId);
+
+        if (principal == null) {
+            return false;
+        }
+
+        UserSessions sessions = this.sessionsByPrincipal.get(principal);
+
+        if (sessions != null) {
+            synchronized (sessions) {
+                sessions.entries.remove(sessionId);
+
+                if (sessions.entries.isEmpty()) {
+                    sessions.removed = true;
+                    this.sessionsByPrincipal.remove(principal, sessions);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>
+     * Invalidates all the sessions of the given principal.
+     * </p>
+     *
+     * @param principal
+     * @return the number of sessions invalidated
+     */
+    public int logoutAll(String principal) {
+        UserSessions sessions = this.sessionsByPrincipal.remove(principal);
+
+        if (sessions == null) {
+            return 0;
+        }
+
+        List<PicketBoxSession> invalidated = new ArrayList<PicketBoxSession>();
+
+        synchronized (sessions) {
+            sessions.removed = true;
+
+            for (Map.Entry<String, SessionEntry> entry : sessions.entries.entrySet()) {
+                this.principalBySession.remove(entry.getKey());
+                invalidated.add(entry.getValue().session);
+            }
+
+            sessions.entries.clear();
+        }
+
+        invalidate(invalidated);
+
+        return invalidated.size();
+    }
+
+    /**
+     * <p>
+     * Returns the number of sessions currently indexed for the given principal.
+     * </p>
+     *
+     * @param principal
+     * @return
+     */
+    public int getSessionCount(String principal) {
+        UserSessions sessions = this.sessionsByPrincipal.get(principal);
+
+        if (sessions == null) {
+            return 0;
+        }
+
+        synchronized (sessions) {
+            return sessions.entries.size();
+        }
+    }
+
+    /**
+     * <p>
+     * Removes the expired sessions of all principals. Sessions the container does not know about (eg.: stateless) are not
+     * notified when they expire.
+     * </p>
+     *
+     * @param now
+     */
+    public void purge(long now) {
+        for (Map.Entry<String, UserSessions> entry : this.sessionsByPrincipal.entrySet()) {
+            UserSessions sessions = entry.getValue();
+
+            synchronized (sessions) {
+                sessions.removeExpired(now, this.principalBySession);
+
+                if (sessions.entries.isEmpty() && !sessions.removed) {
+                    sessions.removed = true;
+                    this.sessionsByPrincipal.remove(entry.getKey(), sessions);
+                }
+            }
+        }
+    }
+
+    private void purgeIfNecessary(long now) {
+        if (now >= this.nextPurge) {
+            this.nextPurge = now + PURGE_INTERVAL;
+            purge(now);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.session.SessionStateHolder#purgeSession(java.lang.String)
+     */
+    @Override
+    public int purgeSession(String sessionId) {
+        return remove(sessionId) ? 1 : 0;
+    }
+
+    /* (non-Javadoc)
+     * @see org.picketbox.http.session.SessionIdListener#sessionIdChanged(java.lang.String, java.lang.String)
+     */
+    @Override
+    public void sessionIdChanged(String previousId, String sessionId) {
+        String principal = this.principalBySession.remove(previousId);
+
+        if (principal == null) {
+            return;
+        }
+
+        UserSessions sessions = this.sessionsByPrincipal.get(principal);
+
+        if (sessions != null) {
+            synchronized (sessions) {
+                SessionEntry entry = sessions.entries.remove(previousId);
+
+                // null if the principal was concurrently logged out
+                if (entry != null) {
+                    sessions.entries.put(sessionId, entry);
+                    this.principalBySession.put(sessionId, principal);
+                }
+            }
+        }
+    }
+
+    private UserSessions getOrCreate(String principal) {
+        UserSessions sessions = this.sessionsByPrincipal.get(principal);
+
+        if (sessions == null) {
+            UserSessions newSessions = new UserSessions();
+
+            sessions = this.sessionsByPrincipal.putIfAbsent(principal, newSessions);
+
+            if (sessions == null) {
+                sessions = newSessions;
+            }
+        }
+
+        return sessions;
+    }
+
+    private void invalidate(List<PicketBoxSession> sessions) {
+        for (PicketBoxSession session : sessions) {
+            try {
+                session.invalidate();
+            } catch (PicketBoxSessionException ignore) {
+                // already invalidated
+            } catch (IllegalStateException ignore) {
+                // the underlying HttpSession is already invalidated
+            }
+        }
+    }
+
+    private static class UserSessions {
+
+        /**
+         * Access-ordered: iteration starts with the least recently used session.
+         */
+        private final LinkedHashMap<String, SessionEntry> entries = new LinkedHashMap<String, SessionEntry>(4, 0.75f, true);
+
+        private boolean removed;
+
+        void removeExpired(long now, ConcurrentMap<String, String> principalBySession) {
+            Iterator<Map.Entry<String, SessionEntry>> iterator = this.entries.entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Map.Entry<String, SessionEntry> entry = iterator.next();
+
+                if (now >= entry.getValue().expiresAt) {
+                    iterator.remove();
+                    principalBySession.remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    private static class SessionEntry {
+
+        private final PicketBoxSession session;
+        private final long expiresAt;
+
+        SessionEntry(PicketBoxSession session, long expiresAt) {
+            this.session = session;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.token;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * <p>
+ * The response of an OAuth 2.0 token introspection endpoint (RFC 7662) for an active token.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class IntrospectedToken {
+
+    private final Map<String, Object> claims;
+
+    IntrospectedToken(Map<String, Object> claims) {
+        this.claims = claims;
+    }
+
+    /**
+     * @return the <code>username</code> claim or, if it is not present, the <code>sub</code> claim
+     */
+    public String getSubject() {
+        String userName = getString("username");
+
+        if (userName != null) {
+            return userName;
+        }
+
+        return getString("sub");
+    }
+
+    /**
+     * @return the expiration time in milliseconds or -1 if the response has no <code>exp</code> claim
+     */
+    public long getExpiration() {
+        Object value = this.claims.get("exp");
+
+        if (value instanceof Number) {
+            return (long) (((Number) value).doubleValue() * 1000);
+        }
+
+        return -1;
+    }
+
+    public Object getClaim(String name) {
+        return this.claims.get(name);
+    }
+
+    public Map<String, Object> getClaims() {
+        return Collections.unmodifiableMap(this.claims);
+    }
+
+    private String getString(String name) {
+        Object value = this.claims.get(name);
+
+        return value instanceof String ? (String) value : null;
+    }
+}
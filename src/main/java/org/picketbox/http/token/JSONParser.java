@@ -0,0 +1,276 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.token;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Minimal JSON parser for the header and claims of tokens. Objects are returned as {@link Map}, arrays as {@link List},
+ * numbers as {@link Long} or {@link Double}. Tokens are parsed before their signature is checked, so nesting is limited to
+ * {@link #MAX_DEPTH} levels and deeper documents are rejected instead of exhausting the stack.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+final class JSONParser {
+
+    /**
+     * Maximum number of nested objects and arrays.
+     */
+    static final int MAX_DEPTH = 32;
+
+    private final String json;
+    private int position;
+    private int depth;
+
+    private JSONParser(String json) {
+        this.json = json;
+    }
+
+    /**
+     * <p>
+     * Parses the given JSON object.
+     * </p>
+     *
+     * @param json
+     * @return the parsed object or null if the given string is not a valid JSON object or is nested too deeply
+     */
+    static Map<String, Object> parseObject(String json) {
+        JSONParser parser = new JSONParser(json);
+
+        try {
+            parser.skipWhitespace();
+
+            if (parser.peek() != '{') {
+                return null;
+            }
+
+            Map<String, Object> object = parser.readObject();
+
+            parser.skipWhitespace();
+
+            if (parser.position != json.length()) {
+                return null;
+            }
+
+            return object;
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+
+        char c = peek();
+
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                expect("true");
+                return Boolean.TRUE;
+            case 'f':
+                expect("false");
+                return Boolean.FALSE;
+            case 'n':
+                expect("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new HashMap<String, Object>();
+
+        enter();
+        skipWhitespace();
+
+        if (peek() == '}') {
+            this.position++;
+            this.depth--;
+            return object;
+        }
+
+        while (true) {
+            skipWhitespace();
+
+            if (peek() != '"') {
+                throw new IllegalArgumentException();
+            }
+
+            String name = readString();
+
+            skipWhitespace();
+            expect(":");
+
+            object.put(name, readValue());
+
+            skipWhitespace();
+
+            char c = this.json.charAt(this.position++);
+
+            if (c == '}') {
+                this.depth--;
+                return object;
+            }
+
+            if (c != ',') {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<Object>();
+
+        enter();
+        skipWhitespace();
+
+        if (peek() == ']') {
+            this.position++;
+            this.depth--;
+            return array;
+        }
+
+        while (true) {
+            array.add(readValue());
+
+            skipWhitespace();
+
+            char c = this.json.charAt(this.position++);
+
+            if (c == ']') {
+                this.depth--;
+                return array;
+            }
+
+            if (c != ',') {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    private void enter() {
+        if (++this.depth > MAX_DEPTH) {
+            throw new IllegalArgumentException();
+        }
+
+        this.position++;
+    }
+
+    private String readString() {
+        StringBuilder value = new StringBuilder();
+
+        this.position++;
+
+        while (true) {
+            char c = this.json.charAt(this.position++);
+
+            if (c == '"') {
+                return value.toString();
+            }
+
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+
+            char escaped = this.json.charAt(this.position++);
+
+            switch (escaped) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    value.append((char) Integer.parseInt(this.json.substring(this.position, this.position + 4), 16));
+                    this.position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+    }
+
+    private Number readNumber() {
+        int start = this.position;
+
+        while (this.position < this.json.length() && "+-0123456789.eE".indexOf(this.json.charAt(this.position)) != -1) {
+            this.position++;
+        }
+
+        String number = this.json.substring(start, this.position);
+
+        if (number.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        if (number.indexOf('.') == -1 && number.indexOf('e') == -1 && number.indexOf('E') == -1) {
+            return Long.valueOf(number);
+        }
+
+        return Double.valueOf(number);
+    }
+
+    private void expect(String token) {
+        if (!this.json.startsWith(token, this.position)) {
+            throw new IllegalArgumentException();
+        }
+
+        this.position += token.length();
+    }
+
+    private char peek() {
+        return this.json.charAt(this.position);
+    }
+
+    private void skipWhitespace() {
+        while (this.position < this.json.length() && Character.isWhitespace(this.json.charAt(this.position))) {
+            this.position++;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.token;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A signed JSON Web Token in its compact serialization: <code>header.claims.signature</code>, each part encoded using the
+ * URL-safe Base64 alphabet. Parsing a token does not verify it, see {@link JSONWebTokenVerifier}.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class JSONWebToken {
+
+    private static final int[] BASE64_URL_VALUES = new int[128];
+
+    static {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+        for (int i = 0; i < BASE64_URL_VALUES.length; i++) {
+            BASE64_URL_VALUES[i] = -1;
+        }
+
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_URL_VALUES[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private final Map<String, Object> header;
+    private final Map<String, Object> claims;
+    private final byte[] signingInput;
+    private final byte[] signature;
+
+    private JSONWebToken(Map<String, Object> header, Map<String, Object> claims, byte[] signingInput, byte[] signature) {
+        this.header = header;
+        this.claims = claims;
+        this.signingInput = signingInput;
+        this.signature = signature;
+    }
+
+    /**
+     * <p>
+     * Parses the given token.
+     * </p>
+     *
+     * @param token
+     * @return the parsed token or null if the token is malformed
+     */
+    public static JSONWebToken parse(String token) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot == -1 ? -1 : token.indexOf('.', firstDot + 1);
+
+        if (secondDot == -1 || token.indexOf('.', secondDot + 1) != -1) {
+            return null;
+        }
+
+        byte[] header = decodeBase64URL(token.substring(0, firstDot));
+        byte[] claims = decodeBase64URL(token.substring(firstDot + 1, secondDot));
+        byte[] signature = decodeBase64URL(token.substring(secondDot + 1));
+
+        if (header == null || claims == null || signature == null) {
+            return null;
+        }
+
+        try {
+            Map<String, Object> parsedHeader = JSONParser.parseObject(new String(header, "UTF-8"));
+            Map<String, Object> parsedClaims = JSONParser.parseObject(new String(claims, "UTF-8"));
+
+            if (parsedHeader == null || parsedClaims == null) {
+                return null;
+            }
+
+            return new JSONWebToken(parsedHeader, parsedClaims, token.substring(0, secondDot).getBytes("US-ASCII"), signature);
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the <code>alg</code> header
+     */
+    public String getAlgorithm() {
+        return getString(this.header, "alg");
+    }
+
+    /**
+     * @return the <code>kid</code> header or null if the token does not identify its key
+     */
+    public String getKeyId() {
+        return getString(this.header, "kid");
+    }
+
+    public String getSubject() {
+        return getString(this.claims, "sub");
+    }
+
+    public String getIssuer() {
+        return getString(this.claims, "iss");
+    }
+
+    /**
+     * @return the <code>aud</code> claim, which can be a single value or a list of values
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> getAudience() {
+        Object audience = this.claims.get("aud");
+
+        if (audience instanceof List) {
+            return (List<Object>) audience;
+        }
+
+        if (audience == null) {
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList(audience);
+    }
+
+    /**
+     * @return the expiration time in milliseconds or -1 if the token has no <code>exp</code> claim
+     */
+    public long getExpiration() {
+        return getTime("exp");
+    }
+
+    /**
+     * @return the time in milliseconds before which the token must not be accepted or -1 if the token has no
+     *         <code>nbf</code> claim
+     */
+    public long getNotBefore() {
+        return getTime("nbf");
+    }
+
+    public Object getClaim(String name) {
+        return this.claims.get(name);
+    }
+
+    public Map<String, Object> getClaims() {
+        return Collections.unmodifiableMap(this.claims);
+    }
+
+    /**
+     * @return the bytes covered by the signature
+     */
+    public byte[] getSigningInput() {
+        return this.signingInput;
+    }
+
+    public byte[] getSignature() {
+        return this.signature;
+    }
+
+    private long getTime(String name) {
+        Object value = this.claims.get(name);
+
+        if (value instanceof Number) {
+            return (long) (((Number) value).doubleValue() * 1000);
+        }
+
+        return -1;
+    }
+
+    private static String getString(Map<String, Object> values, String name) {
+        Object value = values.get(name);
+
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * <p>
+     * Decodes the given value encoded using the URL-safe Base64 alphabet, without padding.
+     * </p>
+     *
+     * @param value
+     * @return the decoded bytes or null if the value is not valid
+     */
+    static byte[] decodeBase64URL(String value) {
+        int length = value.length();
+
+        while (length > 0 && value.charAt(length - 1) == '=') {
+            length--;
+        }
+
+        if (length % 4 == 1) {
+            return null;
+        }
+
+        byte[] decoded = new byte[length * 3 / 4];
+        int buffer = 0;
+        int bits = 0;
+        int index = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            int digit = c < 128 ? BASE64_URL_VALUES[c] : -1;
+
+            if (digit == -1) {
+                return null;
+            }
+
+            buffer = (buffer << 6) | digit;
+            bits += 6;
+
+            if (bits >= 8) {
+                bits -= 8;
+                decoded[index++] = (byte) (buffer >> bits);
+            }
+        }
+
+        return decoded;
+    }
+}
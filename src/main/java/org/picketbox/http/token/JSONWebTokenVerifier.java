@@ -0,0 +1,212 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.token;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import org.picketbox.core.util.Base64;
+import org.picketbox.http.PicketBoxHTTPMessages;
+
+/**
+ * <p>
+ * Verifies {@link JSONWebToken} instances against a set of locally configured keys, without calling any remote service. HMAC
+ * (<code>HS256</code>, <code>HS384</code>, <code>HS512</code>) and RSA (<code>RS256</code>, <code>RS384</code>,
+ * <code>RS512</code>) signatures are supported. The key is chosen by the <code>kid</code> header and must match the family
+ * of the algorithm, so a public key can never be used as an HMAC secret.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class JSONWebTokenVerifier {
+
+    /**
+     * Identifier of the key used to verify tokens without a <code>kid</code> header.
+     */
+    public static final String DEFAULT_KEY_ID = "";
+
+    private static final Map<String, String> ALGORITHMS = new HashMap<String, String>();
+
+    static {
+        ALGORITHMS.put("HS256", "HmacSHA256");
+        ALGORITHMS.put("HS384", "HmacSHA384");
+        ALGORITHMS.put("HS512", "HmacSHA512");
+        ALGORITHMS.put("RS256", "SHA256withRSA");
+        ALGORITHMS.put("RS384", "SHA384withRSA");
+        ALGORITHMS.put("RS512", "SHA512withRSA");
+    }
+
+    private final Map<String, Key> keys;
+    private final String issuer;
+    private final String audience;
+    private final long clockSkew;
+
+    /**
+     * @param keys the verification keys indexed by their identifier
+     * @param issuer the expected <code>iss</code> claim or null if any issuer is accepted
+     * @param audience the value expected in the <code>aud</code> claim or null if any audience is accepted
+     * @param clockSkew time in milliseconds tolerated when checking the <code>exp</code> and <code>nbf</code> claims
+     */
+    public JSONWebTokenVerifier(Map<String, Key> keys, String issuer, String audience, long clockSkew) {
+        this.keys = Collections.unmodifiableMap(new HashMap<String, Key>(keys));
+        this.issuer = issuer;
+        this.audience = audience;
+        this.clockSkew = clockSkew;
+    }
+
+    /**
+     * <p>
+     * Parses and verifies the given token. Tokens must be signed with a known key, have a subject and an expiration time.
+     * </p>
+     *
+     * @param encodedToken
+     * @param now the current time in milliseconds
+     * @return the verified token or null if the token is not valid
+     */
+    public JSONWebToken verify(String encodedToken, long now) {
+        JSONWebToken token = JSONWebToken.parse(encodedToken);
+
+        if (token == null || !verifySignature(token)) {
+            return null;
+        }
+
+        long expiration = token.getExpiration();
+
+        if (expiration == -1 || now - this.clockSkew >= expiration) {
+            return null;
+        }
+
+        long notBefore = token.getNotBefore();
+
+        if (notBefore != -1 && now + this.clockSkew < notBefore) {
+            return null;
+        }
+
+        if (this.issuer != null && !this.issuer.equals(token.getIssuer())) {
+            return null;
+        }
+
+        if (this.audience != null && !token.getAudience().contains(this.audience)) {
+            return null;
+        }
+
+        if (token.getSubject() == null) {
+            return null;
+        }
+
+        return token;
+    }
+
+    private boolean verifySignature(JSONWebToken token) {
+        String algorithm = token.getAlgorithm();
+        String jcaAlgorithm = algorithm != null ? ALGORITHMS.get(algorithm) : null;
+
+        if (jcaAlgorithm == null) {
+            return false;
+        }
+
+        Key key = getKey(token.getKeyId());
+
+        try {
+            if (algorithm.startsWith("HS")) {
+                if (!(key instanceof SecretKey)) {
+                    return false;
+                }
+
+                Mac mac = Mac.getInstance(jcaAlgorithm);
+
+                mac.init(key);
+
+                return MessageDigest.isEqual(mac.doFinal(token.getSigningInput()), token.getSignature());
+            }
+
+            if (!(key instanceof PublicKey)) {
+                return false;
+            }
+
+            Signature signature = Signature.getInstance(jcaAlgorithm);
+
+            signature.initVerify((PublicKey) key);
+            signature.update(token.getSigningInput());
+
+            return signature.verify(token.getSignature());
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private Key getKey(String keyId) {
+        if (keyId != null) {
+            return this.keys.get(keyId);
+        }
+
+        Key key = this.keys.get(DEFAULT_KEY_ID);
+
+        if (key == null && this.keys.size() == 1) {
+            key = this.keys.values().iterator().next();
+        }
+
+        return key;
+    }
+
+    /**
+     * <p>
+     * Parses an RSA public key encoded as a X.509 <code>SubjectPublicKeyInfo</code>, in PEM format or in Base64.
+     * </p>
+     *
+     * @param keyId
+     * @param encodedKey
+     * @return
+     */
+    public static PublicKey parsePublicKey(String keyId, String encodedKey) {
+        StringBuilder base64 = new StringBuilder();
+
+        for (String line : encodedKey.split("\\r?\\n")) {
+            if (!line.startsWith("-----")) {
+                base64.append(line.trim());
+            }
+        }
+
+        try {
+            byte[] decoded = Base64.decode(base64.toString());
+
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(decoded));
+        } catch (GeneralSecurityException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.invalidTokenKey(keyId, e);
+        } catch (RuntimeException e) {
+            throw PicketBoxHTTPMessages.MESSAGES.invalidTokenKey(keyId, e);
+        }
+    }
+}
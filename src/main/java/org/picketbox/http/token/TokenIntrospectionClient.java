@@ -0,0 +1,161 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.http.token;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.Map;
+
+import org.picketbox.core.util.Base64;
+
+/**
+ * <p>
+ * Client for an OAuth 2.0 token introspection endpoint (RFC 7662). The client authenticates to the endpoint with HTTP Basic
+ * using its identifier and secret.
+ * </p>
+ * <p>
+ * Responses are always read to the end and their streams closed, so the underlying connections are returned to the
+ * keep-alive cache of {@link HttpURLConnection} and reused by the next calls instead of opening a new connection for each
+ * token.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class TokenIntrospectionClient {
+
+    private final URL endpoint;
+    private final String authorization;
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    /**
+     * @param endpoint the URL of the introspection endpoint
+     * @param clientId
+     * @param clientSecret
+     * @param connectTimeout time in milliseconds to wait for a connection
+     * @param readTimeout time in milliseconds to wait for a response
+     * @throws IOException if the endpoint is not a valid URL
+     */
+    public TokenIntrospectionClient(String endpoint, String clientId, String clientSecret, int connectTimeout, int readTimeout)
+            throws IOException {
+        this.endpoint = new URL(endpoint);
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+
+        if (clientId != null) {
+            String credentials = clientId + ":" + (clientSecret != null ? clientSecret : "");
+
+            this.authorization = "Basic " + Base64.encodeBytes(credentials.getBytes("UTF-8")).replaceAll("\\s", "");
+        } else {
+            this.authorization = null;
+        }
+    }
+
+    /**
+     * <p>
+     * Asks the endpoint about the given token.
+     * </p>
+     *
+     * @param token
+     * @return the introspected token or null if the token is not active
+     * @throws IOException if the endpoint could not be reached or did not return a valid response
+     */
+    public IntrospectedToken introspect(String token) throws IOException {
+        byte[] body = ("token=" + URLEncoder.encode(token, "UTF-8") + "&token_type_hint=access_token").getBytes("UTF-8");
+
+        HttpURLConnection connection = (HttpURLConnection) this.endpoint.openConnection();
+
+        connection.setRequestMethod("POST");
+        connection.setConnectTimeout(this.connectTimeout);
+        connection.setReadTimeout(this.readTimeout);
+        connection.setUseCaches(false);
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        connection.setRequestProperty("Accept", "application/json");
+
+        if (this.authorization != null) {
+            connection.setRequestProperty("Authorization", this.authorization);
+        }
+
+        OutputStream output = connection.getOutputStream();
+
+        try {
+            output.write(body);
+        } finally {
+            output.close();
+        }
+
+        int status = connection.getResponseCode();
+
+        if (status != HttpURLConnection.HTTP_OK) {
+            // the error body must also be consumed for the connection to be reused
+            readFully(connection.getErrorStream());
+            throw new IOException("Unexpected response status " + status + " from " + this.endpoint);
+        }
+
+        byte[] response = readFully(connection.getInputStream());
+        Map<String, Object> claims = JSONParser.parseObject(new String(response, "UTF-8"));
+
+        if (claims == null) {
+            throw new IOException("Invalid response from " + this.endpoint);
+        }
+
+        if (!Boolean.TRUE.equals(claims.get("active"))) {
+            return null;
+        }
+
+        return new IntrospectedToken(claims);
+    }
+
+    public URL getEndpoint() {
+        return this.endpoint;
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+        if (input == null) {
+            return result.toByteArray();
+        }
+
+        try {
+            byte[] buffer = new byte[1024];
+            int read;
+
+            while ((read = input.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+
+        return result.toByteArray();
+    }
+}
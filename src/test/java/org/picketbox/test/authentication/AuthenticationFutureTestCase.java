@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.authentication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.security.Principal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.picketbox.core.PicketBoxPrincipal;
+import org.picketbox.http.authentication.AuthenticationCallback;
+import org.picketbox.http.authentication.AuthenticationFuture;
+
+/**
+ * Unit test the {@link AuthenticationFuture} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class AuthenticationFutureTestCase {
+
+    @Test
+    public void testCallbacksAreNotifiedOnCompletion() throws Exception {
+        AuthenticationFuture future = new AuthenticationFuture();
+        final AtomicReference<Principal> result = new AtomicReference<Principal>();
+        final AtomicInteger notifications = new AtomicInteger();
+
+        future.addCallback(new AuthenticationCallback() {
+            @Override
+            public void onSuccess(Principal principal) {
+                result.set(principal);
+                notifications.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                fail("Unexpected failure.");
+            }
+        });
+
+        assertFalse(future.isDone());
+        assertEquals(0, notifications.get());
+
+        PicketBoxPrincipal principal = new PicketBoxPrincipal("Aladdin");
+
+        assertTrue(future.complete(principal));
+        assertFalse(future.complete(new PicketBoxPrincipal("other")));
+
+        assertTrue(future.isDone());
+        assertEquals(1, notifications.get());
+        assertSame(principal, result.get());
+        assertSame(principal, future.get());
+    }
+
+    @Test
+    public void testCallbackAddedAfterCompletion() throws Exception {
+        AuthenticationFuture future = new AuthenticationFuture();
+
+        future.complete(null);
+
+        final AtomicInteger notifications = new AtomicInteger();
+
+        future.addCallback(new AuthenticationCallback() {
+            @Override
+            public void onSuccess(Principal principal) {
+                assertNull(principal);
+                notifications.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                fail("Unexpected failure.");
+            }
+        });
+
+        assertEquals(1, notifications.get());
+        assertNull(future.get());
+    }
+
+    @Test
+    public void testFailureIsRethrown() throws Exception {
+        AuthenticationFuture future = new AuthenticationFuture();
+        final AtomicReference<Throwable> result = new AtomicReference<Throwable>();
+
+        future.addCallback(new AuthenticationCallback() {
+            @Override
+            public void onSuccess(Principal principal) {
+                fail("Unexpected success.");
+            }
+
+            @Override
+            public void onFailure(Throwable failure) {
+                result.set(failure);
+            }
+        });
+
+        IllegalArgumentException failure = new IllegalArgumentException("store down");
+
+        future.fail(failure);
+
+        assertSame(failure, result.get());
+
+        try {
+            future.get();
+            fail("The failure should be rethrown.");
+        } catch (IllegalArgumentException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void testGetWaitsForCompletion() throws Exception {
+        final AuthenticationFuture future = new AuthenticationFuture();
+        final PicketBoxPrincipal principal = new PicketBoxPrincipal("Aladdin");
+
+        Thread completer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                }
+
+                future.complete(principal);
+            }
+        });
+
+        completer.start();
+
+        assertSame(principal, future.get());
+
+        completer.join();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.authentication;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.cert.X509Certificate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.http.authentication.HTTPAPIKeyCredential;
+import org.picketbox.http.authentication.HTTPBasicCredential;
+import org.picketbox.http.authentication.HTTPClientCertCredential;
+import org.picketbox.http.authentication.HTTPCredentialDispatcher;
+import org.picketbox.http.authentication.HTTPDigestCredential;
+import org.picketbox.http.authentication.HTTPFormCredential;
+import org.picketbox.http.authentication.HTTPPreAuthCredential;
+import org.picketbox.http.config.HTTPAuthenticationConfiguration;
+import org.picketbox.http.config.HTTPConfigurationBuilder;
+import org.picketbox.test.http.TestServletRequest;
+
+/**
+ * Unit test the {@link HTTPCredentialDispatcher} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPCredentialDispatcherTestCase {
+
+    private HTTPCredentialDispatcher dispatcher;
+
+    @Before
+    public void onSetup() throws Exception {
+        this.dispatcher = new HTTPCredentialDispatcher(HTTPFormCredential.class);
+
+        this.dispatcher.addCredentialType(HTTPBasicCredential.class);
+        this.dispatcher.addCredentialType(HTTPDigestCredential.class);
+        this.dispatcher.addCredentialType(HTTPClientCertCredential.class);
+        this.dispatcher.addPath("/api", HTTPBasicCredential.class);
+        this.dispatcher.addPath("/secure/*", HTTPDigestCredential.class);
+    }
+
+    @Test
+    public void testDispatchByAuthorizationScheme() throws Exception {
+        TestServletRequest request = createRequest("/index.html");
+
+        request.addHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER, "Basic QWxhZGRpbjpPcGVuIFNlc2FtZQ==");
+
+        assertEquals(HTTPBasicCredential.class, this.dispatcher.resolve(request));
+
+        request = createRequest("/api/users");
+
+        request.addHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER, "digest username=\"Aladdin\"");
+
+        assertEquals(HTTPDigestCredential.class, this.dispatcher.resolve(request));
+    }
+
+    @Test
+    public void testDispatchByClientCertificate() throws Exception {
+        TestServletRequest request = createRequest("/index.html");
+
+        request.setAttribute(PicketBoxConstants.HTTP_CERTIFICATE, new X509Certificate[0]);
+
+        assertEquals(HTTPClientCertCredential.class, this.dispatcher.resolve(request));
+    }
+
+    @Test
+    public void testDispatchByPath() throws Exception {
+        assertEquals(HTTPBasicCredential.class, this.dispatcher.resolve(createRequest("/api")));
+        assertEquals(HTTPBasicCredential.class, this.dispatcher.resolve(createRequest("/api/users/1")));
+        assertEquals(HTTPDigestCredential.class, this.dispatcher.resolve(createRequest("/secure/index.html")));
+        assertEquals(HTTPFormCredential.class, this.dispatcher.resolve(createRequest("/apis/index.html")));
+        assertEquals(HTTPFormCredential.class, this.dispatcher.resolve(createRequest("/")));
+    }
+
+    @Test
+    public void testDispatchByConfiguredHeader() throws Exception {
+        HTTPConfigurationBuilder builder = new HTTPConfigurationBuilder();
+
+        builder.authentication().apiKey().header("X-Custom-Key");
+
+        HTTPCredentialDispatcher dispatcher = new HTTPCredentialDispatcher(HTTPFormCredential.class,
+                (HTTPAuthenticationConfiguration) builder.build().getAuthentication());
+
+        dispatcher.addCredentialType(HTTPAPIKeyCredential.class);
+
+        TestServletRequest request = createRequest("/index.html");
+
+        request.addHeader("X-Custom-Key", "key");
+
+        assertEquals(HTTPAPIKeyCredential.class, dispatcher.resolve(request));
+
+        // the default header is not read by the mechanism, so it must not select it either
+        request = createRequest("/index.html");
+
+        request.addHeader("X-API-Key", "key");
+
+        assertEquals(HTTPFormCredential.class, dispatcher.resolve(request));
+    }
+
+    @Test
+    public void testDispatchByConfiguredPreAuthHeader() throws Exception {
+        HTTPConfigurationBuilder builder = new HTTPConfigurationBuilder();
+
+        builder.authentication().preAuthentication().headers("X-Remote-User", "X-Remote-User-Timestamp",
+                "X-Remote-User-Signature");
+
+        HTTPCredentialDispatcher dispatcher = new HTTPCredentialDispatcher(HTTPFormCredential.class,
+                (HTTPAuthenticationConfiguration) builder.build().getAuthentication());
+
+        dispatcher.addCredentialType(HTTPPreAuthCredential.class);
+
+        TestServletRequest request = createRequest("/index.html");
+
+        request.addHeader("X-Remote-User", "Aladdin");
+
+        assertEquals(HTTPPreAuthCredential.class, dispatcher.resolve(request));
+
+        request = createRequest("/index.html");
+
+        request.addHeader("X-Forwarded-User", "Aladdin");
+
+        assertEquals(HTTPFormCredential.class, dispatcher.resolve(request));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testInvalidPath() throws Exception {
+        this.dispatcher.addPath("/api/v1", HTTPBasicCredential.class);
+    }
+
+    private TestServletRequest createRequest(String path) {
+        TestServletRequest request = new TestServletRequest(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return 0;
+            }
+        });
+
+        request.setContextPath("/test-app");
+        request.setRequestURI(request.getContextPath() + path);
+
+        return request;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.authentication.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.junit.Test;
+import org.picketbox.http.authentication.DistinguishedName;
+
+/**
+ * Unit test the {@link DistinguishedName} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class DistinguishedNameTestCase {
+
+    @Test
+    public void testSimpleName() throws Exception {
+        assertEquals("jbid test", DistinguishedName.getCommonName("CN=jbid test, OU=JBoss, O=JBoss, C=US"));
+        assertEquals("JBoss", DistinguishedName.getAttribute("CN=jbid test,OU=JBoss,O=JBoss,C=US", "ou"));
+        assertEquals("US", DistinguishedName.getAttribute("CN=jbid test,OU=JBoss,O=JBoss,C=US", "C"));
+        assertNull(DistinguishedName.getAttribute("CN=jbid test,OU=JBoss,O=JBoss,C=US", "L"));
+        assertNull(DistinguishedName.getCommonName("OU=JBoss,O=JBoss,C=US"));
+    }
+
+    @Test
+    public void testEscapedValues() throws Exception {
+        assertEquals("Doe, John", DistinguishedName.getCommonName("CN=Doe\\, John,O=Acme\\+Co,C=US"));
+        assertEquals("Acme+Co", DistinguishedName.getAttribute("CN=Doe\\, John,O=Acme\\+Co,C=US", "O"));
+        assertEquals("Doe, John", DistinguishedName.getCommonName("CN=Doe\\2C John,C=US"));
+        assertEquals("Doe, John", DistinguishedName.getCommonName("CN=\"Doe, John\",C=US"));
+        assertEquals("Lu\u010di\u0107", DistinguishedName.getCommonName("CN=Lu\\C4\\8Di\\C4\\87,C=US"));
+        assertEquals(" padded ", DistinguishedName.getCommonName("CN=\\ padded\\ ,C=US"));
+    }
+
+    @Test
+    public void testMultiValuedRDN() throws Exception {
+        assertEquals("device-1", DistinguishedName.getAttribute("UID=device-1+CN=Device One,O=Acme", "UID"));
+        assertEquals("Device One", DistinguishedName.getCommonName("UID=device-1+CN=Device One,O=Acme"));
+    }
+
+    @Test
+    public void testX500PrincipalName() throws Exception {
+        X500Principal principal = new X500Principal("CN=Doe\\, John + UID=jdoe, OU=Sales, O=Acme, C=US");
+
+        assertEquals("Doe, John", DistinguishedName.getCommonName(principal.getName()));
+        assertEquals("jdoe", DistinguishedName.getAttribute(principal.getName(), "UID"));
+        assertEquals("Sales", DistinguishedName.getAttribute(principal.getName(), "OU"));
+    }
+}
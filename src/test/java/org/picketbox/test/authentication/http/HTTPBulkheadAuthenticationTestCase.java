@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.authentication.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.UserContext;
+import org.picketbox.core.authentication.AuthenticationMechanism;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.core.util.Base64;
+import org.picketbox.http.HTTPUserContext;
+import org.picketbox.http.authentication.AuthenticationFuture;
+import org.picketbox.http.authentication.HTTPBasicAuthentication;
+import org.picketbox.http.authentication.HTTPBasicCredential;
+import org.picketbox.http.config.HTTPConfigurationBuilder;
+import org.picketbox.http.identity.Bulkhead;
+import org.picketbox.http.identity.IdentityStoreSaturatedException;
+import org.picketbox.test.http.TestServletRequest;
+import org.picketbox.test.http.TestServletResponse;
+
+/**
+ * <p>
+ * Unit tests for the authentication {@link Bulkhead} applied by the HTTP authentication mechanisms.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPBulkheadAuthenticationTestCase extends AbstractAuthenticationTest {
+
+    @Before
+    public void setup() throws Exception {
+        super.initialize();
+    }
+
+    @Override
+    protected void doConfigureManager(HTTPConfigurationBuilder configuration) {
+        configuration.authentication().bulkhead().maxConcurrentCalls(1).maxQueueSize(0).retryAfter(5);
+    }
+
+    @Test
+    public void testSaturatedIdentityStoreRejectsRequest() throws Exception {
+        Bulkhead bulkhead = this.picketBoxManager.getAuthenticationBulkhead();
+
+        // another request is calling the identity store
+        assertTrue(bulkhead.acquire());
+
+        try {
+            TestServletRequest req = createRequest();
+            TestServletResponse resp = new TestServletResponse(new ByteArrayOutputStream());
+
+            UserContext authenticatedUser = this.picketBoxManager.authenticate(new HTTPUserContext(req, resp,
+                    new HTTPBasicCredential(req, resp)));
+
+            assertFalse(authenticatedUser.isAuthenticated());
+            assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, resp.getStatus());
+            assertEquals("5", resp.getHeader("Retry-After"));
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    @Test
+    public void testAsyncVerificationHoldsBulkheadPermit() throws Exception {
+        HTTPBasicAuthentication mechanism = null;
+
+        for (AuthenticationMechanism candidate : this.picketBoxManager.getConfiguration().getAuthentication().getMechanisms()) {
+            if (candidate instanceof HTTPBasicAuthentication) {
+                mechanism = (HTTPBasicAuthentication) candidate;
+            }
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Bulkhead bulkhead = this.picketBoxManager.getAuthenticationBulkhead();
+
+        mechanism.setAuthenticationExecutor(executor);
+
+        try {
+            // another request is calling the identity store
+            assertTrue(bulkhead.acquire());
+
+            TestServletResponse resp = new TestServletResponse(new ByteArrayOutputStream());
+            AuthenticationFuture result = mechanism.authenticateAsync(createRequest(), resp);
+
+            try {
+                result.get();
+                fail("Verification should be rejected by the bulkhead.");
+            } catch (IdentityStoreSaturatedException e) {
+                // expected
+            }
+
+            bulkhead.release();
+
+            result = mechanism.authenticateAsync(createRequest(), resp);
+
+            assertEquals("Aladdin", result.get().getName());
+            assertEquals(0, bulkhead.getActiveCount());
+        } finally {
+            mechanism.setAuthenticationExecutor(null);
+            executor.shutdownNow();
+        }
+    }
+
+    private TestServletRequest createRequest() {
+        TestServletRequest req = new TestServletRequest(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return -1;
+            }
+        });
+
+        req.addHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER,
+                "Basic " + Base64.encodeBytes("Aladdin:Open Sesame".getBytes()));
+        req.setContextPath("/test");
+        req.setRequestURI(req.getContextPath() + "/index.html");
+
+        return req;
+    }
+}
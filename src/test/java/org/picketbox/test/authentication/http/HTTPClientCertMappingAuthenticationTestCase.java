@@ -0,0 +1,128 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.authentication.http;
+
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.UserContext;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.http.HTTPUserContext;
+import org.picketbox.http.authentication.HTTPClientCertAuthentication;
+import org.picketbox.http.authentication.HTTPClientCertCredential;
+import org.picketbox.http.config.HTTPConfigurationBuilder;
+import org.picketbox.test.http.TestServletRequest;
+import org.picketbox.test.http.TestServletResponse;
+
+/**
+ * Unit test the {@link HTTPClientCertAuthentication} class with certificates mapped to users by their fingerprint
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPClientCertMappingAuthenticationTestCase extends AbstractAuthenticationTest {
+
+    private X509Certificate certificate;
+    private File mappings;
+
+    @Before
+    public void onSetup() throws Exception {
+        super.initialize();
+    }
+
+    @After
+    public void onFinish() throws Exception {
+        this.picketBoxManager.stop();
+        this.mappings.delete();
+    }
+
+    @Override
+    protected void doConfigureManager(HTTPConfigurationBuilder configuration) {
+        try {
+            InputStream bis = getClass().getClassLoader().getResourceAsStream("cert/servercert.txt");
+
+            this.certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(bis);
+
+            bis.close();
+
+            // the certificate is registered for "jbid test", not for the user it is mapped to
+            this.mappings = File.createTempFile("certificate-mappings", ".properties");
+
+            OutputStream out = new FileOutputStream(this.mappings);
+
+            out.write((toHex(MessageDigest.getInstance("SHA-256").digest(this.certificate.getEncoded())) + "=Aladdin\n")
+                    .getBytes("UTF-8"));
+            out.close();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        configuration.authentication().clientCert().useCertificateValidation()
+                .certificateMappings(this.mappings.getAbsolutePath());
+    }
+
+    @Test
+    public void testMappedCertificateMustBeValid() throws Exception {
+        TestServletRequest req = new TestServletRequest(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return 0;
+            }
+        });
+
+        TestServletResponse resp = new TestServletResponse(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+            }
+        });
+
+        req.setContextPath("/test");
+        req.setRequestURI(req.getContextPath() + "/index.html");
+        req.setAttribute(PicketBoxConstants.HTTP_CERTIFICATE, new X509Certificate[] { this.certificate });
+
+        UserContext authenticatedUser = this.picketBoxManager.authenticate(new HTTPUserContext(req, resp,
+                new HTTPClientCertCredential(req, resp)));
+
+        assertFalse(authenticatedUser.isAuthenticated());
+    }
+
+    private String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b & 0xFF));
+        }
+
+        return hex.toString();
+    }
+}
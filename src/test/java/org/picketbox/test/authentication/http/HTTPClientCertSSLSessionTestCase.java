@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.authentication.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.UserContext;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.http.HTTPUserContext;
+import org.picketbox.http.authentication.HTTPClientCertAuthentication;
+import org.picketbox.http.authentication.HTTPClientCertCredential;
+import org.picketbox.http.config.HTTPConfigurationBuilder;
+import org.picketbox.http.identity.IdentityCache;
+import org.picketbox.test.http.TestServletRequest;
+import org.picketbox.test.http.TestServletResponse;
+import org.picketlink.idm.model.User;
+
+/**
+ * Unit test the TLS session cache of the {@link HTTPClientCertAuthentication} class. User lookups are counted by the identity
+ * cache, every lookup is either a hit or a miss.
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPClientCertSSLSessionTestCase extends AbstractAuthenticationTest {
+
+    private X509Certificate certificate;
+
+    @Before
+    public void onSetup() throws Exception {
+        super.initialize();
+
+        InputStream bis = getClass().getClassLoader().getResourceAsStream("cert/servercert.txt");
+
+        this.certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(bis);
+
+        bis.close();
+    }
+
+    @Override
+    protected void doConfigureManager(HTTPConfigurationBuilder configuration) {
+        configuration.authentication().clientCert().useCNAsPrincipal().sslSessionCache();
+        configuration.authentication().identityCache();
+    }
+
+    @Test
+    public void testSameSSLSessionSkipsLookup() throws Exception {
+        assertEquals("jbid test", authenticate("5a4e1c0b9d").getPrincipal().getName());
+        assertEquals(1, getUserLookups());
+
+        UserContext authenticatedUser = authenticate("5a4e1c0b9d");
+
+        assertTrue(authenticatedUser.isAuthenticated());
+        assertEquals("jbid test", authenticatedUser.getPrincipal().getName());
+        assertEquals(1, getUserLookups());
+    }
+
+    @Test
+    public void testOtherSSLSessionLooksUpUser() throws Exception {
+        authenticate("5a4e1c0b9d");
+        authenticate("7f3b2d6e1a");
+
+        assertEquals(2, getUserLookups());
+    }
+
+    private UserContext authenticate(String sslSessionId) throws Exception {
+        TestServletRequest req = new TestServletRequest(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return 0;
+            }
+        });
+
+        TestServletResponse resp = new TestServletResponse(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+            }
+        });
+
+        req.setContextPath("/test");
+        req.setRequestURI(req.getContextPath() + "/index.html");
+        req.setAttribute(HTTPClientCertAuthentication.SSL_SESSION_ID_ATTRIBUTE, sslSessionId);
+        req.setAttribute(PicketBoxConstants.HTTP_CERTIFICATE, new X509Certificate[] { this.certificate });
+
+        return this.picketBoxManager.authenticate(new HTTPUserContext(req, resp, new HTTPClientCertCredential(req, resp)));
+    }
+
+    private long getUserLookups() {
+        IdentityCache<User> identityCache = this.picketBoxManager.getIdentityCache();
+
+        return identityCache.getHitCount() + identityCache.getStaleHitCount() + identityCache.getMissCount();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.authentication.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.UserContext;
+import org.picketbox.core.authentication.DigestHolder;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.core.util.HTTPDigestUtil;
+import org.picketbox.http.HTTPUserContext;
+import org.picketbox.http.authentication.HTTPDigestAuthentication;
+import org.picketbox.http.authentication.HTTPDigestCredential;
+import org.picketbox.http.config.HTTPConfigurationBuilder;
+import org.picketbox.test.http.TestServletRequest;
+import org.picketbox.test.http.TestServletResponse;
+
+/**
+ * Unit test the <code>auth-int</code> quality of protection of the {@link HTTPDigestAuthentication} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPDigestAuthIntAuthenticationTestCase extends AbstractAuthenticationTest {
+
+    private static final String REALM = "testrealm@host.com";
+    private static final String URI = "/dir/index.html";
+    private static final String CNONCE = "0a4f113b";
+    private static final int MAX_ENTITY_BODY_SIZE = 1024;
+
+    private TestServletRequest req;
+    private TestServletResponse resp;
+
+    @Before
+    public void setup() throws Exception {
+        super.initialize();
+
+        this.req = new TestServletRequest(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return -1;
+            }
+        });
+
+        this.resp = createResponse();
+
+        this.req.setMethod("POST");
+        this.req.setContextPath("/test");
+        this.req.setRequestURI(this.req.getContextPath() + "/index.html");
+    }
+
+    @Override
+    protected void doConfigureManager(HTTPConfigurationBuilder configuration) {
+        configuration.authentication().digest().realm(REALM).qop("auth", "auth-int")
+                .maxEntityBodySize(MAX_ENTITY_BODY_SIZE);
+    }
+
+    @Test
+    public void testEntityBodyVerified() throws Exception {
+        String nonce = getNonce();
+
+        this.req.addHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER, getAuthorization(nonce, "amount=10"));
+
+        HttpServletRequest request = withEntityBody("amount=10");
+        UserContext authenticatedUser = this.picketBoxManager.authenticate(new HTTPUserContext(request, this.resp,
+                new HTTPDigestCredential(request, this.resp)));
+
+        assertTrue(authenticatedUser.isAuthenticated());
+        assertEquals("amount=10", readEntityBody(request));
+    }
+
+    @Test
+    public void testModifiedEntityBody() throws Exception {
+        String nonce = getNonce();
+
+        this.req.addHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER, getAuthorization(nonce, "amount=10"));
+
+        HttpServletRequest request = withEntityBody("amount=99");
+        TestServletResponse response = createResponse();
+
+        // the application never reads the body, the response must be rejected before it gets the request
+        UserContext authenticatedUser = this.picketBoxManager.authenticate(new HTTPUserContext(request, response,
+                new HTTPDigestCredential(request, response)));
+
+        assertFalse(authenticatedUser.isAuthenticated());
+        assertEquals(401, response.getStatus());
+    }
+
+    @Test
+    public void testEntityBodyTooLarge() throws Exception {
+        String nonce = getNonce();
+        StringBuilder entityBody = new StringBuilder();
+
+        while (entityBody.length() <= MAX_ENTITY_BODY_SIZE) {
+            entityBody.append("amount=10&");
+        }
+
+        this.req.addHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER, getAuthorization(nonce, entityBody.toString()));
+
+        HttpServletRequest request = withEntityBody(entityBody.toString());
+        UserContext authenticatedUser = this.picketBoxManager.authenticate(new HTTPUserContext(request, this.resp,
+                new HTTPDigestCredential(request, this.resp)));
+
+        assertFalse(authenticatedUser.isAuthenticated());
+    }
+
+    @Test
+    public void testWithoutEntityBody() throws Exception {
+        String nonce = getNonce();
+
+        this.req.addHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER, getAuthorization(nonce, ""));
+
+        UserContext authenticatedUser = this.picketBoxManager.authenticate(new HTTPUserContext(this.req, this.resp,
+                new HTTPDigestCredential(this.req, this.resp)));
+
+        assertTrue(authenticatedUser.isAuthenticated());
+
+        // the response was computed for a body the request does not have
+        this.req.clearHeaders();
+        this.req.addHeader(PicketBoxConstants.HTTP_AUTHORIZATION_HEADER, getAuthorization(nonce, "amount=10"));
+
+        authenticatedUser = this.picketBoxManager.authenticate(new HTTPUserContext(this.req, this.resp,
+                new HTTPDigestCredential(this.req, this.resp)));
+
+        assertFalse(authenticatedUser.isAuthenticated());
+    }
+
+    private TestServletResponse createResponse() {
+        return new TestServletResponse(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+            }
+        });
+    }
+
+    private String getNonce() throws Exception {
+        this.picketBoxManager.authenticate(new HTTPUserContext(this.req, this.resp, new HTTPDigestCredential(this.req,
+                this.resp)));
+
+        String challenge = this.resp.getHeader(PicketBoxConstants.HTTP_WWW_AUTHENTICATE);
+
+        assertTrue(challenge.contains("auth-int"));
+
+        DigestHolder digest = HTTPDigestUtil.digest(HTTPDigestUtil.quoteTokenize(challenge.substring(7)));
+
+        return digest.getNonce();
+    }
+
+    private String getAuthorization(String nonce, String entityBody) throws Exception {
+        String ha1 = md5Hex("Aladdin:" + REALM + ":Open Sesame");
+        String ha2 = md5Hex("POST:" + URI + ":" + md5Hex(entityBody));
+        String response = md5Hex(ha1 + ":" + nonce + ":00000001:" + CNONCE + ":auth-int:" + ha2);
+
+        StringBuilder str = new StringBuilder("Digest username=\"Aladdin\",");
+
+        str.append("realm=\"").append(REALM).append("\",");
+        str.append("nonce=\"").append(nonce).append("\",");
+        str.append("uri=\"").append(URI).append("\",");
+        str.append("qop=auth-int,").append("nc=00000001,").append("cnonce=\"").append(CNONCE).append("\",");
+        str.append("response=\"").append(response).append("\"");
+
+        return str.toString();
+    }
+
+    /**
+     * Wraps the request as the security filter does, with the given entity body.
+     */
+    private HttpServletRequest withEntityBody(final String entityBody) throws Exception {
+        final byte[] content = entityBody.getBytes("UTF-8");
+
+        HttpServletRequest container = new HttpServletRequestWrapper(this.req) {
+            @Override
+            public int getContentLength() {
+                return content.length;
+            }
+
+            @Override
+            public ServletInputStream getInputStream() throws IOException {
+                final InputStream input = new ByteArrayInputStream(content);
+
+                return new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        return input.read();
+                    }
+                };
+            }
+        };
+
+        return new HttpServletRequestWrapper(container);
+    }
+
+    private String readEntityBody(HttpServletRequest request) throws IOException {
+        ByteArrayOutputStream entityBody = new ByteArrayOutputStream();
+        InputStream input = request.getInputStream();
+        byte[] buffer = new byte[4];
+        int count;
+
+        while ((count = input.read(buffer)) != -1) {
+            entityBody.write(buffer, 0, count);
+        }
+
+        return entityBody.toString("UTF-8");
+    }
+
+    private String md5Hex(String value) throws Exception {
+        StringBuilder hex = new StringBuilder();
+
+        for (byte b : MessageDigest.getInstance("MD5").digest(value.getBytes("UTF-8"))) {
+            hex.append(String.format("%02x", b & 0xFF));
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.authentication.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.UserContext;
+import org.picketbox.http.HTTPUserContext;
+import org.picketbox.http.authentication.HTTPIntrospectionAuthentication;
+import org.picketbox.http.authentication.HTTPIntrospectionCredential;
+import org.picketbox.http.config.HTTPConfigurationBuilder;
+import org.picketbox.test.http.TestServletRequest;
+import org.picketbox.test.http.TestServletResponse;
+import org.picketbox.test.http.jetty.EmbeddedIntrospectionServer;
+
+/**
+ * Unit test the {@link HTTPIntrospectionAuthentication} class against the {@link EmbeddedIntrospectionServer}
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPIntrospectionAuthenticationTestCase extends AbstractAuthenticationTest {
+
+    private static final long MAX_CACHE_TIME = 3000;
+
+    private EmbeddedIntrospectionServer server;
+
+    @Before
+    public void setup() throws Exception {
+        this.server = new EmbeddedIntrospectionServer(11090);
+        this.server.start();
+
+        super.initialize();
+    }
+
+    @After
+    public void onFinish() throws Exception {
+        this.server.stop();
+    }
+
+    @Override
+    protected void doConfigureManager(HTTPConfigurationBuilder configuration) {
+        configuration.authentication().introspection().endpoint("http://localhost:11090/oauth/introspect")
+                .client(EmbeddedIntrospectionServer.CLIENT_ID, EmbeddedIntrospectionServer.CLIENT_SECRET)
+                .maxCacheTime(MAX_CACHE_TIME);
+    }
+
+    @Test
+    public void testCacheBoundedByTokenExpiration() throws Exception {
+        // expires before the maximum cache time
+        long expiresAt = (System.currentTimeMillis() / 1000 + 2) * 1000;
+
+        this.server.addToken("2YotnFZFEjr1zCsicMWpAA", "Aladdin", expiresAt);
+
+        assertTrue(authenticate("2YotnFZFEjr1zCsicMWpAA", createResponse()).isAuthenticated());
+        assertTrue(authenticate("2YotnFZFEjr1zCsicMWpAA", createResponse()).isAuthenticated());
+        assertEquals(1, this.server.getRequestCount());
+
+        Thread.sleep(expiresAt - System.currentTimeMillis() + 100);
+
+        authenticate("2YotnFZFEjr1zCsicMWpAA", createResponse());
+
+        assertEquals(2, this.server.getRequestCount());
+    }
+
+    @Test
+    public void testCacheBoundedByMaxCacheTime() throws Exception {
+        this.server.addToken("2YotnFZFEjr1zCsicMWpAA", "Aladdin", System.currentTimeMillis() + 60 * 60 * 1000);
+
+        long start = System.currentTimeMillis();
+
+        assertTrue(authenticate("2YotnFZFEjr1zCsicMWpAA", createResponse()).isAuthenticated());
+        assertTrue(authenticate("2YotnFZFEjr1zCsicMWpAA", createResponse()).isAuthenticated());
+        assertEquals(1, this.server.getRequestCount());
+
+        Thread.sleep(start + MAX_CACHE_TIME - System.currentTimeMillis() + 100);
+
+        assertTrue(authenticate("2YotnFZFEjr1zCsicMWpAA", createResponse()).isAuthenticated());
+        assertEquals(2, this.server.getRequestCount());
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced() throws Exception {
+        this.server.addToken("2YotnFZFEjr1zCsicMWpAA", "Aladdin", System.currentTimeMillis() + 60 * 60 * 1000);
+        this.server.setDelay(500);
+
+        int clients = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<UserContext>> results = new ArrayList<Future<UserContext>>();
+
+        try {
+            for (int i = 0; i < clients; i++) {
+                results.add(executor.submit(new Callable<UserContext>() {
+                    @Override
+                    public UserContext call() throws Exception {
+                        start.await();
+                        return authenticate("2YotnFZFEjr1zCsicMWpAA", createResponse());
+                    }
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<UserContext> result : results) {
+                assertTrue(result.get().isAuthenticated());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, this.server.getRequestCount());
+    }
+
+    @Test
+    public void testEndpointUnavailable() throws Exception {
+        this.server.stop();
+
+        TestServletResponse response = createResponse();
+
+        assertFalse(authenticate("2YotnFZFEjr1zCsicMWpAA", response).isAuthenticated());
+        assertEquals(503, response.getStatus());
+        assertTrue(response.getHeader("Retry-After") != null);
+    }
+
+    private UserContext authenticate(String token, TestServletResponse response) throws Exception {
+        TestServletRequest request = new TestServletRequest(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return -1;
+            }
+        });
+
+        request.setContextPath("/test");
+        request.setRequestURI(request.getContextPath() + "/index.html");
+        request.addHeader("Authorization", "Bearer " + token);
+
+        return this.picketBoxManager.authenticate(new HTTPUserContext(request, response, new HTTPIntrospectionCredential(
+                request, response)));
+    }
+
+    private TestServletResponse createResponse() {
+        return new TestServletResponse(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+            }
+        });
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.test.authentication.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.UserContext;
+import org.picketbox.core.authentication.AuthenticationStatus;
+import org.picketbox.core.util.Base64;
+import org.picketbox.http.HTTPUserContext;
+import org.picketbox.http.authentication.HTTPPreAuthAuthentication;
+import org.picketbox.http.authentication.HTTPPreAuthCredential;
+import org.picketbox.http.config.HTTPConfigurationBuilder;
+import org.picketbox.test.http.TestServletRequest;
+import org.picketbox.test.http.TestServletResponse;
+
+/**
+ * Unit test the {@link HTTPPreAuthAuthentication} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HTTPPreAuthAuthenticationTestCase extends AbstractAuthenticationTest {
+
+    private static final String SECRET = "secret shared with the proxy";
+
+    @Before
+    public void setup() throws Exception {
+        super.initialize();
+    }
+
+    @Override
+    protected void doConfigureManager(HTTPConfigurationBuilder configuration) {
+        configuration.authentication().preAuthentication().secret(SECRET);
+    }
+
+    @Test
+    public void testSignedIdentity() throws Exception {
+        long timestamp = System.currentTimeMillis() / 1000;
+
+        UserContext authenticatedUser = authenticate("Aladdin", timestamp, sign("Aladdin\n" + timestamp));
+
+        assertTrue(authenticatedUser.isAuthenticated());
+        assertEquals("Aladdin", authenticatedUser.getPrincipal().getName());
+    }
+
+    @Test
+    public void testInvalidSignature() throws Exception {
+        long timestamp = System.currentTimeMillis() / 1000;
+
+        UserContext authenticatedUser = authenticate("Aladdin", timestamp, sign("Jafar\n" + timestamp));
+
+        assertFalse(authenticatedUser.isAuthenticated());
+        assertEquals(AuthenticationStatus.INVALID_CREDENTIALS, authenticatedUser.getAuthenticationResult().getStatus());
+    }
+
+    @Test
+    public void testReplayedSignature() throws Exception {
+        long timestamp = System.currentTimeMillis() / 1000 - 3600;
+
+        UserContext authenticatedUser = authenticate("Aladdin", timestamp, sign("Aladdin\n" + timestamp));
+
+        assertFalse(authenticatedUser.isAuthenticated());
+    }
+
+    private UserContext authenticate(String userName, long timestamp, String signature) throws Exception {
+        TestServletRequest req = new TestServletRequest(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return 0;
+            }
+        });
+
+        TestServletResponse resp = new TestServletResponse(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+            }
+        });
+
+        req.setContextPath("/test");
+        req.setRequestURI(req.getContextPath() + "/index.html");
+        req.addHeader("X-Forwarded-User", userName);
+        req.addHeader("X-Forwarded-User-Timestamp", String.valueOf(timestamp));
+        req.addHeader("X-Forwarded-User-Signature", signature);
+
+        return this.picketBoxManager.authenticate(new HTTPUserContext(req, resp, new HTTPPreAuthCredential(req, resp)));
+    }
+
+    private String sign(String value) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+
+        mac.init(new SecretKeySpec(SECRET.getBytes("UTF-8"), "HmacSHA256"));
+
+        return Base64.encodeBytes(mac.doFinal(value.getBytes("UTF-8")));
+    }
+}
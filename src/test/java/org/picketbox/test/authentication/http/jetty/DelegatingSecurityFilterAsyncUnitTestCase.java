@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.authentication.http.jetty;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URL;
+import java.util.EnumSet;
+
+import javax.servlet.DispatcherType;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.FilterMapping;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.webapp.WebAppContext;
+import org.junit.Test;
+import org.picketbox.core.authentication.PicketBoxConstants;
+import org.picketbox.http.filters.DelegatingSecurityFilter;
+import org.picketbox.test.http.jetty.EmbeddedWebServerBase;
+
+/**
+ * Unit test the {@link DelegatingSecurityFilter} in asynchronous mode
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class DelegatingSecurityFilterAsyncUnitTestCase extends EmbeddedWebServerBase {
+
+    String urlStr = "http://localhost:11080/auth/";
+
+    @Override
+    protected void establishUserApps() {
+        ClassLoader tcl = Thread.currentThread().getContextClassLoader();
+        if (tcl == null) {
+            tcl = getClass().getClassLoader();
+        }
+
+        final URL warUrl = tcl.getResource("auth/webapp");
+
+        WebAppContext webapp = createWebApp("/auth", warUrl.toExternalForm());
+        server.setHandler(webapp);
+
+        FilterHolder filterHolder = new FilterHolder(DelegatingSecurityFilter.class);
+
+        filterHolder.setAsyncSupported(true);
+        filterHolder.setInitParameter(DelegatingSecurityFilter.ASYNC_INIT_PARAM, "true");
+        filterHolder.setInitParameter(DelegatingSecurityFilter.ASYNC_THREADS_INIT_PARAM, "2");
+
+        webapp.setInitParameter(PicketBoxConstants.AUTHENTICATION_KEY, PicketBoxConstants.BASIC);
+        webapp.setInitParameter(PicketBoxConstants.HTTP_CONFIGURATION_PROVIDER, HTTPDigestConfigurationProvider.class.getName());
+
+        FilterMapping filterMapping = createFilterMapping("/", filterHolder);
+
+        filterMapping.setDispatcherTypes(EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
+
+        ServletHandler servletHandler = new ServletHandler();
+        servletHandler.addFilter(filterHolder, filterMapping);
+
+        webapp.setServletHandler(servletHandler);
+    }
+
+    @Test
+    public void testAuthenticated() throws Exception {
+        URL url = new URL(this.urlStr);
+        DefaultHttpClient httpclient = new DefaultHttpClient();
+
+        try {
+            httpclient.getCredentialsProvider().setCredentials(new AuthScope(url.getHost(), url.getPort()),
+                    new UsernamePasswordCredentials("Aladdin", "Open Sesame"));
+
+            HttpResponse response = httpclient.execute(new HttpGet(url.toExternalForm()));
+
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            EntityUtils.consume(response.getEntity());
+        } finally {
+            httpclient.getConnectionManager().shutdown();
+        }
+    }
+
+    @Test
+    public void testNotAuthenticated() throws Exception {
+        URL url = new URL(this.urlStr);
+        DefaultHttpClient httpclient = new DefaultHttpClient();
+
+        try {
+            HttpResponse response = httpclient.execute(new HttpGet(url.toExternalForm()));
+
+            assertEquals(401, response.getStatusLine().getStatusCode());
+            EntityUtils.consume(response.getEntity());
+        } finally {
+            httpclient.getConnectionManager().shutdown();
+        }
+    }
+}
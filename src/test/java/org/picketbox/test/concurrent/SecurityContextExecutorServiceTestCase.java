@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.concurrent;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.ctx.PicketBoxSecurityContext;
+import org.picketbox.core.ctx.SecurityContext;
+import org.picketbox.core.ctx.SecurityContextPropagation;
+import org.picketbox.http.HTTPUserContext;
+import org.picketbox.http.concurrent.SecurityContextExecutorService;
+import org.picketbox.http.concurrent.SecurityContextSnapshot;
+
+/**
+ * Unit test the {@link SecurityContextExecutorService} and {@link SecurityContextSnapshot} classes
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class SecurityContextExecutorServiceTestCase {
+
+    private static final Callable<SecurityContext> GET_CONTEXT = new Callable<SecurityContext>() {
+        @Override
+        public SecurityContext call() throws Exception {
+            return SecurityContextPropagation.getContext();
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Before
+    public void onSetup() throws Exception {
+        this.executor = new SecurityContextExecutorService(Executors.newSingleThreadExecutor());
+    }
+
+    @After
+    public void onFinish() throws Exception {
+        SecurityContextPropagation.clear();
+        this.executor.shutdown();
+    }
+
+    @Test
+    public void testContextIsPropagatedToWorker() throws Exception {
+        SecurityContext securityContext = createSecurityContext();
+
+        SecurityContextPropagation.setContext(securityContext);
+
+        assertSame(securityContext, this.executor.submit(GET_CONTEXT).get());
+
+        List<Future<SecurityContext>> results = this.executor.invokeAll(Arrays.asList(GET_CONTEXT, GET_CONTEXT));
+
+        for (Future<SecurityContext> result : results) {
+            assertSame(securityContext, result.get());
+        }
+    }
+
+    @Test
+    public void testWorkerDoesNotKeepContext() throws Exception {
+        SecurityContextPropagation.setContext(createSecurityContext());
+
+        this.executor.submit(GET_CONTEXT).get();
+
+        SecurityContextPropagation.clear();
+
+        assertNull(this.executor.submit(GET_CONTEXT).get());
+    }
+
+    @Test
+    public void testPreviousContextIsRestored() throws Exception {
+        SecurityContext securityContext = createSecurityContext();
+        SecurityContext callerContext = createSecurityContext();
+
+        SecurityContextPropagation.setContext(callerContext);
+
+        // simulates a task executed by the submitting thread
+        assertSame(securityContext, new SecurityContextSnapshot(securityContext).wrap(GET_CONTEXT).call());
+        assertSame(callerContext, SecurityContextPropagation.getContext());
+    }
+
+    private SecurityContext createSecurityContext() {
+        return new PicketBoxSecurityContext(new HTTPUserContext(null, null, null));
+    }
+}
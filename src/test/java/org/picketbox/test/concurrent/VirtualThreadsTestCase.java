@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.picketbox.http.concurrent.VirtualThreads;
+
+/**
+ * Unit test the {@link VirtualThreads} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class VirtualThreadsTestCase {
+
+    @Test
+    public void testUnsupportedJVM() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            assertNull(VirtualThreads.newVirtualThreadPerTaskExecutor());
+        }
+    }
+
+    @Test
+    public void testManyBlockedTasks() throws Exception {
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+        if (executor == null) {
+            return;
+        }
+
+        int tasks = 5000;
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(tasks);
+        final AtomicInteger completed = new AtomicInteger();
+
+        try {
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            // simulates a blocking call to the identity store
+                            release.await(10, TimeUnit.SECONDS);
+                            completed.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+                });
+            }
+
+            release.countDown();
+
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+            assertEquals(tasks, completed.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
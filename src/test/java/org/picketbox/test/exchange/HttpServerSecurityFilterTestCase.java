@@ -0,0 +1,190 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.UserContext;
+import org.picketbox.core.util.Base64;
+import org.picketbox.http.config.HTTPConfigurationBuilder;
+import org.picketbox.http.exchange.BasicExchangeAuthentication;
+import org.picketbox.http.exchange.HttpServerExchange;
+import org.picketbox.http.exchange.HttpServerSecurityFilter;
+import org.picketbox.http.exchange.SecurityPipeline;
+import org.picketbox.http.identity.Bulkhead;
+import org.picketbox.test.authentication.http.AbstractAuthenticationTest;
+
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit test the {@link SecurityPipeline} running on the HTTP server provided by the JDK
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class HttpServerSecurityFilterTestCase extends AbstractAuthenticationTest {
+
+    private HttpServer server;
+
+    @Before
+    public void onSetup() throws Exception {
+        initialize();
+
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+        HttpContext context = this.server.createContext("/app", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                UserContext userContext = SecurityPipeline.getUserContext(new HttpServerExchange(exchange));
+                byte[] body = userContext.getPrincipal().getName().getBytes("UTF-8");
+
+                exchange.sendResponseHeaders(200, body.length);
+
+                OutputStream out = exchange.getResponseBody();
+
+                out.write(body);
+                out.close();
+            }
+        });
+
+        context.getFilters().add(
+                new HttpServerSecurityFilter(new SecurityPipeline(this.picketBoxManager, new BasicExchangeAuthentication())));
+
+        this.server.createContext("/path", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = new HttpServerExchange(exchange).getRequestPath().getBytes("UTF-8");
+
+                exchange.sendResponseHeaders(200, body.length);
+
+                OutputStream out = exchange.getResponseBody();
+
+                out.write(body);
+                out.close();
+            }
+        });
+
+        this.server.start();
+    }
+
+    @Override
+    protected void doConfigureManager(HTTPConfigurationBuilder configuration) {
+        configuration.authentication().bulkhead().maxConcurrentCalls(1).maxQueueSize(0).retryAfter(5);
+    }
+
+    @After
+    public void onFinish() throws Exception {
+        this.server.stop(0);
+        this.picketBoxManager.stop();
+    }
+
+    @Test
+    public void testChallengeWithoutCredentials() throws Exception {
+        HttpURLConnection connection = openConnection(null);
+
+        assertEquals(401, connection.getResponseCode());
+        assertTrue(connection.getHeaderField("WWW-Authenticate").startsWith("basic realm="));
+    }
+
+    @Test
+    public void testValidCredentials() throws Exception {
+        HttpURLConnection connection = openConnection("Aladdin:Open Sesame");
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("Aladdin", readBody(connection));
+    }
+
+    @Test
+    public void testInvalidCredentials() throws Exception {
+        HttpURLConnection connection = openConnection("Aladdin:Bad Password");
+
+        assertEquals(401, connection.getResponseCode());
+    }
+
+    @Test
+    public void testRejectWhenIdentityStoreIsSaturated() throws Exception {
+        Bulkhead bulkhead = this.picketBoxManager.getAuthenticationBulkhead();
+
+        // another request is calling the identity store
+        bulkhead.acquire();
+
+        try {
+            HttpURLConnection connection = openConnection("Aladdin:Open Sesame");
+
+            assertEquals(503, connection.getResponseCode());
+            assertEquals("5", connection.getHeaderField("Retry-After"));
+        } finally {
+            bulkhead.release();
+        }
+
+        assertEquals(200, openConnection("Aladdin:Open Sesame").getResponseCode());
+    }
+
+    @Test
+    public void testRequestPathIsNormalized() throws Exception {
+        assertEquals("/admin/index.html", readBody(openConnection("/path/public/../admin/index.html", null)));
+        assertEquals("/admin/index.html", readBody(openConnection("/path/./admin/index.html", null)));
+    }
+
+    private HttpURLConnection openConnection(String usernamePassword) throws IOException {
+        return openConnection("/app/index.html", usernamePassword);
+    }
+
+    private HttpURLConnection openConnection(String path, String usernamePassword) throws IOException {
+        URL url = new URL("http://localhost:" + this.server.getAddress().getPort() + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+        if (usernamePassword != null) {
+            connection.setRequestProperty("Authorization", "Basic " + Base64.encodeBytes(usernamePassword.getBytes()));
+        }
+
+        return connection;
+    }
+
+    private String readBody(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getInputStream();
+        StringBuilder body = new StringBuilder();
+        int c;
+
+        while ((c = in.read()) != -1) {
+            body.append((char) c);
+        }
+
+        in.close();
+
+        return body.toString();
+    }
+}
@@ -105,6 +105,10 @@ public class TestServletRequest implements HttpServletRequest {
         return this.cookies.toArray(new Cookie[this.cookies.size()]);
     }
 
+    public void addCookie(Cookie cookie) {
+        this.cookies.add(cookie);
+    }
+
     public long getDateHeader(String name) {
         return 0;
     }
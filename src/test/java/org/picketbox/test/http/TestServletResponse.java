@@ -25,8 +25,10 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -47,12 +49,21 @@ public class TestServletResponse implements HttpServletResponse {
 
     private String sendRedirectedURI = null;
 
+    private List<Cookie> cookies = new ArrayList<Cookie>();
+
+    private int status;
+
     public TestServletResponse(OutputStream os) {
         super();
         bos = new BufferedOutputStream(os);
     }
 
     public void addCookie(Cookie cookie) {
+        this.cookies.add(cookie);
+    }
+
+    public List<Cookie> getCookies() {
+        return this.cookies;
     }
 
     public void addDateHeader(String name, long date) {
@@ -85,9 +96,11 @@ public class TestServletResponse implements HttpServletResponse {
     }
 
     public void sendError(int sc) throws IOException {
+        this.status = sc;
     }
 
     public void sendError(int sc, String msg) throws IOException {
+        this.status = sc;
     }
 
     public String getSendRedirectedURI() {
@@ -109,9 +122,11 @@ public class TestServletResponse implements HttpServletResponse {
     }
 
     public void setStatus(int sc) {
+        this.status = sc;
     }
 
     public void setStatus(int sc, String sm) {
+        this.status = sc;
     }
 
     public void flushBuffer() throws IOException {
@@ -175,7 +190,7 @@ public class TestServletResponse implements HttpServletResponse {
 
     @Override
     public int getStatus() {
-        return 0;
+        return this.status;
     }
 
     @Override
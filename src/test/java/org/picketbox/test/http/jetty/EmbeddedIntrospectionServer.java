@@ -0,0 +1,185 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.test.http.jetty;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.bio.SocketConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.picketbox.core.util.Base64;
+
+/**
+ * <p>
+ * Stand-in for an OAuth 2.0 token introspection endpoint (RFC 7662), used to test the token introspection authentication
+ * without an authorization server. Tokens are registered with {@link #addToken(String, String, long)}.
+ * </p>
+ * <p>
+ * It can also be started from the command line to load test the mechanism locally: <code>EmbeddedIntrospectionServer [port]
+ * [tokens]</code> registers tokens named <code>token-0</code> to <code>token-N</code>, valid for one hour.
+ * </p>
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class EmbeddedIntrospectionServer {
+
+    public static final String CONTEXT_PATH = "/oauth";
+    public static final String INTROSPECTION_PATH = "/introspect";
+    public static final String CLIENT_ID = "picketbox";
+    public static final String CLIENT_SECRET = "picketbox-secret";
+
+    private final Map<String, String> tokens = new ConcurrentHashMap<String, String>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final int port;
+    private long delay;
+
+    private Server server;
+
+    public EmbeddedIntrospectionServer(int port) {
+        this.port = port;
+    }
+
+    public void start() throws Exception {
+        this.server = new Server();
+
+        SocketConnector connector = new SocketConnector();
+
+        connector.setPort(this.port);
+
+        this.server.addConnector(connector);
+
+        ServletContextHandler context = new ServletContextHandler();
+
+        context.setContextPath(CONTEXT_PATH);
+        context.addServlet(new ServletHolder(new IntrospectionServlet()), INTROSPECTION_PATH);
+
+        this.server.setHandler(context);
+        this.server.start();
+    }
+
+    public void stop() throws Exception {
+        if (this.server != null) {
+            this.server.stop();
+            this.server.destroy();
+            this.server = null;
+        }
+    }
+
+    /**
+     * @return the URL of the introspection endpoint
+     */
+    public String getEndpoint() {
+        return "http://localhost:" + this.port + CONTEXT_PATH + INTROSPECTION_PATH;
+    }
+
+    /**
+     * <p>
+     * Registers an active token.
+     * </p>
+     *
+     * @param token
+     * @param userName
+     * @param expiresAt expiration time in milliseconds
+     */
+    public void addToken(String token, String userName, long expiresAt) {
+        this.tokens.put(token, "{\"active\":true,\"username\":\"" + userName + "\",\"client_id\":\"" + CLIENT_ID
+                + "\",\"token_type\":\"Bearer\",\"exp\":" + (expiresAt / 1000) + "}");
+    }
+
+    public void removeToken(String token) {
+        this.tokens.remove(token);
+    }
+
+    /**
+     * @param delay time in milliseconds each response is delayed, to simulate a remote endpoint
+     */
+    public void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * @return the number of introspection requests received
+     */
+    public long getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    private class IntrospectionServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String expectedAuthorization = "Basic "
+                + Base64.encodeBytes((CLIENT_ID + ":" + CLIENT_SECRET).getBytes()).replaceAll("\\s", "");
+
+        @Override
+        protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+            requestCount.incrementAndGet();
+
+            if (!this.expectedAuthorization.equals(request.getHeader("Authorization"))) {
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+                return;
+            }
+
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            String token = request.getParameter("token");
+            String result = token != null ? tokens.get(token) : null;
+
+            response.setContentType("application/json");
+            response.getWriter().write(result != null ? result : "{\"active\":false}");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 11090;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        EmbeddedIntrospectionServer server = new EmbeddedIntrospectionServer(port);
+
+        for (int i = 0; i < count; i++) {
+            server.addToken("token-" + i, "user-" + i, System.currentTimeMillis() + 60 * 60 * 1000);
+        }
+
+        server.start();
+
+        System.out.println("Token introspection endpoint listening at " + server.getEndpoint());
+
+        server.server.join();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.test.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+import org.picketbox.http.identity.APIKeyIndex;
+import org.picketbox.http.identity.APIKeyLoader;
+import org.picketbox.http.identity.FileAPIKeyLoader;
+
+/**
+ * Unit test the {@link APIKeyIndex} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class APIKeyIndexTestCase {
+
+    private static final byte[] SECRET = "index-secret".getBytes();
+
+    private APIKeyIndex index;
+    private File file;
+
+    @After
+    public void onFinish() {
+        if (this.index != null) {
+            this.index.close();
+        }
+
+        if (this.file != null) {
+            this.file.delete();
+        }
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        this.index = new APIKeyIndex(SECRET, null, 0);
+
+        this.index.put(this.index.hash("key-1"), "service-a");
+        this.index.put(this.index.hash("key-2"), "service-b");
+
+        assertEquals("service-a", this.index.getUserName("key-1"));
+        assertEquals("service-b", this.index.getUserName("key-2"));
+        assertNull(this.index.getUserName("key-3"));
+
+        // a different secret produces different hashes
+        assertNull(new APIKeyIndex("other-secret".getBytes(), null, 0).getUserName("key-1"));
+    }
+
+    @Test
+    public void testIncrementalRefresh() throws Exception {
+        final APIKeyIndex hasher = new APIKeyIndex(SECRET, null, 0);
+        final Map<String, String> changes = new HashMap<String, String>();
+
+        changes.put(hasher.hash("key-1"), "service-a");
+        changes.put(hasher.hash("key-2"), "service-b");
+
+        this.index = new APIKeyIndex(SECRET, new APIKeyLoader() {
+            @Override
+            public Map<String, String> loadChanges(long since) {
+                Map<String, String> result = new HashMap<String, String>(changes);
+
+                changes.clear();
+
+                return result;
+            }
+        }, 0);
+
+        assertEquals("service-a", this.index.getUserName("key-1"));
+        assertEquals(2, this.index.size());
+
+        changes.put(hasher.hash("key-1"), null);
+        changes.put(hasher.hash("key-3"), "service-c");
+
+        this.index.refresh();
+
+        assertNull(this.index.getUserName("key-1"));
+        assertEquals("service-b", this.index.getUserName("key-2"));
+        assertEquals("service-c", this.index.getUserName("key-3"));
+        assertEquals(2, this.index.size());
+    }
+
+    @Test
+    public void testFileLoader() throws Exception {
+        APIKeyIndex hasher = new APIKeyIndex(SECRET, null, 0);
+
+        this.file = File.createTempFile("api-keys", ".properties");
+
+        Properties keys = new Properties();
+
+        keys.setProperty(hasher.hash("key-1"), "service-a");
+        keys.setProperty(hasher.hash("key-2"), "service-b");
+
+        store(keys, 1000);
+
+        this.index = new APIKeyIndex(SECRET, new FileAPIKeyLoader(this.file.getPath()), 0);
+
+        assertEquals("service-a", this.index.getUserName("key-1"));
+        assertEquals("service-b", this.index.getUserName("key-2"));
+
+        keys.remove(hasher.hash("key-1"));
+
+        store(keys, 2000);
+
+        this.index.refresh();
+
+        assertNull(this.index.getUserName("key-1"));
+        assertEquals("service-b", this.index.getUserName("key-2"));
+    }
+
+    private void store(Properties keys, long lastModified) throws Exception {
+        FileOutputStream output = new FileOutputStream(this.file);
+
+        try {
+            keys.store(output, null);
+        } finally {
+            output.close();
+        }
+
+        this.file.setLastModified(lastModified);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.picketbox.http.identity.BatchingIdentityLoader;
+import org.picketbox.http.identity.BulkIdentityLoader;
+
+/**
+ * Unit test the {@link BatchingIdentityLoader} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class BatchingIdentityLoaderTestCase {
+
+    @Test
+    public void testConcurrentLookupsAreBatched() throws Exception {
+        TestBulkLoader delegate = new TestBulkLoader(true);
+        final BatchingIdentityLoader<String> loader = new BatchingIdentityLoader<String>(delegate, 50, 64);
+
+        List<Future<String>> results = loadConcurrently(loader, 64);
+
+        for (int i = 0; i < results.size(); i++) {
+            String result = results.get(i).get(5, TimeUnit.SECONDS);
+
+            if (i % 8 == 0) {
+                assertNull(result);
+            } else {
+                assertEquals("user" + i + "-loaded", result);
+            }
+        }
+
+        assertTrue(delegate.bulkLookups.get() < 64);
+        assertEquals(0, delegate.singleLookups.get());
+    }
+
+    @Test
+    public void testFallbackToIndividualLookups() throws Exception {
+        TestBulkLoader delegate = new TestBulkLoader(false);
+        BatchingIdentityLoader<String> loader = new BatchingIdentityLoader<String>(delegate, 50, 64);
+
+        List<Future<String>> results = loadConcurrently(loader, 16);
+
+        for (int i = 0; i < results.size(); i++) {
+            if (i % 8 != 0) {
+                assertEquals("user" + i + "-loaded", results.get(i).get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(16, delegate.singleLookups.get());
+    }
+
+    private List<Future<String>> loadConcurrently(final BatchingIdentityLoader<String> loader, int count) {
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        List<Future<String>> results = new ArrayList<Future<String>>();
+
+        for (int i = 0; i < count; i++) {
+            final String key = i % 8 == 0 ? "unknown" + i : "user" + i;
+
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return loader.load(key);
+                }
+            }));
+        }
+
+        executor.shutdown();
+
+        return results;
+    }
+
+    private static class TestBulkLoader implements BulkIdentityLoader<String> {
+
+        private final boolean bulkSupported;
+        private final AtomicInteger bulkLookups = new AtomicInteger();
+        private final AtomicInteger singleLookups = new AtomicInteger();
+
+        TestBulkLoader(boolean bulkSupported) {
+            this.bulkSupported = bulkSupported;
+        }
+
+        @Override
+        public String load(String key) {
+            this.singleLookups.incrementAndGet();
+            return key.startsWith("unknown") ? null : key + "-loaded";
+        }
+
+        @Override
+        public Map<String, String> loadAll(Collection<String> keys) {
+            if (!this.bulkSupported) {
+                throw new UnsupportedOperationException();
+            }
+
+            this.bulkLookups.incrementAndGet();
+
+            Map<String, String> users = new HashMap<String, String>();
+
+            for (String key : keys) {
+                if (!key.startsWith("unknown")) {
+                    users.put(key, key + "-loaded");
+                }
+            }
+
+            return users;
+        }
+    }
+}
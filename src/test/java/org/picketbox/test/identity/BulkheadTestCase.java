@@ -0,0 +1,98 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.picketbox.http.identity.Bulkhead;
+
+/**
+ * Unit test the {@link Bulkhead} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class BulkheadTestCase {
+
+    @Test
+    public void testRejectWhenQueueIsFull() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 0, 1000, 5);
+
+        assertTrue(bulkhead.acquire());
+        assertFalse(bulkhead.acquire());
+        assertEquals(1, bulkhead.getActiveCount());
+        assertEquals(1, bulkhead.getRejectedCount());
+
+        bulkhead.release();
+
+        assertTrue(bulkhead.acquire());
+    }
+
+    @Test
+    public void testRejectWhenWaitTimesOut() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 10, 50, 5);
+
+        assertTrue(bulkhead.acquire());
+        assertFalse(bulkhead.acquire());
+        assertEquals(0, bulkhead.getQueueDepth());
+        assertTrue(bulkhead.getMaxWaitTime() >= 50);
+    }
+
+    @Test
+    public void testQueuedCallerGetsReleasedPermit() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead(1, 10, 5000, 5);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            assertTrue(bulkhead.acquire());
+
+            Future<Boolean> queued = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return bulkhead.acquire();
+                }
+            });
+
+            for (int i = 0; i < 100 && bulkhead.getQueueDepth() == 0; i++) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(1, bulkhead.getQueueDepth());
+
+            bulkhead.release();
+
+            assertTrue(queued.get(5, TimeUnit.SECONDS));
+            assertEquals(2, bulkhead.getAcquiredCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.http.identity.CertificateChainValidator;
+
+/**
+ * Unit test the {@link CertificateChainValidator} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class CertificateChainValidatorTestCase {
+
+    private X509Certificate root;
+    private X509Certificate intermediate;
+    private X509Certificate crossSignedIntermediate;
+    private X509Certificate leaf;
+    private X509Certificate rogueLeaf;
+
+    @Before
+    public void onSetup() throws Exception {
+        this.root = readCertificate("cert/chain/root.pem");
+        this.intermediate = readCertificate("cert/chain/intermediate.pem");
+        this.crossSignedIntermediate = readCertificate("cert/chain/cross-signed-intermediate.pem");
+        this.leaf = readCertificate("cert/chain/leaf.pem");
+        this.rogueLeaf = readCertificate("cert/chain/rogue-leaf.pem");
+    }
+
+    @Test
+    public void testChainWithKnownIntermediate() throws Exception {
+        CertificateChainValidator validator = CertificateChainValidator.load(getPath("cert/chain/root.pem"),
+                getPath("cert/chain/intermediate.pem"), 60000, 10);
+
+        assertTrue(validator.isTrusted(new X509Certificate[] { this.leaf }, fingerprint(this.leaf)));
+        assertEquals(1, validator.size());
+
+        // served from the cache
+        assertTrue(validator.isTrusted(new X509Certificate[] { this.leaf }, fingerprint(this.leaf)));
+        assertEquals(1, validator.size());
+    }
+
+    @Test
+    public void testChainWithPresentedIntermediate() throws Exception {
+        CertificateChainValidator validator = new CertificateChainValidator(Collections.singleton(this.root),
+                Collections.<X509Certificate> emptySet(), 60000, 10);
+
+        assertFalse(validator.isTrusted(new X509Certificate[] { this.leaf }, fingerprint(this.leaf)));
+        assertTrue(validator.isTrusted(new X509Certificate[] { this.leaf, this.intermediate }, fingerprint(this.leaf)));
+    }
+
+    @Test
+    public void testCrossSignedIntermediate() throws Exception {
+        // same name and key as the trusted intermediate, but issued by an unknown root
+        CertificateChainValidator validator = new CertificateChainValidator(Collections.singleton(this.root),
+                Arrays.asList(this.crossSignedIntermediate, this.intermediate), 60000, 10);
+
+        assertTrue(validator.isTrusted(new X509Certificate[] { this.leaf }, fingerprint(this.leaf)));
+
+        validator = new CertificateChainValidator(Collections.singleton(this.root), Collections.<X509Certificate> emptySet(),
+                60000, 10);
+
+        assertTrue(validator.isTrusted(new X509Certificate[] { this.leaf, this.crossSignedIntermediate, this.intermediate },
+                fingerprint(this.leaf)));
+    }
+
+    @Test
+    public void testMaxCachedChains() throws Exception {
+        CertificateChainValidator validator = new CertificateChainValidator(Collections.singleton(this.root),
+                Collections.singleton(this.intermediate), 60000, 1);
+
+        assertTrue(validator.isTrusted(new X509Certificate[] { this.leaf }, fingerprint(this.leaf)));
+        assertTrue(validator.isTrusted(new X509Certificate[] { this.intermediate }, fingerprint(this.intermediate)));
+
+        // the latest validated chain replaces the least recently used one
+        assertEquals(1, validator.size());
+    }
+
+    @Test
+    public void testUntrustedChain() throws Exception {
+        CertificateChainValidator validator = new CertificateChainValidator(Collections.singleton(this.root),
+                Collections.singleton(this.intermediate), 60000, 10);
+
+        // issued by a CA with the same name as the trusted intermediate, but a different key
+        assertFalse(validator.isTrusted(new X509Certificate[] { this.rogueLeaf }, fingerprint(this.rogueLeaf)));
+        assertFalse(validator.isTrusted(new X509Certificate[] { this.rogueLeaf, this.intermediate },
+                fingerprint(this.rogueLeaf)));
+        assertEquals(0, validator.size());
+
+        // no trust anchor
+        validator = new CertificateChainValidator(Collections.<X509Certificate> emptySet(),
+                Collections.singleton(this.intermediate), 60000, 10);
+
+        assertFalse(validator.isTrusted(new X509Certificate[] { this.leaf }, fingerprint(this.leaf)));
+    }
+
+    private X509Certificate readCertificate(String resource) throws Exception {
+        InputStream input = getClass().getClassLoader().getResourceAsStream(resource);
+
+        try {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    private String getPath(String resource) throws Exception {
+        return new File(getClass().getClassLoader().getResource(resource).toURI()).getPath();
+    }
+
+    private byte[] fingerprint(X509Certificate certificate) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+    }
+}
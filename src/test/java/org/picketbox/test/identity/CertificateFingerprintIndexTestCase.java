@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.picketbox.http.identity.CertificateFingerprintIndex;
+
+/**
+ * Unit test the {@link CertificateFingerprintIndex} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class CertificateFingerprintIndexTestCase {
+
+    private File file;
+
+    @After
+    public void onFinish() {
+        if (this.file != null) {
+            this.file.delete();
+        }
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        Map<String, String> mappings = new HashMap<String, String>();
+
+        for (int i = 0; i < 10000; i++) {
+            mappings.put(toHex(fingerprint("device-" + i), false), "user-" + (i % 100));
+        }
+
+        CertificateFingerprintIndex index = new CertificateFingerprintIndex(mappings);
+
+        assertEquals(10000, index.size());
+
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("user-" + (i % 100), index.getUserName(fingerprint("device-" + i)));
+        }
+
+        assertNull(index.getUserName(fingerprint("device-10000")));
+        assertNull(index.getUserName(new byte[16]));
+    }
+
+    @Test
+    public void testLoadFromFile() throws Exception {
+        this.file = File.createTempFile("certificates", ".properties");
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(this.file), "UTF-8");
+
+        writer.write("# device certificates\n");
+        writer.write(toHex(fingerprint("device-1"), true) + " = jduke\n");
+        writer.write("\n");
+        writer.write(toHex(fingerprint("device-2"), false).toUpperCase() + "=Aladdin\n");
+        writer.close();
+
+        CertificateFingerprintIndex index = CertificateFingerprintIndex.load(this.file.getPath());
+
+        assertEquals(2, index.size());
+        assertEquals("jduke", index.getUserName(fingerprint("device-1")));
+        assertEquals("Aladdin", index.getUserName(fingerprint("device-2")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFingerprint() throws Exception {
+        Map<String, String> mappings = new HashMap<String, String>();
+
+        mappings.put("0a1b2c", "jduke");
+
+        new CertificateFingerprintIndex(mappings);
+    }
+
+    private byte[] fingerprint(String value) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(value.getBytes("UTF-8"));
+    }
+
+    private String toHex(byte[] bytes, boolean colons) {
+        StringBuilder hex = new StringBuilder();
+
+        for (byte b : bytes) {
+            if (colons && hex.length() > 0) {
+                hex.append(':');
+            }
+
+            hex.append(String.format("%02x", b & 0xFF));
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.http.identity.CertificateRevocationIndex;
+
+/**
+ * Unit test the {@link CertificateRevocationIndex} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class CertificateRevocationIndexTestCase {
+
+    private X509Certificate certificate;
+    private static final byte[] SHA1 = { 0x2B, 0x0E, 0x03, 0x02, 0x1A };
+
+    private CertificateRevocationIndex index;
+    private File file;
+
+    @Before
+    public void onSetup() throws Exception {
+        InputStream bis = getClass().getClassLoader().getResourceAsStream("cert/servercert.txt");
+
+        this.certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(bis);
+
+        bis.close();
+    }
+
+    @After
+    public void onFinish() {
+        if (this.index != null) {
+            this.index.close();
+        }
+
+        if (this.file != null) {
+            this.file.delete();
+        }
+    }
+
+    @Test
+    public void testCRL() throws Exception {
+        String crl = new File(getClass().getClassLoader().getResource("cert/revoked-crl.pem").toURI()).getPath();
+
+        this.index = new CertificateRevocationIndex(Arrays.asList(crl), 0);
+
+        assertEquals(1, this.index.size());
+        assertTrue(this.index.isRevoked(this.certificate));
+    }
+
+    @Test
+    public void testOCSPResponse() throws Exception {
+        this.file = File.createTempFile("ocsp", ".der");
+
+        writeOCSPResponse(this.certificate.getIssuerX500Principal(), this.certificate.getSerialNumber());
+
+        this.index = new CertificateRevocationIndex(Arrays.asList(this.file.getPath()), 0);
+
+        assertEquals(1, this.index.size());
+        assertTrue(this.index.isRevoked(this.certificate));
+    }
+
+    @Test
+    public void testSerialNumberFromOtherIssuer() throws Exception {
+        this.file = File.createTempFile("ocsp", ".der");
+
+        writeOCSPResponse(new X500Principal("CN=Other CA"), this.certificate.getSerialNumber());
+
+        this.index = new CertificateRevocationIndex(Arrays.asList(this.file.getPath()), 0);
+
+        assertFalse(this.index.isRevoked(this.certificate));
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        this.file = File.createTempFile("ocsp", ".der");
+
+        writeOCSPResponse(this.certificate.getIssuerX500Principal(), BigInteger.ONE);
+
+        this.index = new CertificateRevocationIndex(Arrays.asList(this.file.getPath()), 0);
+
+        assertFalse(this.index.isRevoked(this.certificate));
+
+        writeOCSPResponse(this.certificate.getIssuerX500Principal(), this.certificate.getSerialNumber());
+        this.file.setLastModified(this.file.lastModified() + 2000);
+
+        this.index.refresh();
+
+        assertTrue(this.index.isRevoked(this.certificate));
+    }
+
+    @Test
+    public void testStaleOCSPResponse() throws Exception {
+        this.file = File.createTempFile("ocsp", ".der");
+
+        writeOCSPResponse(SHA1, this.certificate.getIssuerX500Principal(), BigInteger.ONE, "20120710000000Z");
+
+        this.index = new CertificateRevocationIndex(Arrays.asList(this.file.getPath()), 0);
+
+        assertTrue(this.index.isStale());
+        assertFalse(this.index.isRevoked(this.certificate));
+
+        this.index.close();
+
+        this.index = new CertificateRevocationIndex(Arrays.asList(this.file.getPath()), 0, true);
+
+        assertTrue(this.index.isRevoked(this.certificate));
+    }
+
+    @Test
+    public void testFreshOCSPResponse() throws Exception {
+        this.file = File.createTempFile("ocsp", ".der");
+
+        writeOCSPResponse(SHA1, this.certificate.getIssuerX500Principal(), BigInteger.ONE, "29991231000000Z");
+
+        this.index = new CertificateRevocationIndex(Arrays.asList(this.file.getPath()), 0, true);
+
+        assertFalse(this.index.isStale());
+        assertFalse(this.index.isRevoked(this.certificate));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnsupportedHashAlgorithm() throws Exception {
+        this.file = File.createTempFile("ocsp", ".der");
+
+        // MD5
+        writeOCSPResponse(new byte[] { 0x2A, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xF7, 0x0D, 0x02, 0x05 },
+                this.certificate.getIssuerX500Principal(), this.certificate.getSerialNumber(), null);
+
+        this.index = new CertificateRevocationIndex(Arrays.asList(this.file.getPath()), 0);
+    }
+
+    private void writeOCSPResponse(X500Principal issuer, BigInteger serialNumber) throws Exception {
+        writeOCSPResponse(SHA1, issuer, serialNumber, null);
+    }
+
+    /**
+     * Writes an unsigned OCSP response with a single revoked certificate.
+     */
+    private void writeOCSPResponse(byte[] hashAlgorithm, X500Principal issuer, BigInteger serialNumber, String nextUpdate)
+            throws Exception {
+        byte[] algorithm = der(0x30, der(0x06, hashAlgorithm), der(0x05));
+        byte[] issuerNameHash = MessageDigest.getInstance("SHA-1").digest(issuer.getEncoded());
+        byte[] certID = der(0x30, algorithm, der(0x04, issuerNameHash), der(0x04, new byte[20]),
+                der(0x02, serialNumber.toByteArray()));
+        byte[] time = der(0x18, "20120709000000Z".getBytes("US-ASCII"));
+        byte[] singleResponse = der(0x30, certID, der(0xA1, time), time);
+
+        if (nextUpdate != null) {
+            singleResponse = der(0x30, certID, der(0xA1, time), time, der(0xA0, der(0x18, nextUpdate.getBytes("US-ASCII"))));
+        }
+
+        byte[] responseData = der(0x30, der(0xA2, der(0x04, new byte[20])), time, der(0x30, singleResponse));
+        byte[] basicResponse = der(0x30, responseData, der(0x30, der(0x06, new byte[] { 0x2A })), der(0x03, new byte[1]));
+        byte[] responseBytes = der(0x30, der(0x06, new byte[] { 0x2B, 0x06, 0x01, 0x05, 0x05, 0x07, 0x30, 0x01, 0x01 }),
+                der(0x04, basicResponse));
+        byte[] response = der(0x30, der(0x0A, new byte[] { 0 }), der(0xA0, responseBytes));
+
+        FileOutputStream output = new FileOutputStream(this.file);
+
+        output.write(response);
+        output.close();
+    }
+
+    private byte[] der(int tag, byte[]... values) throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        for (byte[] value : values) {
+            content.write(value);
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+        encoded.write(tag);
+
+        if (content.size() < 0x80) {
+            encoded.write(content.size());
+        } else {
+            encoded.write(0x82);
+            encoded.write(content.size() >> 8);
+            encoded.write(content.size());
+        }
+
+        content.writeTo(encoded);
+
+        return encoded.toByteArray();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.picketbox.core.PicketBoxPrincipal;
+import org.picketbox.http.identity.CircuitBreaker;
+import org.picketbox.http.identity.CircuitBreaker.State;
+import org.picketbox.http.identity.VerifiedCredentialCache;
+
+/**
+ * Unit test the {@link CircuitBreaker} and {@link VerifiedCredentialCache} classes
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class CircuitBreakerTestCase {
+
+    @Test
+    public void testOpenOnFailures() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 100, 1000, 4, 10000, 60000, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreaker.allowRequest());
+            circuitBreaker.onFailure(0);
+        }
+
+        // not enough calls yet
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onSuccess(0);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+        assertEquals(1, circuitBreaker.getRejectedCount());
+    }
+
+    @Test
+    public void testOpenOnSlowCalls() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 50, 100, 2, 10000, 60000, 1);
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(circuitBreaker.allowRequest());
+            circuitBreaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testHalfOpen() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 100, 1000, 1, 10000, 50, 2);
+
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onFailure(0);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+
+        Thread.sleep(100);
+
+        // only the configured number of trial calls is allowed
+        assertTrue(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+        circuitBreaker.onSuccess(0);
+        circuitBreaker.onSuccess(0);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenFailure() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(50, 100, 1000, 1, 10000, 50, 2);
+
+        circuitBreaker.allowRequest();
+        circuitBreaker.onFailure(0);
+
+        Thread.sleep(100);
+
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onFailure(0);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertEquals(2, circuitBreaker.getOpenedCount());
+    }
+
+    @Test
+    public void testVerifiedCredentialExpires() throws Exception {
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(50, 10);
+
+        cache.put("fingerprint", new PicketBoxPrincipal("admin"));
+
+        assertNotNull(cache.get("fingerprint"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("fingerprint"));
+    }
+
+    @Test
+    public void testVerifiedCredentialEviction() throws Exception {
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(60000, 10);
+
+        cache.put("admin", new PicketBoxPrincipal("admin"));
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("user" + i, new PicketBoxPrincipal("user" + i));
+
+            // recently used credentials are kept
+            assertNotNull(cache.get("admin"));
+        }
+
+        assertEquals(10, cache.size());
+
+        // the latest credential is stored even if the cache is full of live entries
+        assertNotNull(cache.get("user99"));
+        assertNull(cache.get("user0"));
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.picketbox.http.identity.IdentityCache;
+import org.picketbox.http.identity.IdentityLoader;
+
+/**
+ * Unit test the {@link IdentityCache} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class IdentityCacheTestCase {
+
+    private IdentityCache<String> cache;
+
+    @After
+    public void onFinish() {
+        if (this.cache != null) {
+            this.cache.close();
+        }
+    }
+
+    @Test
+    public void testFreshEntryIsNotReloaded() throws Exception {
+        this.cache = new IdentityCache<String>(60000, 120000, 1000, 100, 1);
+
+        CountingLoader loader = new CountingLoader();
+
+        assertEquals("admin-1", this.cache.get("admin", loader));
+        assertEquals("admin-1", this.cache.get("admin", loader));
+        assertEquals(1, loader.count.get());
+        assertEquals(1, this.cache.getHitCount());
+        assertEquals(1, this.cache.getMissCount());
+    }
+
+    @Test
+    public void testStaleEntryIsRefreshedInBackground() throws Exception {
+        this.cache = new IdentityCache<String>(0, 60000, 1000, 100, 1);
+
+        final CountDownLatch refreshed = new CountDownLatch(1);
+        CountingLoader loader = new CountingLoader() {
+            @Override
+            public String load(String key) {
+                String value = super.load(key);
+
+                if (this.count.get() == 2) {
+                    refreshed.countDown();
+                }
+
+                return value;
+            }
+        };
+
+        assertEquals("admin-1", this.cache.get("admin", loader));
+
+        // the stale entry is returned while the refresh happens in background
+        assertEquals("admin-1", this.cache.get("admin", loader));
+        assertEquals(1, this.cache.getStaleHitCount());
+
+        refreshed.await(5, TimeUnit.SECONDS);
+
+        waitForValue("admin", "admin-2", loader);
+    }
+
+    @Test
+    public void testStaleEntryIsKeptWhenRefreshFails() throws Exception {
+        this.cache = new IdentityCache<String>(0, 60000, 1000, 100, 1);
+
+        CountingLoader loader = new CountingLoader() {
+            @Override
+            public String load(String key) {
+                if (this.count.incrementAndGet() > 1) {
+                    throw new IllegalStateException("Backend unavailable.");
+                }
+
+                return key;
+            }
+        };
+
+        assertEquals("admin", this.cache.get("admin", loader));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("admin", this.cache.get("admin", loader));
+        }
+    }
+
+    @Test
+    public void testUnknownUserIsCached() throws Exception {
+        this.cache = new IdentityCache<String>(60000, 120000, 60000, 100, 1);
+
+        CountingLoader loader = new CountingLoader() {
+            @Override
+            public String load(String key) {
+                this.count.incrementAndGet();
+                return null;
+            }
+        };
+
+        assertNull(this.cache.get("unknown", loader));
+        assertNull(this.cache.get("unknown", loader));
+        assertEquals(1, loader.count.get());
+
+        this.cache.invalidate("unknown");
+
+        assertNull(this.cache.get("unknown", loader));
+        assertEquals(2, loader.count.get());
+    }
+
+    @Test
+    public void testMaxEntries() throws Exception {
+        this.cache = new IdentityCache<String>(60000, 120000, 1000, 10, 1);
+
+        CountingLoader loader = new CountingLoader();
+
+        for (int i = 0; i < 100; i++) {
+            this.cache.get("user" + i, loader);
+        }
+
+        assertEquals(10, this.cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        this.cache = new IdentityCache<String>(60000, 120000, 1000, 10, 1);
+
+        CountingLoader loader = new CountingLoader();
+
+        assertEquals("admin-1", this.cache.get("admin", loader));
+
+        for (int i = 0; i < 100; i++) {
+            this.cache.get("user" + i, loader);
+
+            // frequently used identities stay cached
+            assertEquals("admin-1", this.cache.get("admin", loader));
+        }
+
+        assertEquals(101, loader.count.get());
+        assertEquals(10, this.cache.size());
+    }
+
+    private void waitForValue(String key, String expected, CountingLoader loader) throws InterruptedException {
+        for (int i = 0; i < 100 && !expected.equals(this.cache.get(key, loader)); i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(expected, this.cache.get(key, loader));
+    }
+
+    private static class CountingLoader implements IdentityLoader<String> {
+
+        protected final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public String load(String key) {
+            return key + "-" + this.count.incrementAndGet();
+        }
+    }
+}
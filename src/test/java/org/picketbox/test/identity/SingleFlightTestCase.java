@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.picketbox.http.identity.SingleFlight;
+
+/**
+ * Unit test the {@link SingleFlight} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class SingleFlightTestCase {
+
+    @Test
+    public void testConcurrentCallsAreCoalesced() throws Exception {
+        final SingleFlight<Boolean> singleFlight = new SingleFlight<Boolean>();
+        final AtomicInteger verifications = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final Callable<Boolean> verification = new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                verifications.incrementAndGet();
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return true;
+            }
+        };
+
+        int callers = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+
+        try {
+            results.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return singleFlight.execute("key", verification);
+                }
+            }));
+
+            started.await(5, TimeUnit.SECONDS);
+
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return singleFlight.execute("key", verification);
+                    }
+                }));
+            }
+
+            // wait for all callers to join the running verification
+            for (int i = 0; i < 100 && singleFlight.getCoalescedCount() < callers - 1; i++) {
+                Thread.sleep(10);
+            }
+
+            release.countDown();
+
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, verifications.get());
+        assertEquals(callers - 1, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    public void testSequentialCallsAreNotCached() throws Exception {
+        SingleFlight<Boolean> singleFlight = new SingleFlight<Boolean>();
+        final AtomicInteger verifications = new AtomicInteger();
+
+        Callable<Boolean> verification = new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return verifications.incrementAndGet() > 0;
+            }
+        };
+
+        singleFlight.execute("key", verification);
+        singleFlight.execute("key", verification);
+
+        assertEquals(2, verifications.get());
+        assertEquals(2, singleFlight.getExecutionCount());
+    }
+
+    @Test
+    public void testExceptionIsPropagated() throws Exception {
+        SingleFlight<Boolean> singleFlight = new SingleFlight<Boolean>();
+
+        try {
+            singleFlight.execute("key", new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    throw new IllegalArgumentException("Backend failure.");
+                }
+            });
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
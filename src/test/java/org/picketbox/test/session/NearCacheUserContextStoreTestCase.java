@@ -0,0 +1,192 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.session;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.http.session.InMemoryUserContextStore;
+import org.picketbox.http.session.NearCacheUserContextStore;
+import org.picketbox.http.session.StoredUserContext;
+
+/**
+ * Unit test the {@link NearCacheUserContextStore} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class NearCacheUserContextStoreTestCase {
+
+    private InMemoryUserContextStore sharedStore;
+    private NearCacheUserContextStore node1;
+    private NearCacheUserContextStore node2;
+
+    @Before
+    public void onSetup() {
+        this.sharedStore = new InMemoryUserContextStore();
+        // large flush intervals and batch sizes, flushes are explicit
+        this.node1 = new NearCacheUserContextStore(this.sharedStore, 0, 60000, 1000);
+        this.node2 = new NearCacheUserContextStore(this.sharedStore, 0, 60000, 1000);
+    }
+
+    @After
+    public void onFinish() {
+        this.node1.close();
+        this.node2.close();
+    }
+
+    @Test
+    public void testBatchedWrites() throws Exception {
+        StoredUserContext userContext = createUserContext("1");
+
+        this.node1.store(Collections.singletonList(userContext));
+
+        // served locally while the write is pending
+        assertNotNull(this.node1.get("1"));
+        assertNull(this.node2.get("1"));
+        assertEquals(0, this.sharedStore.size());
+
+        this.node1.flush();
+
+        assertEquals(1, this.sharedStore.size());
+        assertNotNull(this.node2.get("1"));
+    }
+
+    @Test
+    public void testStaleRoles() throws Exception {
+        StoredUserContext userContext = createUserContext("1");
+
+        this.node1.store(Collections.singletonList(userContext));
+        this.node1.flush();
+
+        assertArrayEquals(new String[] { "manager" }, this.node2.get("1").getRoles());
+
+        this.node1.store(Collections.singletonList(userContext.withRoles(new String[] { "confidencial" })));
+        this.node1.flush();
+
+        assertArrayEquals(new String[] { "confidencial" }, this.node2.get("1").getRoles());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        this.node1.store(Collections.singletonList(createUserContext("1")));
+        this.node1.flush();
+
+        assertNotNull(this.node2.get("1"));
+
+        this.node1.remove(Collections.singletonList("1"));
+
+        assertNull(this.node1.get("1"));
+
+        this.node1.flush();
+
+        assertNull(this.node2.get("1"));
+        assertEquals(0, this.sharedStore.size());
+    }
+
+    @Test
+    public void testFailedFlush() throws Exception {
+        FailingUserContextStore failingStore = new FailingUserContextStore();
+        NearCacheUserContextStore node = new NearCacheUserContextStore(failingStore, 0, 60000, 1000);
+
+        try {
+            StoredUserContext userContext = createUserContext("1");
+
+            node.store(Collections.singletonList(userContext));
+            node.store(Collections.singletonList(createUserContext("2")));
+
+            failingStore.failing = true;
+
+            try {
+                node.flush();
+                fail("The shared store failure should be rethrown.");
+            } catch (IllegalStateException expected) {
+            }
+
+            // a newer write made after the failure is the one sent
+            node.store(Collections.singletonList(userContext.withRoles(new String[] { "confidencial" })));
+
+            failingStore.failing = false;
+
+            node.flush();
+
+            assertEquals(2, failingStore.size());
+            assertArrayEquals(new String[] { "confidencial" }, failingStore.get("1").getRoles());
+
+            node.remove(Collections.singletonList("2"));
+
+            failingStore.failing = true;
+
+            try {
+                node.flush();
+                fail("The shared store failure should be rethrown.");
+            } catch (IllegalStateException expected) {
+            }
+
+            assertNull(node.get("2"));
+
+            failingStore.failing = false;
+
+            node.flush();
+
+            assertEquals(1, failingStore.size());
+        } finally {
+            node.close();
+        }
+    }
+
+    private StoredUserContext createUserContext(String id) {
+        return new StoredUserContext(id, "Aladdin", new String[] { "manager" }, System.currentTimeMillis() + 60000);
+    }
+
+    private static class FailingUserContextStore extends InMemoryUserContextStore {
+
+        private volatile boolean failing;
+
+        @Override
+        public void store(Collection<StoredUserContext> userContexts) {
+            if (this.failing) {
+                throw new IllegalStateException("Shared store unavailable");
+            }
+
+            super.store(userContexts);
+        }
+
+        @Override
+        public void remove(Collection<String> ids) {
+            if (this.failing) {
+                throw new IllegalStateException("Shared store unavailable");
+            }
+
+            super.remove(ids);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.test.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.http.session.InMemoryRememberMeTokenStore;
+import org.picketbox.http.session.RememberMeManager;
+import org.picketbox.http.session.RememberMeToken;
+import org.picketbox.http.session.RememberMeTokenStore;
+import org.picketbox.test.http.TestServletRequest;
+import org.picketbox.test.http.TestServletResponse;
+
+/**
+ * Unit test the {@link RememberMeManager} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class RememberMeManagerTestCase {
+
+    private static final String COOKIE_NAME = "REMEMBER_ME";
+
+    private InMemoryRememberMeTokenStore store;
+    private RememberMeManager manager;
+
+    @Before
+    public void onSetup() {
+        this.store = new InMemoryRememberMeTokenStore();
+        this.manager = new RememberMeManager(this.store, COOKIE_NAME, 3600);
+    }
+
+    @Test
+    public void testTokenIsRotated() throws Exception {
+        Cookie cookie = remember("Aladdin");
+
+        assertEquals(1, this.store.size());
+        // only the hash of the token is stored
+        String[] seriesAndToken = cookie.getValue().split(":");
+
+        assertFalse(seriesAndToken[1].equals(this.store.get(seriesAndToken[0]).getTokenHash()));
+
+        TestServletResponse response = createResponse();
+
+        assertEquals("Aladdin", this.manager.autoLogin(createRequest(cookie), response));
+
+        Cookie rotated = response.getCookies().get(0);
+
+        assertEquals(cookie.getValue().split(":")[0], rotated.getValue().split(":")[0]);
+        assertFalse(cookie.getValue().equals(rotated.getValue()));
+        assertEquals("Aladdin", this.manager.autoLogin(createRequest(rotated), createResponse()));
+    }
+
+    @Test
+    public void testStolenTokenRemovesAllLogins() throws Exception {
+        Cookie stolen = remember("Aladdin");
+
+        remember("Aladdin");
+
+        TestServletResponse response = createResponse();
+
+        this.manager.autoLogin(createRequest(stolen), response);
+
+        // the legitimate user logs in again with the rotated token, so the stolen one is now two rotations behind
+        this.manager.autoLogin(createRequest(response.getCookies().get(0)), createResponse());
+
+        assertEquals(2, this.store.size());
+        assertNull(this.manager.autoLogin(createRequest(stolen), createResponse()));
+        assertEquals(0, this.store.size());
+    }
+
+    @Test
+    public void testParallelRequestsWithinGracePeriod() throws Exception {
+        Cookie cookie = remember("Aladdin");
+
+        this.manager.autoLogin(createRequest(cookie), createResponse());
+
+        // a request sent by the browser before it got the rotated token
+        assertEquals("Aladdin", this.manager.autoLogin(createRequest(cookie), createResponse()));
+        assertEquals(1, this.store.size());
+
+        String series = cookie.getValue().split(":")[0];
+        RememberMeToken current = this.store.get(series);
+
+        this.store.replace(current, new RememberMeToken(series, current.getUserName(), current.getTokenHash(),
+                current.getPreviousTokenHash(), current.getRotatedAt() - 6000, current.getExpiresAt()));
+
+        // once the grace period is over the replaced token is treated as stolen
+        assertNull(this.manager.autoLogin(createRequest(cookie), createResponse()));
+        assertEquals(0, this.store.size());
+    }
+
+    @Test
+    public void testExpiredLogin() throws Exception {
+        NonExpiringTokenStore store = new NonExpiringTokenStore();
+
+        this.manager = new RememberMeManager(store, COOKIE_NAME, 0);
+
+        Cookie cookie = remember("Aladdin");
+        TestServletResponse response = createResponse();
+
+        assertEquals(1, store.entries.size());
+        assertNull(this.manager.autoLogin(createRequest(cookie), response));
+        assertEquals(0, store.entries.size());
+        assertEquals(0, response.getCookies().get(0).getMaxAge());
+    }
+
+    @Test
+    public void testForget() throws Exception {
+        Cookie cookie = remember("Aladdin");
+        TestServletResponse response = createResponse();
+
+        this.manager.forget(createRequest(cookie), response);
+
+        assertEquals(0, this.store.size());
+        assertEquals(0, response.getCookies().get(0).getMaxAge());
+        assertNull(this.manager.autoLogin(createRequest(cookie), createResponse()));
+    }
+
+    private Cookie remember(String userName) {
+        TestServletResponse response = createResponse();
+
+        this.manager.remember(userName, createRequest(null), response);
+
+        return response.getCookies().get(0);
+    }
+
+    private TestServletRequest createRequest(Cookie cookie) {
+        TestServletRequest request = new TestServletRequest(new InputStream() {
+            @Override
+            public int read() {
+                return -1;
+            }
+        });
+
+        request.setContextPath("/test");
+
+        if (cookie != null) {
+            request.addCookie(cookie);
+        }
+
+        return request;
+    }
+
+    private TestServletResponse createResponse() {
+        return new TestServletResponse(new ByteArrayOutputStream());
+    }
+
+    /**
+     * <p>
+     * {@link RememberMeTokenStore} that returns logins even after they expire.
+     * </p>
+     */
+    private static class NonExpiringTokenStore implements RememberMeTokenStore {
+
+        private final ConcurrentMap<String, RememberMeToken> entries = new ConcurrentHashMap<String, RememberMeToken>();
+
+        @Override
+        public RememberMeToken get(String series) {
+            return this.entries.get(series);
+        }
+
+        @Override
+        public void store(RememberMeToken token) {
+            this.entries.put(token.getSeries(), token);
+        }
+
+        @Override
+        public boolean replace(RememberMeToken current, RememberMeToken updated) {
+            return this.entries.replace(current.getSeries(), current, updated);
+        }
+
+        @Override
+        public void remove(String series) {
+            this.entries.remove(series);
+        }
+
+        @Override
+        public void removeAll(String userName) {
+            for (RememberMeToken token : this.entries.values()) {
+                if (userName.equals(token.getUserName())) {
+                    this.entries.remove(token.getSeries(), token);
+                }
+            }
+        }
+    }
+}
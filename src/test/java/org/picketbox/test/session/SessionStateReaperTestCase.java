@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+import org.junit.Test;
+import org.picketbox.http.authentication.RequestCache;
+import org.picketbox.http.session.InMemoryUserContextStore;
+import org.picketbox.http.session.PicketBoxSharedSession;
+import org.picketbox.http.session.SessionStateBinding;
+import org.picketbox.http.session.SessionStateHolder;
+import org.picketbox.http.session.SessionStateReaper;
+import org.picketbox.http.session.StoredUserContext;
+import org.picketbox.http.session.UserSessionIndex;
+import org.picketbox.test.http.TestHttpSession;
+import org.picketbox.test.http.TestServletRequest;
+
+/**
+ * Unit test the {@link SessionStateReaper} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class SessionStateReaperTestCase {
+
+    @Test
+    public void testSessionDestroyed() throws Exception {
+        SessionStateReaper reaper = new SessionStateReaper();
+        RequestCache requestCache = new RequestCache();
+
+        reaper.register(requestCache);
+
+        TestServletRequest req = new TestServletRequest(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return 0;
+            }
+        });
+
+        req.setContextPath("/test");
+        req.setRequestURI(req.getContextPath() + "/index.html");
+
+        requestCache.saveRequest(req);
+
+        HttpSession session = req.getSession();
+
+        reaper.track(session);
+
+        HttpSessionBindingListener binding = (HttpSessionBindingListener) session.getAttribute(SessionStateBinding.class
+                .getName());
+
+        assertNotNull(binding);
+
+        // the container unbinds all attributes when the session is invalidated or expires
+        binding.valueUnbound(new HttpSessionBindingEvent(session, SessionStateBinding.class.getName()));
+
+        assertEquals(1, reaper.getPurgedSessionCount());
+        assertEquals(1, reaper.getPurgedEntryCount());
+
+        // purging is idempotent
+        reaper.sessionDestroyed(session.getId());
+
+        assertEquals(1, reaper.getPurgedSessionCount());
+        assertEquals(0, requestCache.purgeSession(session.getId()));
+    }
+
+    @Test
+    public void testSessionIdChanged() throws Exception {
+        SessionStateReaper reaper = new SessionStateReaper();
+        CountingHolder holder = new CountingHolder();
+
+        reaper.register(holder);
+
+        MutableIdSession session = new MutableIdSession();
+
+        session.id = "first";
+        reaper.track(session);
+
+        session.id = "second";
+        reaper.track(session);
+
+        assertEquals(1, reaper.getChangedSessionIdCount());
+        assertEquals("first", holder.lastPurged);
+    }
+
+    @Test
+    public void testSessionIdChangedKeepsUserSession() throws Exception {
+        SessionStateReaper reaper = new SessionStateReaper();
+        UserSessionIndex index = new UserSessionIndex(0);
+        InMemoryUserContextStore store = new InMemoryUserContextStore();
+
+        reaper.register(index);
+
+        MutableIdSession session = new MutableIdSession();
+
+        session.id = "first";
+        reaper.track(session);
+
+        store.store(Arrays.asList(new StoredUserContext("first", "admin", new String[] { "user" }, Long.MAX_VALUE)));
+        index.add("admin", "first", new PicketBoxSharedSession("first", store), Long.MAX_VALUE);
+
+        session.id = "second";
+        reaper.track(session);
+
+        assertEquals(1, index.getSessionCount("admin"));
+        assertEquals(0, index.purgeSession("first"));
+        assertEquals(1, index.logoutAll("admin"));
+        assertEquals(0, index.getSessionCount("admin"));
+    }
+
+    private static class MutableIdSession extends TestHttpSession {
+
+        private String id;
+
+        @Override
+        public String getId() {
+            return this.id;
+        }
+    }
+
+    private static class CountingHolder implements SessionStateHolder {
+
+        private String lastPurged;
+
+        @Override
+        public int purgeSession(String sessionId) {
+            this.lastPurged = sessionId;
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.session;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.picketbox.http.session.InMemorySessionRevocationStore;
+import org.picketbox.http.session.StatelessSessionCodec;
+import org.picketbox.http.session.StatelessSessionRevocationList;
+import org.picketbox.http.session.StatelessSessionToken;
+
+/**
+ * Unit test the {@link StatelessSessionCodec} and {@link StatelessSessionRevocationList} classes
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class StatelessSessionCodecTestCase {
+
+    private static final byte[] SIGNING_KEY = "0123456789abcdef0123456789abcdef".getBytes();
+    private static final byte[] ENCRYPTION_KEY = "fedcba9876543210".getBytes();
+
+    @Test
+    public void testSignedToken() throws Exception {
+        StatelessSessionCodec codec = new StatelessSessionCodec(SIGNING_KEY, null);
+        StatelessSessionToken token = createToken(codec);
+
+        StatelessSessionToken decoded = codec.decode(codec.encode(token));
+
+        assertNotNull(decoded);
+        assertEquals(token.getId(), decoded.getId());
+        assertEquals("Aladdin", decoded.getPrincipal());
+        assertArrayEquals(new String[] { "manager", "confidencial" }, decoded.getRoles());
+        assertEquals(token.getExpiresAt(), decoded.getExpiresAt());
+    }
+
+    @Test
+    public void testEncryptedToken() throws Exception {
+        StatelessSessionCodec codec = new StatelessSessionCodec(SIGNING_KEY, ENCRYPTION_KEY);
+        StatelessSessionToken token = createToken(codec);
+
+        StatelessSessionToken decoded = codec.decode(codec.encode(token));
+
+        assertNotNull(decoded);
+        assertEquals("Aladdin", decoded.getPrincipal());
+
+        // an encrypted value can not be read without the encryption key
+        assertNull(new StatelessSessionCodec(SIGNING_KEY, null).decode(codec.encode(token)));
+    }
+
+    @Test
+    public void testTamperedToken() throws Exception {
+        StatelessSessionCodec codec = new StatelessSessionCodec(SIGNING_KEY, null);
+        String value = codec.encode(createToken(codec));
+
+        char[] chars = value.toCharArray();
+
+        chars[5] = chars[5] == 'A' ? 'B' : 'A';
+
+        assertNull(codec.decode(new String(chars)));
+        assertNull(new StatelessSessionCodec("another key".getBytes(), null).decode(value));
+        assertNull(codec.decode("invalid"));
+        assertNull(codec.decode(null));
+    }
+
+    @Test
+    public void testRevocation() throws Exception {
+        StatelessSessionCodec codec = new StatelessSessionCodec(SIGNING_KEY, null);
+        StatelessSessionRevocationList revocationList = new StatelessSessionRevocationList(60000);
+
+        StatelessSessionToken token = createToken(codec);
+        StatelessSessionToken anotherToken = createToken(codec);
+
+        assertFalse(revocationList.isRevoked(token));
+
+        revocationList.revoke(token);
+
+        assertTrue(revocationList.isRevoked(token));
+        assertFalse(revocationList.isRevoked(anotherToken));
+
+        revocationList.revokeAll("Aladdin");
+
+        assertTrue(revocationList.isRevoked(anotherToken));
+
+        revocationList.purge(System.currentTimeMillis() + 120000);
+
+        assertEquals(0, revocationList.size());
+    }
+
+    @Test
+    public void testSharedRevocation() throws Exception {
+        StatelessSessionCodec codec = new StatelessSessionCodec(SIGNING_KEY, null);
+        InMemorySessionRevocationStore store = new InMemorySessionRevocationStore();
+        StatelessSessionRevocationList node1 = new StatelessSessionRevocationList(60000, store, 0);
+        StatelessSessionRevocationList node2 = new StatelessSessionRevocationList(60000, store, 0);
+
+        StatelessSessionToken token = createToken(codec);
+        StatelessSessionToken anotherToken = createToken(codec);
+
+        node1.revoke(token);
+
+        // other nodes only see the revocation once they read the store
+        assertFalse(node2.isRevoked(token));
+
+        node2.refresh();
+
+        assertTrue(node2.isRevoked(token));
+        assertFalse(node2.isRevoked(anotherToken));
+
+        node2.revokeAll("Aladdin");
+        node1.refresh();
+
+        assertTrue(node1.isRevoked(anotherToken));
+
+        // a restarted node reads the revocations on creation
+        assertTrue(new StatelessSessionRevocationList(60000, store, 0).isRevoked(anotherToken));
+    }
+
+    private StatelessSessionToken createToken(StatelessSessionCodec codec) {
+        long now = System.currentTimeMillis();
+
+        return new StatelessSessionToken(codec.newTokenId(), "Aladdin", new String[] { "manager", "confidencial" }, now,
+                now + 60000);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.picketbox.test.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.picketbox.http.session.InMemoryUserContextStore;
+import org.picketbox.http.session.PicketBoxSharedSession;
+import org.picketbox.http.session.StoredUserContext;
+import org.picketbox.http.session.UserSessionIndex;
+
+/**
+ * Unit test the {@link UserSessionIndex} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class UserSessionIndexTestCase {
+
+    private InMemoryUserContextStore store = new InMemoryUserContextStore();
+
+    @Test
+    public void testLogoutAll() throws Exception {
+        UserSessionIndex index = new UserSessionIndex(0);
+
+        addSession(index, "admin", "1");
+        addSession(index, "admin", "2");
+        addSession(index, "guest", "3");
+
+        assertEquals(2, index.getSessionCount("admin"));
+        assertEquals(2, index.logoutAll("admin"));
+        assertEquals(0, index.getSessionCount("admin"));
+        assertEquals(1, index.getSessionCount("guest"));
+
+        assertNull(this.store.get("1"));
+        assertNull(this.store.get("2"));
+        assertNotNull(this.store.get("3"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSessionIsEvicted() throws Exception {
+        UserSessionIndex index = new UserSessionIndex(2);
+
+        addSession(index, "admin", "1");
+        addSession(index, "admin", "2");
+
+        index.touch("1");
+
+        addSession(index, "admin", "3");
+
+        assertEquals(2, index.getSessionCount("admin"));
+        assertNotNull(this.store.get("1"));
+        assertNull(this.store.get("2"));
+        assertNotNull(this.store.get("3"));
+    }
+
+    @Test
+    public void testDestroyedSessionIsRemoved() throws Exception {
+        UserSessionIndex index = new UserSessionIndex(0);
+
+        addSession(index, "admin", "1");
+
+        assertEquals(1, index.purgeSession("1"));
+        assertEquals(0, index.purgeSession("1"));
+        assertEquals(0, index.getSessionCount("admin"));
+        assertEquals(0, index.logoutAll("admin"));
+        assertFalse(index.remove("1"));
+    }
+
+    @Test
+    public void testExpiredSessionsArePurged() throws Exception {
+        UserSessionIndex index = new UserSessionIndex(0);
+
+        index.add("admin", "1", new PicketBoxSharedSession("1", this.store), System.currentTimeMillis() + 1000);
+
+        index.purge(System.currentTimeMillis() + 2000);
+
+        assertEquals(0, index.getSessionCount("admin"));
+    }
+
+    private void addSession(UserSessionIndex index, String principal, String id) {
+        this.store.store(Arrays.asList(new StoredUserContext(id, principal, new String[] { "user" }, Long.MAX_VALUE)));
+        index.add(principal, id, new PicketBoxSharedSession(id, this.store), Long.MAX_VALUE);
+    }
+}
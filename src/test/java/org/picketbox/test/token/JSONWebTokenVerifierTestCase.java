@@ -0,0 +1,176 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.test.token;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.core.util.Base64;
+import org.picketbox.http.token.JSONWebToken;
+import org.picketbox.http.token.JSONWebTokenVerifier;
+
+/**
+ * Unit test the {@link JSONWebTokenVerifier} class
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class JSONWebTokenVerifierTestCase {
+
+    private static final long NOW = 1400000000000L;
+
+    private SecretKeySpec secret;
+    private JSONWebTokenVerifier verifier;
+
+    @Before
+    public void onSetup() throws Exception {
+        this.secret = new SecretKeySpec("secret-shared-with-the-issuer".getBytes("UTF-8"), "HmacSHA256");
+
+        Map<String, Key> keys = new HashMap<String, Key>();
+
+        keys.put(JSONWebTokenVerifier.DEFAULT_KEY_ID, this.secret);
+
+        this.verifier = new JSONWebTokenVerifier(keys, "https://issuer", "api", 1000);
+    }
+
+    @Test
+    public void testValidToken() throws Exception {
+        String token = sign("{\"alg\":\"HS256\",\"typ\":\"JWT\"}", "{\"sub\":\"Aladdin\",\"iss\":\"https://issuer\",\"aud\":[\"api\",\"web\"],\"exp\":"
+                + (NOW / 1000 + 60) + "}");
+
+        JSONWebToken verified = this.verifier.verify(token, NOW);
+
+        assertNotNull(verified);
+        assertEquals("Aladdin", verified.getSubject());
+        assertEquals(NOW + 60000, verified.getExpiration());
+    }
+
+    @Test
+    public void testExpiredToken() throws Exception {
+        String token = sign("{\"alg\":\"HS256\"}", "{\"sub\":\"Aladdin\",\"iss\":\"https://issuer\",\"aud\":\"api\",\"exp\":"
+                + (NOW / 1000 - 60) + "}");
+
+        assertNull(this.verifier.verify(token, NOW));
+    }
+
+    @Test
+    public void testInvalidSignature() throws Exception {
+        String token = sign("{\"alg\":\"HS256\"}", "{\"sub\":\"Aladdin\",\"iss\":\"https://issuer\",\"aud\":\"api\",\"exp\":"
+                + (NOW / 1000 + 60) + "}");
+
+        String tampered = token.substring(0, token.lastIndexOf('.') + 1) + "AAAA" + token.substring(token.lastIndexOf('.') + 5);
+
+        assertNull(this.verifier.verify(tampered, NOW));
+    }
+
+    @Test
+    public void testUnexpectedClaims() throws Exception {
+        String wrongIssuer = sign("{\"alg\":\"HS256\"}", "{\"sub\":\"Aladdin\",\"iss\":\"https://other\",\"aud\":\"api\",\"exp\":"
+                + (NOW / 1000 + 60) + "}");
+        String wrongAudience = sign("{\"alg\":\"HS256\"}", "{\"sub\":\"Aladdin\",\"iss\":\"https://issuer\",\"aud\":\"web\",\"exp\":"
+                + (NOW / 1000 + 60) + "}");
+        String noSubject = sign("{\"alg\":\"HS256\"}", "{\"iss\":\"https://issuer\",\"aud\":\"api\",\"exp\":" + (NOW / 1000 + 60)
+                + "}");
+
+        assertNull(this.verifier.verify(wrongIssuer, NOW));
+        assertNull(this.verifier.verify(wrongAudience, NOW));
+        assertNull(this.verifier.verify(noSubject, NOW));
+    }
+
+    @Test
+    public void testAlgorithmMustMatchKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+
+        generator.initialize(1024);
+
+        KeyPair keyPair = generator.generateKeyPair();
+        Map<String, Key> keys = new HashMap<String, Key>();
+
+        keys.put(JSONWebTokenVerifier.DEFAULT_KEY_ID, keyPair.getPublic());
+
+        JSONWebTokenVerifier rsaVerifier = new JSONWebTokenVerifier(keys, null, null, 0);
+
+        // an HMAC token signed with the encoded public key must not be accepted
+        this.secret = new SecretKeySpec(keyPair.getPublic().getEncoded(), "HmacSHA256");
+
+        String token = sign("{\"alg\":\"HS256\"}", "{\"sub\":\"Aladdin\",\"exp\":" + (NOW / 1000 + 60) + "}");
+
+        assertNull(rsaVerifier.verify(token, NOW));
+        assertNull(rsaVerifier.verify("not.a.token", NOW));
+    }
+
+    @Test
+    public void testDeeplyNestedClaims() throws Exception {
+        StringBuilder nested = new StringBuilder();
+
+        for (int i = 0; i < 10; i++) {
+            nested.append('[');
+        }
+
+        for (int i = 0; i < 10; i++) {
+            nested.append(']');
+        }
+
+        assertNotNull(JSONWebToken.parse(sign("{\"alg\":\"HS256\"}", "{\"sub\":\"Aladdin\",\"x\":" + nested + "}")));
+
+        nested.setLength(0);
+
+        // parsed before the signature is checked, must be rejected without exhausting the stack
+        for (int i = 0; i < 100000; i++) {
+            nested.append('[');
+        }
+
+        for (int i = 0; i < 100000; i++) {
+            nested.append(']');
+        }
+
+        assertNull(JSONWebToken.parse(sign("{\"alg\":\"HS256\"}", "{\"sub\":\"Aladdin\",\"x\":" + nested + "}")));
+    }
+
+    private String sign(String header, String claims) throws Exception {
+        String signingInput = encode(header.getBytes("UTF-8")) + "." + encode(claims.getBytes("UTF-8"));
+        Mac mac = Mac.getInstance("HmacSHA256");
+
+        mac.init(this.secret);
+
+        return signingInput + "." + encode(mac.doFinal(signingInput.getBytes("UTF-8")));
+    }
+
+    private String encode(byte[] value) {
+        String encoded = Base64.encodeBytes(value).replaceAll("[\\s=]", "");
+
+        return encoded.replace('+', '-').replace('/', '_');
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.picketbox.test.token;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.picketbox.http.token.IntrospectedToken;
+import org.picketbox.http.token.TokenIntrospectionClient;
+import org.picketbox.test.http.jetty.EmbeddedIntrospectionServer;
+
+/**
+ * Unit test the {@link TokenIntrospectionClient} class against the {@link EmbeddedIntrospectionServer}
+ *
+ * @author <a href="mailto:psilva@redhat.com">Pedro Silva</a>
+ *
+ */
+public class TokenIntrospectionClientTestCase {
+
+    private EmbeddedIntrospectionServer server;
+
+    @Before
+    public void onSetup() throws Exception {
+        this.server = new EmbeddedIntrospectionServer(11090);
+        this.server.start();
+    }
+
+    @After
+    public void onFinish() throws Exception {
+        this.server.stop();
+    }
+
+    @Test
+    public void testActiveToken() throws Exception {
+        long expiresAt = (System.currentTimeMillis() / 1000 + 60) * 1000;
+
+        this.server.addToken("2YotnFZFEjr1zCsicMWpAA", "Aladdin", expiresAt);
+
+        TokenIntrospectionClient client = createClient(EmbeddedIntrospectionServer.CLIENT_SECRET);
+
+        for (int i = 0; i < 10; i++) {
+            IntrospectedToken token = client.introspect("2YotnFZFEjr1zCsicMWpAA");
+
+            assertNotNull(token);
+            assertEquals("Aladdin", token.getSubject());
+            assertEquals(expiresAt, token.getExpiration());
+        }
+
+        assertEquals(10, this.server.getRequestCount());
+    }
+
+    @Test
+    public void testInactiveToken() throws Exception {
+        TokenIntrospectionClient client = createClient(EmbeddedIntrospectionServer.CLIENT_SECRET);
+
+        assertNull(client.introspect("unknown"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidClientCredentials() throws Exception {
+        TokenIntrospectionClient client = createClient("wrong secret");
+
+        client.introspect("2YotnFZFEjr1zCsicMWpAA");
+    }
+
+    private TokenIntrospectionClient createClient(String clientSecret) throws IOException {
+        return new TokenIntrospectionClient(this.server.getEndpoint(), EmbeddedIntrospectionServer.CLIENT_ID, clientSecret, 2000,
+                5000);
+    }
+}